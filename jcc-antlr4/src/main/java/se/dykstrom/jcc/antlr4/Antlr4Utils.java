@@ -18,6 +18,8 @@
 package se.dykstrom.jcc.antlr4;
 
 import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ErrorNode;
 import org.antlr.v4.runtime.tree.ParseTree;
 import se.dykstrom.jcc.common.error.CompilationErrorListener;
@@ -25,6 +27,8 @@ import se.dykstrom.jcc.common.error.JccException;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.function.Function;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -47,6 +51,46 @@ public final class Antlr4Utils {
         }
     }
 
+    /**
+     * Parses the input of the given parser by invoking the given start rule, using the two-stage
+     * strategy recommended for ANTLR4. The first stage uses the fast SLL prediction mode, with a
+     * {@link BailErrorStrategy}, and without any error listeners. Most valid input is parsed
+     * correctly in SLL mode. Only if the first stage fails, or does not reach EOF, is the
+     * input rewound, and parsed again using full LL prediction mode, the default error strategy,
+     * and the error listeners of the parser. Thus, diagnostics are the same as when parsing in
+     * LL mode only.
+     *
+     * @param parser The parser to use, with its error listeners already added.
+     * @param startRule A function that invokes the start rule of the parser, e.g. {@code BasicParser::program}.
+     * @return The parse tree returned by the start rule.
+     */
+    public static <P extends Parser, T extends ParserRuleContext> T parse(final P parser, final Function<P, T> startRule) {
+        final var errorListeners = new ArrayList<>(parser.getErrorListeners());
+        final var errorHandler = parser.getErrorHandler();
+        final var predictionMode = parser.getInterpreter().getPredictionMode();
+
+        // Stage 1: SLL
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        try {
+            final T ctx = startRule.apply(parser);
+            if (parser.getCurrentToken().getType() == Token.EOF) {
+                return ctx;
+            }
+        } catch (ParseCancellationException ignore) {
+            // Try again using LL
+        } finally {
+            errorListeners.forEach(parser::addErrorListener);
+            parser.setErrorHandler(errorHandler);
+        }
+
+        // Stage 2: LL
+        parser.reset();
+        parser.getInterpreter().setPredictionMode(predictionMode == PredictionMode.SLL ? PredictionMode.LL : predictionMode);
+        return startRule.apply(parser);
+    }
+
     /**
      * Converts an InputStream to an ANTLR4 specific CharStream.
      */
@@ -17,11 +17,10 @@
 
 package se.dykstrom.jcc.assembunny.code.asm.expression;
 
-import se.dykstrom.jcc.assembunny.compiler.AssembunnyUtils;
+import se.dykstrom.jcc.assembunny.compiler.AssembunnyCodeGenerator;
 import se.dykstrom.jcc.common.ast.IdentifierDerefExpression;
 import se.dykstrom.jcc.common.code.Line;
 import se.dykstrom.jcc.common.code.expression.IdentifierDerefCodeGenerator;
-import se.dykstrom.jcc.common.compiler.AsmCodeGenerator;
 import se.dykstrom.jcc.common.storage.StorageLocation;
 
 import java.util.List;
@@ -31,15 +30,18 @@ import static se.dykstrom.jcc.common.utils.AsmUtils.getComment;
 
 public class AssembunnyIdentifierDerefCodeGenerator extends IdentifierDerefCodeGenerator {
 
-    public AssembunnyIdentifierDerefCodeGenerator(final AsmCodeGenerator codeGenerator) {
+    private final AssembunnyCodeGenerator assembunnyCodeGenerator;
+
+    public AssembunnyIdentifierDerefCodeGenerator(final AssembunnyCodeGenerator codeGenerator) {
         super(codeGenerator);
+        this.assembunnyCodeGenerator = codeGenerator;
     }
 
     @Override
     public List<Line> generate(final IdentifierDerefExpression expression, final StorageLocation location) {
         return withCodeContainer(cc -> {
             cc.add(getComment(expression));
-            location.moveLocToThis(AssembunnyUtils.getCpuRegister(expression.getIdentifier()), cc);
+            location.moveLocToThis(assembunnyCodeGenerator.getCpuRegister(expression.getIdentifier()), cc);
         });
     }
 }
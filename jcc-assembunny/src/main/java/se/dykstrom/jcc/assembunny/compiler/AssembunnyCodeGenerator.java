@@ -33,6 +33,9 @@ import se.dykstrom.jcc.common.types.I64;
 import se.dykstrom.jcc.common.types.Identifier;
 import se.dykstrom.jcc.common.types.Str;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import static java.util.Arrays.asList;
 import static se.dykstrom.jcc.assembunny.compiler.AssembunnyUtils.*;
 import static se.dykstrom.jcc.common.functions.LibcBuiltIns.CF_PRINTF_STR_VAR;
@@ -49,6 +52,9 @@ public class AssembunnyCodeGenerator extends AbstractCodeGenerator {
     private static final Identifier IDENT_FMT_PRINTF = new Identifier("_fmt_printf", Str.INSTANCE);
     private static final String VALUE_FMT_PRINTF = "\"%lld\",10,0";
 
+    /** Maps Assembunny register to CPU register. */
+    private final Map<String, StorageLocation> registerMap = new HashMap<>();
+
     public AssembunnyCodeGenerator(final TypeManager typeManager,
                                    final SymbolTable symbolTable,
                                    final AstOptimizer optimizer) {
@@ -60,7 +66,7 @@ public class AssembunnyCodeGenerator extends AbstractCodeGenerator {
     @Override
     public TargetProgram generate(final AstProgram program) {
         // Allocate one CPU register for each Assembunny register
-        allocateCpuRegisters(storageFactory);
+        allocateCpuRegisters();
 
         // Initialize all Assembunny registers to 0
         for (AssembunnyRegister assembunnyRegister : AssembunnyRegister.values()) {
@@ -97,6 +103,22 @@ public class AssembunnyCodeGenerator extends AbstractCodeGenerator {
         return asmProgram;
     }
 
+    /**
+     * Allocates one CPU register for each Assembunny register.
+     */
+    private void allocateCpuRegisters() {
+        for (AssembunnyRegister assembunnyRegister : AssembunnyRegister.values()) {
+            registerMap.put(assembunnyRegister.name(), storageFactory.allocateNonVolatile());
+        }
+    }
+
+    /**
+     * Returns the CPU register associated with the given Assembunny register identifier.
+     */
+    public StorageLocation getCpuRegister(final Identifier identifier) {
+        return registerMap.get(identifier.name());
+    }
+
     @Override
     public void statement(Statement statement) {
         if (statement instanceof DecStatement decStatement) {
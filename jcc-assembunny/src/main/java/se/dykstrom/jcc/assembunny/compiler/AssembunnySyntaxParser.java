@@ -49,7 +49,7 @@ public class AssembunnySyntaxParser implements SyntaxParser {
         AssembunnyParser parser = new AssembunnyParser(new CommonTokenStream(lexer));
         parser.addErrorListener(errorListener);
 
-        AssembunnyParser.ProgramContext ctx = parser.program();
+        AssembunnyParser.ProgramContext ctx = Antlr4Utils.parse(parser, AssembunnyParser::program);
         Antlr4Utils.checkParsingComplete(parser);
 
         // If we discovered syntax errors, we stop here
@@ -20,14 +20,9 @@ package se.dykstrom.jcc.assembunny.compiler;
 import se.dykstrom.jcc.assembunny.ast.AssembunnyRegister;
 import se.dykstrom.jcc.common.ast.Expression;
 import se.dykstrom.jcc.common.ast.IdentifierDerefExpression;
-import se.dykstrom.jcc.common.storage.StorageFactory;
-import se.dykstrom.jcc.common.storage.StorageLocation;
 import se.dykstrom.jcc.common.types.I64;
 import se.dykstrom.jcc.common.types.Identifier;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Contains utility methods and constants for the Assembunny language.
  * 
@@ -41,27 +36,8 @@ public class AssembunnyUtils {
     /** The end-of-program jump target where invalid jumps are redirected. */
     public static final String END_JUMP_TARGET = "end";
 
-    /** Maps Assembunny register to CPU register. */
-    private static final Map<String, StorageLocation> REGISTER_MAP = new HashMap<>();
-
     private AssembunnyUtils() { }
 
-    /**
-     * Allocates one CPU register for each Assembunny register.
-     */
-    public static void allocateCpuRegisters(final StorageFactory storageFactory) {
-        for (AssembunnyRegister assembunnyRegister : AssembunnyRegister.values()) {
-            REGISTER_MAP.put(assembunnyRegister.name(), storageFactory.allocateNonVolatile());
-        }
-    }
-
-    /**
-     * Returns the CPU register associated with the Assembunny register in the given expression.
-     */
-    public static StorageLocation getCpuRegister(final Identifier identifier) {
-        return REGISTER_MAP.get(identifier.name());
-    }
-
     public static String lineNumberLabel(final long lineNumber) {
         if (lineNumber < 0) {
             throw new IllegalArgumentException("negative line number");
@@ -19,6 +19,8 @@ package se.dykstrom.jcc.common.assembly.directive;
 
 import se.dykstrom.jcc.common.types.*;
 
+import java.io.IOException;
+
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -46,6 +48,11 @@ public record DataDefinition(Identifier identifier, String value, boolean consta
         return identifier.getMappedName() + " " + toText(type(), constant) + " " + value;
     }
 
+    @Override
+    public void appendTo(final Appendable out) throws IOException {
+        out.append(identifier.getMappedName()).append(' ').append(toText(type(), constant)).append(' ').append(value);
+    }
+
     private String toText(final Type type, final boolean constant) {
         return switch (type) {
             case F64 ignored -> "dq";
@@ -17,6 +17,8 @@
 
 package se.dykstrom.jcc.common.assembly.instruction;
 
+import java.io.IOException;
+
 /**
  * Base class for all "add" instructions.
  *
@@ -37,6 +39,11 @@ public abstract class Add implements Instruction {
         return "add " + destination + ", " + source;
     }
 
+    @Override
+    public void appendTo(final Appendable out) throws IOException {
+        out.append("add ").append(destination).append(", ").append(source);
+    }
+
     @Override
     public String toString() {
         return "add " + destination + ", " + source;
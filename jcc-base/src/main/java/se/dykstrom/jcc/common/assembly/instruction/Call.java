@@ -17,6 +17,7 @@
 
 package se.dykstrom.jcc.common.assembly.instruction;
 
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -44,6 +45,11 @@ public abstract class Call implements Instruction {
         return "call " + target;
     }
 
+    @Override
+    public void appendTo(final Appendable out) throws IOException {
+        out.append("call ").append(target);
+    }
+
     @Override
     public String toString() {
         return "call " + target;
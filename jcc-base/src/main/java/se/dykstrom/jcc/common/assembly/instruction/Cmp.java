@@ -17,6 +17,8 @@
 
 package se.dykstrom.jcc.common.assembly.instruction;
 
+import java.io.IOException;
+
 /**
  * Base class for all "cmp" instructions.
  *
@@ -36,4 +38,9 @@ public abstract class Cmp implements Instruction {
     public String toText() {
         return "cmp " + first + ", " + second;
     }
+
+    @Override
+    public void appendTo(final Appendable out) throws IOException {
+        out.append("cmp ").append(first).append(", ").append(second);
+    }
 }
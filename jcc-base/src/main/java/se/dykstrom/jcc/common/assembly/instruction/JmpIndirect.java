@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.common.assembly.instruction;
+
+import se.dykstrom.jcc.common.assembly.base.Register;
+
+import java.io.IOException;
+
+/**
+ * Represents an indirect "jmp" instruction, that jumps to the address stored in memory,
+ * for example in a jump table, as in "jmp qword [address+8*rcx]".
+ *
+ * @author Johan Dykstrom
+ */
+public class JmpIndirect implements Instruction {
+
+    private final String target;
+
+    public JmpIndirect(String address, int scale, Register offset) {
+        this.target = "qword [" + address + "+" + scale + "*" + offset + "]";
+    }
+
+    /**
+     * Returns the target of the jump.
+     */
+    public String getTarget() {
+        return target;
+    }
+
+    @Override
+    public String toText() {
+        return "jmp " + target;
+    }
+
+    @Override
+    public void appendTo(final Appendable out) throws IOException {
+        out.append("jmp ").append(target);
+    }
+
+    @Override
+    public String toString() {
+        return "jmp " + target;
+    }
+}
@@ -19,6 +19,8 @@ package se.dykstrom.jcc.common.assembly.instruction;
 
 import se.dykstrom.jcc.common.code.Label;
 
+import java.io.IOException;
+
 /**
  * Base class for all jump instructions, for example "jmp" or "je".
  *
@@ -46,6 +48,11 @@ public abstract class Jump implements Instruction {
         return instruction + " " + target.getMappedName();
     }
 
+    @Override
+    public void appendTo(final Appendable out) throws IOException {
+        out.append(instruction).append(' ').append(target.getMappedName());
+    }
+
     @Override
     public String toString() {
         return instruction + " " + target.getName();
@@ -19,6 +19,8 @@ package se.dykstrom.jcc.common.assembly.instruction;
 
 import se.dykstrom.jcc.common.assembly.base.OperandSize;
 
+import java.io.IOException;
+
 /**
  * Base class for all "mov" instructions.
  *
@@ -60,6 +62,15 @@ abstract class Move implements Instruction {
         return "mov " + destination + ", " + (size != null ? size + " " : "") + source;
     }
 
+    @Override
+    public void appendTo(final Appendable out) throws IOException {
+        out.append("mov ").append(destination).append(", ");
+        if (size != null) {
+            out.append(size.toString()).append(' ');
+        }
+        out.append(source);
+    }
+
     @Override
     public String toString() {
         return "mov " + destination + ", " + (size != null ? size + " " : "") + source;
@@ -17,6 +17,8 @@
 
 package se.dykstrom.jcc.common.assembly.instruction;
 
+import java.io.IOException;
+
 /**
  * Base class for all "pop" instructions.
  *
@@ -35,6 +37,11 @@ abstract class Pop implements Instruction {
         return "pop " + destination;
     }
 
+    @Override
+    public void appendTo(final Appendable out) throws IOException {
+        out.append("pop ").append(destination);
+    }
+
     @Override
     public String toString() {
         return "pop " + destination;
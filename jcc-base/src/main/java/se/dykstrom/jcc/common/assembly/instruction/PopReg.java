@@ -26,7 +26,14 @@ import se.dykstrom.jcc.common.assembly.base.Register;
  */
 public class PopReg extends Pop {
 
+    private final Register register;
+
     public PopReg(Register destination) {
         super(destination.toString());
+        this.register = destination;
+    }
+
+    public Register getRegister() {
+        return register;
     }
 }
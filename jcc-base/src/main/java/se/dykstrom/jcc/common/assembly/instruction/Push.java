@@ -17,6 +17,8 @@
 
 package se.dykstrom.jcc.common.assembly.instruction;
 
+import java.io.IOException;
+
 /**
  * Base class for all "push" instructions.
  *
@@ -35,6 +37,11 @@ abstract class Push implements Instruction {
         return "push " + source;
     }
 
+    @Override
+    public void appendTo(final Appendable out) throws IOException {
+        out.append("push ").append(source);
+    }
+
     @Override
     public String toString() {
         return "push " + source;
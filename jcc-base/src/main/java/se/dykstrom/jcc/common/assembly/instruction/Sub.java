@@ -17,6 +17,8 @@
 
 package se.dykstrom.jcc.common.assembly.instruction;
 
+import java.io.IOException;
+
 /**
  * Base class for all "sub" instructions.
  *
@@ -37,6 +39,11 @@ public abstract class Sub implements Instruction {
         return "sub " + destination + ", " + source;
     }
 
+    @Override
+    public void appendTo(final Appendable out) throws IOException {
+        out.append("sub ").append(destination).append(", ").append(source);
+    }
+
     @Override
     public String toString() {
         return "sub " + destination + ", " + source;
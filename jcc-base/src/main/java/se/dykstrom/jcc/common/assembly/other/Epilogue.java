@@ -33,13 +33,22 @@ import static se.dykstrom.jcc.common.assembly.base.Register.RBP;
 import static se.dykstrom.jcc.common.assembly.base.Register.RSP;
 
 /**
- * Represents a function epilogue, where non-volatile registers are restored from the stack.
+ * Represents a function epilogue, where non-volatile registers are restored from the stack,
+ * and the stack space reserved for temporary storage is released.
  *
  * @author Johan Dykstrom
  */
 public class Epilogue extends CodeContainer {
 
     public Epilogue(final Set<Register> registers, final Set<FloatRegister> floatRegisters) {
+        this(registers, floatRegisters, 0);
+    }
+
+    /**
+     * Creates a new epilogue that also releases the {@code frameSize} bytes
+     * reserved in the stack frame by the matching {@link Prologue}.
+     */
+    public Epilogue(final Set<Register> registers, final Set<FloatRegister> floatRegisters, final int frameSize) {
         add(Blank.INSTANCE);
 
         if (!floatRegisters.isEmpty()) {
@@ -66,6 +75,11 @@ public class Epilogue extends CodeContainer {
             registers.stream().sorted(Comparator.reverseOrder()).map(PopReg::new).forEach(this::add);
         }
 
+        if (frameSize > 0) {
+            add(new AssemblyComment("Release stack frame"));
+            add(new AddImmToReg(Integer.toHexString(frameSize) + "h", RSP));
+        }
+
         add(new AssemblyComment("Restore base pointer"));
         add(new PopReg(RBP));
     }
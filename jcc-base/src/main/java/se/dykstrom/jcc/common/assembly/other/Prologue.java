@@ -33,17 +33,31 @@ import static se.dykstrom.jcc.common.assembly.base.Register.RBP;
 import static se.dykstrom.jcc.common.assembly.base.Register.RSP;
 
 /**
- * Represents a function prologue, where non-volatile registers are pushed to the stack.
+ * Represents a function prologue, where stack space is reserved for temporary storage,
+ * and non-volatile registers are pushed to the stack.
  *
  * @author Johan Dykstrom
  */
 public class Prologue extends CodeContainer {
 
     public Prologue(final Set<Register> registers, final Set<FloatRegister> floatRegisters) {
+        this(registers, floatRegisters, 0);
+    }
+
+    /**
+     * Creates a new prologue that also reserves {@code frameSize} bytes in the stack frame,
+     * just below the saved base pointer. The frame size must be a multiple of 16.
+     */
+    public Prologue(final Set<Register> registers, final Set<FloatRegister> floatRegisters, final int frameSize) {
         add(new AssemblyComment("Save base pointer"));
         add(new PushReg(RBP));
         add(new MoveRegToReg(RSP, RBP));
 
+        if (frameSize > 0) {
+            add(new AssemblyComment("Reserve stack frame"));
+            add(new SubImmFromReg(Integer.toHexString(frameSize) + "h", RSP));
+        }
+
         if (!registers.isEmpty()) {
             add(new AssemblyComment("Save g.p. registers"));
             // Push all used non-volatile g.p. registers
@@ -181,6 +181,32 @@ public final class Snippets {
         );
     }
 
+    public static List<Line> memcpy(Register destination, Register source, Register count) {
+        return List.of(
+                (destination != RCX) ? new MoveRegToReg(destination, RCX) : new AssemblyComment("memcpy destination already in rcx"),
+                (source != RDX) ? new MoveRegToReg(source, RDX) : new AssemblyComment("memcpy source already in rdx"),
+                (count != R8) ? new MoveRegToReg(count, R8) : new AssemblyComment("memcpy count already in r8"),
+                new SubImmFromReg(SHADOW_SPACE, RSP),
+                new CallIndirect(new FixedLabel(CF_MEMCPY_STR_STR_I64.getMappedName())),
+                new AddImmToReg(SHADOW_SPACE, RSP)
+        );
+    }
+
+    /**
+     * Searches the first {@code count} characters in {@code address} for a null character.
+     * Returns the address of the null character in RAX, or 0 if not found.
+     */
+    public static List<Line> memchr(Register address, Register count) {
+        return List.of(
+                (address != RCX) ? new MoveRegToReg(address, RCX) : new AssemblyComment("memchr address already in rcx"),
+                (count != R8) ? new MoveRegToReg(count, R8) : new AssemblyComment("memchr count already in r8"),
+                new XorRegWithReg(RDX, RDX),
+                new SubImmFromReg(SHADOW_SPACE, RSP),
+                new CallIndirect(new FixedLabel(CF_MEMCHR_STR_I64_I64.getMappedName())),
+                new AddImmToReg(SHADOW_SPACE, RSP)
+        );
+    }
+
     public static List<Line> strcat(Register destination, Register source) {
         return List.of(
                 (destination != RCX) ? new MoveRegToReg(destination, RCX) : new AssemblyComment("strcat destination already in rcx"),
@@ -32,4 +32,9 @@ public class Blank implements Line {
     public String toText() {
         return "";
     }
+
+    @Override
+    public void appendTo(final Appendable out) {
+        // Nothing to append
+    }
 }
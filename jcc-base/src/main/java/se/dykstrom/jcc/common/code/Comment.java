@@ -17,6 +17,8 @@
 
 package se.dykstrom.jcc.common.code;
 
+import java.io.IOException;
+
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -39,6 +41,11 @@ public class Comment implements Line {
         return commentLeader + " " + text;
     }
 
+    @Override
+    public void appendTo(final Appendable out) throws IOException {
+        out.append(commentLeader).append(' ').append(text);
+    }
+
     @Override
     public String toString() {
         return toText();
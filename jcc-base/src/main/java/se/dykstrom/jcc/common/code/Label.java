@@ -17,6 +17,7 @@
 
 package se.dykstrom.jcc.common.code;
 
+import java.io.IOException;
 import java.util.Objects;
 
 import static java.util.Objects.requireNonNull;
@@ -54,6 +55,11 @@ public class Label implements Line {
         return getMappedName() + ":";
     }
 
+    @Override
+    public void appendTo(final Appendable out) throws IOException {
+        out.append('_').append(name).append(':');
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -17,6 +17,8 @@
 
 package se.dykstrom.jcc.common.code;
 
+import java.io.IOException;
+
 /**
  * Interface to be implemented by all code lines in the target language
  * used as input to the backend assembler or C compiler. This includes
@@ -29,4 +31,15 @@ public interface Line {
      * Returns the textual representation of this code line in the target language.
      */
     String toText();
+
+    /**
+     * Appends the textual representation of this code line to {@code out}. This is equivalent
+     * to appending the result of {@link #toText()}, but lets implementations write the parts
+     * of the line directly, without first building a string.
+     *
+     * @throws IOException If writing to {@code out} fails.
+     */
+    default void appendTo(final Appendable out) throws IOException {
+        out.append(toText());
+    }
 }
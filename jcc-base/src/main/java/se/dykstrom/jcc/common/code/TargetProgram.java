@@ -17,9 +17,16 @@
 
 package se.dykstrom.jcc.common.code;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
-import static java.util.stream.Collectors.joining;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static se.dykstrom.jcc.common.utils.FormatUtils.EOL;
 
 /**
@@ -46,6 +53,48 @@ public class TargetProgram extends CodeContainer {
      * including blank lines, comments, and line breaks.
      */
     public String toText() {
-        return lines().stream().map(Line::toText).collect(joining(EOL));
+        final var writer = new StringWriter();
+        try {
+            writeLines(writer);
+        } catch (IOException e) {
+            // Cannot happen when writing to a StringWriter
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Writes the textual representation of the entire program to the file {@code path},
+     * followed by a line break. The program is written one line at a time, through a
+     * buffered writer, so no string containing the entire program is ever created.
+     *
+     * @throws IOException If writing the file fails.
+     */
+    public void writeTo(final Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, UTF_8)) {
+            writeTo(writer);
+        }
+    }
+
+    /**
+     * Writes the textual representation of the entire program to {@code writer},
+     * followed by a line break.
+     *
+     * @throws IOException If writing fails.
+     */
+    public void writeTo(final Writer writer) throws IOException {
+        writeLines(writer);
+        writer.write(EOL);
+    }
+
+    private void writeLines(final Writer writer) throws IOException {
+        boolean first = true;
+        for (Line line : lines()) {
+            if (!first) {
+                writer.write(EOL);
+            }
+            line.appendTo(writer);
+            first = false;
+        }
     }
 }
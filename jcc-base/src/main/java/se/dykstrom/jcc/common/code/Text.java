@@ -17,6 +17,8 @@
 
 package se.dykstrom.jcc.common.code;
 
+import java.io.IOException;
+
 import static java.util.Objects.requireNonNull;
 
 public class Text implements Line {
@@ -32,6 +34,11 @@ public class Text implements Line {
         return text;
     }
 
+    @Override
+    public void appendTo(final Appendable out) throws IOException {
+        out.append(text);
+    }
+
     @Override
     public String toString() {
         return "Text: " + text;
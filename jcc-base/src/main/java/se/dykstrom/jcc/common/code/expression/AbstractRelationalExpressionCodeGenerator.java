@@ -22,6 +22,7 @@ import se.dykstrom.jcc.common.code.Label;
 import se.dykstrom.jcc.common.assembly.instruction.Instruction;
 import se.dykstrom.jcc.common.assembly.instruction.Jmp;
 import se.dykstrom.jcc.common.ast.BinaryExpression;
+import se.dykstrom.jcc.common.ast.Expression;
 import se.dykstrom.jcc.common.code.CodeContainer;
 import se.dykstrom.jcc.common.code.Line;
 import se.dykstrom.jcc.common.compiler.AbstractCodeGenerator;
@@ -48,6 +49,14 @@ public abstract class AbstractRelationalExpressionCodeGenerator<E extends Binary
         super(codeGenerator);
     }
 
+    /**
+     * Generates code for the relational expression denoted by {@code expression}, that jumps
+     * to {@code label} if the result of the comparison equals {@code jumpIfTrue}. Contrary to
+     * {@link #generate(Expression, StorageLocation)}, the result of the comparison is never
+     * stored as a truth value, but used directly in a conditional branch instruction.
+     */
+    public abstract List<Line> generateJump(E expression, Label label, boolean jumpIfTrue);
+
     /**
      * Generates code for the relational expression denoted by {@code expression},
      * storing the result in {@code leftLocation}. The functions {@code branchFunction}
@@ -63,26 +72,70 @@ public abstract class AbstractRelationalExpressionCodeGenerator<E extends Binary
                                               StorageLocation leftLocation,
                                               Function<Label, Instruction> branchFunction,
                                               Function<Label, Instruction> floatBranchFunction) {
+        CodeContainer cc = new CodeContainer();
+
+        boolean isFloat = compare(expression, leftLocation, cc);
+
+        // Generate a unique label name
+        Label afterCmpLabel = new Label(codeGenerator.uniquifyLabelName("after_cmp_"));
+
+        // Store result of comparison in leftLocation
+        cc.add((isFloat ? floatBranchFunction : branchFunction).apply(LABEL_ANON_FWD));
+        leftLocation.moveImmToThis("0", cc); // FALSE
+        cc.add(new Jmp(afterCmpLabel));
+        cc.add(LABEL_ANON_TARGET);
+        leftLocation.moveImmToThis("-1", cc); // TRUE
+        cc.add(afterCmpLabel);
+
+        return cc.lines();
+    }
+
+    /**
+     * Generates code for the relational expression denoted by {@code expression}, that
+     * jumps to {@code label} if the comparison succeeds. The functions {@code branchFunction}
+     * and {@code floatBranchFunction} are the same as in {@link #relationalExpression(
+     * BinaryExpression, StorageLocation, Function, Function)}. To jump if the comparison
+     * fails, use the functions of the negated relational expression instead.
+     */
+    protected List<Line> relationalJump(BinaryExpression expression,
+                                        Label label,
+                                        Function<Label, Instruction> branchFunction,
+                                        Function<Label, Instruction> floatBranchFunction) {
+        CodeContainer cc = new CodeContainer();
+
+        try (StorageLocation location = storageFactory().allocateNonVolatile()) {
+            boolean isFloat = compare(expression, location, cc);
+            cc.add((isFloat ? floatBranchFunction : branchFunction).apply(label));
+        }
+
+        return cc.lines();
+    }
+
+    /**
+     * Generates code for comparing the subexpressions of {@code expression}, leaving the result
+     * of the comparison in the flags register. Integer and string values are evaluated using
+     * {@code leftLocation}. Returns {@code true} if this was a floating point comparison.
+     */
+    private boolean compare(BinaryExpression expression, StorageLocation leftLocation, CodeContainer cc) {
         Type leftType = types().getType(expression.getLeft());
         Type rightType = types().getType(expression.getRight());
 
         if (leftType == Str.INSTANCE) {
-            return relationalStringExpression(expression, leftLocation, branchFunction);
+            compareStrings(expression, leftLocation, cc);
+            return false;
         } else if (leftType == F64.INSTANCE || rightType == F64.INSTANCE) {
-            return relationalFloatExpression(expression, leftLocation, floatBranchFunction);
+            compareFloats(expression, cc);
+            return true;
         } else {
-            return relationalIntegerExpression(expression, leftLocation, branchFunction);
+            compareIntegers(expression, leftLocation, cc);
+            return false;
         }
     }
 
     /**
      * Generates code for comparing one or more floating point values.
      */
-    private List<Line> relationalFloatExpression(BinaryExpression expression,
-                                                 StorageLocation leftLocation,
-                                                 Function<Label, Instruction> branchFunction) {
-        CodeContainer cc = new CodeContainer();
-
+    private void compareFloats(BinaryExpression expression, CodeContainer cc) {
         try (StorageLocation leftFloatLocation = storageFactory().allocateNonVolatile(F64.INSTANCE);
              StorageLocation rightFloatLocation = storageFactory().allocateNonVolatile(F64.INSTANCE)) {
             // Generate code for left sub expression, and store result in leftFloatLocation
@@ -90,77 +143,37 @@ public abstract class AbstractRelationalExpressionCodeGenerator<E extends Binary
             // Generate code for right sub expression, and store result in rightFloatLocation
             cc.addAll(codeGenerator.expression(expression.getRight(), rightFloatLocation));
 
-            // Generate a unique label name
-            Label afterCmpLabel = new Label(codeGenerator.uniquifyLabelName("after_cmp_"));
-
-            // Generate code for comparing sub expressions, and store result in leftLocation
+            // Generate code for comparing sub expressions
             cc.add(getComment(expression));
             leftFloatLocation.compareThisWithLoc(rightFloatLocation, cc);
-            cc.add(branchFunction.apply(LABEL_ANON_FWD));
-            leftLocation.moveImmToThis("0", cc); // FALSE
-            cc.add(new Jmp(afterCmpLabel));
-            cc.add(LABEL_ANON_TARGET);
-            leftLocation.moveImmToThis("-1", cc); // TRUE
-            cc.add(afterCmpLabel);
         }
-
-        return cc.lines();
     }
 
     /**
      * Generates code for comparing two integer values.
      */
-    private List<Line> relationalIntegerExpression(BinaryExpression expression,
-                                                   StorageLocation leftLocation,
-                                                   Function<Label, Instruction> branchFunction) {
-        CodeContainer cc = new CodeContainer();
-
+    private void compareIntegers(BinaryExpression expression, StorageLocation leftLocation, CodeContainer cc) {
         // Generate code for left sub expression, and store result in leftLocation
         cc.addAll(codeGenerator.expression(expression.getLeft(), leftLocation));
 
         try (StorageLocation rightLocation = storageFactory().allocateNonVolatile()) {
             // Generate code for right sub expression, and store result in rightLocation
             cc.addAll(codeGenerator.expression(expression.getRight(), rightLocation));
-            // Generate a unique label name
-            Label afterCmpLabel = new Label(codeGenerator.uniquifyLabelName("after_cmp_"));
 
-            // Generate code for comparing sub expressions, and store result in leftLocation
+            // Generate code for comparing sub expressions
             cc.add(getComment(expression));
             leftLocation.compareThisWithLoc(rightLocation, cc);
-            cc.add(branchFunction.apply(LABEL_ANON_FWD));
-            leftLocation.moveImmToThis("0", cc); // FALSE
-            cc.add(new Jmp(afterCmpLabel));
-            cc.add(LABEL_ANON_TARGET);
-            leftLocation.moveImmToThis("-1", cc); // TRUE
-            cc.add(afterCmpLabel);
         }
-
-        return cc.lines();
     }
 
     /**
      * Generates code for comparing two string values.
      */
-    private List<Line> relationalStringExpression(BinaryExpression expression,
-                                                  StorageLocation leftLocation,
-                                                  Function<Label, Instruction> branchFunction) {
-        CodeContainer cc = new CodeContainer();
-
+    private void compareStrings(BinaryExpression expression, StorageLocation leftLocation, CodeContainer cc) {
         // Evaluate expressions, and call strcmp, ending up with the result in RAX
         cc.addAll(codeGenerator.functionCall(CF_STRCMP_STR_STR, getComment(expression), asList(expression.getLeft(), expression.getRight()), leftLocation));
 
-        // Generate a unique label name
-        Label afterCmpLabel = new Label(codeGenerator.uniquifyLabelName("after_cmp_"));
-
-        // Generate code for comparing the result of calling strcmp with 0, and store result in leftLocation
+        // Generate code for comparing the result of calling strcmp with 0
         leftLocation.compareThisWithImm("0", cc);
-        cc.add(branchFunction.apply(LABEL_ANON_FWD));
-        leftLocation.moveImmToThis("0", cc); // FALSE
-        cc.add(new Jmp(afterCmpLabel));
-        cc.add(LABEL_ANON_TARGET);
-        leftLocation.moveImmToThis("-1", cc); // TRUE
-        cc.add(afterCmpLabel);
-
-        return cc.lines();
     }
 }
@@ -18,8 +18,10 @@
 package se.dykstrom.jcc.common.code.expression;
 
 import se.dykstrom.jcc.common.assembly.instruction.Je;
+import se.dykstrom.jcc.common.assembly.instruction.Jne;
 import se.dykstrom.jcc.common.ast.EqualExpression;
 import se.dykstrom.jcc.common.compiler.AbstractCodeGenerator;
+import se.dykstrom.jcc.common.code.Label;
 import se.dykstrom.jcc.common.code.Line;
 import se.dykstrom.jcc.common.storage.StorageLocation;
 
@@ -33,4 +35,13 @@ public class EqualCodeGenerator extends AbstractRelationalExpressionCodeGenerato
     public List<Line> generate(EqualExpression expression, StorageLocation leftLocation) {
         return relationalExpression(expression, leftLocation, Je::new, Je::new);
     }
+
+    @Override
+    public List<Line> generateJump(EqualExpression expression, Label label, boolean jumpIfTrue) {
+        if (jumpIfTrue) {
+            return relationalJump(expression, label, Je::new, Je::new);
+        } else {
+            return relationalJump(expression, label, Jne::new, Jne::new);
+        }
+    }
 }
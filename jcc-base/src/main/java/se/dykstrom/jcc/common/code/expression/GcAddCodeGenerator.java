@@ -21,6 +21,7 @@ import se.dykstrom.jcc.common.assembly.base.AssemblyComment;
 import se.dykstrom.jcc.common.assembly.other.Snippets;
 import se.dykstrom.jcc.common.ast.AddExpression;
 import se.dykstrom.jcc.common.ast.Expression;
+import se.dykstrom.jcc.common.ast.StringLiteral;
 import se.dykstrom.jcc.common.code.Blank;
 import se.dykstrom.jcc.common.code.CodeContainer;
 import se.dykstrom.jcc.common.code.Line;
@@ -28,12 +29,13 @@ import se.dykstrom.jcc.common.compiler.AsmCodeGenerator;
 import se.dykstrom.jcc.common.storage.StorageLocation;
 import se.dykstrom.jcc.common.types.I64;
 import se.dykstrom.jcc.common.types.Str;
-import se.dykstrom.jcc.common.types.Type;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static java.util.stream.Collectors.joining;
 import static se.dykstrom.jcc.common.assembly.base.Register.*;
 import static se.dykstrom.jcc.common.functions.FunctionUtils.LIB_LIBC;
 import static se.dykstrom.jcc.common.functions.LibcBuiltIns.*;
@@ -41,6 +43,10 @@ import static se.dykstrom.jcc.common.functions.MemoryManagementUtils.allocatesDy
 
 /**
  * GC extension of {@link AddCodeGenerator} that also handles string addition.
+ * A chain of string additions is generated as a single concatenation, that
+ * allocates the result string once. The length of each string is calculated
+ * once, and the strings are then copied to the result string using memcpy,
+ * without scanning them again.
  */
 public class GcAddCodeGenerator extends AddCodeGenerator {
 
@@ -48,76 +54,89 @@ public class GcAddCodeGenerator extends AddCodeGenerator {
 
     @Override
     public List<Line> generate(AddExpression expression, StorageLocation leftLocation) {
-        Expression left = expression.getLeft();
-        Expression right = expression.getRight();
-
-        Type leftType = types().getType(left);
-        Type rightType = types().getType(right);
-
         // If this is a string addition (concatenation)
-        if (leftType instanceof Str && rightType instanceof Str) {
+        if (isStringAddition(expression)) {
             CodeContainer cc = new CodeContainer();
 
             cc.add(Blank.INSTANCE);
             cc.add(new AssemblyComment("--- " + expression + " -->"));
 
-            // Generate code for left sub expression, and store result in leftLocation
-            cc.addAll(codeGenerator.expression(expression.getLeft(), leftLocation));
+            // Flatten a chain of string additions, like a$ + b$ + c$, into a list of operands,
+            // so that the result string can be allocated once, and each operand copied once
+            final List<Expression> operands = new ArrayList<>();
+            flatten(expression, operands);
 
-            try (StorageLocation rightLocation = storageFactory().allocateNonVolatile(rightType);
-                 StorageLocation tmpLocation = storageFactory().allocateNonVolatile(I64.INSTANCE)) {
+            final List<StorageLocation> valueLocations = new ArrayList<>();
+            final List<StorageLocation> lengthLocations = new ArrayList<>();
+            try (StorageLocation tmpLocation = storageFactory().allocateNonVolatile(I64.INSTANCE);
+                 StorageLocation destinationLocation = storageFactory().allocateNonVolatile(I64.INSTANCE)) {
                 final var rcx = storageFactory().get(RCX);
                 final var rdx = storageFactory().get(RDX);
+                final var r8 = storageFactory().get(R8);
+
+                // Generate code for first operand, and store result in leftLocation,
+                // and then generate code for the other operands
+                valueLocations.add(leftLocation);
+                cc.addAll(codeGenerator.expression(operands.getFirst(), leftLocation));
+                for (int i = 1; i < operands.size(); i++) {
+                    final var operand = operands.get(i);
+                    final var valueLocation = storageFactory().allocateNonVolatile(types().getType(operand));
+                    valueLocations.add(valueLocation);
+                    cc.addAll(codeGenerator.expression(operand, valueLocation));
+                }
 
-                // Generate code for right sub expression, and store result in rightLocation
-                cc.addAll(codeGenerator.expression(expression.getRight(), rightLocation));
-
-                // Calculate length of result string
-                cc.add(new AssemblyComment("Calculate length of strings to add (" + leftLocation + " and " + rightLocation + ")"));
-
-                rcx.moveLocToThis(leftLocation, cc);
-                cc.addAll(Snippets.strlen(RCX));
-                cc.add(new AssemblyComment("Move length (rax) to tmp location (" + tmpLocation + ")"));
-                tmpLocation.moveLocToThis(storageFactory().get(RAX), cc);
-
-                rcx.moveLocToThis(rightLocation, cc);
-                cc.addAll(Snippets.strlen(RCX));
-                cc.add(new AssemblyComment("Add length (rax) to tmp location (" + tmpLocation + ")"));
-                tmpLocation.addLocToThis(storageFactory().get(RAX), cc);
+                // Calculate length of strings, each string is scanned at most once
+                cc.add(new AssemblyComment("Calculate length of strings to add (" + valueLocations.stream().map(Object::toString).collect(joining(", ")) + ")"));
+                for (int i = 0; i < operands.size(); i++) {
+                    final var lengthLocation = storageFactory().allocateNonVolatile(I64.INSTANCE);
+                    lengthLocations.add(lengthLocation);
+                    calculateLength(operands.get(i), valueLocations.get(i), lengthLocation, cc);
+                }
 
-                // Add one for the null character
+                // Calculate length of result string, plus one for the null character
+                tmpLocation.moveLocToThis(lengthLocations.getFirst(), cc);
+                for (int i = 1; i < operands.size(); i++) {
+                    tmpLocation.addLocToThis(lengthLocations.get(i), cc);
+                }
                 tmpLocation.incrementThis(cc);
 
                 // Allocate memory for result string
                 rcx.moveLocToThis(tmpLocation, cc);
                 cc.addAll(Snippets.malloc(RCX));              // Address to new string in RAX
 
-                // Copy left string to result string
-                cc.add(new AssemblyComment("Copy left string (" + leftLocation + ") to result string (rax)"));
-                rcx.moveRegToThis(RAX, cc);
-                rdx.moveLocToThis(leftLocation, cc);
-                cc.addAll(Snippets.strcpy(RCX, RDX));         // Address to new string still in RAX
-
-                // Copy right string to result string
-                cc.add(new AssemblyComment("Copy right string (" + rightLocation + ") to result string (rax)"));
-                rcx.moveRegToThis(RAX, cc);
-                rdx.moveLocToThis(rightLocation, cc);
-                cc.addAll(Snippets.strcat(RCX, RDX));         // Address to new string still in RAX
-
                 // Save result value (address to new string) in tmpLocation
                 cc.add(new AssemblyComment("Move result string (rax) to tmp location (" + tmpLocation + ")"));
                 tmpLocation.moveRegToThis(RAX, cc);
 
-                // Free any dynamic memory that we don't need any more
-                if (allocatesDynamicMemory(left, leftType)) {
-                    cc.add(new AssemblyComment("Free dynamic memory in " + leftLocation));
-                    rcx.moveLocToThis(leftLocation, cc);
-                    cc.addAll(Snippets.free(RCX));
+                // Copy each string to the end of the result string, the last one including the null character
+                for (int i = 0; i < operands.size(); i++) {
+                    final var last = i == operands.size() - 1;
+                    cc.add(new AssemblyComment("Copy string (" + valueLocations.get(i) + ") to result string (" + tmpLocation + ")"));
+                    if (i == 0) {
+                        rcx.moveLocToThis(tmpLocation, cc);
+                    } else {
+                        rcx.moveLocToThis(destinationLocation, cc);
+                    }
+                    rdx.moveLocToThis(valueLocations.get(i), cc);
+                    r8.moveLocToThis(lengthLocations.get(i), cc);
+                    if (last) {
+                        r8.incrementThis(cc);
+                    }
+                    cc.addAll(Snippets.memcpy(RCX, RDX, R8)); // Address to copied string in RAX
+                    if (!last) {
+                        destinationLocation.moveRegToThis(RAX, cc);
+                        destinationLocation.addLocToThis(lengthLocations.get(i), cc);
+                    }
                 }
-                if (allocatesDynamicMemory(right, rightType)) {
-                    cc.add(new AssemblyComment("Free dynamic memory in " + rightLocation));
-                    rcx.moveLocToThis(rightLocation, cc);
-                    cc.addAll(Snippets.free(RCX));
+
+                // Free any dynamic memory that we don't need any more
+                for (int i = 0; i < operands.size(); i++) {
+                    final var operand = operands.get(i);
+                    if (allocatesDynamicMemory(operand, types().getType(operand))) {
+                        cc.add(new AssemblyComment("Free dynamic memory in " + valueLocations.get(i)));
+                        rcx.moveLocToThis(valueLocations.get(i), cc);
+                        cc.addAll(Snippets.free(RCX));
+                    }
                 }
 
                 // Move result to leftLocation where it is expected to be
@@ -126,7 +145,11 @@ public class GcAddCodeGenerator extends AddCodeGenerator {
                 cc.add(new AssemblyComment("<-- " + expression + " ---"));
                 cc.add(Blank.INSTANCE);
 
-                codeGenerator.addAllFunctionDependencies(Map.of(LIB_LIBC, Set.of(CF_FREE_I64, CF_MALLOC_I64, CF_STRCAT_STR_STR, CF_STRCPY_STR_STR, CF_STRLEN_STR)));
+                codeGenerator.addAllFunctionDependencies(Map.of(LIB_LIBC, Set.of(CF_FREE_I64, CF_MALLOC_I64, CF_MEMCPY_STR_STR_I64, CF_STRLEN_STR)));
+            } finally {
+                // Free all storage locations allocated here, but not leftLocation, which belongs to the caller
+                valueLocations.stream().skip(1).forEach(StorageLocation::close);
+                lengthLocations.forEach(StorageLocation::close);
             }
             return cc.lines();
         } else {
@@ -134,4 +157,53 @@ public class GcAddCodeGenerator extends AddCodeGenerator {
             return super.generate(expression, leftLocation);
         }
     }
+
+    /**
+     * Returns {@code true} if {@code expression} is a string addition, that is, a concatenation.
+     */
+    private boolean isStringAddition(final Expression expression) {
+        return expression instanceof AddExpression addExpression &&
+               types().getType(addExpression.getLeft()) instanceof Str &&
+               types().getType(addExpression.getRight()) instanceof Str;
+    }
+
+    /**
+     * Flattens the (possibly nested) string addition {@code expression} into a list of operands,
+     * that are added to {@code operands} in order from left to right.
+     */
+    private void flatten(final Expression expression, final List<Expression> operands) {
+        if (isStringAddition(expression)) {
+            final var addExpression = (AddExpression) expression;
+            flatten(addExpression.getLeft(), operands);
+            flatten(addExpression.getRight(), operands);
+        } else {
+            operands.add(expression);
+        }
+    }
+
+    /**
+     * Generates code to calculate the length of the string {@code expression}, whose value is stored in
+     * {@code valueLocation}, and store the length in {@code lengthLocation}. The length of a string literal
+     * is known at compile time, while other strings are measured using strlen.
+     */
+    private void calculateLength(final Expression expression,
+                                 final StorageLocation valueLocation,
+                                 final StorageLocation lengthLocation,
+                                 final CodeContainer cc) {
+        if (expression instanceof StringLiteral literal && isAscii(literal.getValue())) {
+            lengthLocation.moveImmToThis(Integer.toString(literal.getValue().length()), cc);
+        } else {
+            storageFactory().get(RCX).moveLocToThis(valueLocation, cc);
+            cc.addAll(Snippets.strlen(RCX));
+            lengthLocation.moveRegToThis(RAX, cc);
+        }
+    }
+
+    /**
+     * Returns {@code true} if all characters in {@code value} are ASCII characters,
+     * so the length in bytes is the same as the number of characters.
+     */
+    private static boolean isAscii(final String value) {
+        return value.chars().allMatch(c -> c < 128);
+    }
 }
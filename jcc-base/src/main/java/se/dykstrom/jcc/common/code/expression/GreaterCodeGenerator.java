@@ -18,9 +18,12 @@
 package se.dykstrom.jcc.common.code.expression;
 
 import se.dykstrom.jcc.common.compiler.AbstractCodeGenerator;
+import se.dykstrom.jcc.common.code.Label;
 import se.dykstrom.jcc.common.code.Line;
 import se.dykstrom.jcc.common.assembly.instruction.Ja;
 import se.dykstrom.jcc.common.assembly.instruction.Jg;
+import se.dykstrom.jcc.common.assembly.instruction.Jbe;
+import se.dykstrom.jcc.common.assembly.instruction.Jle;
 import se.dykstrom.jcc.common.ast.GreaterExpression;
 import se.dykstrom.jcc.common.storage.StorageLocation;
 
@@ -34,4 +37,13 @@ public class GreaterCodeGenerator extends AbstractRelationalExpressionCodeGenera
     public List<Line> generate(GreaterExpression expression, StorageLocation leftLocation) {
         return relationalExpression(expression, leftLocation, Jg::new, Ja::new);
     }
+
+    @Override
+    public List<Line> generateJump(GreaterExpression expression, Label label, boolean jumpIfTrue) {
+        if (jumpIfTrue) {
+            return relationalJump(expression, label, Jg::new, Ja::new);
+        } else {
+            return relationalJump(expression, label, Jle::new, Jbe::new);
+        }
+    }
 }
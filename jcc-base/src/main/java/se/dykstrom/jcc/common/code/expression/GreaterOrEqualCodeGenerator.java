@@ -18,9 +18,12 @@
 package se.dykstrom.jcc.common.code.expression;
 
 import se.dykstrom.jcc.common.compiler.AbstractCodeGenerator;
+import se.dykstrom.jcc.common.code.Label;
 import se.dykstrom.jcc.common.code.Line;
 import se.dykstrom.jcc.common.assembly.instruction.Jae;
 import se.dykstrom.jcc.common.assembly.instruction.Jge;
+import se.dykstrom.jcc.common.assembly.instruction.Jl;
+import se.dykstrom.jcc.common.assembly.instruction.Jb;
 import se.dykstrom.jcc.common.ast.GreaterOrEqualExpression;
 import se.dykstrom.jcc.common.storage.StorageLocation;
 
@@ -34,4 +37,13 @@ public class GreaterOrEqualCodeGenerator extends AbstractRelationalExpressionCod
     public List<Line> generate(GreaterOrEqualExpression expression, StorageLocation leftLocation) {
         return relationalExpression(expression, leftLocation, Jge::new, Jae::new);
     }
+
+    @Override
+    public List<Line> generateJump(GreaterOrEqualExpression expression, Label label, boolean jumpIfTrue) {
+        if (jumpIfTrue) {
+            return relationalJump(expression, label, Jge::new, Jae::new);
+        } else {
+            return relationalJump(expression, label, Jl::new, Jb::new);
+        }
+    }
 }
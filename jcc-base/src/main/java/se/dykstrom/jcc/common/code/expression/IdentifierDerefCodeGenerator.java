@@ -44,8 +44,14 @@ public class IdentifierDerefCodeGenerator extends AbstractExpressionCodeGenerato
             final var name = expression.getIdentifier().name();
             if (symbols().contains(name)) {
                 final var identifier = symbols().getIdentifier(name);
-                // Store the identifier contents (not its address)
-                location.moveMemToThis(identifier.getMappedName(), cc);
+                final var register = storageFactory().getVariableRegister(identifier);
+                if (register != null) {
+                    // The variable is stored in a register
+                    location.moveRegToThis(register, cc);
+                } else {
+                    // Store the identifier contents (not its address)
+                    location.moveMemToThis(identifier.getMappedName(), cc);
+                }
             } else if (symbols().containsFunction(name)) {
                 final var functionType = (Fun) expression.getIdentifier().type();
                 final var function = symbols().getFunction(name, functionType.getArgTypes());
@@ -18,9 +18,12 @@
 package se.dykstrom.jcc.common.code.expression;
 
 import se.dykstrom.jcc.common.compiler.AbstractCodeGenerator;
+import se.dykstrom.jcc.common.code.Label;
 import se.dykstrom.jcc.common.code.Line;
 import se.dykstrom.jcc.common.assembly.instruction.Jb;
 import se.dykstrom.jcc.common.assembly.instruction.Jl;
+import se.dykstrom.jcc.common.assembly.instruction.Jge;
+import se.dykstrom.jcc.common.assembly.instruction.Jae;
 import se.dykstrom.jcc.common.ast.LessExpression;
 import se.dykstrom.jcc.common.storage.StorageLocation;
 
@@ -34,4 +37,13 @@ public class LessCodeGenerator extends AbstractRelationalExpressionCodeGenerator
     public List<Line> generate(LessExpression expression, StorageLocation leftLocation) {
         return relationalExpression(expression, leftLocation, Jl::new, Jb::new);
     }
+
+    @Override
+    public List<Line> generateJump(LessExpression expression, Label label, boolean jumpIfTrue) {
+        if (jumpIfTrue) {
+            return relationalJump(expression, label, Jl::new, Jb::new);
+        } else {
+            return relationalJump(expression, label, Jge::new, Jae::new);
+        }
+    }
 }
@@ -18,9 +18,12 @@
 package se.dykstrom.jcc.common.code.expression;
 
 import se.dykstrom.jcc.common.compiler.AbstractCodeGenerator;
+import se.dykstrom.jcc.common.code.Label;
 import se.dykstrom.jcc.common.code.Line;
 import se.dykstrom.jcc.common.assembly.instruction.Jbe;
 import se.dykstrom.jcc.common.assembly.instruction.Jle;
+import se.dykstrom.jcc.common.assembly.instruction.Jg;
+import se.dykstrom.jcc.common.assembly.instruction.Ja;
 import se.dykstrom.jcc.common.ast.LessOrEqualExpression;
 import se.dykstrom.jcc.common.storage.StorageLocation;
 
@@ -34,4 +37,13 @@ public class LessOrEqualCodeGenerator extends AbstractRelationalExpressionCodeGe
     public List<Line> generate(LessOrEqualExpression expression, StorageLocation leftLocation) {
         return relationalExpression(expression, leftLocation, Jle::new, Jbe::new);
     }
+
+    @Override
+    public List<Line> generateJump(LessOrEqualExpression expression, Label label, boolean jumpIfTrue) {
+        if (jumpIfTrue) {
+            return relationalJump(expression, label, Jle::new, Jbe::new);
+        } else {
+            return relationalJump(expression, label, Jg::new, Ja::new);
+        }
+    }
 }
@@ -18,8 +18,10 @@
 package se.dykstrom.jcc.common.code.expression;
 
 import se.dykstrom.jcc.common.compiler.AbstractCodeGenerator;
+import se.dykstrom.jcc.common.code.Label;
 import se.dykstrom.jcc.common.code.Line;
 import se.dykstrom.jcc.common.assembly.instruction.Jne;
+import se.dykstrom.jcc.common.assembly.instruction.Je;
 import se.dykstrom.jcc.common.ast.NotEqualExpression;
 import se.dykstrom.jcc.common.storage.StorageLocation;
 
@@ -33,4 +35,13 @@ public class NotEqualCodeGenerator extends AbstractRelationalExpressionCodeGener
     public List<Line> generate(NotEqualExpression expression, StorageLocation leftLocation) {
         return relationalExpression(expression, leftLocation, Jne::new, Jne::new);
     }
+
+    @Override
+    public List<Line> generateJump(NotEqualExpression expression, Label label, boolean jumpIfTrue) {
+        if (jumpIfTrue) {
+            return relationalJump(expression, label, Jne::new, Jne::new);
+        } else {
+            return relationalJump(expression, label, Je::new, Je::new);
+        }
+    }
 }
@@ -47,10 +47,16 @@ public class AddAssignCodeGenerator extends AbstractStatementCodeGenerator<AddAs
         try (StorageLocation location = storageFactory().allocateNonVolatile(lhsType)) {
             // Add literal value to identifier
             String value = statement.getRhsExpression().getValue();
-            cc.addAll(codeGenerator.withAddressOfIdentifier(
-                    statement.getLhsExpression(),
-                    (base, offset) -> withCodeContainer(it -> location.addImmToMem(value, base + offset, it))
-            ));
+            final var register = codeGenerator.getVariableRegister(statement.getLhsExpression());
+            if (register != null) {
+                location.moveImmToThis(value, cc);
+                storageFactory().get(register).addLocToThis(location, cc);
+            } else {
+                cc.addAll(codeGenerator.withAddressOfIdentifier(
+                        statement.getLhsExpression(),
+                        (base, offset) -> withCodeContainer(it -> location.addImmToMem(value, base + offset, it))
+                ));
+            }
         }
 
         return cc.lines();
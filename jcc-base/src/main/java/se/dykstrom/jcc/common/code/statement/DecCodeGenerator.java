@@ -42,10 +42,15 @@ public class DecCodeGenerator extends AbstractStatementCodeGenerator<DecStatemen
         Expression expression = statement.getLhsExpression();
         if (types().getType(expression) instanceof I64) {
             cc.add(getComment(statement));
-            cc.addAll(codeGenerator.withAddressOfIdentifier(
-                    statement.getLhsExpression(),
-                    (base, offset) -> withCodeContainer(it -> it.add(new DecMem(base + offset)))
-            ));
+            final var register = codeGenerator.getVariableRegister(statement.getLhsExpression());
+            if (register != null) {
+                storageFactory().get(register).decrementThis(cc);
+            } else {
+                cc.addAll(codeGenerator.withAddressOfIdentifier(
+                        statement.getLhsExpression(),
+                        (base, offset) -> withCodeContainer(it -> it.add(new DecMem(base + offset)))
+                ));
+            }
         } else {
             throw new IllegalArgumentException("dec '" + expression + "' not supported");
         }
@@ -18,14 +18,12 @@
 package se.dykstrom.jcc.common.code.statement;
 
 import se.dykstrom.jcc.common.code.Label;
-import se.dykstrom.jcc.common.assembly.instruction.Je;
 import se.dykstrom.jcc.common.assembly.instruction.Jmp;
 import se.dykstrom.jcc.common.ast.IfStatement;
 import se.dykstrom.jcc.common.code.Blank;
 import se.dykstrom.jcc.common.code.Line;
 import se.dykstrom.jcc.common.compiler.AbstractCodeGenerator;
 import se.dykstrom.jcc.common.compiler.TypeManager;
-import se.dykstrom.jcc.common.storage.StorageLocation;
 
 import java.util.List;
 
@@ -43,15 +41,9 @@ public class IfCodeGenerator extends AbstractStatementCodeGenerator<IfStatement,
         Label afterThenLabel = new Label(codeGenerator.uniquifyLabelName("after_then_"));
         Label afterElseLabel = new Label(codeGenerator.uniquifyLabelName("after_else_"));
 
-        try (StorageLocation location = storageFactory().allocateNonVolatile()) {
-            // Generate code for the expression
-            codeGenerator.addAll(codeGenerator.expression(statement.getExpression(), location));
-            codeGenerator.add(Blank.INSTANCE);
-            codeGenerator.add(getComment(statement));
-            // If FALSE, jump to ELSE clause
-            location.compareThisWithImm("0", codeGenerator); // FALSE
-            codeGenerator.add(new Je(afterThenLabel));
-        }
+        codeGenerator.add(getComment(statement));
+        // If FALSE, jump to ELSE clause
+        codeGenerator.addAll(codeGenerator.condition(statement.getExpression(), afterThenLabel, false));
 
         // Generate code for THEN clause
         codeGenerator.add(Blank.INSTANCE);
@@ -39,10 +39,15 @@ public class IncCodeGenerator extends AbstractStatementCodeGenerator<IncStatemen
             final var expression = statement.getLhsExpression();
             if (types().getType(expression) instanceof I64) {
                 cc.add(getComment(statement));
-                cc.addAll(codeGenerator.withAddressOfIdentifier(
-                        expression,
-                        (base, offset) -> withCodeContainer(it -> it.add(new IncMem(base + offset)))
-                ));
+                final var register = codeGenerator.getVariableRegister(expression);
+                if (register != null) {
+                    storageFactory().get(register).incrementThis(cc);
+                } else {
+                    cc.addAll(codeGenerator.withAddressOfIdentifier(
+                            expression,
+                            (base, offset) -> withCodeContainer(it -> it.add(new IncMem(base + offset)))
+                    ));
+                }
             } else {
                 throw new IllegalArgumentException("inc '" + expression + "' not supported");
             }
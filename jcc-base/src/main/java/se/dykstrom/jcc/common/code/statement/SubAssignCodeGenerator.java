@@ -47,10 +47,16 @@ public class SubAssignCodeGenerator extends AbstractStatementCodeGenerator<SubAs
         try (StorageLocation location = storageFactory().allocateNonVolatile(lhsType)) {
             // Subtract literal value from identifier
             String value = statement.getRhsExpression().getValue();
-            cc.addAll(codeGenerator.withAddressOfIdentifier(
-                    statement.getLhsExpression(),
-                    (base, offset) -> withCodeContainer(it -> location.subtractImmFromMem(value, base + offset, it))
-            ));
+            final var register = codeGenerator.getVariableRegister(statement.getLhsExpression());
+            if (register != null) {
+                location.moveImmToThis(value, cc);
+                storageFactory().get(register).subtractLocFromThis(location, cc);
+            } else {
+                cc.addAll(codeGenerator.withAddressOfIdentifier(
+                        statement.getLhsExpression(),
+                        (base, offset) -> withCodeContainer(it -> location.subtractImmFromMem(value, base + offset, it))
+                ));
+            }
         }
 
         return cc.lines();
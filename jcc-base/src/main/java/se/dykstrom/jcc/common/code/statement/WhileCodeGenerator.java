@@ -18,14 +18,12 @@
 package se.dykstrom.jcc.common.code.statement;
 
 import se.dykstrom.jcc.common.code.Label;
-import se.dykstrom.jcc.common.assembly.instruction.Je;
 import se.dykstrom.jcc.common.assembly.instruction.Jmp;
 import se.dykstrom.jcc.common.ast.WhileStatement;
 import se.dykstrom.jcc.common.code.Blank;
 import se.dykstrom.jcc.common.code.Line;
 import se.dykstrom.jcc.common.compiler.AbstractCodeGenerator;
 import se.dykstrom.jcc.common.compiler.TypeManager;
-import se.dykstrom.jcc.common.storage.StorageLocation;
 
 import java.util.List;
 
@@ -46,15 +44,9 @@ public class WhileCodeGenerator extends AbstractStatementCodeGenerator<WhileStat
         // Add a label before the WHILE test
         codeGenerator.add(beforeWhileLabel);
 
-        try (StorageLocation location = storageFactory().allocateNonVolatile()) {
-            // Generate code for the expression
-            codeGenerator.addAll(codeGenerator.expression(statement.getExpression(), location));
-            codeGenerator.add(Blank.INSTANCE);
-            codeGenerator.add(getComment(statement));
-            // If FALSE, jump to after WHILE clause
-            location.compareThisWithImm("0", codeGenerator); // FALSE
-            codeGenerator.add(new Je(afterWhileLabel));
-        }
+        codeGenerator.add(getComment(statement));
+        // If FALSE, jump to after WHILE clause
+        codeGenerator.addAll(codeGenerator.condition(statement.getExpression(), afterWhileLabel, false));
 
         // Generate code for WHILE clause
         codeGenerator.add(Blank.INSTANCE);
@@ -18,12 +18,15 @@
 package se.dykstrom.jcc.common.compiler;
 
 import se.dykstrom.jcc.common.assembly.base.AssemblyComment;
+import se.dykstrom.jcc.common.assembly.base.Register;
 import se.dykstrom.jcc.common.assembly.directive.DataDefinition;
 import se.dykstrom.jcc.common.code.FixedLabel;
 import se.dykstrom.jcc.common.code.Label;
 import se.dykstrom.jcc.common.assembly.instruction.Call;
 import se.dykstrom.jcc.common.assembly.instruction.CallDirect;
 import se.dykstrom.jcc.common.assembly.instruction.CallIndirect;
+import se.dykstrom.jcc.common.assembly.instruction.Je;
+import se.dykstrom.jcc.common.assembly.instruction.Jne;
 import se.dykstrom.jcc.common.assembly.macro.Import;
 import se.dykstrom.jcc.common.assembly.macro.Library;
 import se.dykstrom.jcc.common.assembly.other.Epilogue;
@@ -42,12 +45,14 @@ import se.dykstrom.jcc.common.code.expression.*;
 import se.dykstrom.jcc.common.code.statement.*;
 import se.dykstrom.jcc.common.functions.*;
 import se.dykstrom.jcc.common.optimization.AstOptimizer;
+import se.dykstrom.jcc.common.optimization.PeepholeOptimizer;
 import se.dykstrom.jcc.common.storage.MemoryStorageLocation;
 import se.dykstrom.jcc.common.storage.RegisterStorageLocation;
 import se.dykstrom.jcc.common.storage.StorageFactory;
 import se.dykstrom.jcc.common.storage.StorageLocation;
 import se.dykstrom.jcc.common.symbols.SymbolTable;
 import se.dykstrom.jcc.common.types.*;
+import se.dykstrom.jcc.common.utils.OptimizationOptions;
 
 import java.nio.file.Path;
 import java.util.*;
@@ -59,6 +64,7 @@ import static java.util.Objects.requireNonNull;
 import static se.dykstrom.jcc.common.functions.LibcBuiltIns.CF_EXIT_I64;
 import static se.dykstrom.jcc.common.utils.AsmUtils.getComment;
 import static se.dykstrom.jcc.common.utils.ExpressionUtils.evaluateIntegerExpressions;
+import static se.dykstrom.jcc.common.utils.ExpressionUtils.hasSideEffects;
 
 /**
  * Abstract base class for all code generators.
@@ -74,6 +80,7 @@ public abstract class AbstractCodeGenerator extends CodeContainer implements Asm
 
     protected final TypeManager typeManager;
     protected final AstOptimizer optimizer;
+    protected final PeepholeOptimizer peepholeOptimizer = new PeepholeOptimizer(OptimizationOptions.INSTANCE.getPeepholeRules());
     protected StorageFactory storageFactory = new StorageFactory();
     protected SymbolTable symbols;
 
@@ -168,6 +175,8 @@ public abstract class AbstractCodeGenerator extends CodeContainer implements Asm
     @Override
     public StorageFactory storageFactory() { return storageFactory; }
 
+    public PeepholeOptimizer peepholeOptimizer() { return peepholeOptimizer; }
+
     /**
      * Returns a reference to the dependencies found.
      */
@@ -197,13 +206,6 @@ public abstract class AbstractCodeGenerator extends CodeContainer implements Asm
     }
 
     protected Section dataSection(SymbolTable symbols) {
-        // Add all temporary memory addresses from the storage factory to the symbol table,
-        // so they are later added to the data section. Using type I64 is OK, because they
-        // either contain an integer, or an address to a string.
-        storageFactory.getMemoryManager().getUsedMemoryAddresses().stream()
-            .sorted()
-            .forEach(name -> symbols.addVariable(new Identifier(name, I64.INSTANCE)));
-
         // Always define an empty string constant
         symbols.addConstant(new Identifier(Str.EMPTY_STRING_NAME, Str.INSTANCE), Str.EMPTY_STRING_VALUE);
 
@@ -292,19 +294,73 @@ public abstract class AbstractCodeGenerator extends CodeContainer implements Asm
         // Add start of main program
         section.add(LABEL_MAIN);
 
-        // Add prologue
+        // Add prologue, saving also the registers that store variables
+        final Set<Register> nonVolatileRegisters = new HashSet<>(storageFactory.getRegisterManager().getUsedNonVolatileRegisters());
+        nonVolatileRegisters.addAll(storageFactory.getRegisterManager().getReservedRegisters());
         final Prologue prologue = new Prologue(
-                storageFactory.getRegisterManager().getUsedNonVolatileRegisters(),
-                storageFactory.getFloatRegisterManager().getUsedNonVolatileRegisters()
+                nonVolatileRegisters,
+                storageFactory.getFloatRegisterManager().getUsedNonVolatileRegisters(),
+                storageFactory.getMemoryManager().getFrameSize()
         );
         prologue.lines().forEach(section::add);
 
+        // Initialize variables stored in registers
+        storageFactory.getVariableRegisters().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> {
+                    section.add(new AssemblyComment("Store variable " + e.getKey().name() + " in " + e.getValue()));
+                    storageFactory.get(e.getValue()).moveImmToThis((String) symbols.getValue(e.getKey().name()), section);
+                });
+
         // Add function code
-        lines.forEach(section::add);
+        peephole(lines).forEach(section::add);
 
         return section;
     }
 
+    /**
+     * Allocates registers to the most frequently used integer variables in {@code program},
+     * if optimization level is at least 2. Variables that are not allocated a register are
+     * stored in memory, as usual.
+     */
+    protected void allocateVariableRegisters(final AstProgram program) {
+        if (OptimizationOptions.INSTANCE.getLevel() >= 2) {
+            registerAllocator().allocate(program).forEach(storageFactory::addVariableRegister);
+        }
+    }
+
+    /**
+     * Returns the register allocator to use when allocating registers to variables.
+     * Subclasses can override this method to support language specific statements.
+     */
+    protected RegisterAllocator registerAllocator() {
+        return new RegisterAllocator(symbols);
+    }
+
+    /**
+     * Returns the register that stores the variable referenced by {@code expression},
+     * or {@code null} if the variable is stored in memory.
+     */
+    public Register getVariableRegister(final IdentifierExpression expression) {
+        if (expression instanceof ArrayAccessExpression) {
+            // Array elements are always stored in memory
+            return null;
+        }
+        final var name = expression.getIdentifier().name();
+        final var identifier = symbols.contains(name) ? symbols.getIdentifier(name) : expression.getIdentifier();
+        return storageFactory.getVariableRegister(identifier);
+    }
+
+    /**
+     * Runs the peephole optimizer on the given lines of code, if optimization level is at least 1.
+     */
+    protected List<Line> peephole(final List<Line> lines) {
+        if (OptimizationOptions.INSTANCE.getLevel() >= 1) {
+            return peepholeOptimizer.optimize(lines);
+        }
+        return lines;
+    }
+
     /**
      * Returns {@code true} if the program contains at least one call to exit.
      */
@@ -360,8 +416,13 @@ public abstract class AbstractCodeGenerator extends CodeContainer implements Asm
             // Store result in identifier
             addFormattedComment(statement);
             // Finally, move result to variable
-            addAll(withAddressOfIdentifier(statement.getLhsExpression(),
-                    (base, offset) -> withCodeContainer(cc -> location.moveThisToMem(base + offset, cc))));
+            final var register = getVariableRegister(statement.getLhsExpression());
+            if (register != null) {
+                storageFactory.get(register).moveLocToThis(location, this);
+            } else {
+                addAll(withAddressOfIdentifier(statement.getLhsExpression(),
+                        (base, offset) -> withCodeContainer(cc -> location.moveThisToMem(base + offset, cc))));
+            }
         }
     }
 
@@ -397,6 +458,103 @@ public abstract class AbstractCodeGenerator extends CodeContainer implements Asm
         return (ExpressionCodeGeneratorComponent<Expression>) expressionCodeGenerators.get(expression.getClass());
     }
 
+    /**
+     * Generates code for evaluating the condition {@code expression}, and jumping to {@code label}
+     * if the condition evaluates to {@code jumpIfTrue}. Relational expressions are compiled to a
+     * compare instruction, followed by a single conditional jump. Logical expressions are compiled
+     * to short-circuit jumps, as long as their operands are truth values. Any other expression is
+     * evaluated, and compared with zero.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Line> condition(final Expression expression, final Label label, final boolean jumpIfTrue) {
+        if (getCodeGeneratorComponent(expression) instanceof AbstractRelationalExpressionCodeGenerator<?> component) {
+            return ((AbstractRelationalExpressionCodeGenerator<BinaryExpression>) component).generateJump((BinaryExpression) expression, label, jumpIfTrue);
+        } else if (isLogicalNot(expression)) {
+            return condition(((UnaryExpression) expression).getExpression(), label, !jumpIfTrue);
+        } else if (isLogicalAnd(expression)) {
+            return logicalCondition((BinaryExpression) expression, label, jumpIfTrue, false);
+        } else if (isLogicalOr(expression)) {
+            return logicalCondition((BinaryExpression) expression, label, jumpIfTrue, true);
+        } else {
+            return withCodeContainer(cc -> {
+                try (StorageLocation location = storageFactory.allocateNonVolatile()) {
+                    cc.addAll(expression(expression, location));
+                    location.compareThisWithImm("0", cc); // FALSE
+                    cc.add(jumpIfTrue ? new Jne(label) : new Je(label));
+                }
+            });
+        }
+    }
+
+    /**
+     * Generates code for a logical AND or OR expression used as a condition. If {@code isOr} is
+     * {@code true}, the expression is an OR expression, and otherwise it is an AND expression.
+     */
+    private List<Line> logicalCondition(final BinaryExpression expression, final Label label, final boolean jumpIfTrue, final boolean isOr) {
+        return withCodeContainer(cc -> {
+            if (jumpIfTrue == isOr) {
+                // The left expression alone decides the outcome
+                cc.addAll(condition(expression.getLeft(), label, jumpIfTrue));
+                cc.addAll(condition(expression.getRight(), label, jumpIfTrue));
+            } else {
+                // The left expression can only short-circuit past the jump
+                final Label shortCircuitLabel = new Label(uniquifyLabelName(isOr ? "after_or_" : "after_and_"));
+                cc.addAll(condition(expression.getLeft(), shortCircuitLabel, !jumpIfTrue));
+                cc.addAll(condition(expression.getRight(), label, jumpIfTrue));
+                cc.add(shortCircuitLabel);
+            }
+        });
+    }
+
+    private boolean isLogicalNot(final Expression expression) {
+        return (expression instanceof LogicalNotExpression || expression instanceof NotExpression) &&
+               isTruthValue(((UnaryExpression) expression).getExpression());
+    }
+
+    private boolean isLogicalAnd(final Expression expression) {
+        return isLogicalBinaryExpression(expression, LogicalAndExpression.class, AndExpression.class);
+    }
+
+    private boolean isLogicalOr(final Expression expression) {
+        return isLogicalBinaryExpression(expression, LogicalOrExpression.class, OrExpression.class);
+    }
+
+    /**
+     * Returns {@code true} if the given expression is a logical expression of class {@code logicalClass},
+     * or a bitwise expression of class {@code bitwiseClass} that can be evaluated as a logical expression.
+     * A bitwise expression always evaluates both operands, so the right operand must be free of side effects
+     * to be skipped.
+     */
+    private boolean isLogicalBinaryExpression(final Expression expression,
+                                              final Class<? extends BinaryExpression> logicalClass,
+                                              final Class<? extends BinaryExpression> bitwiseClass) {
+        if (expression instanceof BinaryExpression binaryExpression &&
+            isTruthValue(binaryExpression.getLeft()) &&
+            isTruthValue(binaryExpression.getRight())) {
+            return logicalClass.isInstance(expression) ||
+                   (bitwiseClass.isInstance(expression) && !hasSideEffects(binaryExpression.getRight()));
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if the given expression always evaluates to a truth value, that is, to -1 or 0.
+     */
+    private boolean isTruthValue(final Expression expression) {
+        if (expression instanceof RelationalExpression ||
+            expression instanceof LogicalExpression ||
+            expression instanceof BooleanLiteral ||
+            typeManager.getType(expression) == Bool.INSTANCE) {
+            return true;
+        } else if (expression instanceof NotExpression notExpression) {
+            return isTruthValue(notExpression.getExpression());
+        } else if (expression instanceof AndExpression || expression instanceof OrExpression) {
+            final var binaryExpression = (BinaryExpression) expression;
+            return isTruthValue(binaryExpression.getLeft()) && isTruthValue(binaryExpression.getRight());
+        }
+        return false;
+    }
+
     /**
      * Evaluates the given expression to get the memory address of the identifier/array element,
      * and then calls {@code generateCodeFunction} with this memory address to generate code to
@@ -560,7 +718,7 @@ public abstract class AbstractCodeGenerator extends CodeContainer implements Asm
             // For each user-defined function that has been defined
             userDefinedFunctions.entrySet().stream()
                     .sorted(Comparator.comparing(e -> e.getKey().getMappedName()))
-                    .forEach(e -> cc.addAll(functionDefinitionHelper.addFunctionCode(e.getKey(), e.getValue())));
+                    .forEach(e -> cc.addAll(peephole(functionDefinitionHelper.addFunctionCode(e.getKey(), e.getValue()))));
             cc.add(Blank.INSTANCE);
             cc.add(new AssemblyComment("<-- User-defined functions ---"));
         }
@@ -595,15 +753,18 @@ public abstract class AbstractCodeGenerator extends CodeContainer implements Asm
             storageFactory = new StorageFactory(storageFactory);
             functionCodeGenerator.accept(cc);
         } finally {
+            final var frameSize = storageFactory.getMemoryManager().getFrameSize();
             final var prologue = new Prologue(
                     storageFactory.getRegisterManager().getUsedNonVolatileRegisters(),
-                    storageFactory.getFloatRegisterManager().getUsedNonVolatileRegisters()
+                    storageFactory.getFloatRegisterManager().getUsedNonVolatileRegisters(),
+                    frameSize
             );
             cc.addAllFirst(prologue.lines());
 
             final var epilogue = new Epilogue(
                     storageFactory.getRegisterManager().getUsedNonVolatileRegisters(),
-                    storageFactory.getFloatRegisterManager().getUsedNonVolatileRegisters()
+                    storageFactory.getFloatRegisterManager().getUsedNonVolatileRegisters(),
+                    frameSize
             );
             cc.addAll(epilogue.lines());
 
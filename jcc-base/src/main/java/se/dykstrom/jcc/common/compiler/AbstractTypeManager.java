@@ -41,6 +41,15 @@ public abstract class AbstractTypeManager implements TypeManager {
     protected final Map<Type, String> typeToName = new HashMap<>();
     protected final Map<String, Type> nameToType = new HashMap<>();
 
+    /**
+     * Cache of the types of composite expressions, that would otherwise be derived again from
+     * their subexpressions on each call. Since AST nodes are immutable, the type of an expression
+     * node never changes. Nodes that are equal, but not identical, may have different types,
+     * for example if they contain identifiers with the same name but different types.
+     * Therefore, the cache is identity-based.
+     */
+    private final Map<Expression, Type> typeCache = new IdentityHashMap<>();
+
     /**
      * Returns true if actualType can be promoted to expectedType without any data loss.
      */
@@ -82,14 +91,26 @@ public abstract class AbstractTypeManager implements TypeManager {
     public Type getType(final Expression expression) {
         if (expression instanceof TypedExpression typedExpression) {
             return typedExpression.getType();
-        } else if (expression instanceof IfExpression ifExpression) {
-            return ifExpression(ifExpression);
+        }
+
+        final var cachedType = typeCache.get(expression);
+        if (cachedType != null) {
+            return cachedType;
+        }
+
+        final Type type;
+        if (expression instanceof IfExpression ifExpression) {
+            type = ifExpression(ifExpression);
         } else if (expression instanceof BinaryExpression binaryExpression) {
-            return binaryExpression(binaryExpression);
+            type = binaryExpression(binaryExpression);
         } else if (expression instanceof UnaryExpression unaryExpression) {
-            return getType(unaryExpression.getExpression());
+            type = getType(unaryExpression.getExpression());
+        } else {
+            throw new IllegalArgumentException("unknown expression: " + expression.getClass().getSimpleName());
         }
-        throw new IllegalArgumentException("unknown expression: " + expression.getClass().getSimpleName());
+        // Illegal expressions throw an exception above, and are never cached
+        typeCache.put(expression, type);
+        return type;
     }
 
     private Type ifExpression(final IfExpression expression) {
@@ -0,0 +1,376 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.common.compiler;
+
+import se.dykstrom.jcc.common.assembly.base.Register;
+import se.dykstrom.jcc.common.ast.*;
+import se.dykstrom.jcc.common.ir.BasicBlock;
+import se.dykstrom.jcc.common.ir.ControlFlowGraph;
+import se.dykstrom.jcc.common.ir.ControlFlowGraphBuilder;
+import se.dykstrom.jcc.common.symbols.SymbolTable;
+import se.dykstrom.jcc.common.types.I64;
+import se.dykstrom.jcc.common.types.Identifier;
+
+import java.util.*;
+
+import static se.dykstrom.jcc.common.assembly.base.Register.*;
+
+/**
+ * Allocates non-volatile registers to the global integer variables of a program.
+ * Other variables, and the temporary values used when evaluating expressions, are
+ * not handled by this class.
+ * <p>
+ * The allocator computes a spill cost for each variable, that is the number of times
+ * the variable is read or written, where each access inside a WHILE loop is weighted
+ * by the loop nesting depth. The live ranges of the variables are computed by a backward
+ * data flow analysis over the {@link ControlFlowGraph} of the program, that takes GOTO and
+ * GOSUB statements into account. Two variables interfere if one of them is assigned while
+ * the other is live. All variables are assigned their initial values on entry, and variables
+ * accessed in function definitions are considered live throughout the program.
+ * <p>
+ * In order of decreasing spill cost, each variable is given the first register that is not
+ * already given to an interfering variable. Variables that do not interfere can thus share
+ * a register. The variables that do not get a register are spilled, that is, they stay in
+ * memory.
+ * <p>
+ * A variable can only be stored in a register if all accesses to it are plain reads,
+ * assignments, increments, and decrements. Variables that are accessed in any other way,
+ * for example using their address, are always stored in memory. Since any unknown statement
+ * may access variables in an unknown way, no registers are allocated at all if the program
+ * contains a statement that the allocator does not know about. Subclasses can override
+ * {@link #visit(Node, int)} to add support for language specific statements, and
+ * {@link #controlFlowGraphBuilder()} to lower language specific jump statements.
+ *
+ * @author Johan Dykstrom
+ */
+public class RegisterAllocator {
+
+    /**
+     * The registers available for storing variables. The rest of the non-volatile registers
+     * are left for storing temporary values during expression evaluation.
+     */
+    static final List<Register> VARIABLE_REGISTERS = List.of(R15, R14, R13);
+
+    /** The weight of an access is multiplied by this factor for each level of loop nesting. */
+    private static final long LOOP_WEIGHT = 8;
+
+    /** The maximum loop depth considered when computing weights, to avoid overflow. */
+    private static final int MAX_LOOP_DEPTH = 10;
+
+    private final SymbolTable symbols;
+
+    private final Map<Identifier, Long> costs = new HashMap<>();
+    private final Set<Identifier> excluded = new HashSet<>();
+    private boolean supported;
+
+    /** If not null, accessed variables are collected here, instead of updating the costs. */
+    private Set<Identifier> collected;
+
+    public RegisterAllocator(final SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Returns a map of the variables in {@code program} that should be stored in registers,
+     * mapped to the register to use for each variable.
+     */
+    public Map<Identifier, Register> allocate(final AstProgram program) {
+        costs.clear();
+        excluded.clear();
+        supported = true;
+
+        program.getStatements().forEach(statement -> visit(statement, 0));
+        if (!supported) {
+            return Map.of();
+        }
+
+        final List<Identifier> candidates = costs.keySet().stream()
+                .filter(identifier -> !excluded.contains(identifier))
+                .filter(this::isGlobalVariable)
+                .sorted(Comparator.comparing((Identifier identifier) -> costs.get(identifier)).reversed().thenComparing(Identifier::name))
+                .toList();
+        final BitSet[] interference = interference(controlFlowGraphBuilder().build(program), candidates);
+
+        final Map<Identifier, Register> registers = new HashMap<>();
+        final List<BitSet> allocated = VARIABLE_REGISTERS.stream().map(register -> new BitSet()).toList();
+        for (int i = 0; i < candidates.size(); i++) {
+            for (int r = 0; r < VARIABLE_REGISTERS.size(); r++) {
+                if (!allocated.get(r).intersects(interference[i])) {
+                    allocated.get(r).set(i);
+                    registers.put(candidates.get(i), VARIABLE_REGISTERS.get(r));
+                    break;
+                }
+            }
+        }
+        return registers;
+    }
+
+    /**
+     * Returns the builder used to build the control flow graph of the program.
+     * Subclasses can override this method to return a builder that lowers
+     * language specific jump statements.
+     */
+    protected ControlFlowGraphBuilder controlFlowGraphBuilder() {
+        return new ControlFlowGraphBuilder();
+    }
+
+    /**
+     * Computes the interference graph of the {@code candidates}, as one bit set per candidate,
+     * containing the indices of the candidates that it interferes with.
+     */
+    private BitSet[] interference(final ControlFlowGraph graph, final List<Identifier> candidates) {
+        final Map<Identifier, Integer> indices = new HashMap<>();
+        candidates.forEach(identifier -> indices.put(identifier, indices.size()));
+        final var interference = new BitSet[candidates.size()];
+        Arrays.setAll(interference, i -> new BitSet());
+
+        // Compute the variables used and defined by each statement, and the variables
+        // that are accessed in function definitions, and therefore always live
+        final var alwaysLive = new BitSet();
+        final Map<BasicBlock, BitSet[]> uses = new HashMap<>();
+        final Map<BasicBlock, int[]> defs = new HashMap<>();
+        final Map<BasicBlock, BitSet> terminatorUses = new HashMap<>();
+        for (final var block : graph.blocks()) {
+            final var statements = block.statements();
+            final var blockUses = new BitSet[statements.size()];
+            final var blockDefs = new int[statements.size()];
+            for (int i = 0; i < statements.size(); i++) {
+                final var statement = statements.get(i);
+                blockDefs[i] = -1;
+                if (statement instanceof FunctionDefinitionStatement) {
+                    alwaysLive.or(accessed(statement, indices));
+                    blockUses[i] = new BitSet();
+                } else if (statement instanceof AssignStatement assign && !(assign.getLhsExpression() instanceof ArrayAccessExpression)) {
+                    blockDefs[i] = indices.getOrDefault(assign.getLhsExpression().getIdentifier(), -1);
+                    blockUses[i] = accessed(assign.getRhsExpression(), indices);
+                } else {
+                    // Any other write to a variable is treated as a use, which only extends its live range
+                    blockUses[i] = accessed(statement, indices);
+                }
+            }
+            uses.put(block, blockUses);
+            defs.put(block, blockDefs);
+            terminatorUses.put(block, accessed(block.terminator().expression(), indices));
+        }
+
+        // Compute the variables that are live on entry to each block, until a fixpoint is reached
+        final Map<BasicBlock, BitSet> liveIn = new HashMap<>();
+        graph.blocks().forEach(block -> liveIn.put(block, new BitSet()));
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (final var block : graph.blocks().reversed()) {
+                final var live = liveOut(graph, block, liveIn, terminatorUses);
+                final var blockUses = uses.get(block);
+                final var blockDefs = defs.get(block);
+                for (int i = blockUses.length - 1; i >= 0; i--) {
+                    if (blockDefs[i] != -1) {
+                        live.clear(blockDefs[i]);
+                    }
+                    live.or(blockUses[i]);
+                }
+                if (!live.equals(liveIn.get(block))) {
+                    liveIn.put(block, live);
+                    changed = true;
+                }
+            }
+        }
+
+        // Walk each block backwards, and let each defined variable interfere with all live variables
+        for (final var block : graph.blocks()) {
+            final var live = liveOut(graph, block, liveIn, terminatorUses);
+            final var blockUses = uses.get(block);
+            final var blockDefs = defs.get(block);
+            for (int i = blockUses.length - 1; i >= 0; i--) {
+                if (blockDefs[i] != -1) {
+                    interfere(interference, blockDefs[i], live);
+                    live.clear(blockDefs[i]);
+                }
+                live.or(blockUses[i]);
+            }
+        }
+
+        // All variables are defined on entry, where the always live variables are also live
+        final var liveOnEntry = (BitSet) liveIn.get(graph.entry()).clone();
+        liveOnEntry.or(alwaysLive);
+        for (int i = 0; i < candidates.size(); i++) {
+            interfere(interference, i, liveOnEntry);
+        }
+        return interference;
+    }
+
+    /**
+     * Returns the variables that are live on exit from {@code block}, including the variables
+     * used by its terminator.
+     */
+    private static BitSet liveOut(final ControlFlowGraph graph,
+                                  final BasicBlock block,
+                                  final Map<BasicBlock, BitSet> liveIn,
+                                  final Map<BasicBlock, BitSet> terminatorUses) {
+        final var live = (BitSet) terminatorUses.get(block).clone();
+        graph.successors(block).forEach(successor -> live.or(liveIn.get(successor)));
+        return live;
+    }
+
+    /**
+     * Makes variable {@code index} interfere with all variables in {@code live}, except itself.
+     */
+    private static void interfere(final BitSet[] interference, final int index, final BitSet live) {
+        live.stream().filter(other -> other != index).forEach(other -> {
+            interference[index].set(other);
+            interference[other].set(index);
+        });
+    }
+
+    /**
+     * Returns the indices of the variables accessed in {@code node}, that are among the candidates.
+     */
+    private BitSet accessed(final Node node, final Map<Identifier, Integer> indices) {
+        collected = new HashSet<>();
+        try {
+            visit(node, 0);
+            final var result = new BitSet();
+            collected.stream().map(indices::get).filter(Objects::nonNull).forEach(result::set);
+            return result;
+        } finally {
+            collected = null;
+        }
+    }
+
+    /**
+     * Visits {@code node} and its children, at loop depth {@code depth}, and records
+     * all accesses to variables.
+     */
+    protected void visit(final Node node, final int depth) {
+        if (node instanceof AssignStatement statement) {
+            write(statement.getLhsExpression(), depth);
+            visit(statement.getRhsExpression(), depth);
+        } else if (node instanceof IncStatement statement) {
+            write(statement.getLhsExpression(), depth);
+        } else if (node instanceof DecStatement statement) {
+            write(statement.getLhsExpression(), depth);
+        } else if (node instanceof AddAssignStatement statement) {
+            write(statement.getLhsExpression(), depth);
+        } else if (node instanceof SubAssignStatement statement) {
+            write(statement.getLhsExpression(), depth);
+        } else if (node instanceof MulAssignStatement statement) {
+            visit(statement.lhsExpression(), depth);
+        } else if (node instanceof IDivAssignStatement statement) {
+            visit(statement.lhsExpression(), depth);
+        } else if (node instanceof IfStatement statement) {
+            visit(statement.getExpression(), depth);
+            visitAll(statement.getThenStatements(), depth);
+            visitAll(statement.getElseStatements(), depth);
+        } else if (node instanceof WhileStatement statement) {
+            visit(statement.getExpression(), depth + 1);
+            visitAll(statement.getStatements(), depth + 1);
+        } else if (node instanceof LabelledStatement statement) {
+            visit(statement.statement(), depth);
+        } else if (node instanceof FunctionDefinitionStatement statement) {
+            if (statement.expression() != null) {
+                visit(statement.expression(), depth);
+            } else {
+                visitAll(statement.statements(), depth);
+            }
+        } else if (node instanceof ConstDeclarationStatement statement) {
+            statement.getDeclarations().forEach(declaration -> visit(declaration.expression(), depth));
+        } else if (node instanceof ReturnStatement statement) {
+            visit(statement.getExpression(), depth);
+        } else if (node instanceof ExitStatement statement) {
+            visit(statement.getExpression(), depth);
+        } else if (node instanceof GotoStatement ||
+                   node instanceof ClsStatement ||
+                   node instanceof CommentStatement ||
+                   node instanceof VariableDeclarationStatement) {
+            // No expressions to visit
+        } else if (node instanceof ArrayAccessExpression expression) {
+            visitAll(expression.getSubscripts(), depth);
+        } else if (node instanceof IdentifierDerefExpression expression) {
+            access(expression, depth);
+        } else if (node instanceof IdentifierExpression expression) {
+            // Any other use of an identifier expression, for example taking its address
+            exclude(expression.getIdentifier());
+        } else if (node instanceof BinaryExpression expression) {
+            visit(expression.getLeft(), depth);
+            visit(expression.getRight(), depth);
+        } else if (node instanceof UnaryExpression expression) {
+            visit(expression.getExpression(), depth);
+        } else if (node instanceof FunctionCallExpression expression) {
+            visitAll(expression.getArgs(), depth);
+        } else if (node instanceof IfExpression expression) {
+            visit(expression.ifExpr(), depth);
+            visit(expression.thenExpr(), depth);
+            visit(expression.elseExpr(), depth);
+        } else if (node instanceof LiteralExpression || node == null) {
+            // No variables to access
+        } else {
+            // An unknown node, that may access variables in any way
+            supported = false;
+        }
+    }
+
+    /**
+     * Visits all nodes in {@code nodes}, at loop depth {@code depth}.
+     */
+    protected void visitAll(final List<? extends Node> nodes, final int depth) {
+        nodes.forEach(node -> visit(node, depth));
+    }
+
+    /**
+     * Excludes the variable referenced by {@code identifier} from register allocation.
+     */
+    protected void exclude(final Identifier identifier) {
+        excluded.add(identifier);
+    }
+
+    /**
+     * Records a write to the left hand side expression of an assignment-like statement.
+     */
+    private void write(final IdentifierExpression expression, final int depth) {
+        if (expression instanceof ArrayAccessExpression) {
+            visit(expression, depth);
+        } else {
+            access(expression, depth);
+        }
+    }
+
+    /**
+     * Records an access to the variable referenced by {@code expression}, at loop depth {@code depth}.
+     */
+    private void access(final IdentifierExpression expression, final int depth) {
+        final var identifier = expression.getIdentifier();
+        if (collected != null) {
+            collected.add(identifier);
+        } else if (identifier.type() instanceof I64) {
+            long weight = 1;
+            for (int i = 0; i < Math.min(depth, MAX_LOOP_DEPTH); i++) {
+                weight *= LOOP_WEIGHT;
+            }
+            costs.merge(identifier, weight, Long::sum);
+        }
+    }
+
+    /**
+     * Returns {@code true} if {@code identifier} is a global variable, and not for example
+     * a constant, or a function parameter that shadows a global variable.
+     */
+    private boolean isGlobalVariable(final Identifier identifier) {
+        final var name = identifier.name();
+        return symbols.contains(name) && !symbols.isConstant(name) && symbols.getIdentifier(name).equals(identifier);
+    }
+}
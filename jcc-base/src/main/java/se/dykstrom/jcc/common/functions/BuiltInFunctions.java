@@ -27,6 +27,7 @@ public final class BuiltInFunctions {
     // Memory management
     public static final AssemblyFunction FUN_MEMORY_MARK     = new MemoryMarkFunction();
     public static final AssemblyFunction FUN_MEMORY_SWEEP    = new MemorySweepFunction();
+    public static final AssemblyFunction FUN_MEMORY_STATS    = new MemoryStatsFunction();
     public static final AssemblyFunction FUN_MEMORY_REGISTER = new MemoryRegisterFunction();
 
     private BuiltInFunctions() { }
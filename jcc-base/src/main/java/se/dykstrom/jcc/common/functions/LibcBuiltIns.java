@@ -20,6 +20,7 @@ package se.dykstrom.jcc.common.functions;
 import se.dykstrom.jcc.common.types.*;
 
 import java.util.List;
+import java.util.Set;
 
 import static se.dykstrom.jcc.common.functions.FunctionUtils.LIB_LIBC;
 
@@ -33,6 +34,7 @@ import static se.dykstrom.jcc.common.functions.FunctionUtils.LIB_LIBC;
 public final class LibcBuiltIns {
 
     public static final Function CF_ABS_I64 = new LibraryFunction(".abs", List.of(I64.INSTANCE), I64.INSTANCE, LIB_LIBC, new ExternalFunction("_abs64"));
+    public static final Function CF_ATEXIT_I64 = new LibraryFunction("atexit", List.of(I64.INSTANCE), I64.INSTANCE, LIB_LIBC, new ExternalFunction("atexit"));
     public static final Function CF_ATN_F64 = new LibraryFunction(".atn", List.of(F64.INSTANCE), F64.INSTANCE, LIB_LIBC, new ExternalFunction("atan"));
     public static final Function CF_ATOF_STR = new LibraryFunction(".atof", List.of(Str.INSTANCE), F64.INSTANCE, LIB_LIBC, new ExternalFunction("atof"));
     public static final Function CF_CEIL_F64 = new LibraryFunction(".ceil", List.of(F64.INSTANCE), F64.INSTANCE, LIB_LIBC, new ExternalFunction("ceil"));
@@ -47,6 +49,8 @@ public final class LibcBuiltIns {
     public static final Function CF_GETCHAR = new LibraryFunction("getchar", List.of(), I64.INSTANCE, LIB_LIBC, new ExternalFunction("getchar"));
     public static final Function CF_LOG_F64 = new LibraryFunction(".log", List.of(F64.INSTANCE), F64.INSTANCE, LIB_LIBC, new ExternalFunction("log"));
     public static final Function CF_MALLOC_I64 = new LibraryFunction("malloc", List.of(I64.INSTANCE), I64.INSTANCE, LIB_LIBC, new ExternalFunction("malloc"));
+    public static final Function CF_MEMCHR_STR_I64_I64 = new LibraryFunction("memchr", List.of(Str.INSTANCE, I64.INSTANCE, I64.INSTANCE), Str.INSTANCE, LIB_LIBC, new ExternalFunction("memchr"));
+    public static final Function CF_MEMCPY_STR_STR_I64 = new LibraryFunction("memcpy", List.of(Str.INSTANCE, Str.INSTANCE, I64.INSTANCE), Str.INSTANCE, LIB_LIBC, new ExternalFunction("memcpy"));
     public static final Function CF_PRINTF_STR_VAR = new LibraryFunction(".printf", List.of(Str.INSTANCE, Varargs.INSTANCE), I32.INSTANCE, LIB_LIBC, new ExternalFunction("printf"));
     public static final Function CF_POW_F64_F64 = new LibraryFunction(".pow", List.of(F64.INSTANCE, F64.INSTANCE), F64.INSTANCE, LIB_LIBC, new ExternalFunction("pow"));
     public static final Function CF_REALLOC_STR_I64 = new LibraryFunction("realloc", List.of(Str.INSTANCE, I64.INSTANCE), Str.INSTANCE, LIB_LIBC, new ExternalFunction("realloc"));
@@ -64,5 +68,21 @@ public final class LibcBuiltIns {
     public static final Function CF_TOLOWER_I64 = new LibraryFunction(".tolower", List.of(I64.INSTANCE), I64.INSTANCE, LIB_LIBC, new ExternalFunction("tolower"));
     public static final Function CF_TOUPPER_I64 = new LibraryFunction(".toupper", List.of(I64.INSTANCE), I64.INSTANCE, LIB_LIBC, new ExternalFunction("toupper"));
 
+    /** The library functions that are pure, see {@link #isPure(Function)}. */
+    private static final Set<Function> PURE_FUNCTIONS = Set.of(
+            CF_ABS_I64, CF_ATN_F64, CF_ATOF_STR, CF_CEIL_F64, CF_COS_F64, CF_EXP_F64, CF_FABS_F64, CF_FLOOR_F64,
+            CF_FMOD_F64_F64, CF_LOG_F64, CF_POW_F64_F64, CF_SIN_F64, CF_SQRT_F64, CF_STRCMP_STR_STR, CF_STRLEN_STR,
+            CF_TAN_F64, CF_TOLOWER_I64, CF_TOUPPER_I64
+    );
+
     private LibcBuiltIns() { }
+
+    /**
+     * Returns {@code true} if the given function is a pure libc function. A pure function has no
+     * side effects, returns the same value every time it is called with the same arguments, and
+     * cannot fail. Calls to pure functions may be moved or removed by the optimizer.
+     */
+    public static boolean isPure(final Function function) {
+        return PURE_FUNCTIONS.contains(function);
+    }
 }
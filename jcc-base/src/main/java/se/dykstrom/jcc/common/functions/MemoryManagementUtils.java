@@ -21,6 +21,9 @@ import se.dykstrom.jcc.common.ast.*;
 import se.dykstrom.jcc.common.types.*;
 import se.dykstrom.jcc.common.utils.GcOptions;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * A utility class that defines common constants for memory management functions.
  *
@@ -33,10 +36,15 @@ public final class MemoryManagementUtils {
     static final String SHADOW_SPACE = "20h";
 
     static final String PTR_SIZE = "8h";
-    static final String NODE_SIZE = Integer.toString(3 * 8, 16) + "h";
+    static final String NODE_SIZE = Integer.toString(4 * 8, 16) + "h";
+
+    // Allocation list nodes are allocated from arenas that hold this many nodes each
+    static final int NODES_PER_ARENA = 512;
+    static final String ARENA_SIZE = Integer.toString(NODES_PER_ARENA * 4 * 8, 16) + "h";
 
     static final String NODE_DATA_OFFSET = "8h";
     static final String NODE_TYPE_OFFSET = "10h";
+    static final String NODE_SIZE_OFFSET = "18h";
 
     public static final String NOT_MANAGED = "0h";
     static final String MARKED = "1";
@@ -44,6 +52,14 @@ public final class MemoryManagementUtils {
 
     static final Constant ALLOCATION_LIST = new Constant(new Identifier("_gc_allocation_list", I64.INSTANCE), "0");
     static final Constant ALLOCATION_COUNT = new Constant(new Identifier("_gc_allocation_count", I64.INSTANCE), "0");
+    // The number of bytes of managed memory currently registered in the allocation list
+    static final Constant ALLOCATED_BYTES = new Constant(new Identifier("_gc_allocated_bytes", I64.INSTANCE), "0");
+
+    // Nodes that have been swept are linked into the free node list, and reused before allocating new nodes
+    static final Constant FREE_NODE_LIST = new Constant(new Identifier("_gc_free_node_list", I64.INSTANCE), "0");
+    // New nodes are allocated from the current arena by bumping a pointer until the arena is exhausted
+    static final Constant ARENA_NEXT = new Constant(new Identifier("_gc_arena_next", I64.INSTANCE), "0");
+    static final Constant ARENA_END = new Constant(new Identifier("_gc_arena_end", I64.INSTANCE), "0");
 
     public static final Constant TYPE_POINTERS_START = new Constant(new Identifier("_gc_type_pointers_start", I64.INSTANCE), NOT_MANAGED);
     public static final Constant TYPE_POINTERS_STOP = new Constant(new Identifier("_gc_type_pointers_stop", I64.INSTANCE), NOT_MANAGED);
@@ -51,6 +67,25 @@ public final class MemoryManagementUtils {
     // The initial GC threshold can be configured on the command line, so we get the value from there
     static final Constant ALLOCATION_LIMIT = new Constant(new Identifier("_gc_allocation_limit", I64.INSTANCE),
             () -> Integer.toString(GcOptions.INSTANCE.getInitialGcThreshold()));
+    // The first byte threshold is the configured minimum threshold
+    static final Constant BYTE_LIMIT = new Constant(new Identifier("_gc_byte_limit", I64.INSTANCE),
+            () -> Long.toString(GcOptions.INSTANCE.getMinThreshold()));
+
+    // GC statistics, only defined if command line flag -gc-stats is enabled
+    static final Constant STATS_COLLECTIONS = new Constant(new Identifier("_gc_stats_collections", I64.INSTANCE), "0");
+    static final Constant STATS_OBJECTS_ALLOCATED = new Constant(new Identifier("_gc_stats_objects_allocated", I64.INSTANCE), "0");
+    static final Constant STATS_BYTES_ALLOCATED = new Constant(new Identifier("_gc_stats_bytes_allocated", I64.INSTANCE), "0");
+    static final Constant STATS_OBJECTS_FREED = new Constant(new Identifier("_gc_stats_objects_freed", I64.INSTANCE), "0");
+    static final Constant STATS_BYTES_FREED = new Constant(new Identifier("_gc_stats_bytes_freed", I64.INSTANCE), "0");
+    static final Constant STATS_PEAK_LIVE = new Constant(new Identifier("_gc_stats_peak_live", I64.INSTANCE), "0");
+    // Pause times are measured in time-stamp counter cycles
+    static final Constant STATS_PAUSE_TOTAL = new Constant(new Identifier("_gc_stats_pause_total", I64.INSTANCE), "0");
+    static final Constant STATS_PAUSE_MAX = new Constant(new Identifier("_gc_stats_pause_max", I64.INSTANCE), "0");
+
+    private static final Set<Constant> STATS_CONSTANTS = Set.of(
+            STATS_COLLECTIONS, STATS_OBJECTS_ALLOCATED, STATS_BYTES_ALLOCATED, STATS_OBJECTS_FREED,
+            STATS_BYTES_FREED, STATS_PEAK_LIVE, STATS_PAUSE_TOTAL, STATS_PAUSE_MAX
+    );
 
     /**
      * Returns {@code true} if evaluating the given expression will allocate dynamic memory
@@ -80,4 +115,26 @@ public final class MemoryManagementUtils {
             codeForDebugging.run();
         }
     }
+
+    /**
+     * Runs the given statistics code to update GC statistics if command line flag -gc-stats is enabled.
+     */
+    static void stats(Runnable codeForStatistics) {
+        if (GcOptions.INSTANCE.isStats()) {
+            codeForStatistics.run();
+        }
+    }
+
+    /**
+     * Returns the given constants, extended with the GC statistics counters if command line flag
+     * -gc-stats is enabled.
+     */
+    static Set<Constant> withStats(Set<Constant> constants) {
+        if (GcOptions.INSTANCE.isStats()) {
+            final Set<Constant> result = new HashSet<>(constants);
+            result.addAll(STATS_CONSTANTS);
+            return result;
+        }
+        return constants;
+    }
 }
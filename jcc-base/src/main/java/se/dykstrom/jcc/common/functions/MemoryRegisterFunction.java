@@ -22,9 +22,13 @@ import se.dykstrom.jcc.common.code.Label;
 import se.dykstrom.jcc.common.assembly.instruction.*;
 import se.dykstrom.jcc.common.assembly.other.Snippets;
 import se.dykstrom.jcc.common.code.CodeContainer;
+import se.dykstrom.jcc.common.code.FixedLabel;
 import se.dykstrom.jcc.common.code.Line;
 import se.dykstrom.jcc.common.types.*;
+import se.dykstrom.jcc.common.utils.GcOptions;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -33,8 +37,7 @@ import static se.dykstrom.jcc.common.assembly.base.Register.*;
 import static se.dykstrom.jcc.common.functions.BuiltInFunctions.*;
 import static se.dykstrom.jcc.common.functions.FunctionUtils.LIB_INTERNAL;
 import static se.dykstrom.jcc.common.functions.FunctionUtils.LIB_LIBC;
-import static se.dykstrom.jcc.common.functions.LibcBuiltIns.CF_MALLOC_I64;
-import static se.dykstrom.jcc.common.functions.LibcBuiltIns.CF_PRINTF_STR_VAR;
+import static se.dykstrom.jcc.common.functions.LibcBuiltIns.*;
 import static se.dykstrom.jcc.common.functions.MemoryManagementUtils.*;
 
 /**
@@ -42,6 +45,21 @@ import static se.dykstrom.jcc.common.functions.MemoryManagementUtils.*;
  * stored in the memory address (identifier) given by RCX in the memory allocation list, and adds a pointer
  * to the new list node in the memory address given by RDX.
  * <p>
+ * List nodes are not allocated one by one using malloc. Instead, a node is taken from the free node list,
+ * where the sweep function puts the nodes it removes from the allocation list. If the free node list is
+ * empty, a new node is carved out of the current arena, and when the arena is exhausted, a new arena is
+ * allocated using malloc. Arenas are never freed, since their nodes are reused.
+ * <p>
+ * Garbage collection is triggered when either the allocation count or the number of allocated bytes
+ * reaches its limit. After collection, both limits are set to the amount of live data multiplied by
+ * the growth factor, and the byte limit is kept between the configured minimum threshold and max heap.
+ * In adaptive mode, the growth factor is increased in proportion to the survival rate of the collection.
+ * If the live data exceeds the max heap after collection, the program exits with an error message.
+ * <p>
+ * If GC statistics are enabled, this function also counts allocations and collections, keeps track of
+ * the peak live data, and measures the collection pause times. The first time it is called, it registers
+ * the "memory_stats" function with atexit, to print a summary of the statistics at program exit.
+ * <p>
  * Signature: memory_register(ident_address : I64, type_address : I64) : I64
  *
  * @author Johan Dykstrom
@@ -53,30 +71,68 @@ public class MemoryRegisterFunction extends AssemblyFunction {
     private static final String VAR_IDENT_OFFSET = "10h";
     private static final String VAR_TYPE_OFFSET = "18h";
 
+    // Local variables stored in the stack frame
+    private static final String LOCAL_FRAME_SIZE = "20h";
+    private static final String LOCAL_DATA_SIZE = RBP + "-8h";
+    private static final String LOCAL_BYTES_BEFORE = RBP + "-10h";
+    private static final String LOCAL_GROWTH_PERCENT = LOCAL_BYTES_BEFORE;
+    private static final String LOCAL_PAUSE_START = RBP + "-18h";
+
     private static final Constant MSG_REGISTER = new Constant(new Identifier("_gc_register_msg", Str.INSTANCE), "\"GC: Registering new memory: %x\",10,0");
     private static final Constant MSG_COUNT = new Constant(new Identifier("_gc_count_msg", Str.INSTANCE), "\"GC: Allocation count reached limit: %d - collecting\",10,0");
+    private static final Constant MSG_BYTES = new Constant(new Identifier("_gc_bytes_msg", Str.INSTANCE), "\"GC: Allocated bytes reached limit: %d - collecting\",10,0");
     private static final Constant MSG_LIMIT = new Constant(new Identifier("_gc_limit_msg", Str.INSTANCE), "\"GC: Collection finished with new limit: %d\",10,0");
+    private static final Constant MSG_OUT_OF_MEMORY = new Constant(new Identifier("_gc_out_of_memory_msg", Str.INSTANCE), "\"GC: Out of memory, live bytes after collection: %d\",10,0");
     private static final List<Type> ARG_TYPES = List.of(I64.INSTANCE, I64.INSTANCE);
 
     MemoryRegisterFunction() {
         super(NAME,
                 ARG_TYPES,
                 I64.INSTANCE,
-                Map.of(LIB_LIBC, Set.of(CF_MALLOC_I64, CF_PRINTF_STR_VAR), LIB_INTERNAL, Set.of(FUN_MEMORY_MARK, FUN_MEMORY_SWEEP)),
-                Set.of(ALLOCATION_LIST, ALLOCATION_COUNT, ALLOCATION_LIMIT, MSG_COUNT, MSG_LIMIT, MSG_REGISTER)
+                Map.of(LIB_LIBC, Set.of(CF_EXIT_I64, CF_MALLOC_I64, CF_PRINTF_STR_VAR, CF_STRLEN_STR), LIB_INTERNAL, Set.of(FUN_MEMORY_MARK, FUN_MEMORY_SWEEP)),
+                Set.of(ALLOCATION_LIST, ALLOCATION_COUNT, ALLOCATION_LIMIT, ALLOCATED_BYTES, BYTE_LIMIT, FREE_NODE_LIST, ARENA_NEXT, ARENA_END,
+                        MSG_BYTES, MSG_COUNT, MSG_LIMIT, MSG_OUT_OF_MEMORY, MSG_REGISTER)
         );
     }
 
+    @Override
+    public Map<String, Set<Function>> getDependencies() {
+        if (GcOptions.INSTANCE.isStats()) {
+            final Map<String, Set<Function>> dependencies = new HashMap<>();
+            super.getDependencies().forEach((library, functions) -> dependencies.put(library, new HashSet<>(functions)));
+            dependencies.get(LIB_LIBC).add(CF_ATEXIT_I64);
+            dependencies.get(LIB_INTERNAL).add(FUN_MEMORY_STATS);
+            return dependencies;
+        }
+        return super.getDependencies();
+    }
+
+    @Override
+    public Set<Constant> getConstants() {
+        return withStats(super.getConstants());
+    }
+
     @Override
     public List<Line> lines() {
         final CodeContainer cc = new CodeContainer();
 
         // Create jump labels
+        Label bumpLabel = new Label("_mem_reg_bump");
+        Label bumpDoneLabel = new Label("_mem_reg_bump_done");
+        Label nodeLabel = new Label("_mem_reg_node");
+        Label countLimitLabel = new Label("_mem_reg_count_limit");
+        Label collectLabel = new Label("_mem_reg_collect");
+        Label minThresholdLabel = new Label("_mem_reg_min_threshold");
+        Label maxHeapLabel = new Label("_mem_reg_max_heap");
+        Label statsRegisteredLabel = new Label("_mem_reg_stats_registered");
+        Label peakLabel = new Label("_mem_reg_peak");
+        Label pauseLabel = new Label("_mem_reg_pause");
         Label doneLabel = new Label("_mem_reg_done");
 
         cc.add(new AssemblyComment("Save base pointer"));
         cc.add(new PushReg(RBP));
         cc.add(new MoveRegToReg(RSP, RBP));
+        cc.add(new SubImmFromReg(LOCAL_FRAME_SIZE, RSP));
 
         // Save arguments in home locations
         cc.addAll(Snippets.enter(ARG_TYPES));
@@ -87,8 +143,54 @@ public class MemoryRegisterFunction extends AssemblyFunction {
             cc.addAll(Snippets.printf(MSG_REGISTER.getIdentifier().getMappedName(), RDX));
         });
 
-        // Allocate memory for new node
-        cc.addAll(Snippets.malloc(NODE_SIZE));                // RAX now contains address to new node
+        // Print statistics at exit, if this is the first time memory is registered
+        stats(() -> {
+            cc.add(new MoveMemToReg(STATS_OBJECTS_ALLOCATED.getIdentifier().getMappedName(), R10));
+            cc.add(new CmpRegWithImm(R10, "0"));
+            cc.add(new Jne(statsRegisteredLabel));
+            cc.add(new MoveImmToReg(new Label(FUN_MEMORY_STATS.getMappedName()).getMappedName(), RCX));
+            cc.add(new SubImmFromReg(SHADOW_SPACE, RSP));
+            cc.add(new CallIndirect(new FixedLabel(CF_ATEXIT_I64.getMappedName())));
+            cc.add(new AddImmToReg(SHADOW_SPACE, RSP));
+            cc.add(statsRegisteredLabel);
+        });
+
+        // Calculate size of managed memory, including the terminating null character
+        cc.add(new AssemblyComment("Calculate size of managed memory"));
+        cc.add(new MoveMemToReg(RBP, VAR_IDENT_OFFSET, RCX));
+        cc.add(new MoveMemToReg(RCX, RCX));
+        cc.addAll(Snippets.strlen(RCX));
+        cc.add(new IncReg(RAX));
+        cc.add(new MoveRegToMem(RAX, LOCAL_DATA_SIZE));
+
+        // Reuse a node from the free node list if possible
+        cc.add(new AssemblyComment("Allocate new node"));
+        cc.add(new MoveMemToReg(FREE_NODE_LIST.getIdentifier().getMappedName(), RAX));
+        cc.add(new CmpRegWithImm(RAX, "0"));
+        cc.add(new Je(bumpLabel));
+        cc.add(new MoveMemToReg(RAX, R10));                   // free list = node->next
+        cc.add(new MoveRegToMem(R10, FREE_NODE_LIST.getIdentifier().getMappedName()));
+        cc.add(new Jmp(nodeLabel));
+
+        // Otherwise, take the next node from the current arena
+        cc.add(bumpLabel);
+        cc.add(new MoveMemToReg(ARENA_NEXT.getIdentifier().getMappedName(), RAX));
+        cc.add(new CmpRegWithMem(RAX, ARENA_END.getIdentifier().getMappedName()));
+        cc.add(new Jb(bumpDoneLabel));
+
+        // The current arena is exhausted, allocate a new one
+        cc.add(new AssemblyComment("Allocate new arena"));
+        cc.addAll(Snippets.malloc(ARENA_SIZE));               // RAX now contains address to new arena
+        cc.add(new MoveRegToReg(RAX, R10));
+        cc.add(new AddImmToReg(ARENA_SIZE, R10));
+        cc.add(new MoveRegToMem(R10, ARENA_END.getIdentifier().getMappedName()));
+
+        cc.add(bumpDoneLabel);
+        cc.add(new MoveRegToReg(RAX, R10));
+        cc.add(new AddImmToReg(NODE_SIZE, R10));
+        cc.add(new MoveRegToMem(R10, ARENA_NEXT.getIdentifier().getMappedName()));
+
+        cc.add(nodeLabel);                                     // RAX now contains address to new node
 
         // Set node->data to point to variable->data
         cc.add(new MoveMemToReg(RBP, VAR_IDENT_OFFSET, RCX));
@@ -99,6 +201,22 @@ public class MemoryRegisterFunction extends AssemblyFunction {
         cc.add(new MoveImmToReg(UNMARKED, RCX));
         cc.add(new MoveRegToMem(RCX, RAX, NODE_TYPE_OFFSET));
 
+        // Set node->size to the size of the managed memory, and add it to the allocated bytes
+        cc.add(new MoveMemToReg(LOCAL_DATA_SIZE, R10));
+        cc.add(new MoveRegToMem(R10, RAX, NODE_SIZE_OFFSET));
+        cc.add(new AddRegToMem(R10, ALLOCATED_BYTES.getIdentifier().getMappedName()));
+
+        // Statistics
+        stats(() -> {
+            cc.add(new IncMem(STATS_OBJECTS_ALLOCATED.getIdentifier().getMappedName()));
+            cc.add(new AddRegToMem(R10, STATS_BYTES_ALLOCATED.getIdentifier().getMappedName()));
+            cc.add(new MoveMemToReg(ALLOCATED_BYTES.getIdentifier().getMappedName(), R10));
+            cc.add(new CmpRegWithMem(R10, STATS_PEAK_LIVE.getIdentifier().getMappedName()));
+            cc.add(new Jle(peakLabel));
+            cc.add(new MoveRegToMem(R10, STATS_PEAK_LIVE.getIdentifier().getMappedName()));
+            cc.add(peakLabel);
+        });
+
         // Set variable->type to &node
         cc.add(new MoveMemToReg(RBP, VAR_TYPE_OFFSET, RDX)); // Address to variable->type goes in RDX
         cc.add(new MoveRegToMem(RAX, RDX));                  // Store address to node in variable->type
@@ -114,12 +232,32 @@ public class MemoryRegisterFunction extends AssemblyFunction {
         cc.add(new IncMem(ALLOCATION_COUNT.getIdentifier().getMappedName()));
         cc.add(new MoveMemToReg(ALLOCATION_COUNT.getIdentifier().getMappedName(), R10));
         cc.add(new CmpRegWithMem(R10, ALLOCATION_LIMIT.getIdentifier().getMappedName()));
+        cc.add(new Jge(countLimitLabel));
+        cc.add(new MoveMemToReg(ALLOCATED_BYTES.getIdentifier().getMappedName(), R10));
+        cc.add(new CmpRegWithMem(R10, BYTE_LIMIT.getIdentifier().getMappedName()));
         cc.add(new Jl(doneLabel));
 
+        // Debug output
+        debug(() -> cc.addAll(Snippets.printf(MSG_BYTES.getIdentifier().getMappedName(), R10)));
+        cc.add(new Jmp(collectLabel));
+
+        cc.add(countLimitLabel);
+
         // Debug output
         debug(() -> cc.addAll(Snippets.printf(MSG_COUNT.getIdentifier().getMappedName(), R10)));
 
-        // Allocation count has reached the limit, call GC
+        // Allocation count or allocated bytes has reached the limit, call GC
+        cc.add(collectLabel);
+        cc.add(new MoveMemToReg(ALLOCATED_BYTES.getIdentifier().getMappedName(), R10));
+        cc.add(new MoveRegToMem(R10, LOCAL_BYTES_BEFORE));
+
+        // Statistics
+        stats(() -> {
+            cc.add(new IncMem(STATS_COLLECTIONS.getIdentifier().getMappedName()));
+            cc.addAll(readTimeStampCounter());
+            cc.add(new MoveRegToMem(RAX, LOCAL_PAUSE_START));
+        });
+
         cc.add(new MoveImmToReg(TYPE_POINTERS_START.getIdentifier().getMappedName(), RCX));
         cc.add(new MoveImmToReg(TYPE_POINTERS_STOP.getIdentifier().getMappedName(), RDX));
         cc.add(new SubImmFromReg(SHADOW_SPACE, RSP));
@@ -130,20 +268,102 @@ public class MemoryRegisterFunction extends AssemblyFunction {
         cc.add(new CallDirect(new Label(FUN_MEMORY_SWEEP.getMappedName())));
         cc.add(new AddImmToReg(SHADOW_SPACE, RSP));
 
-        // Set new allocation limit to 2 * allocation count
-        cc.add(new MoveMemToReg(ALLOCATION_COUNT.getIdentifier().getMappedName(), R10));
-        cc.add(new IMulImmWithReg("2", R10));
-        cc.add(new MoveRegToMem(R10, ALLOCATION_LIMIT.getIdentifier().getMappedName()));
+        // Statistics
+        stats(() -> {
+            cc.addAll(readTimeStampCounter());
+            cc.add(new SubMemFromReg(LOCAL_PAUSE_START, RAX));
+            cc.add(new AddRegToMem(RAX, STATS_PAUSE_TOTAL.getIdentifier().getMappedName()));
+            cc.add(new CmpRegWithMem(RAX, STATS_PAUSE_MAX.getIdentifier().getMappedName()));
+            cc.add(new Jle(pauseLabel));
+            cc.add(new MoveRegToMem(RAX, STATS_PAUSE_MAX.getIdentifier().getMappedName()));
+            cc.add(pauseLabel);
+        });
+
+        // Calculate the growth factor in percent
+        final String growthPercent = Integer.toString(GcOptions.INSTANCE.getGrowthPercent());
+        if (GcOptions.INSTANCE.isAdaptive()) {
+            // Survival rate in per mille = 1000 * bytes after / bytes before, where bytes before
+            // is never 0, since it includes the memory registered in this call
+            cc.add(new AssemblyComment("Adapt growth factor to survival rate"));
+            cc.add(new MoveMemToReg(ALLOCATED_BYTES.getIdentifier().getMappedName(), RAX));
+            cc.add(new IMulImmWithReg("1000", RAX));
+            cc.add(new Cqo());
+            cc.add(new MoveMemToReg(LOCAL_BYTES_BEFORE, R10));
+            cc.add(new IDivWithReg(R10));
+            // Growth percent = growth percent + growth percent * survival rate
+            cc.add(new IMulImmWithReg(growthPercent, RAX));
+            cc.add(new Cqo());
+            cc.add(new MoveImmToReg("1000", R10));
+            cc.add(new IDivWithReg(R10));
+            cc.add(new AddImmToReg(growthPercent, RAX));
+            cc.add(new MoveRegToMem(RAX, LOCAL_GROWTH_PERCENT));
+        } else {
+            cc.add(new MoveImmToReg(growthPercent, R10));
+            cc.add(new MoveRegToMem(R10, LOCAL_GROWTH_PERCENT));
+        }
+
+        // Set new allocation limit to growth factor * allocation count
+        cc.add(new MoveMemToReg(ALLOCATION_COUNT.getIdentifier().getMappedName(), RAX));
+        cc.add(new IMulMemWithReg(LOCAL_GROWTH_PERCENT, RAX));
+        cc.add(new Cqo());
+        cc.add(new MoveImmToReg("100", R10));
+        cc.add(new IDivWithReg(R10));
+        cc.add(new MoveRegToMem(RAX, ALLOCATION_LIMIT.getIdentifier().getMappedName()));
 
         // Debug output
-        debug(() -> cc.addAll(Snippets.printf(MSG_LIMIT.getIdentifier().getMappedName(), R10)));
+        debug(() -> cc.addAll(Snippets.printf(MSG_LIMIT.getIdentifier().getMappedName(), RAX)));
+
+        // Set new byte limit to growth factor * allocated bytes, but at least min threshold
+        cc.add(new MoveMemToReg(ALLOCATED_BYTES.getIdentifier().getMappedName(), RAX));
+        cc.add(new IMulMemWithReg(LOCAL_GROWTH_PERCENT, RAX));
+        cc.add(new Cqo());
+        cc.add(new MoveImmToReg("100", R10));
+        cc.add(new IDivWithReg(R10));
+        cc.add(new MoveImmToReg(Long.toString(GcOptions.INSTANCE.getMinThreshold()), R10));
+        cc.add(new CmpRegWithReg(RAX, R10));
+        cc.add(new Jge(minThresholdLabel));
+        cc.add(new MoveRegToReg(R10, RAX));
+        cc.add(minThresholdLabel);
+
+        final long maxHeap = GcOptions.INSTANCE.getMaxHeap();
+        if (maxHeap > 0) {
+            // Cap byte limit at max heap
+            cc.add(new MoveImmToReg(Long.toString(maxHeap), R10));
+            cc.add(new CmpRegWithReg(RAX, R10));
+            cc.add(new Jle(maxHeapLabel));
+            cc.add(new MoveRegToReg(R10, RAX));
+            cc.add(maxHeapLabel);
+        }
+        cc.add(new MoveRegToMem(RAX, BYTE_LIMIT.getIdentifier().getMappedName()));
+
+        if (maxHeap > 0) {
+            // Exit if the live data does not fit in max heap
+            cc.add(new AssemblyComment("Check live data against max heap"));
+            cc.add(new MoveMemToReg(ALLOCATED_BYTES.getIdentifier().getMappedName(), RDX));
+            cc.add(new CmpRegWithReg(RDX, R10));
+            cc.add(new Jle(doneLabel));
+            cc.addAll(Snippets.printf(MSG_OUT_OF_MEMORY.getIdentifier().getMappedName(), RDX));
+            cc.addAll(Snippets.exit("1"));
+        }
 
         // DONE
         cc.add(doneLabel);
         cc.add(new AssemblyComment("Restore base pointer"));
+        cc.add(new AddImmToReg(LOCAL_FRAME_SIZE, RSP));
         cc.add(new PopReg(RBP));
         cc.add(new Ret());
 
         return cc.lines();
     }
+
+    /**
+     * Returns code to read the time-stamp counter into RAX. Destroys RDX.
+     */
+    private static List<Line> readTimeStampCounter() {
+        return List.of(
+                new Rdtsc(),
+                new SalRegWithImm(RDX, "32"),
+                new OrRegWithReg(RDX, RAX)
+        );
+    }
 }
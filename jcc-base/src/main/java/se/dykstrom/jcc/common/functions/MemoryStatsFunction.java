@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.common.functions;
+
+import se.dykstrom.jcc.common.assembly.base.AssemblyComment;
+import se.dykstrom.jcc.common.assembly.instruction.*;
+import se.dykstrom.jcc.common.code.CodeContainer;
+import se.dykstrom.jcc.common.code.FixedLabel;
+import se.dykstrom.jcc.common.code.Line;
+import se.dykstrom.jcc.common.types.Constant;
+import se.dykstrom.jcc.common.types.I64;
+import se.dykstrom.jcc.common.types.Identifier;
+import se.dykstrom.jcc.common.types.Str;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static se.dykstrom.jcc.common.assembly.base.Register.*;
+import static se.dykstrom.jcc.common.functions.FunctionUtils.LIB_LIBC;
+import static se.dykstrom.jcc.common.functions.LibcBuiltIns.CF_PRINTF_STR_VAR;
+import static se.dykstrom.jcc.common.functions.MemoryManagementUtils.*;
+
+/**
+ * Implements the "memory_stats" memory management function. This function prints a summary
+ * of the GC statistics collected by the other memory management functions. It is registered
+ * with atexit by "memory_register" the first time any memory is registered, so the summary
+ * is printed once, when the program exits.
+ * <p>
+ * Signature: memory_stats() : I64
+ *
+ * @author Johan Dykstrom
+ */
+public class MemoryStatsFunction extends AssemblyFunction {
+
+    public static final String NAME = "memory_stats";
+
+    private static final Constant MSG_COLLECTIONS = new Constant(new Identifier("_gc_stats_collections_msg", Str.INSTANCE), "\"GC: Collections: %lld\",10,0");
+    private static final Constant MSG_ALLOCATED = new Constant(new Identifier("_gc_stats_allocated_msg", Str.INSTANCE), "\"GC: Allocated: %lld objects, %lld bytes\",10,0");
+    private static final Constant MSG_FREED = new Constant(new Identifier("_gc_stats_freed_msg", Str.INSTANCE), "\"GC: Freed: %lld objects, %lld bytes\",10,0");
+    private static final Constant MSG_PEAK_LIVE = new Constant(new Identifier("_gc_stats_peak_live_msg", Str.INSTANCE), "\"GC: Peak live: %lld bytes\",10,0");
+    private static final Constant MSG_PAUSE = new Constant(new Identifier("_gc_stats_pause_msg", Str.INSTANCE), "\"GC: Pause time: %lld cycles total, %lld cycles max\",10,0");
+
+    MemoryStatsFunction() {
+        super(NAME,
+                List.of(),
+                I64.INSTANCE,
+                Map.of(LIB_LIBC, Set.of(CF_PRINTF_STR_VAR)),
+                Set.of(STATS_COLLECTIONS, STATS_OBJECTS_ALLOCATED, STATS_BYTES_ALLOCATED, STATS_OBJECTS_FREED, STATS_BYTES_FREED,
+                        STATS_PEAK_LIVE, STATS_PAUSE_TOTAL, STATS_PAUSE_MAX,
+                        MSG_ALLOCATED, MSG_COLLECTIONS, MSG_FREED, MSG_PAUSE, MSG_PEAK_LIVE));
+    }
+
+    @Override
+    public List<Line> lines() {
+        final CodeContainer cc = new CodeContainer();
+
+        cc.add(new AssemblyComment("Save base pointer"));
+        cc.add(new PushReg(RBP));
+        cc.add(new MoveRegToReg(RSP, RBP));
+
+        cc.addAll(printf(MSG_COLLECTIONS, STATS_COLLECTIONS));
+        cc.addAll(printf(MSG_ALLOCATED, STATS_OBJECTS_ALLOCATED, STATS_BYTES_ALLOCATED));
+        cc.addAll(printf(MSG_FREED, STATS_OBJECTS_FREED, STATS_BYTES_FREED));
+        cc.addAll(printf(MSG_PEAK_LIVE, STATS_PEAK_LIVE));
+        cc.addAll(printf(MSG_PAUSE, STATS_PAUSE_TOTAL, STATS_PAUSE_MAX));
+
+        cc.add(new AssemblyComment("Restore base pointer"));
+        cc.add(new PopReg(RBP));
+        cc.add(new Ret());
+
+        return cc.lines();
+    }
+
+    /**
+     * Returns code to print the values of the given counters using the given format string.
+     */
+    private static List<Line> printf(final Constant format, final Constant... counters) {
+        final CodeContainer cc = new CodeContainer();
+        cc.add(new MoveImmToReg(format.getIdentifier().getMappedName(), RCX));
+        cc.add(new MoveMemToReg(counters[0].getIdentifier().getMappedName(), RDX));
+        if (counters.length > 1) {
+            cc.add(new MoveMemToReg(counters[1].getIdentifier().getMappedName(), R8));
+        }
+        cc.add(new SubImmFromReg(SHADOW_SPACE, RSP));
+        cc.add(new CallIndirect(new FixedLabel(CF_PRINTF_STR_VAR.getMappedName())));
+        cc.add(new AddImmToReg(SHADOW_SPACE, RSP));
+        return cc.lines();
+    }
+}
@@ -41,7 +41,9 @@ import static se.dykstrom.jcc.common.functions.MemoryManagementUtils.*;
 
 /**
  * Implements the "memory_sweep" memory management function. This function sweeps (frees)
- * the memory nodes that are not in use.
+ * the memory nodes that are not in use. The managed memory is returned to the C heap,
+ * while the node itself is put in the free node list, to be reused by "memory_register".
+ * If GC statistics are enabled, the number of objects and bytes freed are counted.
  * <p>
  * Signature: memory_sweep(start : I64, end : I64) : I64
  *
@@ -60,7 +62,12 @@ public class MemorySweepFunction extends AssemblyFunction {
                 asList(I64.INSTANCE, I64.INSTANCE),
                 I64.INSTANCE,
                 Map.of(LIB_LIBC, Set.of(CF_FREE_I64, CF_PRINTF_STR_VAR)),
-                Set.of(ALLOCATION_COUNT, ALLOCATION_LIST, MSG_SWEEPING));
+                Set.of(ALLOCATED_BYTES, ALLOCATION_COUNT, ALLOCATION_LIST, FREE_NODE_LIST, MSG_SWEEPING));
+    }
+
+    @Override
+    public Set<Constant> getConstants() {
+        return withStats(super.getConstants());
     }
 
     @Override
@@ -120,12 +127,22 @@ public class MemorySweepFunction extends AssemblyFunction {
         codeContainer.add(new MoveMemToReg(RBX, NODE_DATA_OFFSET, RCX));
         codeContainer.addAll(Snippets.free(RCX));
 
-        // Free swept node
-        codeContainer.add(new AssemblyComment("Free swept node"));
-        codeContainer.addAll(Snippets.free(RBX));
+        // Put swept node first in free node list
+        codeContainer.add(new AssemblyComment("Add swept node to free node list"));
+        codeContainer.add(new MoveMemToReg(FREE_NODE_LIST.getIdentifier().getMappedName(), RCX));
+        codeContainer.add(new MoveRegToMem(RCX, RBX));
+        codeContainer.add(new MoveRegToMem(RBX, FREE_NODE_LIST.getIdentifier().getMappedName()));
 
-        // Decrease allocation count
+        // Decrease allocation count and allocated bytes
         codeContainer.add(new DecMem(ALLOCATION_COUNT.getIdentifier().getMappedName()));
+        codeContainer.add(new MoveMemToReg(RBX, NODE_SIZE_OFFSET, RCX));
+        codeContainer.add(new SubRegFromMem(RCX, ALLOCATED_BYTES.getIdentifier().getMappedName()));
+
+        // Statistics
+        stats(() -> {
+            codeContainer.add(new IncMem(STATS_OBJECTS_FREED.getIdentifier().getMappedName()));
+            codeContainer.add(new AddRegToMem(RCX, STATS_BYTES_FREED.getIdentifier().getMappedName()));
+        });
 
         // Did we remove the root of the allocation list?
         codeContainer.add(new CmpRegWithImm(RDI, "0"));
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.common.ir;
+
+import se.dykstrom.jcc.common.ast.Statement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A basic block in a control flow graph. A basic block is a sequence of statements that are
+ * always executed in order, from the first to the last. The statements do not transfer control
+ * anywhere; that is done by the block's {@link Terminator} after the last statement.
+ * <p>
+ * Basic blocks have identity semantics, and are created by {@link ControlFlowGraphBuilder}.
+ *
+ * @author Johan Dykstrom
+ */
+public final class BasicBlock {
+
+    private final int id;
+    private final String label;
+    private final List<Statement> statements = new ArrayList<>();
+    private Terminator terminator;
+
+    BasicBlock(final int id, final String label) {
+        this.id = id;
+        this.label = label;
+    }
+
+    /**
+     * Returns the id of this block, that is unique within its control flow graph.
+     */
+    public int id() {
+        return id;
+    }
+
+    /**
+     * Returns the source code label that starts this block, or {@code null} if the block has no label.
+     */
+    public String label() {
+        return label;
+    }
+
+    /**
+     * Returns the statements in this block, not including the terminator.
+     */
+    public List<Statement> statements() {
+        return Collections.unmodifiableList(statements);
+    }
+
+    /**
+     * Returns the terminator that ends this block.
+     */
+    public Terminator terminator() {
+        return terminator;
+    }
+
+    void add(final Statement statement) {
+        statements.add(statement);
+    }
+
+    void setTerminator(final Terminator terminator) {
+        this.terminator = terminator;
+    }
+
+    @Override
+    public String toString() {
+        return "B" + id;
+    }
+}
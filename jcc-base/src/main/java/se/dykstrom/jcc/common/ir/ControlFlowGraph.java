@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.common.ir;
+
+import se.dykstrom.jcc.common.ir.Terminator.Gosub;
+import se.dykstrom.jcc.common.ir.Terminator.Return;
+
+import java.util.*;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A control flow graph, consisting of basic blocks connected by the jumps of their terminators.
+ * The graph only contains blocks that are reachable from the entry block. The blocks are kept
+ * in reverse post order, which means that, disregarding loops, a block comes before all its
+ * successors.
+ * <p>
+ * Since a subroutine may be called from many places, a {@link Return} terminator is considered
+ * to jump to the return block of every reachable {@link Gosub} terminator in the graph.
+ *
+ * @author Johan Dykstrom
+ */
+public final class ControlFlowGraph {
+
+    private final BasicBlock entry;
+    private final List<BasicBlock> blocks;
+    private final Map<BasicBlock, List<BasicBlock>> successors = new HashMap<>();
+    private final Map<BasicBlock, List<BasicBlock>> predecessors = new HashMap<>();
+
+    /**
+     * Creates a new control flow graph, starting with block {@code entry}. All blocks
+     * must have a terminator. Blocks that are not reachable from the entry block are
+     * left out of the graph.
+     */
+    public ControlFlowGraph(final BasicBlock entry) {
+        this.entry = requireNonNull(entry);
+        final var returnBlocks = findReturnBlocks();
+        for (BasicBlock block : returnBlocks.keySet()) {
+            successors.put(block, (block.terminator() instanceof Return) ? returnBlocks.get(block) : block.terminator().targets());
+        }
+        this.blocks = reversePostOrder();
+        blocks.forEach(block -> predecessors.put(block, new ArrayList<>()));
+        blocks.forEach(block -> successors.get(block).forEach(successor -> predecessors.get(successor).add(block)));
+    }
+
+    /**
+     * Returns the entry block of the graph.
+     */
+    public BasicBlock entry() {
+        return entry;
+    }
+
+    /**
+     * Returns all blocks in the graph, in reverse post order.
+     */
+    public List<BasicBlock> blocks() {
+        return blocks;
+    }
+
+    /**
+     * Returns the blocks that {@code block} may transfer control to.
+     */
+    public List<BasicBlock> successors(final BasicBlock block) {
+        return Collections.unmodifiableList(successors.get(block));
+    }
+
+    /**
+     * Returns the blocks that may transfer control to {@code block}.
+     */
+    public List<BasicBlock> predecessors(final BasicBlock block) {
+        return Collections.unmodifiableList(predecessors.get(block));
+    }
+
+    /**
+     * Finds all reachable blocks, and the blocks that each Return terminator may return to.
+     * Returns a map from each reachable block to its return blocks, which are only relevant
+     * for blocks that end with a Return terminator.
+     */
+    private Map<BasicBlock, List<BasicBlock>> findReturnBlocks() {
+        final Map<BasicBlock, List<BasicBlock>> reachable = new LinkedHashMap<>();
+        // The return blocks are shared by all Return terminators
+        final List<BasicBlock> returnBlocks = new ArrayList<>();
+        final Deque<BasicBlock> worklist = new ArrayDeque<>();
+        worklist.push(entry);
+        boolean anyReturn = false;
+        while (!worklist.isEmpty()) {
+            final var block = worklist.pop();
+            if (reachable.containsKey(block)) {
+                continue;
+            }
+            reachable.put(block, returnBlocks);
+            final var terminator = requireNonNull(block.terminator(), () -> "block without terminator: " + block);
+            if (terminator instanceof Gosub gosub && !returnBlocks.contains(gosub.returnTo())) {
+                returnBlocks.add(gosub.returnTo());
+                if (anyReturn) {
+                    worklist.push(gosub.returnTo());
+                }
+            } else if (terminator instanceof Return && !anyReturn) {
+                anyReturn = true;
+                returnBlocks.forEach(worklist::push);
+            }
+            terminator.targets().forEach(worklist::push);
+        }
+        return reachable;
+    }
+
+    private List<BasicBlock> reversePostOrder() {
+        final List<BasicBlock> postOrder = new ArrayList<>();
+        final Set<BasicBlock> visited = new HashSet<>();
+        // Each stack element is a block, and an iterator over its remaining successors. The successors
+        // are visited in reverse order, to make the reverse post order follow the source code order.
+        final Deque<Map.Entry<BasicBlock, Iterator<BasicBlock>>> stack = new ArrayDeque<>();
+        visited.add(entry);
+        stack.push(Map.entry(entry, successors.get(entry).reversed().iterator()));
+        while (!stack.isEmpty()) {
+            final var top = stack.peek();
+            if (top.getValue().hasNext()) {
+                final var successor = top.getValue().next();
+                if (visited.add(successor)) {
+                    stack.push(Map.entry(successor, successors.get(successor).reversed().iterator()));
+                }
+            } else {
+                postOrder.add(top.getKey());
+                stack.pop();
+            }
+        }
+        Collections.reverse(postOrder);
+        return Collections.unmodifiableList(postOrder);
+    }
+
+    @Override
+    public String toString() {
+        final var builder = new StringBuilder();
+        for (BasicBlock block : blocks) {
+            builder.append(block).append(':');
+            if (block.label() != null) {
+                builder.append(" ; ").append(block.label());
+            }
+            builder.append('\n');
+            block.statements().forEach(statement -> builder.append("    ").append(statement).append('\n'));
+            builder.append("    ").append(block.terminator()).append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.common.ir;
+
+import se.dykstrom.jcc.common.ast.*;
+import se.dykstrom.jcc.common.ir.Terminator.Branch;
+import se.dykstrom.jcc.common.ir.Terminator.Exit;
+import se.dykstrom.jcc.common.ir.Terminator.Jump;
+import se.dykstrom.jcc.common.ir.Terminator.Return;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lowers the statements of an {@link AstProgram} into a {@link ControlFlowGraph}. IF and WHILE
+ * statements are split into blocks connected by {@link Branch} and {@link Jump} terminators,
+ * labelled statements start new blocks, and GOTO, RETURN, and exit statements end blocks.
+ * All other statements are added to the current block as they are.
+ * <p>
+ * Subclasses that define their own jump statements should override {@link #statement(Statement)},
+ * and use the protected methods of this class to create blocks and terminators.
+ * Each call to {@link #build(AstProgram)} creates a new, independent graph.
+ *
+ * @author Johan Dykstrom
+ */
+public class ControlFlowGraphBuilder {
+
+    private final List<BasicBlock> blocks = new ArrayList<>();
+    private final Map<String, BasicBlock> labelledBlocks = new HashMap<>();
+    private BasicBlock current;
+
+    /**
+     * Builds the control flow graph of the given program.
+     */
+    public ControlFlowGraph build(final AstProgram program) {
+        blocks.clear();
+        labelledBlocks.clear();
+        final var entry = newBlock();
+        current = entry;
+        statements(program.getStatements());
+        terminate(new Exit(null));
+        // Blocks for labels that are jumped to, but never defined, are also exits
+        blocks.stream().filter(block -> block.terminator() == null).forEach(block -> block.setTerminator(new Exit(null)));
+        return new ControlFlowGraph(entry);
+    }
+
+    /**
+     * Lowers a list of statements into the current block, and any blocks that follow.
+     */
+    protected final void statements(final List<Statement> statements) {
+        statements.forEach(this::statement);
+    }
+
+    /**
+     * Lowers a single statement.
+     */
+    protected void statement(final Statement statement) {
+        if (statement instanceof LabelledStatement ls) {
+            startBlock(blockForLabel(ls.label()));
+            statement(ls.statement());
+        } else if (statement instanceof IfStatement is) {
+            ifStatement(is);
+        } else if (statement instanceof WhileStatement ws) {
+            whileStatement(ws);
+        } else if (statement instanceof GotoStatement gs) {
+            terminate(new Jump(blockForLabel(gs.getJumpLabel())));
+        } else if (statement instanceof ReturnStatement rs) {
+            terminate(new Return(rs));
+        } else if (statement instanceof ExitStatement es) {
+            terminate(new Exit(es));
+        } else {
+            current().add(statement);
+        }
+    }
+
+    private void ifStatement(final IfStatement statement) {
+        final var thenBlock = newBlock();
+        final var elseBlock = statement.getElseStatements().isEmpty() ? null : newBlock();
+        final var joinBlock = newBlock();
+        terminate(new Branch(statement.getExpression(), thenBlock, (elseBlock != null) ? elseBlock : joinBlock));
+
+        startBlock(thenBlock);
+        statements(statement.getThenStatements());
+        if (elseBlock != null) {
+            terminate(new Jump(joinBlock));
+            startBlock(elseBlock);
+            statements(statement.getElseStatements());
+        }
+        startBlock(joinBlock);
+    }
+
+    private void whileStatement(final WhileStatement statement) {
+        final var headerBlock = newBlock();
+        final var bodyBlock = newBlock();
+        final var exitBlock = newBlock();
+
+        startBlock(headerBlock);
+        terminate(new Branch(statement.getExpression(), bodyBlock, exitBlock));
+        startBlock(bodyBlock);
+        statements(statement.getStatements());
+        terminate(new Jump(headerBlock));
+        startBlock(exitBlock);
+    }
+
+    /**
+     * Creates a new, empty block without a label.
+     */
+    protected final BasicBlock newBlock() {
+        final var block = new BasicBlock(blocks.size(), null);
+        blocks.add(block);
+        return block;
+    }
+
+    /**
+     * Returns the block that starts with the given label, creating it if needed.
+     */
+    protected final BasicBlock blockForLabel(final String label) {
+        return labelledBlocks.computeIfAbsent(label, l -> {
+            final var block = new BasicBlock(blocks.size(), l);
+            blocks.add(block);
+            return block;
+        });
+    }
+
+    /**
+     * Ends the current block with the given terminator. Any statements that follow, up to
+     * the start of the next block, are added to a new block that cannot be reached.
+     */
+    protected final void terminate(final Terminator terminator) {
+        current().setTerminator(terminator);
+        current = null;
+    }
+
+    /**
+     * Makes {@code block} the current block. If the previous current block has not been
+     * terminated, it falls through to {@code block}.
+     */
+    protected final void startBlock(final BasicBlock block) {
+        if (current != null && current.terminator() == null) {
+            current.setTerminator(new Jump(block));
+        }
+        current = block;
+    }
+
+    private BasicBlock current() {
+        if (current == null) {
+            current = newBlock();
+        }
+        return current;
+    }
+}
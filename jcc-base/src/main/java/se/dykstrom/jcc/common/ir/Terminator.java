@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.common.ir;
+
+import se.dykstrom.jcc.common.ast.ExitStatement;
+import se.dykstrom.jcc.common.ast.Expression;
+import se.dykstrom.jcc.common.ast.ReturnStatement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * The last instruction of a basic block, that transfers control to other blocks.
+ *
+ * @author Johan Dykstrom
+ */
+public sealed interface Terminator {
+
+    /**
+     * Returns the blocks that this terminator transfers control to. Return terminators have
+     * no targets, since the blocks they return to are only known by the control flow graph.
+     */
+    List<BasicBlock> targets();
+
+    /**
+     * Returns the expression evaluated by this terminator, or {@code null} if there is none.
+     */
+    default Expression expression() {
+        return null;
+    }
+
+    /**
+     * An unconditional jump to {@code target}.
+     */
+    record Jump(BasicBlock target) implements Terminator {
+        public Jump {
+            requireNonNull(target);
+        }
+
+        @Override
+        public List<BasicBlock> targets() {
+            return List.of(target);
+        }
+
+        @Override
+        public String toString() {
+            return "goto " + target;
+        }
+    }
+
+    /**
+     * A conditional jump to {@code ifTrue} if {@code condition} is true (non-zero),
+     * and to {@code ifFalse} otherwise.
+     */
+    record Branch(Expression condition, BasicBlock ifTrue, BasicBlock ifFalse) implements Terminator {
+        public Branch {
+            requireNonNull(condition);
+            requireNonNull(ifTrue);
+            requireNonNull(ifFalse);
+        }
+
+        @Override
+        public List<BasicBlock> targets() {
+            return List.of(ifTrue, ifFalse);
+        }
+
+        @Override
+        public Expression expression() {
+            return condition;
+        }
+
+        @Override
+        public String toString() {
+            return "if " + condition + " goto " + ifTrue + " else " + ifFalse;
+        }
+    }
+
+    /**
+     * A multi-way jump to target number {@code selector}, counting from one. If {@code selector}
+     * is out of range, control is transferred to {@code otherwise}.
+     */
+    record Switch(Expression selector, List<BasicBlock> cases, BasicBlock otherwise) implements Terminator {
+        public Switch {
+            requireNonNull(selector);
+            cases = List.copyOf(cases);
+            requireNonNull(otherwise);
+        }
+
+        @Override
+        public List<BasicBlock> targets() {
+            final List<BasicBlock> targets = new ArrayList<>(cases);
+            targets.add(otherwise);
+            return targets;
+        }
+
+        @Override
+        public Expression expression() {
+            return selector;
+        }
+
+        @Override
+        public String toString() {
+            return "switch " + selector + " goto " + cases.stream().map(BasicBlock::toString).collect(joining(", ")) + " else " + otherwise;
+        }
+    }
+
+    /**
+     * A subroutine call, that transfers control to one of {@code subroutines}. When the subroutine
+     * returns, execution continues with {@code returnTo}. If {@code selector} is {@code null}, there
+     * is only one subroutine, and it is always called. Otherwise, {@code selector} selects the
+     * subroutine to call, counting from one. If it is out of range, execution continues with
+     * {@code returnTo} directly.
+     */
+    record Gosub(Expression selector, List<BasicBlock> subroutines, BasicBlock returnTo) implements Terminator {
+        public Gosub {
+            subroutines = List.copyOf(subroutines);
+            requireNonNull(returnTo);
+        }
+
+        @Override
+        public List<BasicBlock> targets() {
+            if (selector == null) {
+                return subroutines;
+            }
+            final List<BasicBlock> targets = new ArrayList<>(subroutines);
+            targets.add(returnTo);
+            return targets;
+        }
+
+        @Override
+        public Expression expression() {
+            return selector;
+        }
+
+        @Override
+        public String toString() {
+            return (selector != null ? "switch " + selector + " " : "") +
+                   "gosub " + subroutines.stream().map(BasicBlock::toString).collect(joining(", ")) +
+                   " return to " + returnTo;
+        }
+    }
+
+    /**
+     * A return from a subroutine, to the {@code returnTo} block of the calling {@link Gosub}.
+     */
+    record Return(ReturnStatement statement) implements Terminator {
+        @Override
+        public List<BasicBlock> targets() {
+            return List.of();
+        }
+
+        @Override
+        public Expression expression() {
+            return (statement != null) ? statement.getExpression() : null;
+        }
+
+        @Override
+        public String toString() {
+            return "return";
+        }
+    }
+
+    /**
+     * The end of the program. The statement is {@code null} if the program ends because
+     * there are no more statements.
+     */
+    record Exit(ExitStatement statement) implements Terminator {
+        @Override
+        public List<BasicBlock> targets() {
+            return List.of();
+        }
+
+        @Override
+        public Expression expression() {
+            return (statement != null) ? statement.getExpression() : null;
+        }
+
+        @Override
+        public String toString() {
+            return "exit" + ((statement != null) ? " " + statement.getExpression() : "");
+        }
+    }
+}
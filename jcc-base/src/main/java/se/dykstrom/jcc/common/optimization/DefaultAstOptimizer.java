@@ -20,30 +20,77 @@ package se.dykstrom.jcc.common.optimization;
 import se.dykstrom.jcc.common.ast.*;
 import se.dykstrom.jcc.common.compiler.TypeManager;
 import se.dykstrom.jcc.common.error.InvalidValueException;
+import se.dykstrom.jcc.common.error.SemanticsException;
+import se.dykstrom.jcc.common.functions.Function;
+import se.dykstrom.jcc.common.functions.LibcBuiltIns;
 import se.dykstrom.jcc.common.symbols.SymbolTable;
+import se.dykstrom.jcc.common.types.Arr;
+import se.dykstrom.jcc.common.types.F64;
 import se.dykstrom.jcc.common.types.I64;
 import se.dykstrom.jcc.common.types.Identifier;
+import se.dykstrom.jcc.common.types.Str;
 import se.dykstrom.jcc.common.utils.OptimizationOptions;
 
+import java.util.*;
+import java.util.function.UnaryOperator;
+
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toSet;
 import static se.dykstrom.jcc.common.ast.IntegerLiteral.ZERO;
 import static se.dykstrom.jcc.common.utils.ExpressionUtils.evaluateExpression;
+import static se.dykstrom.jcc.common.utils.ExpressionUtils.hasSideEffects;
 
 /**
  * The default optimizer that performs AST optimizations applicable for all programming languages.
+ * <p>
+ * At optimization level 2, the optimizer also propagates constant values assigned to variables
+ * through the program, folds IF and WHILE statements with constant conditions, removes code
+ * that cannot be reached, and removes variables that are never read. These optimizations are
+ * conservative: statements that are unknown to the optimizer are assumed to assign any variable,
+ * and, unless they report their jump labels using {@link #jumpLabels(Statement)}, to jump to any
+ * label in the program.
+ * <p>
+ * Also at optimization level 2, the optimizer moves loop-invariant computations out of WHILE
+ * loops. An expression is loop-invariant if it only reads variables that are not assigned in
+ * the loop, and only calls pure functions, see {@link #isPure(Function)}. The value of such an
+ * expression is computed once, before the loop, and stored in a temporary variable. Finally,
+ * expressions that are computed more than once in a basic block are computed only once, and
+ * reused, see {@link #eliminateCommonSubexpressions(List)}.
  *
  * @author Johan Dykstrom
  */
 public class DefaultAstOptimizer implements AstOptimizer {
 
+    /** The prefix of temporary variables created by loop-invariant code motion. No source code identifier starts with '_'. */
+    private static final String LICM_PREFIX = "_licm_";
+
+    /** The prefix of temporary variables created by common subexpression elimination. */
+    private static final String CSE_PREFIX = "_cse_";
+
+    private final TypeManager typeManager;
     private final AstExpressionOptimizer expressionOptimizer;
     private final SymbolTable symbols;
 
+    /** Maps variable names to their known constant values at the current statement, used at level 2. */
+    private final Map<String, LiteralExpression> knownValues = new HashMap<>();
+
+    /** The labels that are the targets of jump statements, used at level 2. */
+    private final Set<String> jumpTargets = new HashSet<>();
+
+    /** True if the program contains statements that may jump to any label, used at level 2. */
+    private boolean anyLabelIsJumpTarget;
+
+    /** The index of the next temporary variable, used at level 2. */
+    private int tempIndex;
+
     public DefaultAstOptimizer(final TypeManager typeManager, final SymbolTable symbolTable) {
-        this(new DefaultAstExpressionOptimizer(typeManager), symbolTable);
+        this(typeManager, new DefaultAstExpressionOptimizer(typeManager), symbolTable);
     }
 
-    public DefaultAstOptimizer(final AstExpressionOptimizer expressionOptimizer, final SymbolTable symbolTable) {
+    public DefaultAstOptimizer(final TypeManager typeManager,
+                               final AstExpressionOptimizer expressionOptimizer,
+                               final SymbolTable symbolTable) {
+        this.typeManager = requireNonNull(typeManager);
         this.expressionOptimizer = requireNonNull(expressionOptimizer);
         this.symbols = requireNonNull(symbolTable);
     }
@@ -51,7 +98,18 @@ public class DefaultAstOptimizer implements AstOptimizer {
     @Override
     public AstProgram program(final AstProgram program) {
         if (isLevel1()) {
-            final var statements = program.getStatements().stream().map(this::statement).toList();
+            if (isLevel2()) {
+                knownValues.clear();
+                jumpTargets.clear();
+                anyLabelIsJumpTarget = false;
+                tempIndex = 0;
+                findJumpTargets(program.getStatements());
+            }
+            var statements = statements(program.getStatements());
+            if (isLevel2()) {
+                statements = removeUnusedVariables(statements);
+                statements = eliminateCommonSubexpressions(statements);
+            }
             return program.withStatements(statements);
         } else {
             return program;
@@ -63,6 +121,59 @@ public class DefaultAstOptimizer implements AstOptimizer {
         return expressionOptimizer;
     }
 
+    /**
+     * Optimizes a list of statements. At optimization level 2, this method also keeps track of
+     * the known values of variables, folds IF and WHILE statements with constant conditions,
+     * removes statements that cannot be reached, and moves loop-invariant computations out of loops.
+     */
+    private List<Statement> statements(final List<Statement> statements) {
+        if (!isLevel2()) {
+            return statements.stream().map(this::statement).toList();
+        }
+
+        final List<Statement> result = new ArrayList<>();
+        boolean reachable = true;
+        for (Statement statement : statements) {
+            if (!reachable) {
+                if (!containsJumpTarget(statement)) {
+                    // This statement can never be executed
+                    continue;
+                }
+                reachable = true;
+            }
+
+            final var optimizedStatement = statement(statement);
+            updateKnownValues(optimizedStatement);
+
+            if (optimizedStatement instanceof IfStatement ifStatement && isLiteral(ifStatement.getExpression())) {
+                final var isTrue = isTrue(ifStatement.getExpression());
+                final var takenStatements = isTrue ? ifStatement.getThenStatements() : ifStatement.getElseStatements();
+                final var droppedStatements = isTrue ? ifStatement.getElseStatements() : ifStatement.getThenStatements();
+                if (droppedStatements.stream().anyMatch(this::containsJumpTarget)) {
+                    result.add(ifStatement);
+                } else {
+                    result.addAll(takenStatements);
+                }
+            } else if (optimizedStatement instanceof WhileStatement whileStatement
+                       && isLiteral(whileStatement.getExpression())
+                       && !isTrue(whileStatement.getExpression())
+                       && !containsJumpTarget(whileStatement)) {
+                // The loop body is never executed
+                continue;
+            } else if (isWhileStatement(optimizedStatement)) {
+                result.addAll(hoistLoopInvariants(optimizedStatement));
+            } else {
+                result.add(optimizedStatement);
+            }
+
+            if (isTerminal(optimizedStatement)) {
+                reachable = false;
+                knownValues.clear();
+            }
+        }
+        return result;
+    }
+
     /**
      * Optimizes statements.
      */
@@ -223,7 +334,12 @@ public class DefaultAstOptimizer implements AstOptimizer {
      * Optimizes function definition statements.
      */
     private Statement functionDefinitionStatement(final FunctionDefinitionStatement statement) {
-        return statement.withExpression(expression(statement.expression()));
+        // The values of global variables are not known when the function is called
+        final var savedValues = new HashMap<>(knownValues);
+        knownValues.clear();
+        final var expression = expression(statement.expression());
+        knownValues.putAll(savedValues);
+        return statement.withExpression(expression);
     }
 
     /**
@@ -231,8 +347,14 @@ public class DefaultAstOptimizer implements AstOptimizer {
      */
     private Statement ifStatement(final IfStatement statement) {
         final var expression = expressionInIfOrWhile(expression(statement.getExpression()));
-        final var thenStatements = statement.getThenStatements().stream().map(this::statement).toList();
-        final var elseStatements = statement.getElseStatements().stream().map(this::statement).toList();
+        final var entryValues = new HashMap<>(knownValues);
+        final var thenStatements = statements(statement.getThenStatements());
+        final var thenValues = new HashMap<>(knownValues);
+        knownValues.clear();
+        knownValues.putAll(entryValues);
+        final var elseStatements = statements(statement.getElseStatements());
+        // After the IF statement, we only know the values that are the same in both branches
+        knownValues.entrySet().retainAll(thenValues.entrySet());
         return statement.withExpression(expression).withThenStatements(thenStatements).withElseStatements(elseStatements);
     }
 
@@ -240,6 +362,10 @@ public class DefaultAstOptimizer implements AstOptimizer {
      * Optimizes labelled statements.
      */
     private Statement labelledStatement(final LabelledStatement ls) {
+        if (isJumpTarget(ls.label())) {
+            // We may arrive here from anywhere, with any variable values
+            knownValues.clear();
+        }
         return ls.withStatement(statement(ls.statement()));
     }
 
@@ -247,8 +373,21 @@ public class DefaultAstOptimizer implements AstOptimizer {
      * Optimizes WHILE statements.
      */
     private Statement whileStatement(final WhileStatement statement) {
+        if (isLevel2()) {
+            // Values assigned in the loop body are not known when evaluating the loop condition
+            final var assignedVariables = assignedVariables(statement);
+            if (assignedVariables.isEmpty() || containsJumpTarget(statement)) {
+                knownValues.clear();
+            } else {
+                knownValues.keySet().removeAll(assignedVariables.get());
+            }
+        }
+        final var loopValues = new HashMap<>(knownValues);
         final var expression = expressionInIfOrWhile(expression(statement.getExpression()));
-        final var statements = statement.getStatements().stream().map(this::statement).toList();
+        final var statements = statements(statement.getStatements());
+        // After the loop, we know the same values as when evaluating the loop condition
+        knownValues.clear();
+        knownValues.putAll(loopValues);
         return statement.withExpression(expression).withStatements(statements);
     }
 
@@ -274,7 +413,922 @@ public class DefaultAstOptimizer implements AstOptimizer {
      * Optimizes expressions.
      */
     protected Expression expression(final Expression expression) {
-        return expressionOptimizer.expression(expression, symbols);
+        if (knownValues.isEmpty()) {
+            return expressionOptimizer.expression(expression, symbols);
+        } else {
+            return expressionOptimizer.expression(replaceKnownValues(expression), symbols);
+        }
+    }
+
+    /**
+     * Returns a copy of the given expression, where all variables with known values
+     * have been replaced by their values.
+     */
+    private Expression replaceKnownValues(final Expression expression) {
+        if (expression instanceof ArrayAccessExpression arrayAccess) {
+            return arrayAccess.withSubscripts(arrayAccess.getSubscripts().stream().map(this::replaceKnownValues).toList());
+        } else if (expression instanceof IdentifierDerefExpression ide) {
+            final var identifier = ide.getIdentifier();
+            final var value = knownValues.get(identifier.name());
+            return (value != null && value.getType().equals(identifier.type())) ? value : expression;
+        } else if (expression instanceof BinaryExpression binaryExpression) {
+            return binaryExpression.withLeft(replaceKnownValues(binaryExpression.getLeft()))
+                                   .withRight(replaceKnownValues(binaryExpression.getRight()));
+        } else if (expression instanceof UnaryExpression unaryExpression) {
+            return unaryExpression.withExpression(replaceKnownValues(unaryExpression.getExpression()));
+        } else if (expression instanceof FunctionCallExpression functionCall) {
+            return functionCall.withArgs(functionCall.getArgs().stream().map(this::replaceKnownValues).toList());
+        } else {
+            return expression;
+        }
+    }
+
+    /**
+     * Updates the known values of variables after executing the given, already optimized, statement.
+     * Compound statements update the known values themselves while being optimized.
+     */
+    private void updateKnownValues(final Statement statement) {
+        if (!isLevel2()) {
+            return;
+        }
+        if (statement instanceof LabelledStatement ls) {
+            updateKnownValues(ls.statement());
+        } else if (statement instanceof IfStatement || statement instanceof WhileStatement) {
+            // Already updated
+        } else if (statement instanceof AssignStatement as && as.getLhsExpression() instanceof IdentifierNameExpression ine) {
+            final var identifier = ine.getIdentifier();
+            if (as.getRhsExpression() instanceof LiteralExpression le && le.getType().equals(identifier.type())) {
+                knownValues.put(identifier.name(), le);
+            } else {
+                knownValues.remove(identifier.name());
+            }
+        } else {
+            assignedVariables(statement).ifPresentOrElse(names -> knownValues.keySet().removeAll(names), knownValues::clear);
+        }
+    }
+
+    /**
+     * Returns the names of all variables that may be assigned when executing the given statement,
+     * or an empty optional if this statement is unknown to the optimizer, and may assign any variable.
+     */
+    private Optional<Set<String>> assignedVariables(final Statement statement) {
+        if (statement instanceof AssignStatement s) {
+            return Optional.of(variableName(s.getLhsExpression()));
+        } else if (statement instanceof IncStatement s) {
+            return Optional.of(variableName(s.getLhsExpression()));
+        } else if (statement instanceof DecStatement s) {
+            return Optional.of(variableName(s.getLhsExpression()));
+        } else if (statement instanceof AddAssignStatement s) {
+            return Optional.of(variableName(s.getLhsExpression()));
+        } else if (statement instanceof SubAssignStatement s) {
+            return Optional.of(variableName(s.getLhsExpression()));
+        } else if (statement instanceof MulAssignStatement s) {
+            return Optional.of(variableName(s.lhsExpression()));
+        } else if (statement instanceof IDivAssignStatement s) {
+            return Optional.of(variableName(s.lhsExpression()));
+        } else if (statement instanceof VariableDeclarationStatement s) {
+            return Optional.of(s.getDeclarations().stream().map(Declaration::name).collect(toSet()));
+        } else if (statement instanceof LabelledStatement s) {
+            return assignedVariables(List.of(s.statement()));
+        } else if (statement instanceof IfStatement s) {
+            final var thenVariables = assignedVariables(s.getThenStatements());
+            final var elseVariables = assignedVariables(s.getElseStatements());
+            if (thenVariables.isPresent() && elseVariables.isPresent()) {
+                final Set<String> names = new HashSet<>(thenVariables.get());
+                names.addAll(elseVariables.get());
+                return Optional.of(names);
+            }
+            return Optional.empty();
+        } else if (statement instanceof WhileStatement s) {
+            return assignedVariables(s.getStatements());
+        } else if (statement instanceof CommentStatement ||
+                   statement instanceof ClsStatement ||
+                   statement instanceof ConstDeclarationStatement ||
+                   statement instanceof FunctionDefinitionStatement ||
+                   statement instanceof GotoStatement ||
+                   statement instanceof ExitStatement ||
+                   statement instanceof ReturnStatement ||
+                   isTransparent(statement)) {
+            return Optional.of(Set.of());
+        } else {
+            return Optional.empty();
+        }
+    }
+
+    private Optional<Set<String>> assignedVariables(final List<Statement> statements) {
+        final Set<String> names = new HashSet<>();
+        for (Statement statement : statements) {
+            final var assignedVariables = assignedVariables(statement);
+            if (assignedVariables.isEmpty()) {
+                return Optional.empty();
+            }
+            names.addAll(assignedVariables.get());
+        }
+        return Optional.of(names);
+    }
+
+    private static Set<String> variableName(final IdentifierExpression expression) {
+        // Assigning an array element does not change any known value
+        return (expression instanceof IdentifierNameExpression ine) ? Set.of(ine.getIdentifier().name()) : Set.of();
+    }
+
+    /**
+     * Returns {@code true} if the given statement is known to neither assign any variable,
+     * nor jump anywhere. Subclasses should override this method to add language specific
+     * statements, for example PRINT statements.
+     */
+    protected boolean isTransparent(final Statement statement) {
+        return false;
+    }
+
+    /**
+     * Returns the labels that the given statement may jump to. Subclasses that define their
+     * own jump statements should override this method. This method does not look inside
+     * compound statements.
+     */
+    protected List<String> jumpLabels(final Statement statement) {
+        if (statement instanceof AbstractJumpStatement jumpStatement) {
+            return List.of(jumpStatement.getJumpLabel());
+        } else {
+            return List.of();
+        }
+    }
+
+    /**
+     * Returns {@code true} if calls to the given function may be moved out of loops, that is, if the
+     * function has no side effects, returns the same value every time it is called with the same
+     * arguments, and cannot fail. Subclasses should override this method to classify their own
+     * built-in functions.
+     */
+    protected boolean isPure(final Function function) {
+        return LibcBuiltIns.isPure(function);
+    }
+
+    /**
+     * Returns a copy of the given statement, where all expressions have been replaced by the result
+     * of applying {@code function} to them. Statements that are unknown to this method are returned
+     * unchanged. Subclasses should override this method to add language specific statements. This
+     * method does not look inside compound statements.
+     */
+    protected Statement replaceExpressions(final Statement statement, final UnaryOperator<Expression> function) {
+        if (statement instanceof AssignStatement as) {
+            final var lhsExpression = (as.getLhsExpression() instanceof ArrayAccessExpression arrayAccess)
+                    ? arrayAccess.withSubscripts(arrayAccess.getSubscripts().stream().map(function).toList())
+                    : as.getLhsExpression();
+            return as.withLhsExpression(lhsExpression).withRhsExpression(function.apply(as.getRhsExpression()));
+        } else {
+            return statement;
+        }
+    }
+
+    /**
+     * Finds all labels that are targets of jumps in the given statements, and in any nested statements.
+     */
+    private void findJumpTargets(final List<Statement> statements) {
+        for (Statement statement : statements) {
+            if (statement instanceof LabelledStatement ls) {
+                findJumpTargets(List.of(ls.statement()));
+            } else if (statement instanceof IfStatement is) {
+                findJumpTargets(is.getThenStatements());
+                findJumpTargets(is.getElseStatements());
+            } else if (statement instanceof WhileStatement ws) {
+                findJumpTargets(ws.getStatements());
+            } else {
+                final var labels = jumpLabels(statement);
+                if (!labels.isEmpty()) {
+                    jumpTargets.addAll(labels);
+                } else if (assignedVariables(statement).isEmpty()) {
+                    // An unknown statement may jump anywhere
+                    anyLabelIsJumpTarget = true;
+                }
+            }
+        }
+    }
+
+    private boolean isJumpTarget(final String label) {
+        return anyLabelIsJumpTarget || jumpTargets.contains(label);
+    }
+
+    /**
+     * Returns {@code true} if the given statement, or any nested statement, is the target of a jump.
+     */
+    private boolean containsJumpTarget(final Statement statement) {
+        if (statement instanceof LabelledStatement ls) {
+            return isJumpTarget(ls.label()) || containsJumpTarget(ls.statement());
+        } else if (statement instanceof IfStatement is) {
+            return is.getThenStatements().stream().anyMatch(this::containsJumpTarget) ||
+                   is.getElseStatements().stream().anyMatch(this::containsJumpTarget);
+        } else if (statement instanceof WhileStatement ws) {
+            return ws.getStatements().stream().anyMatch(this::containsJumpTarget);
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Returns {@code true} if execution never continues with the statement after the given statement.
+     */
+    private static boolean isTerminal(final Statement statement) {
+        if (statement instanceof LabelledStatement ls) {
+            return isTerminal(ls.statement());
+        }
+        return statement instanceof GotoStatement || statement instanceof ExitStatement || statement instanceof ReturnStatement;
+    }
+
+    private static boolean isLiteral(final Expression expression) {
+        return expression instanceof IntegerLiteral || expression instanceof BooleanLiteral;
+    }
+
+    private static boolean isTrue(final Expression expression) {
+        if (expression instanceof IntegerLiteral integerLiteral) {
+            return integerLiteral.asLong() != 0;
+        } else {
+            return !BooleanLiteral.FALSE.getValue().equals(((LiteralExpression) expression).getValue());
+        }
+    }
+
+    private static boolean isWhileStatement(final Statement statement) {
+        return statement instanceof WhileStatement ||
+               (statement instanceof LabelledStatement ls && ls.statement() instanceof WhileStatement);
+    }
+
+    /**
+     * Moves loop-invariant computations out of the given, already optimized, and possibly labelled,
+     * WHILE statement. Each loop-invariant expression is assigned to a temporary variable before the
+     * loop, and replaced by that variable in the loop. Returns the assignments followed by the loop.
+     * Nothing is moved if the loop may assign any variable, or if the loop body is the target of a jump.
+     */
+    private List<Statement> hoistLoopInvariants(final Statement statement) {
+        final var labelledStatement = (statement instanceof LabelledStatement ls) ? ls : null;
+        final var whileStatement = (WhileStatement) ((labelledStatement != null) ? labelledStatement.statement() : statement);
+
+        final var assignedVariables = assignedVariables(whileStatement);
+        if (assignedVariables.isEmpty() || containsJumpTarget(whileStatement)) {
+            return List.of(statement);
+        }
+
+        final var invariants = new LoopInvariants(assignedVariables.get());
+        final List<Statement> statements = new ArrayList<>();
+        for (Statement s : whileStatement.getStatements()) {
+            // Temporary variables created for an inner loop may be moved further out
+            if (s instanceof AssignStatement as && isTemporary(as.getLhsExpression()) && invariants.isInvariant(as.getRhsExpression())) {
+                invariants.move(as);
+            } else {
+                statements.add(s);
+            }
+        }
+        final var expression = invariants.expression(whileStatement.getExpression());
+        final var optimizedStatements = statements.stream().map(invariants::statement).toList();
+
+        final List<Statement> result = new ArrayList<>(invariants.assignments);
+        if (result.isEmpty()) {
+            return List.of(statement);
+        }
+        final var loop = whileStatement.withExpression(expression).withStatements(optimizedStatements);
+        if (labelledStatement == null) {
+            result.add(loop);
+        } else if (isJumpTarget(labelledStatement.label())) {
+            // Jumps to the loop must also compute the loop-invariant values
+            result.set(0, labelledStatement.withStatement(result.getFirst()));
+            result.add(loop);
+        } else {
+            result.add(labelledStatement.withStatement(loop));
+        }
+        return result;
+    }
+
+    private boolean isPureFunctionCall(final FunctionCallExpression functionCall) {
+        try {
+            final var argTypes = typeManager.getTypes(functionCall.getArgs());
+            return isPure(typeManager.resolveFunction(functionCall.getIdentifier().name(), argTypes, symbols));
+        } catch (SemanticsException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the given expression is an integer division that may end the program
+     * because of division by zero, that is, if the divisor is not a non-zero integer literal.
+     */
+    private static boolean mayDivideByZero(final BinaryExpression expression) {
+        if (expression instanceof IDivExpression || expression instanceof ModExpression) {
+            return !(expression.getRight() instanceof IntegerLiteral il && il.asLong() != 0);
+        } else {
+            return false;
+        }
+    }
+
+    private static boolean isTemporary(final IdentifierExpression expression) {
+        return expression instanceof IdentifierNameExpression && expression.getIdentifier().name().startsWith(LICM_PREFIX);
+    }
+
+    /**
+     * Finds and replaces the loop-invariant expressions in a single loop.
+     */
+    private class LoopInvariants {
+
+        /** The names of all variables that may be assigned in the loop. */
+        private final Set<String> variantVariables;
+
+        /** The assignments of temporary variables to be inserted before the loop. */
+        private final List<Statement> assignments = new ArrayList<>();
+
+        /** Maps loop-invariant expressions to the temporary variables that hold their values. */
+        private final Map<Expression, IdentifierDerefExpression> temporaries = new HashMap<>();
+
+        private LoopInvariants(final Set<String> variantVariables) {
+            this.variantVariables = new HashSet<>(variantVariables);
+        }
+
+        /**
+         * Moves the given assignment of a temporary variable out of the loop.
+         */
+        private void move(final AssignStatement statement) {
+            assignments.add(statement);
+            variantVariables.remove(statement.getLhsExpression().getIdentifier().name());
+        }
+
+        /**
+         * Returns a copy of the given statement, where all loop-invariant expressions have been replaced.
+         */
+        private Statement statement(final Statement statement) {
+            if (statement instanceof LabelledStatement ls) {
+                return ls.withStatement(statement(ls.statement()));
+            } else if (statement instanceof IfStatement is) {
+                return is.withExpression(expression(is.getExpression()))
+                         .withThenStatements(is.getThenStatements().stream().map(this::statement).toList())
+                         .withElseStatements(is.getElseStatements().stream().map(this::statement).toList());
+            } else if (statement instanceof WhileStatement) {
+                // Inner loops have already been optimized
+                return statement;
+            } else {
+                return replaceExpressions(statement, this::expression);
+            }
+        }
+
+        /**
+         * Returns a copy of the given expression, where all loop-invariant subexpressions have been replaced.
+         */
+        private Expression expression(final Expression expression) {
+            if (isInvariant(expression) && isWorthMoving(expression)) {
+                return temporaries.computeIfAbsent(expression, this::newTemporary);
+            } else {
+                return replaceSubexpressions(expression, this::expression);
+            }
+        }
+
+        /**
+         * Returns {@code true} if the given expression has the same value in all iterations of the loop,
+         * and can be evaluated before the loop without side effects, even if the loop is never entered.
+         */
+        private boolean isInvariant(final Expression expression) {
+            if (expression instanceof LiteralExpression) {
+                return true;
+            } else if (expression instanceof ArrayAccessExpression) {
+                // Array elements may be assigned anywhere in the loop
+                return false;
+            } else if (expression instanceof IdentifierDerefExpression || expression instanceof IdentifierNameExpression) {
+                return !variantVariables.contains(((IdentifierExpression) expression).getIdentifier().name());
+            } else if (typeManager.getType(expression) instanceof Str) {
+                // Computed strings are allocated dynamically, and managed by the garbage collector
+                return false;
+            } else if (expression instanceof BinaryExpression binaryExpression) {
+                return !mayDivideByZero(binaryExpression)
+                       && isInvariant(binaryExpression.getLeft())
+                       && isInvariant(binaryExpression.getRight());
+            } else if (expression instanceof UnaryExpression unaryExpression) {
+                return isInvariant(unaryExpression.getExpression());
+            } else if (expression instanceof FunctionCallExpression functionCall) {
+                return isPureFunctionCall(functionCall) && functionCall.getArgs().stream().allMatch(this::isInvariant);
+            } else {
+                return false;
+            }
+        }
+
+        /**
+         * Returns {@code true} if the given loop-invariant expression is worth moving out of the loop,
+         * that is, if it is not a literal or a variable, and if it can be stored in a temporary variable.
+         */
+        private boolean isWorthMoving(final Expression expression) {
+            if (expression instanceof LiteralExpression || expression instanceof IdentifierExpression) {
+                return false;
+            }
+            final var type = typeManager.getType(expression);
+            return type instanceof I64 || type instanceof F64;
+        }
+
+        private IdentifierDerefExpression newTemporary(final Expression expression) {
+            final var identifier = new Identifier(LICM_PREFIX + tempIndex++, typeManager.getType(expression));
+            final var lhsExpression = new IdentifierNameExpression(expression.line(), expression.column(), identifier);
+            assignments.add(new AssignStatement(expression.line(), expression.column(), lhsExpression, expression));
+            return new IdentifierDerefExpression(expression.line(), expression.column(), identifier);
+        }
+    }
+
+    /**
+     * Eliminates common subexpressions in the given statements, and in any nested statements.
+     * The statements are split into basic blocks, that is, sequences of statements that are only
+     * entered at the first statement. In each block, an expression that is computed more than once,
+     * without any of the variables or arrays it reads being assigned in between, is computed only
+     * once, and stored in a temporary variable. The condition of an IF statement belongs to the block
+     * that ends with the IF statement, while the branches of the IF statement, and WHILE loops,
+     * are blocks of their own.
+     */
+    private List<Statement> eliminateCommonSubexpressions(final List<Statement> statements) {
+        final List<Statement> result = new ArrayList<>();
+        final List<Statement> block = new ArrayList<>();
+        for (Statement statement : statements.stream().map(this::eliminateNestedCommonSubexpressions).toList()) {
+            final var isLoop = isWhileStatement(statement);
+            if (isLoop || (statement instanceof LabelledStatement ls && isJumpTarget(ls.label()))) {
+                result.addAll(new CommonSubexpressions().block(block));
+                block.clear();
+            }
+            if (isLoop) {
+                result.add(statement);
+            } else {
+                block.add(statement);
+                if (unlabelled(statement) instanceof IfStatement) {
+                    result.addAll(new CommonSubexpressions().block(block));
+                    block.clear();
+                }
+            }
+        }
+        result.addAll(new CommonSubexpressions().block(block));
+        return result;
+    }
+
+    private Statement eliminateNestedCommonSubexpressions(final Statement statement) {
+        if (statement instanceof LabelledStatement ls) {
+            return ls.withStatement(eliminateNestedCommonSubexpressions(ls.statement()));
+        } else if (statement instanceof IfStatement is) {
+            return is.withThenStatements(eliminateCommonSubexpressions(is.getThenStatements()))
+                     .withElseStatements(eliminateCommonSubexpressions(is.getElseStatements()));
+        } else if (statement instanceof WhileStatement ws) {
+            return ws.withStatements(eliminateCommonSubexpressions(ws.getStatements()));
+        } else {
+            return statement;
+        }
+    }
+
+    private static Statement unlabelled(final Statement statement) {
+        return (statement instanceof LabelledStatement ls) ? unlabelled(ls.statement()) : statement;
+    }
+
+    /**
+     * Returns the names of all arrays that may have an element assigned when executing the given
+     * simple statement.
+     */
+    private static Set<String> assignedArrays(final Statement statement) {
+        final IdentifierExpression lhsExpression;
+        if (statement instanceof AssignStatement s) {
+            lhsExpression = s.getLhsExpression();
+        } else if (statement instanceof IncStatement s) {
+            lhsExpression = s.getLhsExpression();
+        } else if (statement instanceof DecStatement s) {
+            lhsExpression = s.getLhsExpression();
+        } else if (statement instanceof AddAssignStatement s) {
+            lhsExpression = s.getLhsExpression();
+        } else if (statement instanceof SubAssignStatement s) {
+            lhsExpression = s.getLhsExpression();
+        } else if (statement instanceof MulAssignStatement s) {
+            lhsExpression = s.lhsExpression();
+        } else if (statement instanceof IDivAssignStatement s) {
+            lhsExpression = s.lhsExpression();
+        } else {
+            return Set.of();
+        }
+        return (lhsExpression instanceof ArrayAccessExpression aae) ? Set.of(aae.getIdentifier().name()) : Set.of();
+    }
+
+    /**
+     * Finds and replaces the common subexpressions in a single basic block.
+     */
+    private class CommonSubexpressions {
+
+        /** All value ranges found in the block, in the order they were found. */
+        private final List<ValueRange> ranges = new ArrayList<>();
+
+        /** Maps expressions to their value ranges, for expressions whose values are still available. */
+        private final Map<Expression, ValueRange> available = new HashMap<>();
+
+        /**
+         * Returns a copy of the given block, where all common subexpressions have been replaced.
+         */
+        private List<Statement> block(final List<Statement> statements) {
+            for (int i = 0; i < statements.size(); i++) {
+                final var index = i;
+                replaceStatementExpressions(statements.get(i), expression -> {
+                    count(expression, index);
+                    return expression;
+                });
+                kill(statements.get(i), index);
+            }
+            available.values().forEach(range -> range.last = statements.size() - 1);
+
+            if (ranges.stream().noneMatch(ValueRange::isCommon)) {
+                return statements;
+            }
+
+            final List<Statement> result = new ArrayList<>();
+            final Map<Expression, IdentifierDerefExpression> temporaries = new HashMap<>();
+            for (int i = 0; i < statements.size(); i++) {
+                final var index = i;
+                // Compute the common subexpressions that are first used in this statement,
+                // smaller before larger, so that larger expressions can reuse smaller ones
+                final List<Statement> assignments = new ArrayList<>();
+                ranges.stream()
+                      .filter(range -> range.first == index && range.isCommon())
+                      .sorted(Comparator.comparingInt(range -> size(range.expression)))
+                      .forEach(range -> {
+                          final var expression = replaceSubexpressions(range.expression, e -> replace(e, temporaries));
+                          final var identifier = new Identifier(CSE_PREFIX + tempIndex++, typeManager.getType(expression));
+                          final var lhsExpression = new IdentifierNameExpression(expression.line(), expression.column(), identifier);
+                          assignments.add(new AssignStatement(expression.line(), expression.column(), lhsExpression, expression));
+                          temporaries.put(range.expression, new IdentifierDerefExpression(expression.line(), expression.column(), identifier));
+                      });
+
+                var statement = replaceStatementExpressions(statements.get(i), e -> replace(e, temporaries));
+                if (!assignments.isEmpty() && statement instanceof LabelledStatement ls) {
+                    // Jumps to this statement must also compute the common subexpressions
+                    assignments.set(0, ls.withStatement(assignments.getFirst()));
+                    statement = ls.statement();
+                }
+                result.addAll(assignments);
+                result.add(statement);
+
+                ranges.stream().filter(range -> range.last == index).forEach(range -> temporaries.remove(range.expression));
+            }
+            return result;
+        }
+
+        /**
+         * Counts the given expression, and its subexpressions, as used in the statement with the given index.
+         * The subexpressions of an expression that is already available are not counted, since they will
+         * not be computed again.
+         */
+        private void count(final Expression expression, final int index) {
+            if (isCandidate(expression)) {
+                final var range = available.get(expression);
+                if (range != null) {
+                    range.count++;
+                    return;
+                }
+                final var newRange = new ValueRange(expression, index);
+                ranges.add(newRange);
+                available.put(expression, newRange);
+            }
+            subexpressions(expression).forEach(subexpression -> count(subexpression, index));
+        }
+
+        /**
+         * Ends the value ranges of all expressions that read a variable or an array that may be assigned
+         * by the statement with the given index.
+         */
+        private void kill(final Statement statement, final int index) {
+            final var assignedVariables = assignedVariables(statement);
+            if (assignedVariables.isEmpty()) {
+                available.values().forEach(range -> range.last = index);
+                available.clear();
+            } else {
+                final var assignedArrays = assignedArrays(unlabelled(statement));
+                available.values().removeIf(range -> {
+                    if (reads(range.expression, assignedVariables.get(), assignedArrays)) {
+                        range.last = index;
+                        return true;
+                    }
+                    return false;
+                });
+            }
+        }
+
+        private Expression replace(final Expression expression, final Map<Expression, IdentifierDerefExpression> temporaries) {
+            final var temporary = temporaries.get(expression);
+            return (temporary != null) ? temporary : replaceSubexpressions(expression, e -> replace(e, temporaries));
+        }
+
+        /**
+         * Returns a copy of the given statement in the block, where all expressions have been replaced by the
+         * result of applying {@code function} to them. Only the condition of an IF statement is replaced.
+         */
+        private Statement replaceStatementExpressions(final Statement statement, final UnaryOperator<Expression> function) {
+            if (statement instanceof LabelledStatement ls) {
+                return ls.withStatement(replaceStatementExpressions(ls.statement(), function));
+            } else if (statement instanceof IfStatement is) {
+                return is.withExpression(function.apply(is.getExpression()));
+            } else {
+                return replaceExpressions(statement, function);
+            }
+        }
+
+        /**
+         * Returns {@code true} if the given expression may be computed once, and reused. The expression must
+         * not be a literal or a variable, must have a type that can be stored in a temporary variable,
+         * and must be computed without side effects.
+         */
+        private boolean isCandidate(final Expression expression) {
+            if (expression instanceof LiteralExpression || isVariable(expression)) {
+                return false;
+            }
+            final var type = typeManager.getType(expression);
+            return (type instanceof I64 || type instanceof F64 || type instanceof Str) && hasNoSideEffects(expression);
+        }
+
+        /**
+         * Returns {@code true} if the given expression can be computed without side effects, and without failing.
+         * Strings are allowed, since a temporary variable that refers to a string is managed by the garbage
+         * collector, just like any other variable.
+         */
+        private boolean hasNoSideEffects(final Expression expression) {
+            if (expression instanceof LiteralExpression || isVariable(expression)) {
+                return true;
+            } else if (expression instanceof BinaryExpression binaryExpression) {
+                return !mayDivideByZero(binaryExpression)
+                       && hasNoSideEffects(binaryExpression.getLeft())
+                       && hasNoSideEffects(binaryExpression.getRight());
+            } else if (expression instanceof UnaryExpression unaryExpression) {
+                return hasNoSideEffects(unaryExpression.getExpression());
+            } else if (expression instanceof FunctionCallExpression functionCall) {
+                return isPureFunctionCall(functionCall) && functionCall.getArgs().stream().allMatch(this::hasNoSideEffects);
+            } else if (expression instanceof ArrayAccessExpression arrayAccess) {
+                return arrayAccess.getSubscripts().stream().allMatch(this::hasNoSideEffects);
+            } else {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * The range of statements in a basic block, in which an expression keeps its value.
+     */
+    private static class ValueRange {
+
+        private final Expression expression;
+
+        /** The index of the statement where the expression is first computed. */
+        private final int first;
+
+        /** The index of the last statement that may use the computed value. */
+        private int last;
+
+        /** The number of times the expression is computed in the range. */
+        private int count = 1;
+
+        private ValueRange(final Expression expression, final int first) {
+            this.expression = expression;
+            this.first = first;
+        }
+
+        private boolean isCommon() {
+            return count > 1;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the given expression reads any of the given variables, or any element
+     * of the given arrays.
+     */
+    private static boolean reads(final Expression expression, final Set<String> variables, final Set<String> arrays) {
+        if (isVariable(expression)) {
+            return variables.contains(((IdentifierExpression) expression).getIdentifier().name());
+        } else if (expression instanceof ArrayAccessExpression arrayAccess && arrays.contains(arrayAccess.getIdentifier().name())) {
+            return true;
+        } else {
+            return subexpressions(expression).stream().anyMatch(e -> reads(e, variables, arrays));
+        }
+    }
+
+    /**
+     * Returns the direct subexpressions of the given expression.
+     */
+    private static List<Expression> subexpressions(final Expression expression) {
+        if (expression instanceof BinaryExpression binaryExpression) {
+            return List.of(binaryExpression.getLeft(), binaryExpression.getRight());
+        } else if (expression instanceof UnaryExpression unaryExpression) {
+            return List.of(unaryExpression.getExpression());
+        } else if (expression instanceof FunctionCallExpression functionCall) {
+            return functionCall.getArgs();
+        } else if (expression instanceof ArrayAccessExpression arrayAccess) {
+            return arrayAccess.getSubscripts();
+        } else {
+            return List.of();
+        }
+    }
+
+    /**
+     * Returns a copy of the given expression, where all direct subexpressions have been replaced
+     * by the result of applying {@code function} to them.
+     */
+    private static Expression replaceSubexpressions(final Expression expression, final UnaryOperator<Expression> function) {
+        if (expression instanceof BinaryExpression binaryExpression) {
+            return binaryExpression.withLeft(function.apply(binaryExpression.getLeft()))
+                                   .withRight(function.apply(binaryExpression.getRight()));
+        } else if (expression instanceof UnaryExpression unaryExpression) {
+            return unaryExpression.withExpression(function.apply(unaryExpression.getExpression()));
+        } else if (expression instanceof FunctionCallExpression functionCall) {
+            return functionCall.withArgs(functionCall.getArgs().stream().map(function).toList());
+        } else if (expression instanceof ArrayAccessExpression arrayAccess) {
+            return arrayAccess.withSubscripts(arrayAccess.getSubscripts().stream().map(function).toList());
+        } else {
+            return expression;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the given expression refers to a variable, and not to an array element.
+     */
+    private static boolean isVariable(final Expression expression) {
+        return (expression instanceof IdentifierDerefExpression || expression instanceof IdentifierNameExpression) &&
+               !(expression instanceof ArrayAccessExpression);
+    }
+
+    private static int size(final Expression expression) {
+        return 1 + subexpressions(expression).stream().mapToInt(DefaultAstOptimizer::size).sum();
+    }
+
+    /**
+     * Removes all variables that are assigned or declared, but never read. Assignments that
+     * have side effects, that is, that call functions or may divide by zero, are not removed,
+     * and neither are labelled assignments. In both cases the variable is also kept.
+     */
+    private List<Statement> removeUnusedVariables(final List<Statement> statements) {
+        final Set<String> readVariables = new HashSet<>();
+        if (!findReadVariables(statements, readVariables)) {
+            // Some statement is unknown to the optimizer, and may read any variable
+            return statements;
+        }
+
+        final Set<String> removableVariables = new HashSet<>();
+        final Set<String> keptVariables = new HashSet<>();
+        findAssignedVariables(statements, removableVariables, keptVariables);
+        removableVariables.removeAll(readVariables);
+        removableVariables.removeAll(keptVariables);
+
+        if (removableVariables.isEmpty()) {
+            return statements;
+        } else {
+            return removeVariables(statements, removableVariables);
+        }
+    }
+
+    /**
+     * Finds the names of all variables that are read in the given statements, or in any nested
+     * statements. Since we do not know all statements, all identifiers found in the AST are
+     * considered to be read, except the left hand side of plain assignments.
+     *
+     * @return True if all statements are known to the optimizer, false otherwise.
+     */
+    private boolean findReadVariables(final List<Statement> statements, final Set<String> readVariables) {
+        for (Statement statement : statements) {
+            if (statement instanceof LabelledStatement ls) {
+                if (!findReadVariables(List.of(ls.statement()), readVariables)) {
+                    return false;
+                }
+            } else if (statement instanceof IfStatement is) {
+                findReadVariables(is.getExpression(), readVariables);
+                if (!findReadVariables(is.getThenStatements(), readVariables) ||
+                    !findReadVariables(is.getElseStatements(), readVariables)) {
+                    return false;
+                }
+            } else if (statement instanceof WhileStatement ws) {
+                findReadVariables(ws.getExpression(), readVariables);
+                if (!findReadVariables(ws.getStatements(), readVariables)) {
+                    return false;
+                }
+            } else if (statement instanceof FunctionDefinitionStatement fds && fds.statements() != null) {
+                if (!findReadVariables(fds.statements(), readVariables)) {
+                    return false;
+                }
+            } else {
+                final var expressions = expressions(statement);
+                if (expressions.isEmpty()) {
+                    return false;
+                }
+                expressions.get().forEach(expression -> findReadVariables(expression, readVariables));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the names of all variables that are read in the given expression or its subexpressions.
+     */
+    private static void findReadVariables(final Expression expression, final Set<String> readVariables) {
+        if (expression instanceof IdentifierExpression identifierExpression) {
+            readVariables.add(identifierExpression.getIdentifier().name());
+        }
+        if (expression instanceof IfExpression ifExpression) {
+            findReadVariables(ifExpression.ifExpr(), readVariables);
+            findReadVariables(ifExpression.thenExpr(), readVariables);
+            findReadVariables(ifExpression.elseExpr(), readVariables);
+        } else if (expression != null) {
+            subexpressions(expression).forEach(e -> findReadVariables(e, readVariables));
+        }
+    }
+
+    /**
+     * Returns all expressions that are evaluated, or otherwise read, when executing the given statement,
+     * or an empty optional if this statement is unknown to the optimizer, and may read any variable.
+     * The left hand side of a plain assignment to a variable is not included, but the left hand side
+     * of for example an increment is. Subclasses should override this method to add language specific
+     * statements. This method does not look inside compound statements.
+     */
+    protected Optional<List<Expression>> expressions(final Statement statement) {
+        if (statement instanceof AssignStatement s) {
+            return Optional.of((s.getLhsExpression() instanceof IdentifierNameExpression)
+                    ? List.of(s.getRhsExpression())
+                    : List.of(s.getLhsExpression(), s.getRhsExpression()));
+        } else if (statement instanceof IncStatement s) {
+            return Optional.of(List.of(s.getLhsExpression()));
+        } else if (statement instanceof DecStatement s) {
+            return Optional.of(List.of(s.getLhsExpression()));
+        } else if (statement instanceof AddAssignStatement s) {
+            return Optional.of(List.of(s.getLhsExpression()));
+        } else if (statement instanceof SubAssignStatement s) {
+            return Optional.of(List.of(s.getLhsExpression()));
+        } else if (statement instanceof MulAssignStatement s) {
+            return Optional.of(List.of(s.lhsExpression()));
+        } else if (statement instanceof IDivAssignStatement s) {
+            return Optional.of(List.of(s.lhsExpression()));
+        } else if (statement instanceof ConstDeclarationStatement s) {
+            return Optional.of(s.getDeclarations().stream().map(DeclarationAssignment::expression).toList());
+        } else if (statement instanceof FunctionDefinitionStatement s) {
+            return Optional.of((s.expression() != null) ? List.of(s.expression()) : List.of());
+        } else if (statement instanceof ExitStatement s) {
+            return Optional.of((s.getExpression() != null) ? List.of(s.getExpression()) : List.of());
+        } else if (statement instanceof ReturnStatement s) {
+            return Optional.of((s.getExpression() != null) ? List.of(s.getExpression()) : List.of());
+        } else if (statement instanceof CommentStatement ||
+                   statement instanceof ClsStatement ||
+                   statement instanceof VariableDeclarationStatement ||
+                   statement instanceof AbstractJumpStatement) {
+            return Optional.of(List.of());
+        } else {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Finds the names of all variables that are assigned or declared in the given statements.
+     * Variables that can be removed are added to {@code removable}, and variables that must
+     * be kept are added to {@code kept}.
+     */
+    private static void findAssignedVariables(final List<Statement> statements,
+                                              final Set<String> removable,
+                                              final Set<String> kept) {
+        for (Statement statement : statements) {
+            if (statement instanceof AssignStatement as && as.getLhsExpression() instanceof IdentifierNameExpression ine) {
+                final var name = ine.getIdentifier().name();
+                (hasSideEffects(as.getRhsExpression()) ? kept : removable).add(name);
+            } else if (statement instanceof VariableDeclarationStatement vds) {
+                vds.getDeclarations().stream()
+                   .filter(declaration -> !(declaration.type() instanceof Arr))
+                   .forEach(declaration -> removable.add(declaration.name()));
+            } else if (statement instanceof LabelledStatement ls) {
+                if (ls.statement() instanceof IfStatement || ls.statement() instanceof WhileStatement) {
+                    findAssignedVariables(List.of(ls.statement()), removable, kept);
+                } else {
+                    final Set<String> labelled = new HashSet<>();
+                    findAssignedVariables(List.of(ls.statement()), labelled, kept);
+                    kept.addAll(labelled);
+                }
+            } else if (statement instanceof IfStatement is) {
+                findAssignedVariables(is.getThenStatements(), removable, kept);
+                findAssignedVariables(is.getElseStatements(), removable, kept);
+            } else if (statement instanceof WhileStatement ws) {
+                findAssignedVariables(ws.getStatements(), removable, kept);
+            }
+        }
+    }
+
+    /**
+     * Removes all assignments to, and declarations of, the given variables.
+     */
+    private static List<Statement> removeVariables(final List<Statement> statements, final Set<String> variables) {
+        final List<Statement> result = new ArrayList<>();
+        for (Statement statement : statements) {
+            if (statement instanceof AssignStatement as
+                && as.getLhsExpression() instanceof IdentifierNameExpression ine
+                && variables.contains(ine.getIdentifier().name())) {
+                continue;
+            } else if (statement instanceof VariableDeclarationStatement vds) {
+                final var declarations = vds.getDeclarations().stream()
+                                            .filter(declaration -> !variables.contains(declaration.name()) || declaration.type() instanceof Arr)
+                                            .toList();
+                if (!declarations.isEmpty()) {
+                    result.add(vds.withDeclarations(declarations));
+                }
+            } else if (statement instanceof LabelledStatement ls && (ls.statement() instanceof IfStatement || ls.statement() instanceof WhileStatement)) {
+                result.add(ls.withStatement(removeVariables(List.of(ls.statement()), variables).getFirst()));
+            } else if (statement instanceof IfStatement is) {
+                result.add(is.withThenStatements(removeVariables(is.getThenStatements(), variables))
+                             .withElseStatements(removeVariables(is.getElseStatements(), variables)));
+            } else if (statement instanceof WhileStatement ws) {
+                result.add(ws.withStatements(removeVariables(ws.getStatements(), variables)));
+            } else {
+                result.add(statement);
+            }
+        }
+        return result;
     }
 
     /**
@@ -283,4 +1337,11 @@ public class DefaultAstOptimizer implements AstOptimizer {
     private static boolean isLevel1() {
         return OptimizationOptions.INSTANCE.getLevel() >= 1;
     }
+
+    /**
+     * Returns true if optimization level is at least 2.
+     */
+    private static boolean isLevel2() {
+        return OptimizationOptions.INSTANCE.getLevel() >= 2;
+    }
 }
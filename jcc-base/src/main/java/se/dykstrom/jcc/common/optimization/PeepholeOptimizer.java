@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.common.optimization;
+
+import se.dykstrom.jcc.common.code.Line;
+
+import java.util.*;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A peephole optimizer that works on the generated assembly code. It applies a configurable
+ * set of {@link PeepholeRule}s to the code, until none of the rules matches any more.
+ * The optimizer keeps track of the number of times each rule has been applied.
+ *
+ * @author Johan Dykstrom
+ */
+public class PeepholeOptimizer {
+
+    /** The maximum number of passes over the code, to guarantee termination. */
+    private static final int MAX_PASSES = 10;
+
+    private final Set<PeepholeRule> rules;
+    private final Map<PeepholeRule, Integer> hits = new EnumMap<>(PeepholeRule.class);
+
+    /**
+     * Creates a new peephole optimizer that applies all rules.
+     */
+    public PeepholeOptimizer() {
+        this(EnumSet.allOf(PeepholeRule.class));
+    }
+
+    /**
+     * Creates a new peephole optimizer that applies the given rules.
+     */
+    public PeepholeOptimizer(final Set<PeepholeRule> rules) {
+        this.rules = requireNonNull(rules);
+    }
+
+    /**
+     * Returns an optimized copy of the given lines of code.
+     */
+    public List<Line> optimize(final List<Line> lines) {
+        final List<Line> result = new ArrayList<>(lines);
+
+        boolean changed = true;
+        for (int pass = 0; changed && pass < MAX_PASSES; pass++) {
+            changed = false;
+            for (int index = 0; index < result.size(); index++) {
+                for (PeepholeRule rule : rules) {
+                    if (index < result.size() && rule.apply(result, index)) {
+                        hits.merge(rule, 1, Integer::sum);
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of times each rule has been applied by this optimizer.
+     * Rules that have never been applied are not included.
+     */
+    public Map<PeepholeRule, Integer> hits() {
+        return Collections.unmodifiableMap(hits);
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.common.optimization;
+
+import se.dykstrom.jcc.common.assembly.instruction.*;
+import se.dykstrom.jcc.common.code.Blank;
+import se.dykstrom.jcc.common.code.Comment;
+import se.dykstrom.jcc.common.code.Label;
+import se.dykstrom.jcc.common.code.Line;
+
+import java.util.List;
+
+import static se.dykstrom.jcc.common.assembly.base.Register.RSP;
+
+/**
+ * The rules applied by the {@link PeepholeOptimizer}. Each rule matches a short sequence
+ * of instructions, and replaces it with a shorter or cheaper sequence with the same effect.
+ * Comments and blank lines between the matched instructions are ignored, but labels are not.
+ *
+ * @author Johan Dykstrom
+ */
+public enum PeepholeRule {
+
+    /**
+     * Removes a "jmp" instruction that jumps to a label that immediately follows it.
+     */
+    JUMP_TO_NEXT_LABEL {
+        @Override
+        boolean apply(final List<Line> lines, final int index) {
+            if (lines.get(index) instanceof Jmp jmp) {
+                for (int i = next(lines, index); i < lines.size() && lines.get(i) instanceof Label label; i = next(lines, i)) {
+                    if (label.equals(jmp.getTarget())) {
+                        lines.remove(index);
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    },
+
+    /**
+     * Removes a "mov r, [m]" instruction that immediately follows a "mov [m], r" instruction.
+     */
+    LOAD_AFTER_STORE {
+        @Override
+        boolean apply(final List<Line> lines, final int index) {
+            final int nextIndex = next(lines, index);
+            if (nextIndex < lines.size() &&
+                lines.get(index) instanceof MoveRegToMem store &&
+                lines.get(nextIndex) instanceof MoveMemToReg load &&
+                store.getSource().equals(load.getDestination()) &&
+                store.getDestination().equals(load.getSource())) {
+                lines.remove(nextIndex);
+                return true;
+            }
+            return false;
+        }
+    },
+
+    /**
+     * Removes a "mov [m], r" instruction that immediately follows a "mov r, [m]" instruction,
+     * as long as register r is not part of the address m.
+     */
+    STORE_AFTER_LOAD {
+        @Override
+        boolean apply(final List<Line> lines, final int index) {
+            final int nextIndex = next(lines, index);
+            if (nextIndex < lines.size() &&
+                lines.get(index) instanceof MoveMemToReg load &&
+                lines.get(nextIndex) instanceof MoveRegToMem store &&
+                load.getDestination().equals(store.getSource()) &&
+                load.getSource().equals(store.getDestination()) &&
+                !load.getSource().contains(load.getDestination())) {
+                lines.remove(nextIndex);
+                return true;
+            }
+            return false;
+        }
+    },
+
+    /**
+     * Replaces a "push r1" instruction immediately followed by a "pop r2" instruction with
+     * a "mov r2, r1" instruction, or removes both instructions if r1 and r2 are the same.
+     */
+    PUSH_POP {
+        @Override
+        boolean apply(final List<Line> lines, final int index) {
+            final int nextIndex = next(lines, index);
+            if (nextIndex < lines.size() &&
+                lines.get(index) instanceof PushReg push &&
+                lines.get(nextIndex) instanceof PopReg pop) {
+                lines.remove(nextIndex);
+                if (push.getRegister() == pop.getRegister()) {
+                    lines.remove(index);
+                } else {
+                    lines.set(index, new MoveRegToReg(push.getRegister(), pop.getRegister()));
+                }
+                return true;
+            }
+            return false;
+        }
+    },
+
+    /**
+     * Removes an "add rsp, n" instruction immediately followed by a "sub rsp, n" instruction.
+     * This pattern appears between consecutive function calls that allocate shadow space.
+     */
+    STACK_ADJUSTMENT {
+        @Override
+        boolean apply(final List<Line> lines, final int index) {
+            final int nextIndex = next(lines, index);
+            if (nextIndex < lines.size() &&
+                lines.get(index) instanceof AddImmToReg add &&
+                lines.get(nextIndex) instanceof SubImmFromReg sub &&
+                add.getRegister() == RSP &&
+                sub.getRegister() == RSP &&
+                add.getImmediate().equals(sub.getImmediate())) {
+                lines.remove(nextIndex);
+                lines.remove(index);
+                return true;
+            }
+            return false;
+        }
+    },
+
+    /**
+     * Replaces a "mov r, 0" instruction with the shorter "xor r, r" instruction. Since "xor"
+     * modifies the flags, the rule only applies if the flags are known to be overwritten
+     * before they are read again.
+     */
+    MOVE_ZERO_TO_XOR {
+        @Override
+        boolean apply(final List<Line> lines, final int index) {
+            if (lines.get(index) instanceof MoveImmToReg move &&
+                move.getImmediate().equals("0") &&
+                areFlagsDead(lines, index)) {
+                lines.set(index, new XorRegWithReg(move.getRegister(), move.getRegister()));
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Tries to apply this rule to the instruction at position {@code index} in {@code lines},
+     * possibly together with the instructions that follow it. If the rule matches, {@code lines}
+     * is updated in place, and this method returns {@code true}.
+     */
+    abstract boolean apply(List<Line> lines, int index);
+
+    /**
+     * Returns the index of the next line after {@code index} that is not a comment or a blank line,
+     * or the size of {@code lines} if there is no such line.
+     */
+    private static int next(final List<Line> lines, final int index) {
+        int i = index + 1;
+        while (i < lines.size() && (lines.get(i) instanceof Comment || lines.get(i) instanceof Blank)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns {@code true} if the flags are overwritten, without being read, by one of
+     * the straight-line instructions that follow the instruction at position {@code index}.
+     * The search stops at labels and jumps, since the flags may be read after those.
+     */
+    private static boolean areFlagsDead(final List<Line> lines, final int index) {
+        for (int i = next(lines, index); i < lines.size(); i = next(lines, i)) {
+            final Line line = lines.get(i);
+            if (line instanceof Call || line instanceof Ret) {
+                // The flags are not preserved across function calls
+                return true;
+            } else if (line instanceof Cmp || line instanceof Add || line instanceof Sub ||
+                       line instanceof And || line instanceof Or || line instanceof Xor) {
+                return true;
+            } else if (line instanceof Label || line instanceof Jump || line instanceof JmpIndirect) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
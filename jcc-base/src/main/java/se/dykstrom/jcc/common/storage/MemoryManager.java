@@ -17,23 +17,35 @@
 
 package se.dykstrom.jcc.common.storage;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
 import java.util.function.Consumer;
 
+import static se.dykstrom.jcc.common.assembly.base.Register.RBP;
+
 /**
- * Manages allocation and de-allocation of memory addresses.
+ * Manages allocation and de-allocation of memory addresses for temporary storage.
+ * <p>
+ * Temporary memory addresses are slots in the stack frame of the current function,
+ * addressed relative to RBP. Slots that have been freed are reused, so the size of
+ * the stack frame depends on the maximum number of temporaries that are live at the
+ * same time, and not on the total number of temporaries.
  *
  * @author Johan Dykstrom
  */
 public class MemoryManager {
 
-    private static final String PREFIX = "_tmp_location_";
-    
-    private final Set<String> freeMemoryAddresses = new HashSet<>();
-    private final Set<String> usedMemoryAddresses = new HashSet<>();
+    /** The size of a stack slot in bytes. */
+    private static final int SLOT_SIZE = 8;
+
+    /** The stack alignment required by the calling convention. */
+    private static final int STACK_ALIGNMENT = 16;
 
-    private int memoryIndex = 0;
+    private final TreeSet<Integer> freeSlots = new TreeSet<>();
+    private final Map<String, Integer> slotIndices = new HashMap<>();
+
+    private int numberOfSlots = 0;
 
     /**
      * Allocates temporary a new memory address, executes {@code consumer},
@@ -52,43 +64,51 @@ public class MemoryManager {
      * Allocates a new memory address for temporary storage.
      */
     public String allocate() {
-        String memory;
-        
-        if (!freeMemoryAddresses.isEmpty()) {
-            // Reuse one of the already existing temporary memory addresses
-            memory = freeMemoryAddresses.iterator().next();
-            freeMemoryAddresses.remove(memory);
+        final int slot;
+
+        if (!freeSlots.isEmpty()) {
+            // Reuse one of the already existing stack slots
+            slot = freeSlots.pollFirst();
         } else {
-            // Create a new temporary memory address
-            memory = PREFIX + memoryIndex++;
-            usedMemoryAddresses.add(memory);
+            // Create a new stack slot
+            slot = numberOfSlots++;
         }
-        return getMappedName(memory);
+        final var memory = getAddress(slot);
+        slotIndices.put(memory, slot);
+        return memory;
     }
 
     /**
      * Frees the given memory address, and makes it available to use again.
      */
     public void free(String memory) {
-        freeMemoryAddresses.add(getUnmappedName(memory));
+        final var slot = slotIndices.get(memory);
+        if (slot != null) {
+            freeSlots.add(slot);
+        }
     }
 
     /**
-     * Returns the set of used temporary memory addresses, that need to be created in the data section.
+     * Returns the number of stack slots used by this memory manager.
      */
-    public Set<String> getUsedMemoryAddresses() {
-        return usedMemoryAddresses;
+    public int getNumberOfSlots() {
+        return numberOfSlots;
     }
 
     /**
-     * Returns the mapped name of the memory address, that is, the name that should be used in code generation
-     * to avoid any clashes with the backend assembler reserved words.
+     * Returns the number of bytes that must be reserved in the stack frame to hold all
+     * stack slots used by this memory manager. The frame size is rounded up to keep the
+     * stack aligned.
      */
-    private String getMappedName(String name) {
-        return "_" + name;
+    public int getFrameSize() {
+        final var size = numberOfSlots * SLOT_SIZE;
+        return (size + STACK_ALIGNMENT - 1) / STACK_ALIGNMENT * STACK_ALIGNMENT;
     }
 
-    private String getUnmappedName(String name) {
-        return name.substring(1);
+    /**
+     * Returns the RBP-relative memory address of the given stack slot.
+     */
+    private static String getAddress(int slot) {
+        return String.format("%s-%xh", RBP, (slot + 1) * SLOT_SIZE);
     }
 }
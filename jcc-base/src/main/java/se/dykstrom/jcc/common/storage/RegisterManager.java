@@ -43,6 +43,7 @@ public class RegisterManager {
     private final Set<Register> freeNonVolatileRegisters = new HashSet<>(NON_VOLATILE_REGISTERS);
 
     private final Set<Register> usedNonVolatileRegisters = new HashSet<>();
+    private final Set<Register> reservedRegisters = new HashSet<>();
 
     /**
      * Allocates a temporary volatile register, executes {@code consumer},
@@ -108,10 +109,22 @@ public class RegisterManager {
         return null;
     }
 
+    /**
+     * Reserves the given non-volatile register, so it will not be allocated for temporary storage.
+     * Reserved registers are used to store variables, and are never freed.
+     */
+    void reserve(Register register) {
+        freeNonVolatileRegisters.remove(register);
+        reservedRegisters.add(register);
+    }
+
     /**
      * Frees the given register, and makes it available to use again.
      */
     void free(Register register) {
+        if (reservedRegisters.contains(register)) {
+            return;
+        }
         if (register.isVolatile()) {
             freeVolatileRegisters.add(register);
         } else {
@@ -125,4 +138,11 @@ public class RegisterManager {
     public Set<Register> getUsedNonVolatileRegisters() {
         return usedNonVolatileRegisters;
     }
+
+    /**
+     * Returns the set of reserved registers, that are used to store variables.
+     */
+    public Set<Register> getReservedRegisters() {
+        return reservedRegisters;
+    }
 }
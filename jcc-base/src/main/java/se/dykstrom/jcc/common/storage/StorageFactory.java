@@ -21,6 +21,10 @@ import se.dykstrom.jcc.common.assembly.base.FloatRegister;
 import se.dykstrom.jcc.common.assembly.base.Register;
 import se.dykstrom.jcc.common.types.*;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * A factory class for creating temporary storage. The temporary storage returned may be a register,
  * or a local variable (a memory address), or something else.
@@ -35,12 +39,17 @@ public class StorageFactory {
 
     private final StorageFactory parent;
 
+    /** Maps variables to the registers they are stored in, for variables that are stored in registers. */
+    private final Map<Identifier, Register> variableRegisters = new HashMap<>();
+
     public StorageFactory() {
         this.parent = null;
     }
 
     public StorageFactory(final StorageFactory parent) {
         this.parent = parent;
+        // Variables stored in registers are visible in all nested scopes
+        parent.variableRegisters.forEach(this::addVariableRegister);
     }
 
     public StorageFactory pop() {
@@ -119,6 +128,30 @@ public class StorageFactory {
         return allocateNonVolatile(I64.INSTANCE);
     }
 
+    /**
+     * Stores the variable identified by {@code identifier} in {@code register} instead of in memory.
+     * The register is reserved, and will not be allocated for temporary storage.
+     */
+    public void addVariableRegister(final Identifier identifier, final Register register) {
+        registerManager.reserve(register);
+        variableRegisters.put(identifier, register);
+    }
+
+    /**
+     * Returns the register that stores the variable identified by {@code identifier},
+     * or {@code null} if the variable is stored in memory.
+     */
+    public Register getVariableRegister(final Identifier identifier) {
+        return variableRegisters.get(identifier);
+    }
+
+    /**
+     * Returns an unmodifiable map of all variables that are stored in registers.
+     */
+    public Map<Identifier, Register> getVariableRegisters() {
+        return Collections.unmodifiableMap(variableRegisters);
+    }
+
     /**
      * Returns a reference to the register manager.
      */
@@ -24,27 +24,50 @@ import se.dykstrom.jcc.common.types.*;
 import java.util.*;
 
 import static java.util.Collections.emptySet;
+import static java.util.Collections.unmodifiableSet;
 import static java.util.stream.Collectors.toCollection;
-import static java.util.stream.Collectors.toSet;
 
 /**
  * Contains all symbols defined and used within a program, both regular identifiers like variables, 
  * and function identifiers. Functions can be overloaded. Hence, multiple functions can be saved under 
  * one name. It is possible to retrieve all functions with a given name, or a single function that
  * matches both name and argument types.
+ * <p>
+ * All symbols are kept in insertion order, so that iterating over them gives the same result in each
+ * compilation. To speed up lookups in large programs, the symbol table also maintains an index
+ * of constants by type and value, an index of functions by name and argument types, and caches
+ * of the identifiers visible in this scope. The caches are invalidated when this symbol table, or
+ * any of its parents, is modified.
  *
  * @author Johan Dykstrom
  */
 public class SymbolTable {
 
     /** Contains all defined regular identifiers. */
-    private final Map<String, Info> symbols = new HashMap<>();
+    private final Map<String, Info> symbols = new LinkedHashMap<>();
 
     /** Contains all defined array identifiers. */
-    private final Map<String, Info> arrays = new HashMap<>();
+    private final Map<String, Info> arrays = new LinkedHashMap<>();
 
     /** Contains all defined function identifiers. */
-    private final Map<String, List<Info>> functions = new HashMap<>();
+    private final Map<String, List<Info>> functions = new LinkedHashMap<>();
+
+    /** Index of the first defined constant with a certain type and value. */
+    private final Map<ConstantKey, Identifier> constantIndex = new HashMap<>();
+
+    /** Index of all defined functions by name and argument types. */
+    private final Map<FunctionKey, Function> functionIndex = new HashMap<>();
+
+    /** Incremented on each modification of this symbol table. */
+    private long modifications = 0;
+
+    /** Cached set of visible regular identifiers, valid when {@code identifiersVersion == version()}. */
+    private Set<Identifier> cachedIdentifiers;
+    private long identifiersVersion = -1;
+
+    /** Cached set of visible array identifiers, valid when {@code arrayIdentifiersVersion == version()}. */
+    private Set<Identifier> cachedArrayIdentifiers;
+    private long arrayIdentifiersVersion = -1;
 
     private long tempLabelCounter = 0;
     private long tempNameCounter = 0;
@@ -71,7 +94,7 @@ public class SymbolTable {
      * @param identifier Variable identifier.
      */
     public void addVariable(final Identifier identifier) {
-        symbols.put(identifier.name(), new Info(identifier, identifier.type().getDefaultValue()));
+        putSymbol(new Info(identifier, identifier.type().getDefaultValue()));
     }
 
     /**
@@ -81,7 +104,7 @@ public class SymbolTable {
      * @param value The initial value.
      */
     public void addVariable(final Identifier identifier, final String value) {
-        symbols.put(identifier.name(), new Info(identifier, value));
+        putSymbol(new Info(identifier, value));
     }
 
     /**
@@ -91,7 +114,7 @@ public class SymbolTable {
      * @param identifier Parameter identifier.
      */
     public void addParameter(final Identifier identifier) {
-        symbols.put(identifier.name(), new Info(identifier, null));
+        putSymbol(new Info(identifier, null));
     }
 
     /**
@@ -107,7 +130,7 @@ public class SymbolTable {
             // Constants are global, so they are added to the root symbol table
             return parent.addConstant(identifier, value);
         } else {
-            symbols.put(identifier.name(), new Info(identifier, value, true));
+            putSymbol(new Info(identifier, value, true));
             return identifier;
         }
     }
@@ -130,43 +153,34 @@ public class SymbolTable {
      * @return The optional identifier of the constant found.
      */
     public Optional<Identifier> getConstantByTypeAndValue(Type type, String value) {
-        final var optionalResult = symbols.values().stream()
-                .filter(Info::isConstant)
-                .filter(info -> info.identifier().type().equals(type))
-                .filter(info -> info.value().equals(value))
-                .map(Info::identifier)
-                .findFirst();
-        if (optionalResult.isEmpty() && parent != null) {
+        final var result = constantIndex.get(new ConstantKey(type, value));
+        if (result == null && parent != null) {
             return parent.getConstantByTypeAndValue(type, value);
         } else {
-            return optionalResult;
+            return Optional.ofNullable(result);
         }
     }
 
     /**
-     * Returns the set of all visible regular identifiers in the symbol table.
-     * If a global identifier has been redefined in a local scope, the local
-     * identifier will be included in the result, and not the global one.
+     * Returns the unmodifiable set of all visible regular identifiers in the symbol table.
+     * If a global identifier has been redefined in a local scope, the local identifier
+     * will be included in the result, and not the global one. Local identifiers come
+     * first in the set, in the order they were defined, followed by global identifiers.
      */
     public Set<Identifier> identifiers() {
-        final var childIdentifiers = symbols.values().stream().map(Info::identifier).collect(toCollection(HashSet::new));
-        if (parent != null) {
-            final var parentIdentifiers = parent.identifiers();
-            parentIdentifiers.forEach(pi -> {
-                // If there is no child identifier with the same name, add the parent identifier
-                if (childIdentifiers.stream().noneMatch(ci -> ci.name().equals(pi.name()))) {
-                    childIdentifiers.add(pi);
-                }
-            });
+        final var version = version();
+        if (identifiersVersion != version) {
+            cachedIdentifiers = mergeWithParent(symbols, parent != null ? parent.identifiers() : emptySet());
+            identifiersVersion = version;
         }
-        return childIdentifiers;
+        return cachedIdentifiers;
     }
 
     /**
      * Returns the set of all local identifiers.
      */
     public Set<Identifier> localIdentifiers() {
-        return symbols.values().stream().map(Info::identifier).collect(toSet());
+        return symbols.values().stream().map(Info::identifier).collect(toCollection(LinkedHashSet::new));
     }
 
     /**
@@ -250,10 +264,11 @@ public class SymbolTable {
             parent.addFunction(function);
         } else {
             final var identifier = function.getIdentifier();
-            if (!functions.containsKey(identifier.name())) {
+            final var key = new FunctionKey(identifier.name(), function.getArgTypes());
+            if (!functionIndex.containsKey(key)) {
                 functions.computeIfAbsent(identifier.name(), name -> new ArrayList<>()).add(new Info(identifier, function));
-            } else if (!containsFunction(function.getName(), function.getArgTypes())) {
-                functions.get(identifier.name()).add(new Info(identifier, function));
+                functionIndex.put(key, function);
+                modifications++;
             }
         }
     }
@@ -267,7 +282,9 @@ public class SymbolTable {
         if (parent != null) {
             return parent.functionIdentifiers();
         } else {
-            return functions.values().stream().flatMap(list -> list.stream().map(Info::identifier)).collect(toSet());
+            return functions.values().stream()
+                    .flatMap(list -> list.stream().map(Info::identifier))
+                    .collect(toCollection(LinkedHashSet::new));
         }
     }
 
@@ -303,7 +320,10 @@ public class SymbolTable {
         if (parent != null) {
             return parent.getFunctions(name);
         } else if (functions.containsKey(name)) {
-            return functions.get(name).stream().map(Info::value).map(Function.class::cast).collect(toSet());
+            return functions.get(name).stream()
+                    .map(Info::value)
+                    .map(Function.class::cast)
+                    .collect(toCollection(LinkedHashSet::new));
         } else {
             return emptySet();
         }
@@ -332,12 +352,11 @@ public class SymbolTable {
         if (parent != null) {
             return parent.getFunction(name, argTypes);
         } else if (functions.containsKey(name)) {
-            return functions.get(name).stream()
-                    .map(Info::value)
-                    .map(Function.class::cast)
-                    .filter(function -> argTypes.equals(function.getArgTypes()))
-                    .findFirst()
-                    .orElseThrow(IllegalArgumentException::new);
+            final var function = functionIndex.get(new FunctionKey(name, argTypes));
+            if (function == null) {
+                throw new IllegalArgumentException();
+            }
+            return function;
         } else {
             throw new IllegalArgumentException("undefined identifier: " + name);
         }
@@ -367,6 +386,7 @@ public class SymbolTable {
             throw new IllegalArgumentException("expected type array, not " + identifier.type());
         }
         arrays.put(identifier.name(), new Info(identifier, declaration));
+        modifications++;
     }
 
     /**
@@ -388,20 +408,16 @@ public class SymbolTable {
     }
 
     /**
-     * Returns an unordered collection of all array identifiers in the symbol table.
+     * Returns an unmodifiable collection of all visible array identifiers in the symbol table,
+     * ordered in the same way as {@link #identifiers()}.
      */
     public Collection<Identifier> arrayIdentifiers() {
-        final var childIdentifiers = arrays.values().stream().map(Info::identifier).collect(toCollection(HashSet::new));
-        if (parent != null) {
-            final var parentIdentifiers = parent.arrayIdentifiers();
-            parentIdentifiers.forEach(pi -> {
-                // If there is no child identifier with the same name, add the parent identifier
-                if (childIdentifiers.stream().noneMatch(ci -> ci.name().equals(pi.name()))) {
-                    childIdentifiers.add(pi);
-                }
-            });
+        final var version = version();
+        if (arrayIdentifiersVersion != version) {
+            cachedArrayIdentifiers = mergeWithParent(arrays, parent != null ? parent.arrayIdentifiers() : emptySet());
+            arrayIdentifiersVersion = version;
         }
-        return childIdentifiers;
+        return cachedArrayIdentifiers;
     }
 
     /**
@@ -451,6 +467,48 @@ public class SymbolTable {
         return size() == 0;
     }
 
+    /**
+     * Adds or replaces a regular identifier, and updates the constant index.
+     */
+    private void putSymbol(final Info info) {
+        final var name = info.identifier().name();
+        final var previous = symbols.put(name, info);
+        if (previous != null && previous.isConstant()) {
+            final var previousKey = new ConstantKey(previous.identifier().type(), (String) previous.value());
+            if (previous.identifier().equals(constantIndex.get(previousKey))) {
+                // Fall back to the first remaining constant with the same type and value, if any
+                constantIndex.remove(previousKey);
+                symbols.values().stream()
+                        .filter(i -> i != info && i.isConstant())
+                        .filter(i -> previousKey.equals(new ConstantKey(i.identifier().type(), (String) i.value())))
+                        .findFirst()
+                        .ifPresent(i -> constantIndex.put(previousKey, i.identifier()));
+            }
+        }
+        if (info.isConstant()) {
+            constantIndex.putIfAbsent(new ConstantKey(info.identifier().type(), (String) info.value()), info.identifier());
+        }
+        modifications++;
+    }
+
+    /**
+     * Returns a version number that changes whenever this symbol table, or any of its parents, is modified.
+     */
+    private long version() {
+        return (parent != null) ? modifications + parent.version() : modifications;
+    }
+
+    /**
+     * Returns the identifiers in {@code local}, followed by the identifiers in {@code global}
+     * that have not been redefined in {@code local}.
+     */
+    private static Set<Identifier> mergeWithParent(final Map<String, Info> local, final Collection<Identifier> global) {
+        final Set<Identifier> result = new LinkedHashSet<>();
+        local.values().forEach(info -> result.add(info.identifier()));
+        global.stream().filter(identifier -> !local.containsKey(identifier.name())).forEach(result::add);
+        return unmodifiableSet(result);
+    }
+
     // -----------------------------------------------------------------------
     // Temporaries:
     // -----------------------------------------------------------------------
@@ -470,4 +528,8 @@ public class SymbolTable {
             this(identifier, value, false);
         }
     }
+
+    private record ConstantKey(Type type, String value) { }
+
+    private record FunctionKey(String name, List<Type> argTypes) { }
 }
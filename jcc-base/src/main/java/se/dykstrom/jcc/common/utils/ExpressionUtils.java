@@ -152,6 +152,31 @@ public final class ExpressionUtils {
         return true;
     }
 
+    /**
+     * Returns {@code true} if evaluating the given expression may have side effects,
+     * including run-time errors like division by zero. An integer division is only
+     * free of side effects if the divisor is a non-zero integer literal.
+     */
+    public static boolean hasSideEffects(final Expression expression) {
+        if (expression instanceof LiteralExpression) {
+            return false;
+        } else if (expression instanceof ArrayAccessExpression arrayAccessExpression) {
+            return arrayAccessExpression.getSubscripts().stream().anyMatch(ExpressionUtils::hasSideEffects);
+        } else if (expression instanceof IdentifierExpression) {
+            return false;
+        } else if (expression instanceof IDivExpression || expression instanceof ModExpression) {
+            final var binaryExpression = (BinaryExpression) expression;
+            return !(binaryExpression.getRight() instanceof IntegerLiteral il && il.asLong() != 0) ||
+                   hasSideEffects(binaryExpression.getLeft());
+        } else if (expression instanceof BinaryExpression binaryExpression) {
+            return hasSideEffects(binaryExpression.getLeft()) || hasSideEffects(binaryExpression.getRight());
+        } else if (expression instanceof UnaryExpression unaryExpression) {
+            return hasSideEffects(unaryExpression.getExpression());
+        }
+        // Function calls, and any unknown expressions
+        return true;
+    }
+
     /**
      * Returns {@code true} if the given expression does not contain any function calls
      * to a user-defined function.
@@ -26,8 +26,18 @@ public enum GcOptions {
 
     INSTANCE;
 
+    /** Default factor to multiply the live data with to get the next GC threshold. */
+    public static final double DEFAULT_GROWTH_FACTOR = 2.0;
+    /** Default minimum number of allocated bytes before garbage collection. */
+    public static final long DEFAULT_MIN_THRESHOLD = 1024 * 1024;
+
     private boolean printGc;
+    private boolean stats;
     private int initialGcThreshold;
+    private double growthFactor = DEFAULT_GROWTH_FACTOR;
+    private long minThreshold = DEFAULT_MIN_THRESHOLD;
+    private long maxHeap;
+    private boolean adaptive;
 
     public boolean isPrintGc() {
         return printGc;
@@ -37,6 +47,14 @@ public enum GcOptions {
         this.printGc = printGc;
     }
 
+    public boolean isStats() {
+        return stats;
+    }
+
+    public void setStats(boolean stats) {
+        this.stats = stats;
+    }
+
     public int getInitialGcThreshold() {
         return initialGcThreshold;
     }
@@ -44,4 +62,46 @@ public enum GcOptions {
     public void setInitialGcThreshold(int initialGcThreshold) {
         this.initialGcThreshold = initialGcThreshold;
     }
+
+    public double getGrowthFactor() {
+        return growthFactor;
+    }
+
+    public void setGrowthFactor(double growthFactor) {
+        this.growthFactor = growthFactor;
+    }
+
+    /**
+     * Returns the growth factor as an integer percentage, which is easier to use in generated code.
+     */
+    public int getGrowthPercent() {
+        return (int) Math.round(growthFactor * 100);
+    }
+
+    public long getMinThreshold() {
+        return minThreshold;
+    }
+
+    public void setMinThreshold(long minThreshold) {
+        this.minThreshold = minThreshold;
+    }
+
+    /**
+     * Returns the maximum number of live bytes allowed after garbage collection, or 0 if unlimited.
+     */
+    public long getMaxHeap() {
+        return maxHeap;
+    }
+
+    public void setMaxHeap(long maxHeap) {
+        this.maxHeap = maxHeap;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.common.utils;
+
+import se.dykstrom.jcc.common.ast.Node;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Contains static utility methods related to AST nodes.
+ *
+ * @author Johan Dykstrom
+ */
+public final class NodeUtils {
+
+    /** The instance fields of each AST node class. */
+    private static final ClassValue<List<Field>> NODE_FIELDS = new ClassValue<>() {
+        @Override
+        protected List<Field> computeValue(final Class<?> type) {
+            final List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && field.trySetAccessible()) {
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields;
+        }
+    };
+
+    private NodeUtils() { }
+
+    /**
+     * Returns the values of all instance fields of the given node, including fields declared
+     * in super classes. Null values are skipped, and collections are replaced by their elements.
+     * Since AST nodes are immutable, this is a generic way to find the children of a node.
+     */
+    public static List<Object> fieldValues(final Node node) {
+        final List<Object> values = new ArrayList<>();
+        for (Field field : NODE_FIELDS.get(node.getClass())) {
+            final var value = getField(field, node);
+            if (value instanceof Collection<?> collection) {
+                collection.stream().filter(Objects::nonNull).forEach(values::add);
+            } else if (value != null) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Walks the AST starting with {@code root}, depth first, and calls {@code visitor} once
+     * for each node found. If the visitor returns {@code false}, the children of that node
+     * are not visited. A node that is referenced from several places is visited once per reference.
+     */
+    public static void walk(final Node root, final Predicate<? super Node> visitor) {
+        final Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            final var node = stack.pop();
+            if (visitor.test(node)) {
+                fieldValues(node).stream().filter(Node.class::isInstance).map(Node.class::cast).forEach(stack::push);
+            }
+        }
+    }
+
+    private static Object getField(final Field field, final Object object) {
+        try {
+            return field.get(object);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+}
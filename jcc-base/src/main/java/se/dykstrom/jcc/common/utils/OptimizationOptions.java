@@ -17,6 +17,12 @@
 
 package se.dykstrom.jcc.common.utils;
 
+import se.dykstrom.jcc.common.optimization.PeepholeRule;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * Utility class that controls optimization options.
  *
@@ -28,6 +34,8 @@ public enum OptimizationOptions {
 
     private int level = 0;
 
+    private Set<PeepholeRule> peepholeRules = EnumSet.allOf(PeepholeRule.class);
+
     public int getLevel() {
         return level;
     }
@@ -35,4 +43,16 @@ public enum OptimizationOptions {
     public void setLevel(int level) {
         this.level = level;
     }
+
+    /**
+     * Returns the peephole rules to apply at optimization level 1 and above.
+     */
+    public Set<PeepholeRule> getPeepholeRules() {
+        return Collections.unmodifiableSet(peepholeRules);
+    }
+
+    public void setPeepholeRules(Set<PeepholeRule> peepholeRules) {
+        this.peepholeRules = EnumSet.noneOf(PeepholeRule.class);
+        this.peepholeRules.addAll(peepholeRules);
+    }
 }
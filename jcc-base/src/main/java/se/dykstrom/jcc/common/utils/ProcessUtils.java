@@ -17,13 +17,14 @@
 
 package se.dykstrom.jcc.common.utils;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.*;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * Contains static utility methods related to process management.
@@ -32,6 +33,9 @@ import java.util.concurrent.TimeUnit;
  */
 public final class ProcessUtils {
 
+    /** The default time to wait for a process started by one of the {@code setUpProcess} methods to end. */
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+
     private ProcessUtils() { }
 
     /**
@@ -43,15 +47,27 @@ public final class ProcessUtils {
      * @param addEnv  A map of environment variables to set before executing the command.
      */
     public static Process setUpProcess(List<String> command, Map<String, String> addEnv) throws IOException, InterruptedException {
+        return setUpProcess(command, addEnv, null);
+    }
+
+    /**
+     * Sets up and returns a new process that executes the given {@code command}
+     * in the given working {@code directory}. Before starting the process, the
+     * environment of the process is extended with any environment variables given
+     * in {@code addEnv}.
+     *
+     * @param command   The command to execute.
+     * @param addEnv    A map of environment variables to set before executing the command.
+     * @param directory The working directory of the process, or {@code null} to use the
+     *                  working directory of the current process.
+     */
+    public static Process setUpProcess(List<String> command, Map<String, String> addEnv, Path directory) throws IOException, InterruptedException {
         ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true);
+        if (directory != null) {
+            builder.directory(directory.toFile());
+        }
         builder.environment().putAll(addEnv);
-        Process process = builder.start();
-
-        // Wait for the process to start and then end
-        process.waitFor(10, TimeUnit.SECONDS);
-
-        // Return the already ended process
-        return process;
+        return waitForProcess(builder.start(), DEFAULT_TIMEOUT);
     }
 
     /**
@@ -67,13 +83,97 @@ public final class ProcessUtils {
     public static Process setUpProcess(List<String> command, File inputFile, Map<String, String> addEnv) throws IOException, InterruptedException {
         ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true).redirectInput(inputFile);
         builder.environment().putAll(addEnv);
+        return waitForProcess(builder.start(), DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Waits for the given process to end, for at most {@code timeout}, while reading its
+     * output in the background. Reading the output while waiting makes sure the process
+     * does not block on a full output pipe. The returned process provides the output
+     * read so far in its input stream.
+     */
+    private static Process waitForProcess(Process process, Duration timeout) throws InterruptedException {
+        final var output = new ByteArrayOutputStream();
+        final var drainer = Thread.ofVirtual().start(() -> copy(process.getInputStream(), output));
+        try {
+            if (process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                // The process has ended, so the drainer will soon reach the end of the stream
+                drainer.join();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+        return new DrainedProcess(process, output);
+    }
+
+    /**
+     * Runs the given {@code command} in the given working {@code directory}, and waits for it to end.
+     * Before starting the process, the environment of the process is extended with any environment
+     * variables given in {@code addEnv}.
+     * <p>
+     * The output and error streams of the process are read concurrently, so the process never blocks
+     * on a full pipe. If {@code inputWriter} is not {@code null}, it is called in a separate thread to
+     * write the input of the process, otherwise the input stream of the process is closed directly.
+     * If the process does not end within {@code timeout}, or if the current thread is interrupted
+     * while waiting, the process is killed.
+     *
+     * @param command     The command to execute.
+     * @param addEnv      A map of environment variables to set before executing the command.
+     * @param directory   The working directory of the process, or {@code null} to use the
+     *                    working directory of the current process.
+     * @param timeout     The maximum time to wait for the process to end, or {@code null} to wait forever.
+     * @param inputWriter A function that writes the input of the process, or {@code null} if the process
+     *                    takes no input.
+     * @return The result of running the process.
+     * @throws IOException If the process cannot be started, or the input cannot be written to it.
+     * @throws InterruptedException If the current thread is interrupted while waiting for the process.
+     * @throws TimeoutException If the process does not end within the given timeout.
+     */
+    public static ProcessResult runProcess(List<String> command,
+                                           Map<String, String> addEnv,
+                                           Path directory,
+                                           Duration timeout,
+                                           InputWriter inputWriter) throws IOException, InterruptedException, TimeoutException {
+        ProcessBuilder builder = new ProcessBuilder(command);
+        if (directory != null) {
+            builder.directory(directory.toFile());
+        }
+        builder.environment().putAll(addEnv);
         Process process = builder.start();
 
-        // Wait for the process to start and then end
-        process.waitFor(10, TimeUnit.SECONDS);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            try {
+                final Future<String> stdout = executor.submit(() -> readFully(process.getInputStream()));
+                final Future<String> stderr = executor.submit(() -> readFully(process.getErrorStream()));
+                final Future<Void> stdin = executor.submit(() -> {
+                    try (var writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), UTF_8))) {
+                        if (inputWriter != null) {
+                            inputWriter.write(writer);
+                        }
+                    }
+                    return null;
+                });
+
+                if (timeout == null) {
+                    process.waitFor();
+                } else if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    throw new TimeoutException("process did not end within " + timeout.toSeconds() + " seconds");
+                }
 
-        // Return the already ended process
-        return process;
+                final var result = new ProcessResult(process.exitValue(), getResult(stdout), getResult(stderr));
+                // If the process failed, it may have stopped reading its input, so we ignore any write errors
+                if (result.exitValue() == 0) {
+                    getResult(stdin);
+                }
+                return result;
+            } finally {
+                // Kill the process if we timed out, or were interrupted, so the executor threads can finish
+                if (process.isAlive()) {
+                    process.destroyForcibly();
+                }
+            }
+        }
     }
 
     /**
@@ -84,7 +184,8 @@ public final class ProcessUtils {
     }
 
     /**
-     * Reads all output that is available from the given {@code process}, and returns this as a single string.
+     * Reads all output from the given {@code process} until the end of the stream,
+     * and returns this as a single string.
      *
      * @param process The process to read from.
      * @return The process output.
@@ -93,8 +194,8 @@ public final class ProcessUtils {
         StringBuilder builder = new StringBuilder();
 
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            while (reader.ready()) {
-                String str = reader.readLine();
+            String str;
+            while ((str = reader.readLine()) != null) {
                 builder.append(str).append("\n");
             }
         } catch (IOException e) {
@@ -103,4 +204,121 @@ public final class ProcessUtils {
 
         return builder.toString();
     }
+
+    private static String readFully(InputStream inputStream) throws IOException {
+        return new String(inputStream.readAllBytes());
+    }
+
+    private static void copy(InputStream inputStream, ByteArrayOutputStream outputStream) {
+        try {
+            inputStream.transferTo(outputStream);
+        } catch (IOException e) {
+            // The stream was closed, for example because the process was destroyed
+        }
+    }
+
+    private static <T> T getResult(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioe) {
+                throw ioe;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * A function that writes the input of a process.
+     */
+    @FunctionalInterface
+    public interface InputWriter {
+        void write(Writer writer) throws IOException;
+    }
+
+    /**
+     * The result of running a process: its exit value, and everything it wrote to stdout and stderr.
+     */
+    public record ProcessResult(int exitValue, String stdout, String stderr) {
+
+        /**
+         * Returns everything the process wrote, first to stdout and then to stderr.
+         */
+        public String output() {
+            return stdout + stderr;
+        }
+    }
+
+    /**
+     * A process whose output has been read in the background. The input stream of this process
+     * returns the output read so far. All other methods delegate to the original process.
+     */
+    private static final class DrainedProcess extends Process {
+
+        private final Process process;
+        private final ByteArrayOutputStream output;
+
+        private DrainedProcess(final Process process, final ByteArrayOutputStream output) {
+            this.process = process;
+            this.output = output;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return process.getOutputStream();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            synchronized (output) {
+                return new ByteArrayInputStream(output.toByteArray());
+            }
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return process.getErrorStream();
+        }
+
+        @Override
+        public int waitFor() throws InterruptedException {
+            return process.waitFor();
+        }
+
+        @Override
+        public boolean waitFor(final long timeout, final TimeUnit unit) throws InterruptedException {
+            return process.waitFor(timeout, unit);
+        }
+
+        @Override
+        public int exitValue() {
+            return process.exitValue();
+        }
+
+        @Override
+        public boolean isAlive() {
+            return process.isAlive();
+        }
+
+        @Override
+        public void destroy() {
+            process.destroy();
+        }
+
+        @Override
+        public Process destroyForcibly() {
+            process.destroyForcibly();
+            return this;
+        }
+
+        @Override
+        public long pid() {
+            return process.pid();
+        }
+
+        @Override
+        public ProcessHandle toHandle() {
+            return process.toHandle();
+        }
+    }
 }
@@ -17,8 +17,10 @@
 
 package se.dykstrom.jcc.common.utils;
 
+import java.io.PrintStream;
+
 /**
- * A simple logger that logs messages to stdout if the verbose flag is set.
+ * A simple logger that logs messages to stdout, or another output stream, if the verbose flag is set.
  *
  * @author Johan Dykstrom
  */
@@ -26,6 +28,7 @@ package se.dykstrom.jcc.common.utils;
 public final class VerboseLogger {
 
     private static boolean verbose;
+    private static PrintStream out = System.out;
 
     private VerboseLogger() { }
 
@@ -37,11 +40,18 @@ public final class VerboseLogger {
     }
 
     /**
-     * Logs the given message to stdout if the verbose flag is set (to true).
+     * Sets the output stream to log messages to.
+     */
+    public static void setOut(PrintStream out) {
+        VerboseLogger.out = out;
+    }
+
+    /**
+     * Logs the given message to the output stream if the verbose flag is set (to true).
      */
     public static void log(String msg) {
         if (verbose) {
-            System.out.println(msg);
+            out.println(msg);
         }
     }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.common.code
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import se.dykstrom.jcc.common.assembly.base.AssemblyComment
+import se.dykstrom.jcc.common.assembly.base.Register.RAX
+import se.dykstrom.jcc.common.assembly.base.Register.RDX
+import se.dykstrom.jcc.common.assembly.directive.DataDefinition
+import se.dykstrom.jcc.common.assembly.instruction.*
+import se.dykstrom.jcc.common.types.I64
+import se.dykstrom.jcc.common.types.Identifier
+import se.dykstrom.jcc.common.utils.FormatUtils.EOL
+import java.io.StringWriter
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.Files
+import java.nio.file.Path
+
+class TargetProgramTests {
+
+    companion object {
+        private val LABEL = Label("loop")
+        private val LINES = listOf(
+            AssemblyComment("comment"),
+            DataDefinition(Identifier("a", I64.INSTANCE), "10 dup 0", false),
+            Blank.INSTANCE,
+            LABEL,
+            AddImmToReg("1", RDX),
+            SubRegFromReg(RDX, RAX),
+            CmpRegWithImm(RAX, "0"),
+            MoveRegToReg(RDX, RAX),
+            MoveByteImmToMem("1", RAX),
+            PushReg(RAX),
+            PopReg(RDX),
+            CallDirect(LABEL),
+            Jne(LABEL),
+            Text("text"),
+            Ret()
+        )
+    }
+
+    @Test
+    fun shouldAppendSameTextAsToText() {
+        LINES.forEach {
+            val builder = StringBuilder()
+            it.appendTo(builder)
+            assertEquals(it.toText(), builder.toString())
+        }
+    }
+
+    @Test
+    fun shouldWriteToWriter() {
+        // Given
+        val program = TargetProgram(LINES)
+        val writer = StringWriter()
+
+        // When
+        program.writeTo(writer)
+
+        // Then
+        assertEquals(program.toText() + EOL, writer.toString())
+        assertEquals(LINES.joinToString(EOL) { it.toText() }, program.toText())
+    }
+
+    @Test
+    fun shouldWriteToFile(@TempDir directory: Path) {
+        // Given
+        val program = TargetProgram(LINES)
+        val path = directory.resolve("program.asm")
+
+        // When
+        program.writeTo(path)
+
+        // Then
+        assertEquals(program.toText() + EOL, Files.readString(path, UTF_8))
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.common.compiler
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import se.dykstrom.jcc.common.assembly.base.Register.*
+import se.dykstrom.jcc.common.ast.*
+import se.dykstrom.jcc.common.symbols.SymbolTable
+import se.dykstrom.jcc.common.types.F64
+import se.dykstrom.jcc.common.types.I64
+import se.dykstrom.jcc.common.types.Identifier
+
+/**
+ * Tests class `RegisterAllocator`.
+ *
+ * @author Johan Dykstrom
+ * @see RegisterAllocator
+ */
+class RegisterAllocatorTests {
+
+    private val symbols = SymbolTable()
+
+    private val allocator = RegisterAllocator(symbols)
+
+    @BeforeEach
+    fun setUp() {
+        symbols.addVariable(IDENT_I64_A)
+        symbols.addVariable(IDENT_I64_B)
+        symbols.addVariable(IDENT_I64_C)
+        symbols.addVariable(IDENT_I64_D)
+        symbols.addVariable(IDENT_F64_F)
+    }
+
+    @Test
+    fun shouldAllocateRegisterToIntegerVariable() {
+        // a% = 1 : b% = a% : END a% + b%
+        val program = AstProgram(0, 0, listOf(
+            AssignStatement(0, 0, IE_I64_A, IL_1),
+            AssignStatement(0, 0, IE_I64_B, IDE_I64_A),
+            ExitStatement(0, 0, AddExpression(0, 0, IDE_I64_A, IDE_I64_B)),
+        ))
+
+        val registers = allocator.allocate(program)
+
+        assertEquals(mapOf(IDENT_I64_A to R15, IDENT_I64_B to R14), registers)
+    }
+
+    @Test
+    fun shouldNotAllocateRegisterToFloatVariable() {
+        // f = 1 : a% = f
+        val program = AstProgram(0, 0, listOf(
+            AssignStatement(0, 0, IE_F64_F, IL_1),
+            AssignStatement(0, 0, IE_I64_A, IDE_F64_F),
+        ))
+
+        val registers = allocator.allocate(program)
+
+        assertEquals(mapOf(IDENT_I64_A to R15), registers)
+    }
+
+    @Test
+    fun shouldPreferVariablesUsedInLoops() {
+        // a% = 1 : b% = 1 : c% = 1 : d% = a% + a% + a%
+        // WHILE b% < 10 : b% += 1 : c% += 1 : WEND
+        // END a% + d%
+        val program = AstProgram(0, 0, listOf(
+            AssignStatement(0, 0, IE_I64_A, IL_1),
+            AssignStatement(0, 0, IE_I64_B, IL_1),
+            AssignStatement(0, 0, IE_I64_C, IL_1),
+            AssignStatement(0, 0, IE_I64_D, AddExpression(0, 0, AddExpression(0, 0, IDE_I64_A, IDE_I64_A), IDE_I64_A)),
+            WhileStatement(0, 0, LessExpression(IDE_I64_B, IL_10), listOf(
+                AddAssignStatement(0, 0, IE_I64_B, IL_1),
+                AddAssignStatement(0, 0, IE_I64_C, IL_1),
+            )),
+            ExitStatement(0, 0, AddExpression(0, 0, IDE_I64_A, IDE_I64_D)),
+        ))
+
+        val registers = allocator.allocate(program)
+
+        // b% has the highest spill cost, followed by c%, and a%, while d% is spilled
+        assertEquals(mapOf(IDENT_I64_B to R15, IDENT_I64_C to R14, IDENT_I64_A to R13), registers)
+    }
+
+    @Test
+    fun shouldNotAllocateRegisterToVariableWhoseAddressIsUsed() {
+        // a% = 1 : b% = a% : PRINT VARPTR(a%)
+        val program = AstProgram(0, 0, listOf(
+            AssignStatement(0, 0, IE_I64_A, IL_1),
+            AssignStatement(0, 0, IE_I64_B, IDE_I64_A),
+            ExitStatement(0, 0, IdentifierNameExpression(0, 0, IDENT_I64_A)),
+        ))
+
+        val registers = allocator.allocate(program)
+
+        assertEquals(mapOf(IDENT_I64_B to R15), registers)
+    }
+
+    @Test
+    fun shouldNotAllocateRegisterToConstant() {
+        val constant = Identifier("k%", I64.INSTANCE)
+        symbols.addConstant(constant, "17")
+        val program = AstProgram(0, 0, listOf(
+            AssignStatement(0, 0, IE_I64_A, IdentifierDerefExpression(0, 0, constant)),
+        ))
+
+        val registers = allocator.allocate(program)
+
+        assertEquals(mapOf(IDENT_I64_A to R15), registers)
+    }
+
+    @Test
+    fun shouldNotAllocateMoreThanAvailableRegisters() {
+        // a% = 1 : b% = 1 : c% = 1 : d% = 1 : END a% + b% + c% + d%
+        val program = AstProgram(0, 0, listOf(
+            AssignStatement(0, 0, IE_I64_A, IL_1),
+            AssignStatement(0, 0, IE_I64_B, IL_1),
+            AssignStatement(0, 0, IE_I64_C, IL_1),
+            AssignStatement(0, 0, IE_I64_D, IL_1),
+            ExitStatement(0, 0, AddExpression(0, 0, AddExpression(0, 0, AddExpression(0, 0, IDE_I64_A, IDE_I64_B), IDE_I64_C), IDE_I64_D)),
+        ))
+
+        val registers = allocator.allocate(program)
+
+        assertEquals(RegisterAllocator.VARIABLE_REGISTERS.size, registers.size)
+        assertTrue(registers.values.containsAll(RegisterAllocator.VARIABLE_REGISTERS))
+    }
+
+    @Test
+    fun shouldShareRegisterBetweenVariablesWithDisjointLiveRanges() {
+        // a% = 1 : b% = a% + 1 : c% = b% + 1 : END c%
+        val program = AstProgram(0, 0, listOf(
+            AssignStatement(0, 0, IE_I64_A, IL_1),
+            AssignStatement(0, 0, IE_I64_B, AddExpression(0, 0, IDE_I64_A, IL_1)),
+            AssignStatement(0, 0, IE_I64_C, AddExpression(0, 0, IDE_I64_B, IL_1)),
+            ExitStatement(0, 0, IDE_I64_C),
+        ))
+
+        val registers = allocator.allocate(program)
+
+        assertEquals(mapOf(IDENT_I64_A to R15, IDENT_I64_B to R15, IDENT_I64_C to R15), registers)
+    }
+
+    @Test
+    fun shouldNotShareRegisterWithVariableLiveAcrossJump() {
+        // a% = 1
+        // loop: b% = a%
+        // IF b% < 10 THEN GOTO loop
+        val program = AstProgram(0, 0, listOf(
+            AssignStatement(0, 0, IE_I64_A, IL_1),
+            LabelledStatement("loop", AssignStatement(0, 0, IE_I64_B, IDE_I64_A)),
+            IfStatement.builder(LessExpression(IDE_I64_B, IL_10), GotoStatement(0, 0, "loop")).build(),
+        ))
+
+        val registers = allocator.allocate(program)
+
+        // a% is live when b% is assigned, because the jump makes it used again
+        assertEquals(mapOf(IDENT_I64_A to R15, IDENT_I64_B to R14), registers)
+    }
+
+    @Test
+    fun shouldNotShareRegisterWithVariableUsedInFunction() {
+        // DEF FNa% = c% : a% = 1 : END a%
+        val program = AstProgram(0, 0, listOf(
+            FunctionDefinitionStatement(0, 0, Identifier("FNa%", I64.INSTANCE), listOf(), IDE_I64_C),
+            AssignStatement(0, 0, IE_I64_A, IL_1),
+            ExitStatement(0, 0, IDE_I64_A),
+        ))
+
+        val registers = allocator.allocate(program)
+
+        // c% may be used whenever the function is called, so it is live throughout the program
+        assertEquals(mapOf(IDENT_I64_A to R15, IDENT_I64_C to R14), registers)
+    }
+
+    @Test
+    fun shouldNotAllocateRegistersIfProgramContainsUnknownStatement() {
+        // An unknown statement may access variables in any way
+        val unknownStatement = object : AbstractNode(0, 0), Statement { }
+        val program = AstProgram(0, 0, listOf(
+            AssignStatement(0, 0, IE_I64_A, IL_1),
+            unknownStatement,
+        ))
+
+        val registers = allocator.allocate(program)
+
+        assertTrue(registers.isEmpty())
+    }
+
+    companion object {
+        private val IL_1 = IntegerLiteral(0, 0, "1")
+        private val IL_10 = IntegerLiteral(0, 0, "10")
+
+        private val IDENT_I64_A = Identifier("a%", I64.INSTANCE)
+        private val IDENT_I64_B = Identifier("b%", I64.INSTANCE)
+        private val IDENT_I64_C = Identifier("c%", I64.INSTANCE)
+        private val IDENT_I64_D = Identifier("d%", I64.INSTANCE)
+        private val IDENT_F64_F = Identifier("f", F64.INSTANCE)
+
+        private val IE_I64_A = IdentifierExpression(0, 0, IDENT_I64_A)
+        private val IE_I64_B = IdentifierExpression(0, 0, IDENT_I64_B)
+        private val IE_I64_C = IdentifierExpression(0, 0, IDENT_I64_C)
+        private val IE_I64_D = IdentifierExpression(0, 0, IDENT_I64_D)
+        private val IE_F64_F = IdentifierExpression(0, 0, IDENT_F64_F)
+
+        private val IDE_I64_A = IdentifierDerefExpression(0, 0, IDENT_I64_A)
+        private val IDE_I64_B = IdentifierDerefExpression(0, 0, IDENT_I64_B)
+        private val IDE_I64_C = IdentifierDerefExpression(0, 0, IDENT_I64_C)
+        private val IDE_I64_D = IdentifierDerefExpression(0, 0, IDENT_I64_D)
+        private val IDE_F64_F = IdentifierDerefExpression(0, 0, IDENT_F64_F)
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.common.ir
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import se.dykstrom.jcc.common.ast.*
+import se.dykstrom.jcc.common.ir.Terminator.Branch
+import se.dykstrom.jcc.common.ir.Terminator.Exit
+import se.dykstrom.jcc.common.ir.Terminator.Jump
+import se.dykstrom.jcc.common.types.I64
+import se.dykstrom.jcc.common.types.Identifier
+
+/**
+ * Tests class `ControlFlowGraphBuilder`.
+ *
+ * @author Johan Dykstrom
+ * @see ControlFlowGraphBuilder
+ */
+class ControlFlowGraphBuilderTests {
+
+    private val builder = ControlFlowGraphBuilder()
+
+    @Test
+    fun shouldBuildSingleBlockFromStraightLineCode() {
+        // Given
+        val assignA = AssignStatement(0, 0, INE_A, IL_1)
+        val assignB = AssignStatement(0, 0, INE_B, IL_2)
+        val program = AstProgram(0, 0, listOf(assignA, assignB))
+
+        // When
+        val graph = builder.build(program)
+
+        // Then
+        assertEquals(1, graph.blocks().size)
+        val entry = graph.entry()
+        assertEquals(listOf(assignA, assignB), entry.statements())
+        assertEquals(Exit(null), entry.terminator())
+        assertTrue(graph.successors(entry).isEmpty())
+    }
+
+    @Test
+    fun shouldBuildDiamondFromIfElseStatement() {
+        // Given
+        val ifStatement = IfStatement.builder(IDE_C, AssignStatement(0, 0, INE_A, IL_1))
+            .elseStatements(AssignStatement(0, 0, INE_A, IL_2))
+            .build()
+        val assignB = AssignStatement(0, 0, INE_B, IDE_A)
+        val program = AstProgram(0, 0, listOf(ifStatement, assignB))
+
+        // When
+        val graph = builder.build(program)
+
+        // Then
+        assertEquals(4, graph.blocks().size)
+        val entry = graph.entry()
+        val branch = entry.terminator() as Branch
+        assertEquals(IDE_C, branch.condition())
+        val thenBlock = branch.ifTrue()
+        val elseBlock = branch.ifFalse()
+        val joinBlock = (thenBlock.terminator() as Jump).target()
+        assertEquals(Jump(joinBlock), elseBlock.terminator())
+        assertEquals(listOf(assignB), joinBlock.statements())
+        assertEquals(listOf(thenBlock, elseBlock), graph.predecessors(joinBlock))
+        assertEquals(listOf(thenBlock, elseBlock), graph.successors(entry))
+    }
+
+    @Test
+    fun shouldBuildLoopFromWhileStatement() {
+        // Given
+        val assignA = AssignStatement(0, 0, INE_A, AddExpression(0, 0, IDE_A, IL_1))
+        val whileStatement = WhileStatement(0, 0, IDE_C, listOf(assignA))
+        val program = AstProgram(0, 0, listOf(whileStatement))
+
+        // When
+        val graph = builder.build(program)
+
+        // Then
+        val header = (graph.entry().terminator() as Jump).target()
+        val branch = header.terminator() as Branch
+        val body = branch.ifTrue()
+        val exit = branch.ifFalse()
+        assertEquals(listOf(assignA), body.statements())
+        assertEquals(Jump(header), body.terminator())
+        assertEquals(listOf(graph.entry(), body), graph.predecessors(header))
+        assertEquals(listOf(body, exit), graph.successors(header))
+        assertTrue(graph.predecessors(graph.entry()).isEmpty())
+        // Blocks are sorted in reverse post order
+        assertEquals(listOf(graph.entry(), header), graph.blocks().subList(0, 2))
+    }
+
+    @Test
+    fun shouldConnectGotoToLabelAndRemoveUnreachableCode() {
+        // Given
+        val gotoStatement = GotoStatement(0, 0, "label")
+        val unreachableStatement = AssignStatement(0, 0, INE_A, IL_1)
+        val labelledStatement = LabelledStatement("label", AssignStatement(0, 0, INE_B, IL_2))
+        val program = AstProgram(0, 0, listOf(gotoStatement, unreachableStatement, labelledStatement))
+
+        // When
+        val graph = builder.build(program)
+
+        // Then
+        assertEquals(2, graph.blocks().size)
+        val labelledBlock = (graph.entry().terminator() as Jump).target()
+        assertEquals("label", labelledBlock.label())
+        assertEquals(listOf(labelledStatement.statement()), labelledBlock.statements())
+        assertTrue(graph.blocks().none { it.statements().contains(unreachableStatement) })
+    }
+
+    @Test
+    fun shouldEndBlockAtExitStatement() {
+        // Given
+        val exitStatement = ExitStatement(0, 0, IL_1)
+        val program = AstProgram(0, 0, listOf(exitStatement, AssignStatement(0, 0, INE_A, IL_2)))
+
+        // When
+        val graph = builder.build(program)
+
+        // Then
+        assertEquals(1, graph.blocks().size)
+        assertEquals(Exit(exitStatement), graph.entry().terminator())
+        assertTrue(graph.entry().statements().isEmpty())
+    }
+
+    companion object {
+        private val IL_1 = IntegerLiteral(0, 0, "1")
+        private val IL_2 = IntegerLiteral(0, 0, "2")
+
+        private val IDENT_A = Identifier("a", I64.INSTANCE)
+        private val IDENT_B = Identifier("b", I64.INSTANCE)
+        private val IDENT_C = Identifier("c", I64.INSTANCE)
+
+        private val IDE_A = IdentifierDerefExpression(0, 0, IDENT_A)
+        private val IDE_C = IdentifierDerefExpression(0, 0, IDENT_C)
+
+        private val INE_A = IdentifierNameExpression(0, 0, IDENT_A)
+        private val INE_B = IdentifierNameExpression(0, 0, IDENT_B)
+    }
+}
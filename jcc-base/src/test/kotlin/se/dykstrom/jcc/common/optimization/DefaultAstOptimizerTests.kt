@@ -17,6 +17,7 @@
 
 package se.dykstrom.jcc.common.optimization
 
+import org.junit.jupiter.api.AfterEach
 import org.junit.jupiter.api.Assertions.assertEquals
 import org.junit.jupiter.api.Assertions.assertTrue
 import org.junit.jupiter.api.BeforeEach
@@ -25,6 +26,7 @@ import se.dykstrom.jcc.common.ast.*
 import se.dykstrom.jcc.common.ast.IntegerLiteral.ZERO
 import se.dykstrom.jcc.common.compiler.DefaultTypeManager
 import se.dykstrom.jcc.common.symbols.SymbolTable
+import se.dykstrom.jcc.common.types.Arr
 import se.dykstrom.jcc.common.types.F64
 import se.dykstrom.jcc.common.types.Fun
 import se.dykstrom.jcc.common.types.I64
@@ -51,6 +53,11 @@ class DefaultAstOptimizerTests {
         OptimizationOptions.INSTANCE.level = 1
     }
 
+    @AfterEach
+    fun tearDown() {
+        OptimizationOptions.INSTANCE.level = 0
+    }
+
     @Test
     fun shouldNotOptimize() {
         OptimizationOptions.INSTANCE.level = 0
@@ -445,6 +452,427 @@ class DefaultAstOptimizerTests {
         assertEquals(expectedStatement, optimizedStatements[0])
     }
 
+    @Test
+    fun shouldPropagateConstantValues() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val assignA = AssignStatement(0, 0, INE_I64_A, IL_1)
+        val assignB = AssignStatement(0, 0, INE_I64_B, AddExpression(0, 0, IDE_I64_A, IL_2))
+        val assignArray = AssignStatement(0, 0, AAE_I64_X, IDE_I64_B)
+        val program = AstProgram(0, 0, listOf(assignA, assignB, assignArray))
+
+        // Variables a% and b% are no longer read, and are removed
+        val expectedStatement = AssignStatement(0, 0, AAE_I64_X, IL_3)
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf(expectedStatement), optimizedStatements)
+    }
+
+    @Test
+    fun shouldNotPropagateValueAssignedInLoop() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val assignA = AssignStatement(0, 0, INE_I64_A, IL_1)
+        val whileStatement = WhileStatement(0, 0, LessExpression(0, 0, IDE_I64_A, IL_3), listOf(
+            AssignStatement(0, 0, INE_I64_A, AddExpression(0, 0, IDE_I64_A, IL_1))
+        ))
+        val assignArray = AssignStatement(0, 0, AAE_I64_X, IDE_I64_A)
+        val program = AstProgram(0, 0, listOf(assignA, whileStatement, assignArray))
+
+        val expectedWhileStatement = WhileStatement(0, 0, LessExpression(0, 0, IDE_I64_A, IL_3), listOf(
+            IncStatement(0, 0, INE_I64_A)
+        ))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf(assignA, expectedWhileStatement, assignArray), optimizedStatements)
+    }
+
+    @Test
+    fun shouldOnlyPropagateValuesKnownInBothBranches() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val assignA = AssignStatement(0, 0, INE_I64_A, IL_1)
+        val assignB = AssignStatement(0, 0, INE_I64_B, IL_2)
+        val ifStatement = IfStatement.builder(IDE_I64_C, AssignStatement(0, 0, INE_I64_A, IL_2)).build()
+        val assignArrayA = AssignStatement(0, 0, AAE_I64_X, IDE_I64_A)
+        val assignArrayB = AssignStatement(0, 0, AAE_I64_X, IDE_I64_B)
+        val program = AstProgram(0, 0, listOf(assignA, assignB, ifStatement, assignArrayA, assignArrayB))
+
+        val expectedStatements = listOf(assignA, ifStatement, assignArrayA, AssignStatement(0, 0, AAE_I64_X, IL_2))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(expectedStatements, optimizedStatements)
+    }
+
+    @Test
+    fun shouldNotPropagateValueToJumpTarget() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val assignA1 = AssignStatement(0, 0, INE_I64_A, IL_1)
+        val labelledStatement = LabelledStatement("label", AssignStatement(0, 0, AAE_I64_X, IDE_I64_A))
+        val assignA2 = AssignStatement(0, 0, INE_I64_A, IL_2)
+        val gotoStatement = GotoStatement(0, 0, "label")
+        val program = AstProgram(0, 0, listOf(assignA1, labelledStatement, assignA2, gotoStatement))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(program.statements, optimizedStatements)
+    }
+
+    @Test
+    fun shouldReplaceIfStatementWithConstantCondition() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val assignA = AssignStatement(0, 0, INE_I64_A, IL_1)
+        val thenStatement = AssignStatement(0, 0, AAE_I64_X, IL_2)
+        val elseStatement = AssignStatement(0, 0, AAE_I64_X, IL_3)
+        val ifStatement = IfStatement.builder(IDE_I64_A, thenStatement).elseStatements(elseStatement).build()
+        val program = AstProgram(0, 0, listOf(assignA, ifStatement))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf(thenStatement), optimizedStatements)
+    }
+
+    @Test
+    fun shouldRemoveWhileStatementWithFalseCondition() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val whileStatement = WhileStatement(0, 0, ZERO, listOf(AssignStatement(0, 0, AAE_I64_X, IL_2)))
+        val program = AstProgram(0, 0, listOf(whileStatement))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertTrue(optimizedStatements.isEmpty())
+    }
+
+    @Test
+    fun shouldRemoveUnreachableStatements() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val gotoStatement = GotoStatement(0, 0, "target")
+        val unreachableStatement = AssignStatement(0, 0, AAE_I64_X, IL_1)
+        val unreachableLabelledStatement = LabelledStatement("other", AssignStatement(0, 0, AAE_I64_X, IL_2))
+        val targetStatement = LabelledStatement("target", AssignStatement(0, 0, AAE_I64_X, IL_3))
+        val program = AstProgram(0, 0, listOf(gotoStatement, unreachableStatement, unreachableLabelledStatement, targetStatement))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf(gotoStatement, targetStatement), optimizedStatements)
+    }
+
+    @Test
+    fun shouldRemoveUnusedVariables() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val declarationStatement = VariableDeclarationStatement(0, 0, listOf(
+            Declaration(0, 0, IDENT_I64_A.name(), I64.INSTANCE),
+            Declaration(0, 0, IDENT_I64_B.name(), I64.INSTANCE)
+        ))
+        val assignA = AssignStatement(0, 0, INE_I64_A, IDE_I64_C)
+        val assignB = AssignStatement(0, 0, INE_I64_B, IDE_I64_C)
+        val assignArray = AssignStatement(0, 0, AAE_I64_X, IDE_I64_B)
+        val program = AstProgram(0, 0, listOf(declarationStatement, assignA, assignB, assignArray))
+
+        val expectedDeclarationStatement = VariableDeclarationStatement(0, 0, listOf(
+            Declaration(0, 0, IDENT_I64_B.name(), I64.INSTANCE)
+        ))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf(expectedDeclarationStatement, assignB, assignArray), optimizedStatements)
+    }
+
+    @Test
+    fun shouldNotRemoveUnusedVariableAssignedFunctionCall() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val identifier = Identifier("foo", FUN_I64_TO_I64)
+        val assignA = AssignStatement(0, 0, INE_I64_A, FunctionCallExpression(0, 0, identifier, listOf(IDE_I64_C)))
+        val program = AstProgram(0, 0, listOf(assignA))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf(assignA), optimizedStatements)
+    }
+
+    @Test
+    fun shouldNotRemoveUnusedVariableAssignedDivisionByVariable() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val assignA = AssignStatement(0, 0, INE_I64_A, IDivExpression(0, 0, IDE_I64_C, IDE_I64_C))
+        val assignB = AssignStatement(0, 0, INE_I64_B, ModExpression(0, 0, IDE_I64_C, IDE_I64_C))
+        val program = AstProgram(0, 0, listOf(assignA, assignB))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf(assignA, assignB), optimizedStatements)
+    }
+
+    @Test
+    fun shouldRemoveUnusedVariableAssignedDivisionByConstant() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val assignA = AssignStatement(0, 0, INE_I64_A, IDivExpression(0, 0, IDE_I64_C, IL_2))
+        val program = AstProgram(0, 0, listOf(assignA))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf<Statement>(), optimizedStatements)
+    }
+
+    @Test
+    fun shouldMoveLoopInvariantExpressionOutOfLoop() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val mulExpression = MulExpression(0, 0, IDE_I64_B, IDE_I64_C)
+        val whileStatement = WhileStatement(0, 0, LessExpression(0, 0, IDE_I64_A, mulExpression), listOf(
+            AssignStatement(0, 0, AAE_I64_X, mulExpression),
+            IncStatement(0, 0, INE_I64_A)
+        ))
+        val program = AstProgram(0, 0, listOf(whileStatement))
+
+        val identifier = Identifier("_licm_0", I64.INSTANCE)
+        val assignTemp = AssignStatement(0, 0, IdentifierNameExpression(0, 0, identifier), mulExpression)
+        val ideTemp = IdentifierDerefExpression(0, 0, identifier)
+        val expectedWhileStatement = WhileStatement(0, 0, LessExpression(0, 0, IDE_I64_A, ideTemp), listOf(
+            AssignStatement(0, 0, AAE_I64_X, ideTemp),
+            IncStatement(0, 0, INE_I64_A)
+        ))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf(assignTemp, expectedWhileStatement), optimizedStatements)
+    }
+
+    @Test
+    fun shouldNotMoveExpressionWithVariableAssignedInLoop() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val whileStatement = WhileStatement(0, 0, LessExpression(0, 0, IDE_I64_A, AddExpression(0, 0, IDE_I64_B, IDE_I64_C)), listOf(
+            IncStatement(0, 0, INE_I64_A),
+            IncStatement(0, 0, INE_I64_B)
+        ))
+        val program = AstProgram(0, 0, listOf(whileStatement))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf(whileStatement), optimizedStatements)
+    }
+
+    @Test
+    fun shouldNotMoveDivisionByVariableOutOfLoop() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val whileStatement = WhileStatement(0, 0, LessExpression(0, 0, IDE_I64_A, IDivExpression(0, 0, IDE_I64_B, IDE_I64_C)), listOf(
+            IncStatement(0, 0, INE_I64_A)
+        ))
+        val program = AstProgram(0, 0, listOf(whileStatement))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf(whileStatement), optimizedStatements)
+    }
+
+    @Test
+    fun shouldNotMoveArrayElementOutOfLoop() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val whileStatement = WhileStatement(0, 0, LessExpression(0, 0, IDE_I64_A, AddExpression(0, 0, AAE_I64_X, IL_1)), listOf(
+            AssignStatement(0, 0, AAE_I64_X, IDE_I64_A),
+            IncStatement(0, 0, INE_I64_A)
+        ))
+        val program = AstProgram(0, 0, listOf(whileStatement))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf(whileStatement), optimizedStatements)
+    }
+
+    @Test
+    fun shouldMoveTemporaryOfInnerLoopOutOfOuterLoop() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val mulExpression = MulExpression(0, 0, IDE_I64_B, IDE_I64_C)
+        val innerWhileStatement = WhileStatement(0, 0, LessExpression(0, 0, IDE_I64_A, mulExpression), listOf(
+            IncStatement(0, 0, INE_I64_A)
+        ))
+        val outerWhileStatement = WhileStatement(0, 0, LessExpression(0, 0, IDE_I64_A, IL_3), listOf(
+            AssignStatement(0, 0, INE_I64_A, IL_1),
+            innerWhileStatement
+        ))
+        val program = AstProgram(0, 0, listOf(outerWhileStatement))
+
+        val identifier = Identifier("_licm_0", I64.INSTANCE)
+        val assignTemp = AssignStatement(0, 0, IdentifierNameExpression(0, 0, identifier), mulExpression)
+        val expectedInnerWhileStatement = WhileStatement(0, 0, LessExpression(0, 0, IDE_I64_A, IdentifierDerefExpression(0, 0, identifier)), listOf(
+            IncStatement(0, 0, INE_I64_A)
+        ))
+        val expectedOuterWhileStatement = WhileStatement(0, 0, LessExpression(0, 0, IDE_I64_A, IL_3), listOf(
+            AssignStatement(0, 0, INE_I64_A, IL_1),
+            expectedInnerWhileStatement
+        ))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf(assignTemp, expectedOuterWhileStatement), optimizedStatements)
+    }
+
+    @Test
+    fun shouldReplaceCommonSubexpressionInStatement() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val mulExpression = MulExpression(0, 0, IDE_I64_B, IDE_I64_C)
+        val assignStatement = AssignStatement(0, 0, AAE_I64_X, AddExpression(0, 0, mulExpression, mulExpression))
+        val program = AstProgram(0, 0, listOf(assignStatement))
+
+        val identifier = Identifier("_cse_0", I64.INSTANCE)
+        val assignTemp = AssignStatement(0, 0, IdentifierNameExpression(0, 0, identifier), mulExpression)
+        val ideTemp = IdentifierDerefExpression(0, 0, identifier)
+        val expectedStatement = AssignStatement(0, 0, AAE_I64_X, AddExpression(0, 0, ideTemp, ideTemp))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf(assignTemp, expectedStatement), optimizedStatements)
+    }
+
+    @Test
+    fun shouldReplaceCommonSubexpressionInBasicBlock() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val mulExpression = MulExpression(0, 0, IDE_I64_B, IDE_I64_C)
+        val assignStatement0 = AssignStatement(0, 0, AAE_I64_X, mulExpression)
+        val assignStatement1 = AssignStatement(0, 0, AAE_I64_Y, AddExpression(0, 0, mulExpression, IL_1))
+        val program = AstProgram(0, 0, listOf(assignStatement0, assignStatement1))
+
+        val identifier = Identifier("_cse_0", I64.INSTANCE)
+        val assignTemp = AssignStatement(0, 0, IdentifierNameExpression(0, 0, identifier), mulExpression)
+        val ideTemp = IdentifierDerefExpression(0, 0, identifier)
+        val expectedStatement0 = AssignStatement(0, 0, AAE_I64_X, ideTemp)
+        val expectedStatement1 = AssignStatement(0, 0, AAE_I64_Y, AddExpression(0, 0, ideTemp, IL_1))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf(assignTemp, expectedStatement0, expectedStatement1), optimizedStatements)
+    }
+
+    @Test
+    fun shouldNotReplaceCommonSubexpressionWhenVariableIsAssigned() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val mulExpression = MulExpression(0, 0, IDE_I64_B, IDE_I64_C)
+        val statements = listOf(
+            AssignStatement(0, 0, AAE_I64_X, mulExpression),
+            AssignStatement(0, 0, INE_I64_B, IDE_I64_A),
+            AssignStatement(0, 0, AAE_I64_Y, mulExpression)
+        )
+        val program = AstProgram(0, 0, statements)
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(statements, optimizedStatements)
+    }
+
+    @Test
+    fun shouldNotReplaceCommonSubexpressionWhenArrayElementIsAssigned() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val mulExpression = MulExpression(0, 0, AAE_I64_X, IDE_I64_C)
+        val statements = listOf(
+            AssignStatement(0, 0, AAE_I64_Y, mulExpression),
+            AssignStatement(0, 0, AAE_I64_X, IDE_I64_B),
+            AssignStatement(0, 0, AAE_I64_Y, mulExpression)
+        )
+        val program = AstProgram(0, 0, statements)
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(statements, optimizedStatements)
+    }
+
     companion object {
         private val FL_3_14 = FloatLiteral(0, 0, "3.14")
         private val IL_1 = IntegerLiteral(0, 0, "1")
@@ -454,10 +882,17 @@ class DefaultAstOptimizerTests {
         private val IDENT_F64_F = Identifier("f", F64.INSTANCE)
         private val IDENT_I64_A = Identifier("a%", I64.INSTANCE)
         private val IDENT_I64_B = Identifier("b%", I64.INSTANCE)
+        private val IDENT_I64_C = Identifier("c%", I64.INSTANCE)
+        private val IDENT_ARR_I64_X = Identifier("x%", Arr.from(1, I64.INSTANCE))
+        private val IDENT_ARR_I64_Y = Identifier("y%", Arr.from(1, I64.INSTANCE))
 
         private val IDE_F64_F = IdentifierDerefExpression(0, 0, IDENT_F64_F)
         private val IDE_I64_A = IdentifierDerefExpression(0, 0, IDENT_I64_A)
         private val IDE_I64_B = IdentifierDerefExpression(0, 0, IDENT_I64_B)
+        private val IDE_I64_C = IdentifierDerefExpression(0, 0, IDENT_I64_C)
+
+        private val AAE_I64_X = ArrayAccessExpression(0, 0, IDENT_ARR_I64_X, listOf(IL_1))
+        private val AAE_I64_Y = ArrayAccessExpression(0, 0, IDENT_ARR_I64_Y, listOf(IL_1))
 
         private val INE_I64_A = IdentifierNameExpression(0, 0, IDENT_I64_A)
         private val INE_I64_B = IdentifierNameExpression(0, 0, IDENT_I64_B)
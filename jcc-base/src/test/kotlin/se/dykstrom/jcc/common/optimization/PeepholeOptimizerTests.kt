@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.dykstrom.jcc.common.optimization
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+import se.dykstrom.jcc.common.assembly.base.AssemblyComment
+import se.dykstrom.jcc.common.assembly.base.Register.*
+import se.dykstrom.jcc.common.assembly.instruction.*
+import se.dykstrom.jcc.common.code.Label
+import se.dykstrom.jcc.common.code.Line
+import java.util.EnumSet
+
+/**
+ * Tests class `PeepholeOptimizer`.
+ *
+ * @author Johan Dykstrom
+ * @see PeepholeOptimizer
+ */
+class PeepholeOptimizerTests {
+
+    private val optimizer = PeepholeOptimizer()
+
+    @Test
+    fun shouldRemoveJumpToNextLabel() {
+        val lines = listOf(Jmp(LABEL_FOO), AssemblyComment("comment"), LABEL_BAR, LABEL_FOO, RET)
+
+        val optimizedLines = optimizer.optimize(lines)
+
+        assertLines(listOf(AssemblyComment("comment"), LABEL_BAR, LABEL_FOO, RET), optimizedLines)
+        assertEquals(1, optimizer.hits()[PeepholeRule.JUMP_TO_NEXT_LABEL])
+    }
+
+    @Test
+    fun shouldNotRemoveJumpToOtherLabel() {
+        val lines = listOf(Jmp(LABEL_FOO), LABEL_BAR, RET, LABEL_FOO, RET)
+
+        val optimizedLines = optimizer.optimize(lines)
+
+        assertLines(lines, optimizedLines)
+        assertEquals(0, optimizer.hits().size)
+    }
+
+    @Test
+    fun shouldRemoveLoadAfterStore() {
+        val lines = listOf(MoveRegToMem(RBX, TMP), MoveMemToReg(TMP, RBX), RET)
+
+        val optimizedLines = optimizer.optimize(lines)
+
+        assertLines(listOf(MoveRegToMem(RBX, TMP), RET), optimizedLines)
+        assertEquals(1, optimizer.hits()[PeepholeRule.LOAD_AFTER_STORE])
+    }
+
+    @Test
+    fun shouldNotRemoveLoadToOtherRegister() {
+        val lines = listOf(MoveRegToMem(RBX, TMP), MoveMemToReg(TMP, RCX), RET)
+
+        val optimizedLines = optimizer.optimize(lines)
+
+        assertLines(lines, optimizedLines)
+    }
+
+    @Test
+    fun shouldRemoveStoreAfterLoad() {
+        val lines = listOf(MoveMemToReg(TMP, RBX), MoveRegToMem(RBX, TMP), RET)
+
+        val optimizedLines = optimizer.optimize(lines)
+
+        assertLines(listOf(MoveMemToReg(TMP, RBX), RET), optimizedLines)
+        assertEquals(1, optimizer.hits()[PeepholeRule.STORE_AFTER_LOAD])
+    }
+
+    @Test
+    fun shouldNotRemoveStoreIfAddressDependsOnRegister() {
+        val lines = listOf(MoveMemToReg(RBX, RBX), MoveRegToMem(RBX, RBX), RET)
+
+        val optimizedLines = optimizer.optimize(lines)
+
+        assertLines(lines, optimizedLines)
+    }
+
+    @Test
+    fun shouldRemovePushPopOfSameRegister() {
+        val lines = listOf(PushReg(RBX), PopReg(RBX), RET)
+
+        val optimizedLines = optimizer.optimize(lines)
+
+        assertLines(listOf(RET), optimizedLines)
+        assertEquals(1, optimizer.hits()[PeepholeRule.PUSH_POP])
+    }
+
+    @Test
+    fun shouldReplacePushPopOfDifferentRegistersWithMove() {
+        val lines = listOf(PushReg(RBX), PopReg(RCX), RET)
+
+        val optimizedLines = optimizer.optimize(lines)
+
+        assertLines(listOf(MoveRegToReg(RBX, RCX), RET), optimizedLines)
+    }
+
+    @Test
+    fun shouldRemoveStackAdjustmentBetweenCalls() {
+        val lines = listOf(
+            SubImmFromReg("20h", RSP), CallDirect(LABEL_FOO), AddImmToReg("20h", RSP),
+            SubImmFromReg("20h", RSP), CallDirect(LABEL_BAR), AddImmToReg("20h", RSP),
+            RET
+        )
+
+        val optimizedLines = optimizer.optimize(lines)
+
+        val expectedLines = listOf(SubImmFromReg("20h", RSP), CallDirect(LABEL_FOO), CallDirect(LABEL_BAR), AddImmToReg("20h", RSP), RET)
+        assertLines(expectedLines, optimizedLines)
+        assertEquals(1, optimizer.hits()[PeepholeRule.STACK_ADJUSTMENT])
+    }
+
+    @Test
+    fun shouldReplaceMoveZeroWithXorIfFlagsAreDead() {
+        val lines = listOf(MoveImmToReg("0", RBX), MoveImmToReg("1", RCX), CmpRegWithReg(RBX, RCX), Je(LABEL_FOO), RET)
+
+        val optimizedLines = optimizer.optimize(lines)
+
+        assertLines(listOf(XorRegWithReg(RBX, RBX), MoveImmToReg("1", RCX), CmpRegWithReg(RBX, RCX), Je(LABEL_FOO), RET), optimizedLines)
+        assertEquals(1, optimizer.hits()[PeepholeRule.MOVE_ZERO_TO_XOR])
+    }
+
+    @Test
+    fun shouldNotReplaceMoveZeroWithXorIfFlagsAreLive() {
+        val lines = listOf(CmpRegWithReg(RBX, RCX), MoveImmToReg("0", RBX), Je(LABEL_FOO), RET)
+
+        val optimizedLines = optimizer.optimize(lines)
+
+        assertLines(lines, optimizedLines)
+    }
+
+    @Test
+    fun shouldOnlyApplyConfiguredRules() {
+        val optimizer = PeepholeOptimizer(EnumSet.of(PeepholeRule.PUSH_POP))
+        val lines = listOf(Jmp(LABEL_FOO), LABEL_FOO, PushReg(RBX), PopReg(RBX), RET)
+
+        val optimizedLines = optimizer.optimize(lines)
+
+        assertLines(listOf(Jmp(LABEL_FOO), LABEL_FOO, RET), optimizedLines)
+        assertEquals(mapOf(PeepholeRule.PUSH_POP to 1), optimizer.hits())
+    }
+
+    private fun assertLines(expected: List<Line>, actual: List<Line>) {
+        assertEquals(expected.map { it.toText() }, actual.map { it.toText() })
+    }
+
+    companion object {
+        private val LABEL_FOO = Label("foo")
+        private val LABEL_BAR = Label("bar")
+        private val RET = Ret()
+        private const val TMP = "__tmp_location_0"
+    }
+}
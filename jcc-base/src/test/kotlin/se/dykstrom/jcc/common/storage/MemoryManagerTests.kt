@@ -18,7 +18,6 @@
 package se.dykstrom.jcc.common.storage
 
 import org.junit.jupiter.api.Assertions.assertEquals
-import org.junit.jupiter.api.Assertions.assertTrue
 import org.junit.jupiter.api.Test
 
 /**
@@ -40,13 +39,42 @@ class MemoryManagerTests {
 
         // Then
         assertEquals(1, memories.size)
-        assertEquals(1, memoryManager.usedMemoryAddresses.size)
+        assertEquals(1, memoryManager.numberOfSlots)
         val temporaryMemory = memories.iterator().next()
-        assertTrue(memoryManager.usedMemoryAddresses.contains(getUnmappedName(temporaryMemory)))
+        assertEquals("rbp-8h", temporaryMemory)
         val allocatedMemory = memoryManager.allocate()
         assertEquals(temporaryMemory, allocatedMemory)
-        assertEquals(1, memoryManager.usedMemoryAddresses.size)
+        assertEquals(1, memoryManager.numberOfSlots)
     }
 
-    private fun getUnmappedName(name: String) = name.substring(1)
+    @Test
+    fun shouldAllocateDistinctSlotsForLiveTemporaries() {
+        val first = memoryManager.allocate()
+        val second = memoryManager.allocate()
+        val third = memoryManager.allocate()
+
+        assertEquals(listOf("rbp-8h", "rbp-10h", "rbp-18h"), listOf(first, second, third))
+        assertEquals(3, memoryManager.numberOfSlots)
+    }
+
+    @Test
+    fun shouldReuseFreedSlot() {
+        val first = memoryManager.allocate()
+        memoryManager.allocate()
+        memoryManager.free(first)
+
+        assertEquals(first, memoryManager.allocate())
+        assertEquals(2, memoryManager.numberOfSlots)
+    }
+
+    @Test
+    fun shouldAlignFrameSize() {
+        assertEquals(0, memoryManager.frameSize)
+        memoryManager.allocate()
+        assertEquals(16, memoryManager.frameSize)
+        memoryManager.allocate()
+        assertEquals(16, memoryManager.frameSize)
+        memoryManager.allocate()
+        assertEquals(32, memoryManager.frameSize)
+    }
 }
@@ -267,6 +267,51 @@ class SymbolTableTests {
         assertEquals(setOf(IDENT_I64_A), symbolTable.identifiers())
     }
 
+    @Test
+    fun shouldUpdateIdentifiersWhenParentTableIsModified() {
+        // Given
+        symbolTable.addVariable(IDENT_I64_A)
+        val childTable = SymbolTable(symbolTable)
+        assertEquals(setOf(IDENT_I64_A), childTable.identifiers())
+
+        // When
+        symbolTable.addVariable(IDENT_STR_B)
+
+        // Then
+        assertEquals(setOf(IDENT_I64_A, IDENT_STR_B), childTable.identifiers())
+    }
+
+    @Test
+    fun shouldGetIdentifiersInDefinitionOrder() {
+        // Given
+        val names = (1..100).map { "v$it" }
+        names.forEach { symbolTable.addVariable(Identifier(it, I64.INSTANCE)) }
+        val childTable = SymbolTable(symbolTable)
+        childTable.addVariable(IDENT_STR_B)
+
+        // When
+        val actualNames = childTable.identifiers().map { it.name() }
+
+        // Then
+        assertEquals(listOf(NAME_B) + names, actualNames)
+    }
+
+    @Test
+    fun shouldNotReturnReplacedConstantByTypeAndValue() {
+        // Given
+        val identConstA = Identifier(NAME_A, Str.INSTANCE)
+        val identConstB = Identifier(NAME_B, Str.INSTANCE)
+        symbolTable.addConstant(identConstA, STR_VALUE)
+        symbolTable.addConstant(identConstB, STR_VALUE)
+        assertEquals(identConstA, symbolTable.getConstantByTypeAndValue(Str.INSTANCE, STR_VALUE).get())
+
+        // When
+        symbolTable.addVariable(identConstA, STR_VALUE)
+
+        // Then
+        assertEquals(identConstB, symbolTable.getConstantByTypeAndValue(Str.INSTANCE, STR_VALUE).get())
+    }
+
     @Test
     fun shouldOnlyGetLocalIdentifiers() {
         // Add a variable
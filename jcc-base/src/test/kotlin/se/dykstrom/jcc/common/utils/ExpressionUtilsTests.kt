@@ -261,6 +261,30 @@ class ExpressionUtilsTests {
         ))
     }
 
+    @Test
+    fun shouldNotHaveSideEffects() {
+        val arrayIdentifier = Identifier("array", Arr.from(1, I64.INSTANCE))
+
+        assertFalse(hasSideEffects(IL_1))
+        assertFalse(hasSideEffects(IDE_I64_A))
+        assertFalse(hasSideEffects(AddExpression(0, 0, IDE_I64_A, NegateExpression(0, 0, IL_7))))
+        assertFalse(hasSideEffects(ArrayAccessExpression(0, 0, arrayIdentifier, listOf(IDE_I64_A))))
+        assertFalse(hasSideEffects(IDivExpression(0, 0, IDE_I64_A, IL_7)))
+        assertFalse(hasSideEffects(ModExpression(0, 0, IDE_I64_A, IL_8)))
+    }
+
+    @Test
+    fun shouldHaveSideEffects() {
+        val functionIdentifier = Identifier("foo", Fun.from(listOf(I64.INSTANCE), I64.INSTANCE))
+
+        assertTrue(hasSideEffects(FunctionCallExpression(0, 0, functionIdentifier, listOf(IL_1))))
+        assertTrue(hasSideEffects(IDivExpression(0, 0, IL_7, IDE_I64_A)))
+        assertTrue(hasSideEffects(ModExpression(0, 0, IL_7, IDE_I64_A)))
+        assertTrue(hasSideEffects(IDivExpression(0, 0, IL_7, ZERO)))
+        assertTrue(hasSideEffects(IDivExpression(0, 0, ModExpression(0, 0, IL_7, IDE_I64_A), IL_8)))
+        assertTrue(hasSideEffects(AddExpression(0, 0, IL_1, IDivExpression(0, 0, IL_7, IDE_I64_A))))
+    }
+
     @Test
     fun shouldNotHaveUdfFunctionCall() {
         val function = LibraryFunction("foo", listOf(I64.INSTANCE), I64.INSTANCE, "foo", ExternalFunction("foo"))
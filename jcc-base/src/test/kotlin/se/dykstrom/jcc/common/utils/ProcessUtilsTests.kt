@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.common.utils
+
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import org.junit.jupiter.api.io.TempDir
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Duration
+import java.util.concurrent.TimeoutException
+
+/**
+ * Tests class `ProcessUtils`. The tests run small Java programs using the source file
+ * launcher of the current JVM, to avoid depending on any platform specific commands.
+ */
+class ProcessUtilsTests {
+
+    @TempDir
+    lateinit var directory: Path
+
+    @Test
+    fun shouldReadAllOutputFromSetUpProcess() {
+        // Given
+        val command = javaCommand("for (int i = 0; i < 20_000; i++) System.out.println(\"line \" + i);")
+
+        // When
+        val process = ProcessUtils.setUpProcess(command, emptyMap())
+        val output = ProcessUtils.readOutput(process)
+
+        // Then
+        assertFalse(process.isAlive)
+        assertEquals(0, process.exitValue())
+        val lines = output.lines().filter { it.isNotEmpty() }
+        assertEquals(20_000, lines.size)
+        assertEquals("line 19999", lines.last())
+    }
+
+    @Test
+    fun shouldRunProcessWithSeparateOutputStreams() {
+        // Given
+        val command = javaCommand("System.out.print(\"out\"); System.err.print(\"err\"); System.exit(3);")
+
+        // When
+        val result = ProcessUtils.runProcess(command, emptyMap(), null, null, null)
+
+        // Then
+        assertEquals(3, result.exitValue())
+        assertEquals("out", result.stdout())
+        assertEquals("err", result.stderr())
+        assertEquals("outerr", result.output())
+    }
+
+    @Test
+    fun shouldWriteLargeInputToProcess() {
+        // Given
+        val command = javaCommand("System.out.print(new String(System.in.readAllBytes()).lines().count());")
+        val lines = 100_000
+
+        // When
+        val result = ProcessUtils.runProcess(command, emptyMap(), null, Duration.ofMinutes(1)) { writer ->
+            repeat(lines) { writer.write("input line $it\n") }
+        }
+
+        // Then
+        assertEquals(0, result.exitValue())
+        assertEquals(lines.toString(), result.stdout())
+    }
+
+    @Test
+    fun shouldRunProcessInWorkingDirectory() {
+        // Given
+        Files.writeString(directory.resolve("file.txt"), "content", UTF_8)
+        val command = javaCommand("System.out.print(java.nio.file.Files.readString(java.nio.file.Path.of(\"file.txt\")));")
+
+        // When
+        val result = ProcessUtils.runProcess(command, emptyMap(), directory, null, null)
+
+        // Then
+        assertEquals("content", result.stdout())
+    }
+
+    @Test
+    fun shouldKillProcessOnTimeout() {
+        // Given
+        val command = javaCommand("Thread.sleep(60_000);")
+
+        // When
+        val start = System.nanoTime()
+        assertThrows<TimeoutException> { ProcessUtils.runProcess(command, emptyMap(), null, Duration.ofSeconds(1), null) }
+
+        // Then
+        assertTrue(System.nanoTime() - start < 30_000_000_000L)
+    }
+
+    /**
+     * Returns a command that runs a Java program with the given statements in its main method.
+     */
+    private fun javaCommand(statements: String): List<String> {
+        val sourcePath = Files.createTempFile(directory, "Program", ".java")
+        val className = sourcePath.fileName.toString().removeSuffix(".java")
+        Files.writeString(sourcePath, "public class $className { public static void main(String[] args) throws Exception { $statements } }", UTF_8)
+        val java = Path.of(System.getProperty("java.home"), "bin", "java").toString()
+        return listOf(java, sourcePath.toString())
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.basic.code.asm.statement;
+
+import se.dykstrom.jcc.basic.ast.statement.AbstractOnJumpStatement;
+import se.dykstrom.jcc.basic.compiler.BasicCodeGenerator;
+import se.dykstrom.jcc.basic.compiler.BasicTypeManager;
+import se.dykstrom.jcc.common.assembly.instruction.Ja;
+import se.dykstrom.jcc.common.assembly.instruction.JmpIndirect;
+import se.dykstrom.jcc.common.code.CodeContainer;
+import se.dykstrom.jcc.common.code.Label;
+import se.dykstrom.jcc.common.code.statement.AbstractStatementCodeGenerator;
+import se.dykstrom.jcc.common.storage.RegisterStorageLocation;
+import se.dykstrom.jcc.common.storage.StorageLocation;
+import se.dykstrom.jcc.common.types.I64;
+import se.dykstrom.jcc.common.types.Identifier;
+
+import java.util.List;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Abstract base class for the ON-GOTO and ON-GOSUB code generators. Short lists of jump labels
+ * are compiled to a chain of compare and jump instructions, while longer lists are compiled to
+ * a jump table in the data section, and a single indirect jump.
+ *
+ * @author Johan Dykstrom
+ */
+public abstract class AbstractOnJumpCodeGenerator<S extends AbstractOnJumpStatement>
+        extends AbstractStatementCodeGenerator<S, BasicTypeManager, BasicCodeGenerator> {
+
+    /**
+     * The minimum number of jump labels required to generate a jump table.
+     */
+    static final int MIN_JUMP_TABLE_SIZE = 4;
+
+    protected AbstractOnJumpCodeGenerator(final BasicCodeGenerator codeGenerator) {
+        super(codeGenerator);
+    }
+
+    /**
+     * Returns {@code true} if code for the given statement should be generated using a jump table.
+     */
+    protected boolean useJumpTable(final S statement) {
+        return statement.getJumpLabels().size() >= MIN_JUMP_TABLE_SIZE;
+    }
+
+    /**
+     * Generates code for jumping to one of the {@code targets}, using the value in {@code location}
+     * as a one-based index into a jump table. If the index is out of range, the code jumps to
+     * {@code defaultLabel} instead. The value in {@code location} is destroyed.
+     */
+    protected void jumpTable(final StorageLocation location,
+                             final List<Label> targets,
+                             final Label defaultLabel,
+                             final String tablePrefix,
+                             final CodeContainer cc) {
+        // Add the jump table to the data section
+        final var tableIdentifier = new Identifier(codeGenerator.uniquifyLabelName(tablePrefix), I64.INSTANCE);
+        final var tableValue = targets.stream().map(Label::getMappedName).collect(joining(", "));
+        codeGenerator.symbols().addConstant(tableIdentifier, tableValue);
+
+        // Make the index zero-based, so a single unsigned comparison catches values both below and above the range
+        location.decrementThis(cc);
+        location.compareThisWithImm(Integer.toString(targets.size() - 1), cc);
+        cc.add(new Ja(defaultLabel));
+
+        if (location instanceof RegisterStorageLocation register) {
+            cc.add(new JmpIndirect(tableIdentifier.getMappedName(), 8, register.getRegister()));
+        } else {
+            // If location is a temporary memory location, we have to move
+            // it to a temporary register to use it as an index
+            try (StorageLocation temp = storageFactory().allocateVolatile(I64.INSTANCE)) {
+                temp.moveLocToThis(location, cc);
+                cc.add(new JmpIndirect(tableIdentifier.getMappedName(), 8, ((RegisterStorageLocation) temp).getRegister()));
+            }
+        }
+    }
+}
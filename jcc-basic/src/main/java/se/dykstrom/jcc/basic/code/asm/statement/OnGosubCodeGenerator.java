@@ -19,14 +19,12 @@ package se.dykstrom.jcc.basic.code.asm.statement;
 
 import se.dykstrom.jcc.basic.ast.statement.OnGosubStatement;
 import se.dykstrom.jcc.basic.compiler.BasicCodeGenerator;
-import se.dykstrom.jcc.basic.compiler.BasicTypeManager;
 import se.dykstrom.jcc.common.assembly.base.AssemblyComment;
 import se.dykstrom.jcc.common.code.Label;
 import se.dykstrom.jcc.common.assembly.instruction.Je;
 import se.dykstrom.jcc.common.assembly.instruction.Jmp;
 import se.dykstrom.jcc.common.code.Blank;
 import se.dykstrom.jcc.common.code.Line;
-import se.dykstrom.jcc.common.code.statement.AbstractStatementCodeGenerator;
 import se.dykstrom.jcc.common.storage.StorageLocation;
 
 import java.util.ArrayList;
@@ -35,7 +33,7 @@ import java.util.List;
 import static se.dykstrom.jcc.common.code.CodeContainer.withCodeContainer;
 import static se.dykstrom.jcc.common.utils.AsmUtils.getComment;
 
-public class OnGosubCodeGenerator extends AbstractStatementCodeGenerator<OnGosubStatement, BasicTypeManager, BasicCodeGenerator> {
+public class OnGosubCodeGenerator extends AbstractOnJumpCodeGenerator<OnGosubStatement> {
 
     public OnGosubCodeGenerator(final BasicCodeGenerator codeGenerator) {
         super(codeGenerator);
@@ -55,20 +53,25 @@ public class OnGosubCodeGenerator extends AbstractStatementCodeGenerator<OnGosub
 
                 List<Label> indexLabels = new ArrayList<>();
 
-                // Generate code for comparing with indices
+                // Generate a unique label name for each index
                 for (int index = 0; index < statement.getJumpLabels().size(); index++) {
-                    // Generate a unique label name for this index
-                    Label indexLabel = new Label(codeGenerator.uniquifyLabelName("_on_gosub_index_"));
-                    indexLabels.add(indexLabel);
-
-                    // Compare with index and jump to index label
-                    location.compareThisWithImm(Integer.toString(index + 1), cc);
-                    cc.add(new Je(indexLabel));
+                    indexLabels.add(new Label(codeGenerator.uniquifyLabelName("_on_gosub_index_")));
                 }
 
                 // Generate a unique label name for the label that marks the end of the on-gosub statement
                 Label endLabel = new Label(codeGenerator.uniquifyLabelName("_on_gosub_end_"));
-                cc.add(new Jmp(endLabel));
+
+                if (useJumpTable(statement)) {
+                    jumpTable(location, indexLabels, endLabel, "_on_gosub_table_", cc);
+                } else {
+                    // Generate code for comparing with indices
+                    for (int index = 0; index < statement.getJumpLabels().size(); index++) {
+                        // Compare with index and jump to index label
+                        location.compareThisWithImm(Integer.toString(index + 1), cc);
+                        cc.add(new Je(indexLabels.get(index)));
+                    }
+                    cc.add(new Jmp(endLabel));
+                }
 
                 // Generate code for calling subroutines
                 for (int index = 0; index < statement.getJumpLabels().size(); index++) {
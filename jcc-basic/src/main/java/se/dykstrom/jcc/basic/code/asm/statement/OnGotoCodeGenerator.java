@@ -19,14 +19,13 @@ package se.dykstrom.jcc.basic.code.asm.statement;
 
 import se.dykstrom.jcc.basic.ast.statement.OnGotoStatement;
 import se.dykstrom.jcc.basic.compiler.BasicCodeGenerator;
-import se.dykstrom.jcc.basic.compiler.BasicTypeManager;
 import se.dykstrom.jcc.common.assembly.base.AssemblyComment;
 import se.dykstrom.jcc.common.code.Label;
 import se.dykstrom.jcc.common.assembly.instruction.Je;
 import se.dykstrom.jcc.common.code.Blank;
 import se.dykstrom.jcc.common.code.Line;
-import se.dykstrom.jcc.common.code.statement.AbstractStatementCodeGenerator;
 import se.dykstrom.jcc.common.storage.StorageLocation;
+import se.dykstrom.jcc.common.utils.AsmUtils;
 
 import java.util.List;
 
@@ -34,7 +33,7 @@ import static se.dykstrom.jcc.common.code.CodeContainer.withCodeContainer;
 import static se.dykstrom.jcc.common.utils.AsmUtils.getComment;
 import static se.dykstrom.jcc.common.utils.AsmUtils.lineToLabel;
 
-public class OnGotoCodeGenerator extends AbstractStatementCodeGenerator<OnGotoStatement, BasicTypeManager, BasicCodeGenerator> {
+public class OnGotoCodeGenerator extends AbstractOnJumpCodeGenerator<OnGotoStatement> {
 
     public OnGotoCodeGenerator(final BasicCodeGenerator codeGenerator) {
         super(codeGenerator);
@@ -52,10 +51,18 @@ public class OnGotoCodeGenerator extends AbstractStatementCodeGenerator<OnGotoSt
                 cc.add(Blank.INSTANCE);
                 cc.add(getComment(statement));
 
-                for (int index = 0; index < statement.getJumpLabels().size(); index++) {
-                    location.compareThisWithImm(Integer.toString(index + 1), cc);
-                    Label jumpLabel = lineToLabel(statement.getJumpLabels().get(index));
-                    cc.add(new Je(jumpLabel));
+                if (useJumpTable(statement)) {
+                    // Generate a unique label name for the label that marks the end of the on-goto statement
+                    Label endLabel = new Label(codeGenerator.uniquifyLabelName("_on_goto_end_"));
+                    List<Label> jumpLabels = statement.getJumpLabels().stream().map(AsmUtils::lineToLabel).toList();
+                    jumpTable(location, jumpLabels, endLabel, "_on_goto_table_", cc);
+                    cc.add(endLabel);
+                } else {
+                    for (int index = 0; index < statement.getJumpLabels().size(); index++) {
+                        location.compareThisWithImm(Integer.toString(index + 1), cc);
+                        Label jumpLabel = lineToLabel(statement.getJumpLabels().get(index));
+                        cc.add(new Je(jumpLabel));
+                    }
                 }
             }
         });
@@ -35,6 +35,7 @@ import se.dykstrom.jcc.common.code.CodeContainer;
 import se.dykstrom.jcc.common.code.Line;
 import se.dykstrom.jcc.common.code.TargetProgram;
 import se.dykstrom.jcc.common.compiler.AbstractGarbageCollectingCodeGenerator;
+import se.dykstrom.jcc.common.compiler.RegisterAllocator;
 import se.dykstrom.jcc.common.compiler.TypeManager;
 import se.dykstrom.jcc.common.optimization.AstOptimizer;
 import se.dykstrom.jcc.common.symbols.SymbolTable;
@@ -88,8 +89,16 @@ public class BasicCodeGenerator extends AbstractGarbageCollectingCodeGenerator {
         expressionCodeGenerators.put(IdentifierDerefExpression.class, new BasicIdentifierDerefCodeGenerator(this));
     }
 
+    @Override
+    protected RegisterAllocator registerAllocator() {
+        return new BasicRegisterAllocator(symbols);
+    }
+
     @Override
     public TargetProgram generate(final AstProgram program) {
+        // Store the most frequently used variables in registers
+        allocateVariableRegisters(program);
+
         // Add program statements
         program.getStatements().forEach(this::statement);
 
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.basic.compiler;
+
+import se.dykstrom.jcc.basic.ast.statement.*;
+import se.dykstrom.jcc.basic.ir.BasicControlFlowGraphBuilder;
+import se.dykstrom.jcc.common.ast.Node;
+import se.dykstrom.jcc.common.compiler.RegisterAllocator;
+import se.dykstrom.jcc.common.ir.ControlFlowGraphBuilder;
+import se.dykstrom.jcc.common.symbols.SymbolTable;
+
+/**
+ * The BASIC register allocator adds support for BASIC specific statements,
+ * including the GOSUB and ON GOTO statements that affect the control flow.
+ *
+ * @author Johan Dykstrom
+ */
+public class BasicRegisterAllocator extends RegisterAllocator {
+
+    public BasicRegisterAllocator(final SymbolTable symbols) {
+        super(symbols);
+    }
+
+    @Override
+    protected ControlFlowGraphBuilder controlFlowGraphBuilder() {
+        return new BasicControlFlowGraphBuilder();
+    }
+
+    @Override
+    protected void visit(final Node node, final int depth) {
+        switch (node) {
+            case PrintStatement ps -> visitAll(ps.getExpressions(), depth);
+            case RandomizeStatement rs -> visit(rs.getExpression(), depth);
+            case SleepStatement ss -> visit(ss.getExpression(), depth);
+            case GosubStatement ignored -> { }
+            case AbstractOnJumpStatement ojs -> visit(ojs.getExpression(), depth);
+            case SwapStatement sws -> {
+                visit(sws.first(), depth);
+                visit(sws.second(), depth);
+            }
+            // LINE INPUT reads into the variable using its address
+            case LineInputStatement lis -> exclude(lis.identifier());
+            case AbstractDefTypeStatement ignored -> { }
+            case OptionBaseStatement ignored -> { }
+            case null, default -> super.visit(node, depth);
+        }
+    }
+}
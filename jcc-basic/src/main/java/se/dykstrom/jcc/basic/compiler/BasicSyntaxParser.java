@@ -51,7 +51,7 @@ public class BasicSyntaxParser implements SyntaxParser {
         BasicParser parser = new BasicParser(new CommonTokenStream(lexer));
         parser.addErrorListener(errorListener);
 
-        BasicParser.ProgramContext ctx = parser.program();
+        BasicParser.ProgramContext ctx = Antlr4Utils.parse(parser, BasicParser::program);
         Antlr4Utils.checkParsingComplete(parser);
 
         // If we discovered syntax errors, we stop here
@@ -60,7 +60,7 @@ public class BasicLeftFunction extends AssemblyFunction {
     private static final List<Type> ARG_TYPES = List.of(Str.INSTANCE, I64.INSTANCE);
 
     BasicLeftFunction() {
-        super(NAME, ARG_TYPES, Str.INSTANCE, Map.of(LIB_LIBC, Set.of(CF_MALLOC_I64, CF_STRLEN_STR, CF_STRNCPY_STR_STR_I64)), Set.of(ERROR_MSG));
+        super(NAME, ARG_TYPES, Str.INSTANCE, Map.of(LIB_LIBC, Set.of(CF_MALLOC_I64, CF_MEMCHR_STR_I64_I64, CF_MEMCPY_STR_STR_I64)), Set.of(ERROR_MSG));
     }
 
     @Override
@@ -88,23 +88,23 @@ public class BasicLeftFunction extends AssemblyFunction {
                 add(new Jl(errorLabel));
             }
 
-            // Find length of string
-            addAll(Snippets.strlen(RCX)); // Length of string in RAX
+            // Find length of string, but look at no more than number characters
+            addAll(Snippets.memchr(RCX, RDX)); // Address of null character, or 0, in RAX
 
             {
-                add(new MoveMemToReg(RBP, NUMBER_OFFSET, RDX));
-                add(new CmpRegWithReg(RAX, RDX));
-                // If length is greater than number, copy number characters
-                add(new Jge(allocateLabel));
+                add(new CmpRegWithImm(RAX, "0"));
+                // If there is no null character, the string has at least number characters, copy number characters
+                add(new Je(allocateLabel));
                 // Otherwise, copy length characters
-                add(new MoveRegToReg(RAX, RDX));
-                add(new MoveRegToMem(RDX, RBP, NUMBER_OFFSET));
+                add(new SubMemFromReg(RBP, STRING_OFFSET, RAX));
+                add(new MoveRegToMem(RAX, RBP, NUMBER_OFFSET));
             }
 
             // Allocate memory for new string
             {
                 // ALLOCATE
                 add(allocateLabel);
+                add(new MoveMemToReg(RBP, NUMBER_OFFSET, RDX));
                 add(new IncReg(RDX));
                 addAll(Snippets.malloc(RDX)); // Pointer to new string now in RAX
             }
@@ -113,7 +113,7 @@ public class BasicLeftFunction extends AssemblyFunction {
             {
                 add(new MoveMemToReg(RBP, STRING_OFFSET, RDX));
                 add(new MoveMemToReg(RBP, NUMBER_OFFSET, R8));
-                addAll(Snippets.strncpy(RAX, RDX, R8)); // Pointer to new string still in RAX
+                addAll(Snippets.memcpy(RAX, RDX, R8)); // Pointer to new string still in RAX
             }
 
             // Add null character at the end
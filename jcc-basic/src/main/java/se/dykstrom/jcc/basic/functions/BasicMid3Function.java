@@ -58,13 +58,12 @@ public class BasicMid3Function extends AssemblyFunction {
     private static final String STRING_OFFSET = "10h";
     private static final String START_OFFSET = "18h";
     private static final String NUMBER_OFFSET = "20h";
-    private static final String LENGTH_OFFSET = "28h";
 
     private static final Constant ERROR_MSG = new Constant(new Identifier("_err_function_mid$", Str.INSTANCE), "\"Error: Illegal function call: mid$\",0");
     private static final List<Type> ARG_TYPES = List.of(Str.INSTANCE, I64.INSTANCE, I64.INSTANCE);
 
     BasicMid3Function() {
-        super(NAME, ARG_TYPES, Str.INSTANCE, Map.of(LIB_LIBC, Set.of(CF_MALLOC_I64, CF_STRLEN_STR, CF_STRNCPY_STR_STR_I64)), Set.of(ERROR_MSG));
+        super(NAME, ARG_TYPES, Str.INSTANCE, Map.of(LIB_LIBC, Set.of(CF_MALLOC_I64, CF_MEMCHR_STR_I64_I64, CF_MEMCPY_STR_STR_I64)), Set.of(ERROR_MSG));
     }
 
     @Override
@@ -76,6 +75,7 @@ public class BasicMid3Function extends AssemblyFunction {
         private InternalCodeContainer() {
             // Create jump labels
             Label allocateLabel = new Label("_mid3$_allocate");
+            Label storeLabel = new Label("_mid3$_store");
             Label doneLabel = new Label("_mid3$_done");
             Label errorLabel = new Label("_mid3$_error");
 
@@ -92,22 +92,30 @@ public class BasicMid3Function extends AssemblyFunction {
             add(new CmpRegWithImm(R8, "0h"));
             add(new Jl(errorLabel));
 
-            // Find length of string
-            addAll(Snippets.strlen(RCX)); // Length of string in RAX
-            add(new MoveRegToMem(RAX, RBP, LENGTH_OFFSET));
+            // Find length of string, but look at no more than start - 1 + number characters
+            add(new DecReg(RDX));
+            add(new AddRegToReg(R8, RDX));
+            addAll(Snippets.memchr(RCX, RDX)); // Address of null character, or 0, in RAX
 
             // Find out how many characters to copy
+            add(new CmpRegWithImm(RAX, "0"));
+            // If there is no null character, there are at least number characters after start, copy number characters
+            add(new Je(allocateLabel));
+            // Otherwise, copy the characters between start and the null character
+            add(new SubMemFromReg(RBP, STRING_OFFSET, RAX));
             add(new SubMemFromReg(RBP, START_OFFSET, RAX));
             add(new IncReg(RAX));
             add(new CmpRegWithImm(RAX, "0"));
-            add(new Jge(allocateLabel));
+            add(new Jge(storeLabel));
             add(new XorRegWithReg(RAX, RAX)); // If number is negative, set it to 0
+            add(storeLabel);
             add(new MoveRegToMem(RAX, RBP, NUMBER_OFFSET));
 
             // Allocate memory for new string
             {
                 // ALLOCATE
                 add(allocateLabel);
+                add(new MoveMemToReg(RBP, NUMBER_OFFSET, RAX));
                 add(new IncReg(RAX));
                 addAll(Snippets.malloc(RAX)); // Pointer to new string now in RAX
             }
@@ -120,7 +128,7 @@ public class BasicMid3Function extends AssemblyFunction {
                 add(new DecReg(RDX)); // Convert 1-based to 0-based
                 // Length in R8
                 add(new MoveMemToReg(RBP, NUMBER_OFFSET, R8));
-                addAll(Snippets.strncpy(RAX, RDX, R8)); // Pointer to new string still in RAX
+                addAll(Snippets.memcpy(RAX, RDX, R8)); // Pointer to new string still in RAX
             }
 
             // Add null character at the end
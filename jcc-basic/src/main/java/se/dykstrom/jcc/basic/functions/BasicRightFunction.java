@@ -61,7 +61,7 @@ public class BasicRightFunction extends AssemblyFunction {
     private static final List<Type> ARG_TYPES = List.of(Str.INSTANCE, I64.INSTANCE);
 
     BasicRightFunction() {
-        super(NAME, ARG_TYPES, Str.INSTANCE, Map.of(LIB_LIBC, Set.of(CF_MALLOC_I64, CF_STRLEN_STR, CF_STRNCPY_STR_STR_I64)), Set.of(ERROR_MSG));
+        super(NAME, ARG_TYPES, Str.INSTANCE, Map.of(LIB_LIBC, Set.of(CF_MALLOC_I64, CF_MEMCPY_STR_STR_I64, CF_STRLEN_STR)), Set.of(ERROR_MSG));
     }
 
     @Override
@@ -125,7 +125,7 @@ public class BasicRightFunction extends AssemblyFunction {
 
             // Copy string
             {
-                addAll(Snippets.strncpy(RAX, RDX, R8)); // Pointer to new string still in RAX
+                addAll(Snippets.memcpy(RAX, RDX, R8)); // Pointer to new string still in RAX
             }
 
             // Add null character at the end
@@ -22,6 +22,7 @@ import se.dykstrom.jcc.common.types.*;
 import se.dykstrom.jcc.common.types.Void;
 
 import java.util.List;
+import java.util.Set;
 
 import static se.dykstrom.jcc.common.functions.FunctionUtils.LIB_JCC_BAS;
 
@@ -77,5 +78,22 @@ public final class LibJccBasBuiltIns {
     public static final Function JF_MID_STR_I64 = new BasicMid2Function(); // Depends on JF_RIGHT_STR_I64
     public static final Function JF_UCASE_STR = new BasicUcaseFunction();
 
+    /**
+     * The library functions that are pure, see {@link #isPure(Function)}. Functions that return strings
+     * allocate memory, and functions that may end the program with an error, like cvi and cint, are not pure.
+     */
+    private static final Set<Function> PURE_FUNCTIONS = Set.of(
+            JF_CDBL_F64, JF_FIX_F64, JF_INT_F64, JF_LBOUND_ARR, JF_SGN_F64, JF_UBOUND_ARR
+    );
+
     private LibJccBasBuiltIns() { }
+
+    /**
+     * Returns {@code true} if the given function is a pure libjccbas function. A pure function has no
+     * side effects, returns the same value every time it is called with the same arguments, and cannot
+     * fail. Calls to pure functions may be moved or removed by the optimizer.
+     */
+    public static boolean isPure(final Function function) {
+        return PURE_FUNCTIONS.contains(function);
+    }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.basic.ir;
+
+import se.dykstrom.jcc.basic.ast.statement.GosubStatement;
+import se.dykstrom.jcc.basic.ast.statement.OnGosubStatement;
+import se.dykstrom.jcc.basic.ast.statement.OnGotoStatement;
+import se.dykstrom.jcc.common.ast.Expression;
+import se.dykstrom.jcc.common.ast.Statement;
+import se.dykstrom.jcc.common.ir.ControlFlowGraphBuilder;
+import se.dykstrom.jcc.common.ir.Terminator.Gosub;
+import se.dykstrom.jcc.common.ir.Terminator.Switch;
+
+import java.util.List;
+
+/**
+ * Lowers BASIC programs into control flow graphs. In addition to the statements handled by
+ * the default builder, this builder lowers GOSUB, ON GOSUB, and ON GOTO statements.
+ *
+ * @author Johan Dykstrom
+ */
+public class BasicControlFlowGraphBuilder extends ControlFlowGraphBuilder {
+
+    @Override
+    protected void statement(final Statement statement) {
+        switch (statement) {
+            case GosubStatement gs -> gosubStatement(null, List.of(gs.getJumpLabel()));
+            case OnGosubStatement ogs -> gosubStatement(ogs.getExpression(), ogs.getJumpLabels());
+            case OnGotoStatement ogs -> onGotoStatement(ogs);
+            default -> super.statement(statement);
+        }
+    }
+
+    private void gosubStatement(final Expression selector, final List<String> labels) {
+        final var returnBlock = newBlock();
+        terminate(new Gosub(selector, labels.stream().map(this::blockForLabel).toList(), returnBlock));
+        startBlock(returnBlock);
+    }
+
+    private void onGotoStatement(final OnGotoStatement statement) {
+        final var nextBlock = newBlock();
+        terminate(new Switch(statement.getExpression(), statement.getJumpLabels().stream().map(this::blockForLabel).toList(), nextBlock));
+        startBlock(nextBlock);
+    }
+}
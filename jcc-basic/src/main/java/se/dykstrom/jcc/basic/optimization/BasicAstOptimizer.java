@@ -17,15 +17,24 @@
 
 package se.dykstrom.jcc.basic.optimization;
 
-import se.dykstrom.jcc.basic.ast.statement.PrintStatement;
-import se.dykstrom.jcc.basic.ast.statement.RandomizeStatement;
-import se.dykstrom.jcc.basic.ast.statement.SleepStatement;
+import se.dykstrom.jcc.basic.ast.statement.*;
+import se.dykstrom.jcc.basic.compiler.BasicAsmFunctions;
 import se.dykstrom.jcc.basic.compiler.BasicTypeManager;
+import se.dykstrom.jcc.basic.functions.LibJccBasBuiltIns;
+import se.dykstrom.jcc.common.ast.Expression;
+import se.dykstrom.jcc.common.ast.IdentifierNameExpression;
 import se.dykstrom.jcc.common.ast.Statement;
+import se.dykstrom.jcc.common.functions.BuiltInFunction;
+import se.dykstrom.jcc.common.functions.Function;
+import se.dykstrom.jcc.common.functions.LibcBuiltIns;
 import se.dykstrom.jcc.common.optimization.DefaultAstExpressionOptimizer;
 import se.dykstrom.jcc.common.optimization.DefaultAstOptimizer;
 import se.dykstrom.jcc.common.symbols.SymbolTable;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
 /**
  * The BASIC AST optimizer performs BASIC specific optimizations on the AST.
  *
@@ -34,7 +43,7 @@ import se.dykstrom.jcc.common.symbols.SymbolTable;
 public class BasicAstOptimizer extends DefaultAstOptimizer {
 
     public BasicAstOptimizer(final BasicTypeManager typeManager, final SymbolTable symbolTable) {
-        super(new DefaultAstExpressionOptimizer(typeManager), symbolTable);
+        super(typeManager, new DefaultAstExpressionOptimizer(typeManager), symbolTable);
     }
 
     @Override
@@ -47,6 +56,67 @@ public class BasicAstOptimizer extends DefaultAstOptimizer {
         };
     }
 
+    @Override
+    protected boolean isTransparent(final Statement statement) {
+        return statement instanceof PrintStatement ||
+               statement instanceof RandomizeStatement ||
+               statement instanceof SleepStatement ||
+               statement instanceof OptionBaseStatement ||
+               statement instanceof AbstractDefTypeStatement ||
+               super.isTransparent(statement);
+    }
+
+    @Override
+    protected List<String> jumpLabels(final Statement statement) {
+        if (statement instanceof AbstractOnJumpStatement onJumpStatement) {
+            return onJumpStatement.getJumpLabels();
+        } else {
+            return super.jumpLabels(statement);
+        }
+    }
+
+    /**
+     * Built-in functions are pure if the library functions that implement them are pure.
+     */
+    @Override
+    protected boolean isPure(final Function function) {
+        if (function instanceof BuiltInFunction) {
+            final var libraryFunction = BasicAsmFunctions.getLibraryFunction(function);
+            return LibJccBasBuiltIns.isPure(libraryFunction) || LibcBuiltIns.isPure(libraryFunction);
+        } else {
+            return super.isPure(function);
+        }
+    }
+
+    @Override
+    protected Statement replaceExpressions(final Statement statement, final UnaryOperator<Expression> function) {
+        return switch (statement) {
+            case PrintStatement ps -> ps.withExpressions(ps.getExpressions().stream().map(function).toList());
+            case SleepStatement ss when ss.getExpression() != null -> ss.withExpression(function.apply(ss.getExpression()));
+            default -> super.replaceExpressions(statement, function);
+        };
+    }
+
+    @Override
+    protected Optional<List<Expression>> expressions(final Statement statement) {
+        return switch (statement) {
+            case PrintStatement ps -> Optional.of(ps.getExpressions());
+            case RandomizeStatement rs -> Optional.of(optionalExpression(rs.getExpression()));
+            case SleepStatement ss -> Optional.of(optionalExpression(ss.getExpression()));
+            case AbstractOnJumpStatement ojs -> Optional.of(List.of(ojs.getExpression()));
+            case SwapStatement ss -> Optional.of(List.of(ss.first(), ss.second()));
+            // The variable must be kept, since LINE INPUT assigns it
+            case LineInputStatement lis -> Optional.of(List.of(new IdentifierNameExpression(lis.line(), lis.column(), lis.identifier())));
+            case OptionBaseStatement ignored -> Optional.of(List.of());
+            case AbstractDefTypeStatement ignored -> Optional.of(List.of());
+            default -> super.expressions(statement);
+        };
+    }
+
+    private static List<Expression> optionalExpression(final Expression expression) {
+        return (expression != null) ? List.of(expression) : List.of();
+    }
+
     /**
      * Optimizes SLEEP statements.
      */
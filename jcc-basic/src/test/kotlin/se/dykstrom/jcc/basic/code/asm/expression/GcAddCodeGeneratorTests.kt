@@ -3,11 +3,13 @@ package se.dykstrom.jcc.basic.code.asm.expression
 import org.junit.jupiter.api.Assertions.assertEquals
 import org.junit.jupiter.api.Test
 import se.dykstrom.jcc.basic.code.AbstractBasicCodeGeneratorComponentTests
+import se.dykstrom.jcc.basic.BasicTests.Companion.IDENT_STR_B
 import se.dykstrom.jcc.basic.BasicTests.Companion.SL_A
 import se.dykstrom.jcc.basic.BasicTests.Companion.SL_B
 import se.dykstrom.jcc.basic.compiler.BasicTypeManager
 import se.dykstrom.jcc.common.assembly.instruction.Instruction
 import se.dykstrom.jcc.common.ast.AddExpression
+import se.dykstrom.jcc.common.ast.IdentifierDerefExpression
 import se.dykstrom.jcc.common.code.expression.GcAddCodeGenerator
 import se.dykstrom.jcc.common.types.Str
 
@@ -34,6 +36,39 @@ class GcAddCodeGeneratorTests : AbstractBasicCodeGeneratorComponentTests() {
         assertRegexMatches(moveLeft, lines[0])
         val moveRight = """mov (r[a-z0-9]+), .*""".toRegex()
         assertRegexMatches(moveRight, lines[1])
-        assertEquals(1, lines.count { it == "call [_strcat_lib]" })
+        // The lengths of string literals are known, and the strings are copied without scanning them again
+        assertEquals(0, lines.count { it == "call [_strlen_lib]" })
+        assertEquals(2, lines.count { it == "call [_memcpy_lib]" })
+    }
+
+    @Test
+    fun generateAddStringAndStringVariable() {
+        // Given
+        val expression = AddExpression(0, 0, SL_A, IdentifierDerefExpression(0, 0, IDENT_STR_B))
+        val location = codeGenerator.storageFactory().allocateNonVolatile()
+
+        // When
+        val lines = generator.generate(expression, location).filterIsInstance<Instruction>().map { it.toText() }
+
+        // Then
+        assertEquals(1, lines.count { it == "call [_strlen_lib]" })
+        assertEquals(2, lines.count { it == "call [_memcpy_lib]" })
+    }
+
+    @Test
+    fun generateAddChainOfStrings() {
+        // Given
+        val expression = AddExpression(0, 0, AddExpression(0, 0, SL_A, IdentifierDerefExpression(0, 0, IDENT_STR_B)), SL_B)
+        val location = codeGenerator.storageFactory().allocateNonVolatile()
+
+        // When
+        val lines = generator.generate(expression, location).filterIsInstance<Instruction>().map { it.toText() }
+
+        // Then
+        // The whole chain is concatenated using a single allocation, and each string is copied once
+        assertEquals(1, lines.count { it == "call [_malloc_lib]" })
+        assertEquals(3, lines.count { it == "call [_memcpy_lib]" })
+        assertEquals(1, lines.count { it == "call [_strlen_lib]" })
+        assertEquals(0, lines.count { it == "call [_free_lib]" })
     }
 }
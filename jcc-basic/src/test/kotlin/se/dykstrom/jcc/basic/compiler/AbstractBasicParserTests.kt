@@ -35,7 +35,7 @@ abstract class AbstractBasicParserTests {
         val syntaxParser = BasicParser(CommonTokenStream(lexer))
         syntaxParser.addErrorListener(ERROR_LISTENER)
 
-        val ctx = syntaxParser.program()
+        val ctx = Antlr4Utils.parse(syntaxParser, BasicParser::program)
         Antlr4Utils.checkParsingComplete(syntaxParser)
         assertNotNull(ctx)
     }
@@ -347,19 +347,19 @@ class BasicCodeGeneratorFloatTests : AbstractBasicCodeGeneratorTests() {
         val result = assembleProgram(listOf(ws))
         val lines = result.lines()
 
-        // One for the exit code, one for the integer literal,
-        // two for the boolean results, and two for the print statement
-        assertEquals(6, countInstances(MoveImmToReg::class.java, lines))
+        // One for the exit code, one for the integer literal, and two for the print statement
+        assertEquals(4, countInstances(MoveImmToReg::class.java, lines))
         // One for the float literal
         assertEquals(1, countInstances(MoveMemToFloatReg::class.java, lines))
         // One for comparing the numbers
         assertEquals(1, countInstances(CompareFloatRegWithFloatReg::class.java, lines))
-        // One for the while statement
-        assertEquals(1, countInstances(Cmp::class.java, lines))
-        // One for comparing the integers, and one for the while statement
-        assertEquals(2, countInstances(Je::class.java, lines))
-        // One for comparing the integers, and one for the while statement
-        assertEquals(2, countInstances(Jmp::class.java, lines))
+        // No integer comparison, the float comparison is used directly
+        assertEquals(0, countInstances(Cmp::class.java, lines))
+        // One for leaving the loop if the numbers are not equal
+        assertEquals(0, countInstances(Je::class.java, lines))
+        assertEquals(1, countInstances(Jne::class.java, lines))
+        // One for jumping back to the test
+        assertEquals(1, countInstances(Jmp::class.java, lines))
     }
 
     private fun assertAssignmentToF(lines: List<Line>) {
@@ -276,7 +276,7 @@ class BasicCodeGeneratorFunctionTests : AbstractBasicCodeGeneratorTests() {
     /**
      * Tests that we can encode a deeply nested function call to a function with many arguments,
      * even though we run out of registers to store evaluated arguments in. In that case, temporary
-     * variables (memory addresses) will be used instead.
+     * storage in the stack frame will be used instead.
      */
     @Test
     fun shouldGenerateNestedFunctionCallWithManyIntArgs() {
@@ -291,10 +291,9 @@ class BasicCodeGeneratorFunctionTests : AbstractBasicCodeGeneratorTests() {
         val result = assembleProgram(listOf(ps))
         val lines = result.lines()
 
-        // We should be able to find at least one case where an evaluated argument is moved to and from a temporary variable
-        assertTrue(lines.filterIsInstance<DataDefinition>().any { it.identifier().mappedName.startsWith("__tmp") })
-        assertTrue(lines.filterIsInstance<MoveRegToMem>().any { it.destination.startsWith("[__tmp") }) // Mapped name
-        assertTrue(lines.filterIsInstance<MoveMemToReg>().any { it.source.startsWith("[__tmp") }) // Mapped name
+        // We should be able to find at least one case where an evaluated argument is moved to and from a stack slot
+        assertTrue(lines.filterIsInstance<MoveRegToMem>().any { it.destination.startsWith("[rbp-") })
+        assertTrue(lines.filterIsInstance<MoveMemToReg>().any { it.source.startsWith("[rbp-") })
     }
 
     /**
@@ -313,11 +312,10 @@ class BasicCodeGeneratorFunctionTests : AbstractBasicCodeGeneratorTests() {
         val result = assembleProgram(listOf(ps))
         val lines = result.lines()
 
-        // We should be able to find at least one case where an evaluated argument is moved to and from a temporary variable
+        // We should be able to find at least one case where an evaluated argument is moved to and from a stack slot
         // This is used for parameter passing to the printf function to move values from float register to g.p. register
-        assertTrue(lines.filterIsInstance<DataDefinition>().any { it.identifier().mappedName.startsWith("__tmp") })
-        assertTrue(lines.filterIsInstance<MoveFloatRegToMem>().any { it.destination.startsWith("[__tmp") }) // Mapped name
-        assertTrue(lines.filterIsInstance<MoveMemToReg>().any { it.source.startsWith("[__tmp") }) // Mapped name
+        assertTrue(lines.filterIsInstance<MoveFloatRegToMem>().any { it.destination.startsWith("[rbp-") })
+        assertTrue(lines.filterIsInstance<MoveMemToReg>().any { it.source.startsWith("[rbp-") })
     }
 
     @Test
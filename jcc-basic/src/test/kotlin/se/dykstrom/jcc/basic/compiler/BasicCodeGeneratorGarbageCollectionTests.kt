@@ -27,12 +27,16 @@ import se.dykstrom.jcc.basic.BasicTests.Companion.SL_FOO
 import se.dykstrom.jcc.basic.BasicTests.Companion.SL_ONE
 import se.dykstrom.jcc.basic.BasicTests.Companion.SL_TWO
 import se.dykstrom.jcc.basic.ast.statement.PrintStatement
+import se.dykstrom.jcc.basic.compiler.BasicSymbols.BF_CHR_I64
+import se.dykstrom.jcc.common.assembly.directive.DataDefinition
 import se.dykstrom.jcc.common.assembly.instruction.CallIndirect
 import se.dykstrom.jcc.common.ast.AddExpression
 import se.dykstrom.jcc.common.ast.ArrayAccessExpression
 import se.dykstrom.jcc.common.ast.AssignStatement
+import se.dykstrom.jcc.common.ast.FunctionCallExpression
 import se.dykstrom.jcc.common.ast.IdentifierDerefExpression
 import se.dykstrom.jcc.common.code.Line
+import se.dykstrom.jcc.common.utils.GcOptions
 
 /**
  * Tests features related to garbage collection and memory management in code generation.
@@ -58,10 +62,10 @@ class BasicCodeGeneratorGarbageCollectionTests : AbstractBasicCodeGeneratorTests
     }
 
     /**
-     * When adding a string literal and an expression that returns a string,
-     * the memory allocated when evaluating the expression should be freed
-     * after the addition. After calling the print function, the memory
-     * allocated by the addition itself should be freed.
+     * When adding a string literal and an add expression, the two additions are
+     * fused into a single concatenation, so there is no intermediate string to free.
+     * After calling the print function, the memory allocated by the concatenation
+     * itself should be freed.
      */
     @Test
     fun shouldAddStringLiteralAndStringExpression() {
@@ -72,6 +76,29 @@ class BasicCodeGeneratorGarbageCollectionTests : AbstractBasicCodeGeneratorTests
         val result = assembleProgram(listOf(printStatement))
         val lines = result.lines()
 
+        assertEquals(1, countIndirectCalls("free", lines))
+    }
+
+    /**
+     * When a chain of additions includes a function call that returns a string,
+     * the memory allocated by the function call should be freed after the
+     * concatenation. After calling the print function, the memory allocated
+     * by the concatenation itself should be freed.
+     */
+    @Test
+    fun shouldAddStringChainWithFunctionCall() {
+        symbols.addFunction(BF_CHR_I64)
+
+        val functionCall = FunctionCallExpression(0, 0, BF_CHR_I64.identifier, listOf(IL_0))
+        val addExpression1 = AddExpression(0, 0, functionCall, SL_TWO)
+        val addExpression2 = AddExpression(0, 0, SL_ONE, addExpression1)
+        val printStatement = PrintStatement(0, 0, listOf(addExpression2))
+
+        val result = assembleProgram(listOf(printStatement))
+        val lines = result.lines()
+
+        // One call to malloc for the whole chain, and two calls to free
+        assertEquals(1, countIndirectCalls("malloc", lines))
         assertEquals(2, countIndirectCalls("free", lines))
     }
 
@@ -117,7 +144,8 @@ class BasicCodeGeneratorGarbageCollectionTests : AbstractBasicCodeGeneratorTests
      * When adding a string literal and a variable that refers to a dynamic string,
      * no memory should be freed after the addition. But after calling the print
      * function, the memory allocated by the addition itself should be freed. And
-     * the runtime code for the GC contains two calls to free (in function sweep).
+     * the runtime code for the GC contains one call to free (in function sweep),
+     * since the swept list nodes are reused instead of freed.
      */
     @Test
     fun shouldAddStringLiteralAndStringDynamicVar() {
@@ -131,7 +159,9 @@ class BasicCodeGeneratorGarbageCollectionTests : AbstractBasicCodeGeneratorTests
         val result = assembleProgram(listOf(assignStatement, printStatement))
         val lines = result.lines()
 
-        assertEquals(3, countIndirectCalls("free", lines))
+        assertEquals(2, countIndirectCalls("free", lines))
+        // Swept list nodes are kept in a free node list
+        assertEquals(1, lines.filterIsInstance<DataDefinition>().count { it.identifier().name() == "_gc_free_node_list" })
     }
 
     /**
@@ -213,6 +243,83 @@ class BasicCodeGeneratorGarbageCollectionTests : AbstractBasicCodeGeneratorTests
         assertEquals(4, countIndirectCalls("free", lines))
     }
 
+    /**
+     * The first byte limit is the configured min threshold, and without a max heap,
+     * the runtime code for the GC never exits the program.
+     */
+    @Test
+    fun shouldUseMinThresholdAsFirstByteLimit() {
+        val addExpression = AddExpression(0, 0, SL_ONE, SL_TWO)
+        val assignStatement = AssignStatement(0, 0, INE_STR_B, addExpression)
+
+        try {
+            GcOptions.INSTANCE.minThreshold = 4096
+            val result = assembleProgram(listOf(assignStatement))
+            val lines = result.lines()
+
+            assertEquals("4096", lines.filterIsInstance<DataDefinition>().single { it.identifier().name() == "_gc_byte_limit" }.value())
+            assertEquals(1, countIndirectCalls("exit", lines))
+        } finally {
+            GcOptions.INSTANCE.minThreshold = GcOptions.DEFAULT_MIN_THRESHOLD
+        }
+    }
+
+    /**
+     * With a max heap, the runtime code for the GC exits the program if the
+     * live data does not fit in the heap after collection.
+     */
+    @Test
+    fun shouldExitIfLiveDataExceedsMaxHeap() {
+        val addExpression = AddExpression(0, 0, SL_ONE, SL_TWO)
+        val assignStatement = AssignStatement(0, 0, INE_STR_B, addExpression)
+
+        try {
+            GcOptions.INSTANCE.maxHeap = 8 * GcOptions.DEFAULT_MIN_THRESHOLD
+            val result = assembleProgram(listOf(assignStatement))
+            val lines = result.lines()
+
+            assertEquals(2, countIndirectCalls("exit", lines))
+        } finally {
+            GcOptions.INSTANCE.maxHeap = 0
+        }
+    }
+
+    /**
+     * With GC statistics enabled, the runtime code for the GC registers the statistics function
+     * with atexit, and defines the statistics counters.
+     */
+    @Test
+    fun shouldRegisterStatisticsAtExit() {
+        val addExpression = AddExpression(0, 0, SL_ONE, SL_TWO)
+        val assignStatement = AssignStatement(0, 0, INE_STR_B, addExpression)
+
+        try {
+            GcOptions.INSTANCE.isStats = true
+            val result = assembleProgram(listOf(assignStatement))
+            val lines = result.lines()
+
+            assertEquals(1, countIndirectCalls("atexit", lines))
+            assertEquals(1, lines.filterIsInstance<DataDefinition>().count { it.identifier().name() == "_gc_stats_collections" })
+        } finally {
+            GcOptions.INSTANCE.isStats = false
+        }
+    }
+
+    /**
+     * Without GC statistics, there are no statistics counters.
+     */
+    @Test
+    fun shouldNotKeepStatisticsByDefault() {
+        val addExpression = AddExpression(0, 0, SL_ONE, SL_TWO)
+        val assignStatement = AssignStatement(0, 0, INE_STR_B, addExpression)
+
+        val result = assembleProgram(listOf(assignStatement))
+        val lines = result.lines()
+
+        assertEquals(0, countIndirectCalls("atexit", lines))
+        assertEquals(0, lines.filterIsInstance<DataDefinition>().count { it.identifier().name().startsWith("_gc_stats_") })
+    }
+
     private fun countIndirectCalls(function: String, lines: List<Line>) =
             lines.filterIsInstance<CallIndirect>().count { it.target.contains(function) }
 }
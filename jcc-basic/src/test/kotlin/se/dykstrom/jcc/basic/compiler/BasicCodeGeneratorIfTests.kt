@@ -25,11 +25,19 @@ import se.dykstrom.jcc.basic.BasicTests.Companion.IL_3
 import se.dykstrom.jcc.basic.BasicTests.Companion.IL_4
 import se.dykstrom.jcc.common.assembly.instruction.Cmp
 import se.dykstrom.jcc.common.assembly.instruction.Je
+import se.dykstrom.jcc.common.assembly.instruction.Jge
+import se.dykstrom.jcc.common.assembly.instruction.Jl
 import se.dykstrom.jcc.common.assembly.instruction.Jmp
+import se.dykstrom.jcc.common.assembly.instruction.Jne
 import se.dykstrom.jcc.common.assembly.instruction.MoveImmToReg
+import se.dykstrom.jcc.common.assembly.instruction.NotReg
+import se.dykstrom.jcc.common.ast.AndExpression
 import se.dykstrom.jcc.common.ast.EqualExpression
 import se.dykstrom.jcc.common.ast.Expression
 import se.dykstrom.jcc.common.ast.IfStatement
+import se.dykstrom.jcc.common.ast.LessExpression
+import se.dykstrom.jcc.common.ast.NotExpression
+import se.dykstrom.jcc.common.ast.OrExpression
 
 class BasicCodeGeneratorIfTests : AbstractBasicCodeGeneratorTests() {
 
@@ -41,15 +49,14 @@ class BasicCodeGeneratorIfTests : AbstractBasicCodeGeneratorTests() {
         val result = assembleProgram(listOf(ifs))
         val lines = result.lines()
 
-        // One for the exit code, two for the integer subexpressions, 
-        // two for the boolean results, and two for the print statement
-        assertEquals(7, countInstances(MoveImmToReg::class.java, lines))
-        // One for comparing the integers, and one for the if statement
-        assertEquals(2, countInstances(Cmp::class.java, lines))
-        // One for comparing the integers, and one for the if statement
-        assertEquals(2, countInstances(Je::class.java, lines))
+        // One for the exit code, two for the integer subexpressions, and two for the print statement
+        assertEquals(5, countInstances(MoveImmToReg::class.java, lines))
         // One for comparing the integers
-        assertEquals(1, countInstances(Jmp::class.java, lines))
+        assertEquals(1, countInstances(Cmp::class.java, lines))
+        // One for skipping the THEN clause if the integers are not equal
+        assertEquals(0, countInstances(Je::class.java, lines))
+        assertEquals(1, countInstances(Jne::class.java, lines))
+        assertEquals(0, countInstances(Jmp::class.java, lines))
     }
 
     @Test
@@ -61,15 +68,15 @@ class BasicCodeGeneratorIfTests : AbstractBasicCodeGeneratorTests() {
         val result = assembleProgram(listOf(ifs))
         val lines = result.lines()
 
-        // One for the exit code, two for the integer subexpressions, 
-        // two for the boolean results, and four for the print statements
-        assertEquals(9, countInstances(MoveImmToReg::class.java, lines))
-        // One for comparing the integers, and one for the if statement
-        assertEquals(2, countInstances(Cmp::class.java, lines))
-        // One for comparing the integers, and one for the if statement
-        assertEquals(2, countInstances(Je::class.java, lines))
-        // One for comparing the integers, and one for the if statement
-        assertEquals(2, countInstances(Jmp::class.java, lines))
+        // One for the exit code, two for the integer subexpressions, and four for the print statements
+        assertEquals(7, countInstances(MoveImmToReg::class.java, lines))
+        // One for comparing the integers
+        assertEquals(1, countInstances(Cmp::class.java, lines))
+        // One for jumping to the ELSE clause if the integers are not equal
+        assertEquals(0, countInstances(Je::class.java, lines))
+        assertEquals(1, countInstances(Jne::class.java, lines))
+        // One for jumping past the ELSE clause
+        assertEquals(1, countInstances(Jmp::class.java, lines))
     }
 
     @Test
@@ -84,14 +91,63 @@ class BasicCodeGeneratorIfTests : AbstractBasicCodeGeneratorTests() {
         val result = assembleProgram(listOf(firstIf))
         val lines = result.lines()
 
-        // One for the exit code, four for the integer subexpressions, 
-        // four for the boolean results, and six for the print statements
-        assertEquals(15, countInstances(MoveImmToReg::class.java, lines))
-        // Two for comparing the integers, and two for the if statements
-        assertEquals(4, countInstances(Cmp::class.java, lines))
-        // Two for comparing the integers, and two for the if statements
-        assertEquals(4, countInstances(Je::class.java, lines))
-        // Two for comparing the integers, and two for the if statements
-        assertEquals(4, countInstances(Jmp::class.java, lines))
+        // One for the exit code, four for the integer subexpressions, and six for the print statements
+        assertEquals(11, countInstances(MoveImmToReg::class.java, lines))
+        // Two for comparing the integers
+        assertEquals(2, countInstances(Cmp::class.java, lines))
+        // Two for jumping to the ELSE clauses
+        assertEquals(0, countInstances(Je::class.java, lines))
+        assertEquals(2, countInstances(Jne::class.java, lines))
+        // Two for jumping past the ELSE clauses
+        assertEquals(2, countInstances(Jmp::class.java, lines))
+    }
+
+    @Test
+    fun shouldGenerateIfThenWithAndCondition() {
+        val expression = AndExpression(0, 0, LessExpression(0, 0, IL_1, IL_2), LessExpression(0, 0, IL_3, IL_4))
+        val ps = PrintStatement(0, 0, listOf(IL_1))
+        val ifs = IfStatement.builder(expression, ps).build()
+        val result = assembleProgram(listOf(ifs))
+        val lines = result.lines()
+
+        // One for the exit code, four for the integer subexpressions, and two for the print statement
+        assertEquals(7, countInstances(MoveImmToReg::class.java, lines))
+        // Two for comparing the integers
+        assertEquals(2, countInstances(Cmp::class.java, lines))
+        // Two for skipping the THEN clause if any of the comparisons fail
+        assertEquals(2, countInstances(Jge::class.java, lines))
+        assertEquals(0, countInstances(Jmp::class.java, lines))
+    }
+
+    @Test
+    fun shouldGenerateIfThenWithOrCondition() {
+        val expression = OrExpression(0, 0, LessExpression(0, 0, IL_1, IL_2), LessExpression(0, 0, IL_3, IL_4))
+        val ps = PrintStatement(0, 0, listOf(IL_1))
+        val ifs = IfStatement.builder(expression, ps).build()
+        val result = assembleProgram(listOf(ifs))
+        val lines = result.lines()
+
+        // Two for comparing the integers
+        assertEquals(2, countInstances(Cmp::class.java, lines))
+        // One for entering the THEN clause if the first comparison succeeds
+        assertEquals(1, countInstances(Jl::class.java, lines))
+        // One for skipping the THEN clause if the second comparison fails
+        assertEquals(1, countInstances(Jge::class.java, lines))
+        assertEquals(0, countInstances(Jmp::class.java, lines))
+    }
+
+    @Test
+    fun shouldGenerateIfThenWithNotCondition() {
+        val expression = NotExpression(0, 0, LessExpression(0, 0, IL_1, IL_2))
+        val ps = PrintStatement(0, 0, listOf(IL_1))
+        val ifs = IfStatement.builder(expression, ps).build()
+        val result = assembleProgram(listOf(ifs))
+        val lines = result.lines()
+
+        // One for comparing the integers
+        assertEquals(1, countInstances(Cmp::class.java, lines))
+        // One for skipping the THEN clause if the comparison succeeds
+        assertEquals(1, countInstances(Jl::class.java, lines))
+        assertEquals(0, countInstances(NotReg::class.java, lines))
     }
 }
@@ -17,25 +17,30 @@
 
 package se.dykstrom.jcc.basic.compiler
 
+import org.junit.jupiter.api.AfterEach
 import org.junit.jupiter.api.Assertions.assertEquals
 import org.junit.jupiter.api.BeforeEach
 import org.junit.jupiter.api.Test
 import se.dykstrom.jcc.basic.BasicTests.Companion.FL_3_14
 import se.dykstrom.jcc.basic.BasicTests.Companion.IDE_I64_A
 import se.dykstrom.jcc.basic.BasicTests.Companion.IDE_I64_H
+import se.dykstrom.jcc.basic.BasicTests.Companion.IDENT_I64_A
 import se.dykstrom.jcc.basic.BasicTests.Companion.IL_0
 import se.dykstrom.jcc.basic.BasicTests.Companion.IL_1
 import se.dykstrom.jcc.basic.BasicTests.Companion.IL_2
 import se.dykstrom.jcc.basic.BasicTests.Companion.IL_3
 import se.dykstrom.jcc.basic.BasicTests.Companion.IL_4
+import se.dykstrom.jcc.basic.BasicTests.Companion.IL_10
 import se.dykstrom.jcc.basic.BasicTests.Companion.INE_F64_F
 import se.dykstrom.jcc.basic.BasicTests.Companion.INE_I64_A
 import se.dykstrom.jcc.basic.BasicTests.Companion.INE_STR_B
 import se.dykstrom.jcc.basic.BasicTests.Companion.SL_ONE
 import se.dykstrom.jcc.basic.BasicTests.Companion.SL_TWO
+import se.dykstrom.jcc.basic.ast.statement.PrintStatement
 import se.dykstrom.jcc.basic.compiler.BasicSymbols.BF_SGN_F64
 import se.dykstrom.jcc.basic.compiler.BasicSymbols.BF_SQR_F64
 import se.dykstrom.jcc.basic.functions.LibJccBasBuiltIns.JF_SGN_F64
+import se.dykstrom.jcc.common.assembly.base.Register.R15
 import se.dykstrom.jcc.common.assembly.directive.DataDefinition
 import se.dykstrom.jcc.common.assembly.instruction.*
 import se.dykstrom.jcc.common.assembly.instruction.floating.ConvertIntRegToFloatReg
@@ -60,6 +65,11 @@ class BasicCodeGeneratorOptimizationTests : AbstractBasicCodeGeneratorTests() {
         symbols.addFunction(BF_SQR_F64)
     }
 
+    @AfterEach
+    fun tearDown() {
+        OptimizationOptions.INSTANCE.level = 0
+    }
+
     /**
      * After replacing the assign statement and add expression with an inc statement,
      * there should be one instance of IncMem to increment the variable.
@@ -231,9 +241,10 @@ class BasicCodeGeneratorOptimizationTests : AbstractBasicCodeGeneratorTests() {
     }
 
     /**
-     * After replacing the mul expression with zero, there should be one instance
-     * of operation MoveImmToReg where the literal value equals the result of the
-     * inlined addition. There should be no multiplication operations.
+     * After replacing the mul expression with zero, the value zero should be loaded
+     * into a register. Since the peephole optimizer replaces "mov r, 0" with
+     * "xor r, r", there should be no MoveImmToReg with value zero, but instead
+     * one instance of XorRegWithReg. There should be no multiplication operations.
      */
     @Test
     fun shouldReplaceMulWithZeroWithJustZero() {
@@ -243,7 +254,8 @@ class BasicCodeGeneratorOptimizationTests : AbstractBasicCodeGeneratorTests() {
         val lines = assembleProgram(listOf(assignStatement), optimizer).lines()
 
         // One for the optimized multiplication, and one for the call to exit
-        assertEquals(2, lines.filterIsInstance<MoveImmToReg>().count { it.immediate == "0" })
+        assertEquals(0, lines.filterIsInstance<MoveImmToReg>().count { it.immediate == "0" })
+        assertEquals(2, lines.filterIsInstance<XorRegWithReg>().count())
         assertEquals(0, lines.filterIsInstance<IMulMemWithReg>().count())
     }
 
@@ -337,4 +349,26 @@ class BasicCodeGeneratorOptimizationTests : AbstractBasicCodeGeneratorTests() {
         assertEquals(1, lines.filterIsInstance<ConvertIntRegToFloatReg>().count())
         assertEquals(1, lines.filterIsInstance<SqrtFloat>().count())
     }
+
+    @Test
+    fun shouldStoreLoopVariableInRegister() {
+        OptimizationOptions.INSTANCE.level = 2
+        try {
+            symbols.addVariable(IDENT_I64_A)
+            val assignStatement = AssignStatement(0, 0, INE_I64_A, IL_0)
+            val incStatement = IncStatement(0, 0, INE_I64_A)
+            val printStatement = PrintStatement(0, 0, listOf(IDE_I64_A))
+            val whileStatement = WhileStatement(0, 0, LessExpression(IDE_I64_A, IL_10), listOf(incStatement, printStatement))
+
+            val lines = assembleProgram(listOf(assignStatement, whileStatement)).lines()
+
+            // Variable a% is stored in a callee-saved register, that is saved in the prologue
+            assertEquals(1, lines.filterIsInstance<PushReg>().count { it.toText() == "push $R15" })
+            assertEquals(1, lines.filterIsInstance<IncReg>().count { it.register == R15 })
+            assertEquals(0, countInstances(IncMem::class.java, lines))
+            assertEquals(0, lines.filterIsInstance<MoveMemToReg>().count { it.source == "[${IDENT_I64_A.mappedName}]" })
+        } finally {
+            OptimizationOptions.INSTANCE.level = 1
+        }
+    }
 }
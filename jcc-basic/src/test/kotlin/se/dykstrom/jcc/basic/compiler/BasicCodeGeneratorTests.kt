@@ -57,6 +57,7 @@ import se.dykstrom.jcc.common.assembly.directive.DataDefinition
 import se.dykstrom.jcc.common.assembly.instruction.*
 import se.dykstrom.jcc.common.assembly.instruction.floating.*
 import se.dykstrom.jcc.common.ast.*
+import se.dykstrom.jcc.common.code.Label
 import se.dykstrom.jcc.common.functions.LibcBuiltIns.CF_EXIT_I64
 import se.dykstrom.jcc.common.functions.LibcBuiltIns.CF_PRINTF_STR_VAR
 import se.dykstrom.jcc.common.types.F64
@@ -210,6 +211,102 @@ class BasicCodeGeneratorTests : AbstractBasicCodeGeneratorTests() {
         assertEquals(2, countInstances(Je::class.java, lines))
     }
 
+    @Test
+    fun testOnGotoWithJumpTable() {
+        val os = LabelledStatement("10", OnGotoStatement(0, 0, IL_3, listOf("10", "20", "30", "40")))
+        val cs20 = LabelledStatement("20", CommentStatement(0, 0, "comment"))
+        val cs30 = LabelledStatement("30", CommentStatement(0, 0, "comment"))
+        val cs40 = LabelledStatement("40", CommentStatement(0, 0, "comment"))
+
+        val result = assembleProgram(listOf(os, cs20, cs30, cs40))
+        val lines = result.lines()
+
+        // No compares or jumps for the individual goto labels
+        assertEquals(0, countInstances(Je::class.java, lines))
+        // One bounds check, and one indirect jump through the jump table
+        assertEquals(1, countInstances(Ja::class.java, lines))
+        assertEquals(1, countInstances(JmpIndirect::class.java, lines))
+        // One jump table with four entries
+        val table = lines
+            .filterIsInstance<DataDefinition>()
+            .single { it.identifier().name().startsWith("_on_goto_table_") }
+        assertEquals("__line_10, __line_20, __line_30, __line_40", table.value())
+    }
+
+    @Test
+    fun testOnGosubWithJumpTable() {
+        val os = LabelledStatement("10", OnGosubStatement(0, 0, IL_3, listOf("10", "20", "30", "40")))
+        val cs = LabelledStatement("20", CommentStatement(0, 0, "comment"))
+
+        val result = assembleProgram(listOf(os, cs))
+        val lines = result.lines()
+
+        // No compares or jumps for the individual on-gosub labels
+        assertEquals(0, countInstances(Je::class.java, lines))
+        // One bounds check, and one indirect jump through the jump table
+        assertEquals(1, countInstances(Ja::class.java, lines))
+        assertEquals(1, countInstances(JmpIndirect::class.java, lines))
+        // One jump table with four entries, one for each index label
+        val table = lines
+            .filterIsInstance<DataDefinition>()
+            .single { it.identifier().name().startsWith("_on_gosub_table_") }
+        assertEquals(4, table.value().split(", ").size)
+    }
+
+    @Test
+    fun testOnGotoJumpTableBoundsCheck() {
+        val os = LabelledStatement("10", OnGotoStatement(0, 0, IL_3, listOf("10", "20", "30", "40", "50")))
+        val cs20 = LabelledStatement("20", CommentStatement(0, 0, "comment"))
+        val cs30 = LabelledStatement("30", CommentStatement(0, 0, "comment"))
+        val cs40 = LabelledStatement("40", CommentStatement(0, 0, "comment"))
+        val cs50 = LabelledStatement("50", CommentStatement(0, 0, "comment"))
+
+        val result = assembleProgram(listOf(os, cs20, cs30, cs40, cs50))
+        val lines = result.lines()
+
+        // The index is decremented before the bounds check, so index 0 becomes
+        // the largest unsigned number, and fails the check just like index 6
+        val jumpIndex = lines.indexOfFirst { it is JmpIndirect }
+        val dec = lines[jumpIndex - 3] as DecReg
+        val register = dec.toText().removePrefix("dec ")
+        assertEquals("cmp $register, 4", (lines[jumpIndex - 2] as CmpRegWithImm).toText())
+        // Indices out of range continue with the statement after ON GOTO
+        val ja = lines[jumpIndex - 1] as Ja
+        assertEquals(ja.target, lines[jumpIndex + 1])
+        assertTrue((lines[jumpIndex] as JmpIndirect).target.contains(register))
+    }
+
+    @Test
+    fun testOnGosubJumpTableOrder() {
+        val os = LabelledStatement("10", OnGosubStatement(0, 0, IL_3, listOf("40", "20", "50", "30")))
+        val cs20 = LabelledStatement("20", CommentStatement(0, 0, "comment"))
+        val cs30 = LabelledStatement("30", CommentStatement(0, 0, "comment"))
+        val cs40 = LabelledStatement("40", CommentStatement(0, 0, "comment"))
+        val cs50 = LabelledStatement("50", CommentStatement(0, 0, "comment"))
+
+        val result = assembleProgram(listOf(os, cs20, cs30, cs40, cs50))
+        val lines = result.lines()
+
+        // The bounds check compares with the number of labels minus one
+        val jumpIndex = lines.indexOfFirst { it is JmpIndirect }
+        assertTrue(lines[jumpIndex - 3] is DecReg)
+        assertTrue((lines[jumpIndex - 2] as CmpRegWithImm).toText().endsWith(", 3"))
+        // Indices out of range skip all subroutine calls
+        val endLabel = (lines[jumpIndex - 1] as Ja).target
+        assertTrue(endLabel.name.startsWith("_on_gosub_end_"))
+        assertTrue(lines.indexOf(endLabel) > jumpIndex)
+
+        // Table entry N calls the subroutine of the Nth label, in the order they were written
+        val table = lines
+            .filterIsInstance<DataDefinition>()
+            .single { it.identifier().name().startsWith("_on_gosub_table_") }
+        val entries = table.value().split(", ")
+        listOf("40", "20", "50", "30").forEachIndexed { index, label ->
+            val entryIndex = lines.indexOfFirst { it is Label && it.mappedName == entries[index] }
+            assertEquals("call __line_gosub_$label", (lines[entryIndex + 1] as CallDirect).toText())
+        }
+    }
+
     @Test
     fun shouldGenerateCodeForReturn() {
         val rs = LabelledStatement("100", ReturnStatement(0, 0))
@@ -401,11 +498,12 @@ class BasicCodeGeneratorTests : AbstractBasicCodeGeneratorTests() {
         val result = assembleProgram(listOf(statement))
         val lines = result.lines()
 
-        assertEquals(4, countInstances(MoveImmToReg::class.java, lines))
-        assertEquals(1, countInstances(AddRegToReg::class.java, lines))
-        // strlen*2, malloc, strcpy, strcat, printf, free, exit
-        assertEquals(8, countInstances(CallIndirect::class.java, lines))
-        assertEquals(2, lines
+        // The lengths of the string literals are moved to registers, and added
+        assertEquals(6, countInstances(MoveImmToReg::class.java, lines))
+        assertEquals(2, countInstances(AddRegToReg::class.java, lines))
+        // malloc, memcpy*2, printf, free, exit
+        assertEquals(6, countInstances(CallIndirect::class.java, lines))
+        assertEquals(0, lines
             .filterIsInstance<CallIndirect>()
             .count { it.target.contains("strlen") }
         )
@@ -1009,4 +1107,24 @@ class BasicCodeGeneratorTests : AbstractBasicCodeGeneratorTests() {
         // Storing the integer result in memory
         assertEquals(1, countInstances(MoveRegToMem::class.java, lines))
     }
+
+    @Test
+    fun testSpilledTemporariesAreStoredInStackFrame() {
+        // a% = a% + (a% + (a% + ... )), nested deep enough to run out of registers
+        var expression: Expression = IDE_I64_A
+        repeat(12) { expression = AddExpression(0, 0, IDE_I64_A, expression) }
+        val statement = AssignStatement(0, 0, INE_I64_A, expression)
+
+        val result = assembleProgram(listOf(statement))
+        val lines = result.lines()
+
+        // Temporaries are stored in RBP-relative stack slots, and not in the data section
+        assertTrue(lines.filterIsInstance<MoveRegToMem>().any { it.toText().startsWith("mov [rbp-") })
+        assertTrue(lines.filterIsInstance<DataDefinition>().none { it.identifier().name().contains("tmp_location") })
+        // The main program reserves stack space for the temporaries, right after setting up the base pointer
+        val instructions = lines.filterIsInstance<Instruction>()
+        val index = instructions.indexOfFirst { it.toText() == "mov rbp, rsp" }
+        val reserve = instructions[index + 1]
+        assertTrue(reserve is SubImmFromReg && reserve.toText().matches(Regex("sub rsp, [0-9a-f]+0h")))
+    }
 }
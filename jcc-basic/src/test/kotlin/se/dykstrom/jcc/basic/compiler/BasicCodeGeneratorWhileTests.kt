@@ -28,6 +28,7 @@ import se.dykstrom.jcc.basic.BasicTests.Companion.IL_M1
 import se.dykstrom.jcc.common.assembly.instruction.Cmp
 import se.dykstrom.jcc.common.assembly.instruction.Je
 import se.dykstrom.jcc.common.assembly.instruction.Jmp
+import se.dykstrom.jcc.common.assembly.instruction.Jne
 import se.dykstrom.jcc.common.assembly.instruction.MoveImmToReg
 import se.dykstrom.jcc.common.ast.EqualExpression
 import se.dykstrom.jcc.common.ast.WhileStatement
@@ -41,14 +42,15 @@ class BasicCodeGeneratorWhileTests : AbstractBasicCodeGeneratorTests() {
         val result = assembleProgram(listOf(ws))
         val lines = result.lines()
 
-        // One for the exit code, two for the integer expressions, two for the boolean results
-        assertEquals(5, countInstances(MoveImmToReg::class.java, lines))
-        // One for comparing the integers, and one for the while statement
-        assertEquals(2, countInstances(Cmp::class.java, lines))
-        // One for comparing the integers, and one for the while statement
-        assertEquals(2, countInstances(Je::class.java, lines))
-        // One for comparing the integers, and one for the while statement
-        assertEquals(2, countInstances(Jmp::class.java, lines))
+        // One for the exit code, and two for the integer expressions
+        assertEquals(3, countInstances(MoveImmToReg::class.java, lines))
+        // One for comparing the integers
+        assertEquals(1, countInstances(Cmp::class.java, lines))
+        // One for leaving the loop if the integers are not equal
+        assertEquals(0, countInstances(Je::class.java, lines))
+        assertEquals(1, countInstances(Jne::class.java, lines))
+        // One for jumping back to the test
+        assertEquals(1, countInstances(Jmp::class.java, lines))
     }
 
     @Test
@@ -59,15 +61,15 @@ class BasicCodeGeneratorWhileTests : AbstractBasicCodeGeneratorTests() {
         val result = assembleProgram(listOf(ws))
         val lines = result.lines()
 
-        // One for the exit code, two for the integer expressions, 
-        // two for the boolean results, and two for the print statement
-        assertEquals(7, countInstances(MoveImmToReg::class.java, lines))
-        // One for comparing the integers, and one for the while statement
-        assertEquals(2, countInstances(Cmp::class.java, lines))
-        // One for comparing the integers, and one for the while statement
-        assertEquals(2, countInstances(Je::class.java, lines))
-        // One for comparing the integers, and one for the while statement
-        assertEquals(2, countInstances(Jmp::class.java, lines))
+        // One for the exit code, two for the integer expressions, and two for the print statement
+        assertEquals(5, countInstances(MoveImmToReg::class.java, lines))
+        // One for comparing the integers
+        assertEquals(1, countInstances(Cmp::class.java, lines))
+        // One for leaving the loop if the integers are not equal
+        assertEquals(0, countInstances(Je::class.java, lines))
+        assertEquals(1, countInstances(Jne::class.java, lines))
+        // One for jumping back to the test
+        assertEquals(1, countInstances(Jmp::class.java, lines))
     }
 
     @Test
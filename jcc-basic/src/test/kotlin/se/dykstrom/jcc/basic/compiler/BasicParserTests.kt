@@ -17,8 +17,12 @@
 
 package se.dykstrom.jcc.basic.compiler
 
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
 import org.junit.jupiter.api.Test
 import org.junit.jupiter.api.assertThrows
+import se.dykstrom.jcc.common.error.CompilationErrorListener
+import se.dykstrom.jcc.common.error.SyntaxException
 
 import se.dykstrom.jcc.common.utils.FormatUtils.EOL
 
@@ -228,6 +232,33 @@ class BasicParserTests : AbstractBasicParserTests() {
 
     // Negative tests:
 
+    @Test
+    fun shouldParseWithoutErrorsInSllMode() {
+        // Given
+        val errorListener = CompilationErrorListener()
+        val syntaxParser = BasicSyntaxParser(BasicTypeManager(), errorListener)
+
+        // When
+        syntaxParser.parse("10 a% = 1 + 2 * 3${EOL}20 if a% > 5 then print a% else goto 10".byteInputStream())
+
+        // Then
+        assertFalse(errorListener.hasErrors())
+    }
+
+    @Test
+    fun shouldReportSyntaxErrorOnlyOnceWhenFallingBackToLlMode() {
+        // Given
+        val errorListener = CompilationErrorListener()
+        val syntaxParser = BasicSyntaxParser(BasicTypeManager(), errorListener)
+
+        // When
+        assertThrows<SyntaxException> { syntaxParser.parse("10 print 1${EOL}20 goto".byteInputStream()) }
+
+        // Then
+        assertEquals(1, errorListener.errors.size)
+        assertEquals(2, errorListener.errors[0].line)
+    }
+
     @Test
     fun testInvalidLabel() {
         assertThrows<IllegalStateException> { parse("foo_bar: print") }
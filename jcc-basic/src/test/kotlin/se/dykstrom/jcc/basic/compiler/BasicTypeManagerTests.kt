@@ -387,6 +387,44 @@ class BasicTypeManagerTests {
         assertThrows<SemanticsException> { typeManager.getType(MOD_STRING_INTEGER) }
     }
 
+    @Test
+    fun shouldGetTypeOfDeepExpression() {
+        // Given
+        var expression: Expression = FLOAT_LITERAL
+        repeat(1_000) { expression = AddExpression(0, 0, expression, INTEGER_LITERAL) }
+
+        // When
+        val type = typeManager.getType(expression)
+
+        // Then
+        assertEquals(F64.INSTANCE, type)
+    }
+
+    @Test
+    fun shouldDeriveTypeOfSubexpressionsOnlyOnce() {
+        // Given
+        var typedExpressions = 0
+        val countingTypeManager = object : BasicTypeManager() {
+            override fun getType(expression: Expression): Type {
+                if (expression is TypedExpression) typedExpressions++
+                return super.getType(expression)
+            }
+        }
+        val inner = AddExpression(0, 0, INTEGER_LITERAL, INTEGER_IDE)
+        val outer = MulExpression(0, 0, NegateExpression(0, 0, inner), FLOAT_LITERAL)
+
+        // When
+        val innerType = countingTypeManager.getType(inner)
+        val outerType = countingTypeManager.getType(outer)
+        countingTypeManager.getType(outer)
+
+        // Then
+        assertEquals(I64.INSTANCE, innerType)
+        assertEquals(F64.INSTANCE, outerType)
+        // The literal and identifier in inner, and the literal in outer
+        assertEquals(3, typedExpressions)
+    }
+
     companion object {
 
         private val ID_INTEGER = Identifier("integer", I64.INSTANCE)
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.basic.ir
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import se.dykstrom.jcc.basic.compiler.AbstractBasicSemanticsParserTests
+import se.dykstrom.jcc.common.ir.Terminator.Gosub
+import se.dykstrom.jcc.common.ir.Terminator.Return
+import se.dykstrom.jcc.common.ir.Terminator.Switch
+
+/**
+ * Tests class `BasicControlFlowGraphBuilder`.
+ *
+ * @author Johan Dykstrom
+ * @see BasicControlFlowGraphBuilder
+ */
+class BasicControlFlowGraphBuilderTests : AbstractBasicSemanticsParserTests() {
+
+    private val builder = BasicControlFlowGraphBuilder()
+
+    @Test
+    fun shouldReturnFromSubroutineToStatementAfterGosub() {
+        // Given
+        val program = parse("""
+            GOSUB sub
+            PRINT 1
+            END
+            sub:
+            PRINT 2
+            RETURN
+            """.trimIndent())
+
+        // When
+        val graph = builder.build(program)
+
+        // Then
+        val gosub = graph.entry().terminator() as Gosub
+        val subroutine = gosub.subroutines().single()
+        assertEquals("sub", subroutine.label())
+        assertTrue(subroutine.terminator() is Return)
+        assertEquals(listOf(subroutine), graph.successors(graph.entry()))
+        assertEquals(listOf(gosub.returnTo()), graph.successors(subroutine))
+        assertEquals(listOf(subroutine), graph.predecessors(gosub.returnTo()))
+    }
+
+    @Test
+    fun shouldBuildSwitchFromOnGoto() {
+        // Given
+        val program = parse("""
+            10 ON x% GOTO 20, 30
+            PRINT 0
+            20 PRINT 1
+            30 PRINT 2
+            """.trimIndent())
+
+        // When
+        val graph = builder.build(program)
+
+        // Then
+        val label10 = graph.blocks().single { it.label() == "10" }
+        val switch = label10.terminator() as Switch
+        assertEquals(listOf("20", "30"), switch.cases().map { it.label() })
+        assertEquals(3, graph.successors(label10).size)
+        assertEquals(2, graph.predecessors(switch.cases()[0]).size)
+    }
+}
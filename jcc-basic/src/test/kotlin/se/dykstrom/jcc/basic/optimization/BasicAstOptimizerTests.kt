@@ -17,21 +17,42 @@
 
 package se.dykstrom.jcc.basic.optimization
 
+import org.junit.jupiter.api.AfterEach
 import org.junit.jupiter.api.Assertions.assertEquals
 import org.junit.jupiter.api.BeforeEach
 import org.junit.jupiter.api.Test
 import se.dykstrom.jcc.basic.BasicTests.Companion.IDE_I64_A
+import se.dykstrom.jcc.basic.BasicTests.Companion.IDE_STR_S
+import se.dykstrom.jcc.basic.BasicTests.Companion.IDENT_STR_B
 import se.dykstrom.jcc.basic.BasicTests.Companion.IL_0
 import se.dykstrom.jcc.basic.BasicTests.Companion.IL_1
 import se.dykstrom.jcc.basic.BasicTests.Companion.IL_2
+import se.dykstrom.jcc.basic.BasicTests.Companion.IL_4
+import se.dykstrom.jcc.basic.BasicTests.Companion.IL_10
+import se.dykstrom.jcc.basic.BasicTests.Companion.INE_I64_A
+import se.dykstrom.jcc.basic.BasicTests.Companion.INE_STR_B
+import se.dykstrom.jcc.basic.BasicTests.Companion.SL_ONE
+import se.dykstrom.jcc.basic.ast.statement.EndStatement
+import se.dykstrom.jcc.basic.ast.statement.LineInputStatement
+import se.dykstrom.jcc.basic.ast.statement.OnGotoStatement
 import se.dykstrom.jcc.basic.ast.statement.PrintStatement
 import se.dykstrom.jcc.basic.ast.statement.RandomizeStatement
 import se.dykstrom.jcc.basic.ast.statement.SleepStatement
 import se.dykstrom.jcc.basic.compiler.BasicSymbols
 import se.dykstrom.jcc.basic.compiler.BasicTypeManager
 import se.dykstrom.jcc.common.ast.AddExpression
+import se.dykstrom.jcc.common.ast.AssignStatement
 import se.dykstrom.jcc.common.ast.AstProgram
+import se.dykstrom.jcc.common.ast.FunctionCallExpression
+import se.dykstrom.jcc.common.ast.IdentifierDerefExpression
+import se.dykstrom.jcc.common.ast.IdentifierNameExpression
+import se.dykstrom.jcc.common.ast.IncStatement
+import se.dykstrom.jcc.common.ast.LabelledStatement
+import se.dykstrom.jcc.common.ast.LessExpression
 import se.dykstrom.jcc.common.ast.MulExpression
+import se.dykstrom.jcc.common.ast.WhileStatement
+import se.dykstrom.jcc.common.types.I64
+import se.dykstrom.jcc.common.types.Identifier
 import se.dykstrom.jcc.common.utils.OptimizationOptions
 
 /**
@@ -52,6 +73,11 @@ class BasicAstOptimizerTests {
         OptimizationOptions.INSTANCE.level = 1
     }
 
+    @AfterEach
+    fun tearDown() {
+        OptimizationOptions.INSTANCE.level = 0
+    }
+
     @Test
     fun shouldOptimizePrintStatement() {
         // Given
@@ -106,4 +132,107 @@ class BasicAstOptimizerTests {
         assertEquals(1, optimizedStatements.size)
         assertEquals(expectedStatement, optimizedStatements[0])
     }
+
+    @Test
+    fun shouldPropagateConstantValueToPrintStatement() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val assignStatement = AssignStatement(0, 0, INE_I64_A, IL_2)
+        val printStatement = PrintStatement(0, 0, listOf(MulExpression(0, 0, IDE_I64_A, IL_2)))
+        val program = AstProgram(0, 0, listOf(assignStatement, printStatement))
+
+        // Variable a% is no longer read, and is removed
+        val expectedStatement = PrintStatement(0, 0, listOf(IL_4))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf(expectedStatement), optimizedStatements)
+    }
+
+    @Test
+    fun shouldNotRemoveVariableAssignedByLineInput() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val assignStatement = AssignStatement(0, 0, INE_STR_B, SL_ONE)
+        val lineInputStatement = LineInputStatement.builder(IDENT_STR_B).build()
+        val program = AstProgram(0, 0, listOf(assignStatement, lineInputStatement))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf(assignStatement, lineInputStatement), optimizedStatements)
+    }
+
+    @Test
+    fun shouldKeepOnGotoTargetAfterEnd() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val onGotoStatement = OnGotoStatement(0, 0, IDE_I64_A, listOf("10"))
+        val endStatement = EndStatement(0, 0)
+        val unreachableStatement = PrintStatement(0, 0, listOf(IL_1))
+        val targetStatement = LabelledStatement("10", PrintStatement(0, 0, listOf(IL_2)))
+        val program = AstProgram(0, 0, listOf(onGotoStatement, endStatement, unreachableStatement, targetStatement))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf(onGotoStatement, endStatement, targetStatement), optimizedStatements)
+    }
+
+    @Test
+    fun shouldMovePureFunctionCallOutOfLoop() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val lenExpression = FunctionCallExpression(0, 0, BasicSymbols.BF_LEN_STR.identifier, listOf(IDE_STR_S))
+        val whileStatement = WhileStatement(0, 0, LessExpression(0, 0, IDE_I64_A, lenExpression), listOf(
+            PrintStatement(0, 0, listOf(lenExpression)),
+            IncStatement(0, 0, INE_I64_A)
+        ))
+        val program = AstProgram(0, 0, listOf(whileStatement))
+
+        val identifier = Identifier("_licm_0", I64.INSTANCE)
+        val assignTemp = AssignStatement(0, 0, IdentifierNameExpression(0, 0, identifier), lenExpression)
+        val ideTemp = IdentifierDerefExpression(0, 0, identifier)
+        val expectedWhileStatement = WhileStatement(0, 0, LessExpression(0, 0, IDE_I64_A, ideTemp), listOf(
+            PrintStatement(0, 0, listOf(ideTemp)),
+            IncStatement(0, 0, INE_I64_A)
+        ))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf(assignTemp, expectedWhileStatement), optimizedStatements)
+    }
+
+    @Test
+    fun shouldNotMoveImpureFunctionCallOutOfLoop() {
+        OptimizationOptions.INSTANCE.level = 2
+
+        // Given
+        val rndExpression = FunctionCallExpression(0, 0, BasicSymbols.BF_RND.identifier, listOf())
+        val whileStatement = WhileStatement(0, 0, LessExpression(0, 0, IDE_I64_A, MulExpression(0, 0, rndExpression, IL_10)), listOf(
+            IncStatement(0, 0, INE_I64_A)
+        ))
+        val program = AstProgram(0, 0, listOf(whileStatement))
+
+        // When
+        val optimizedProgram = optimizer.program(program)
+        val optimizedStatements = optimizedProgram.statements
+
+        // Then
+        assertEquals(listOf(whileStatement), optimizedStatements)
+    }
 }
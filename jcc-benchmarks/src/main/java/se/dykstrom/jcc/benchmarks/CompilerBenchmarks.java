@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import se.dykstrom.jcc.common.ast.AstProgram;
+import se.dykstrom.jcc.common.code.TargetProgram;
+import se.dykstrom.jcc.common.error.CompilationErrorListener;
+import se.dykstrom.jcc.main.Backend;
+import se.dykstrom.jcc.main.CompilerFactory;
+import se.dykstrom.jcc.main.Language;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * JMH benchmarks for each phase of the compiler: syntax analysis, semantic analysis, AST optimization,
+ * code generation, and rendering of the target program as text. Each benchmark compiles a source file,
+ * given by the parameter "source". This is either the path to one of the example programs, relative to
+ * the examples directory, for example "basic/primes.bas", or a synthetic program, given as
+ * "synthetic/N.ext", where N is the number of statements, and ext is the file extension of the language.
+ * <p>
+ * Every phase that updates the symbol table needs fresh compiler components for each invocation.
+ * These are created, and any previous phases are run, in a setup method that is not measured.
+ *
+ * @author Johan Dykstrom
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompilerBenchmarks {
+
+    private static final String SYNTHETIC = "synthetic/";
+
+    @Benchmark
+    public AstProgram syntax(final SourceState state) {
+        return state.phases.syntaxParser().parse(new ByteArrayInputStream(state.bytes)).withSourcePath(state.path);
+    }
+
+    @Benchmark
+    public AstProgram semantics(final ParsedState state) {
+        return state.phases.semanticsParser().parse(state.parsedProgram);
+    }
+
+    @Benchmark
+    public AstProgram optimization(final CheckedState state) {
+        return state.phases.astOptimizer().program(state.checkedProgram);
+    }
+
+    @Benchmark
+    public TargetProgram codeGeneration(final OptimizedState state) {
+        return state.phases.codeGenerator().generate(state.optimizedProgram);
+    }
+
+    @Benchmark
+    public String toText(final GeneratedState state) {
+        return state.targetProgram.toText();
+    }
+
+    @Benchmark
+    public void writeTo(final GeneratedState state) throws IOException {
+        state.targetProgram.writeTo(Writer.nullWriter());
+    }
+
+    /**
+     * Base class for all states. Holds the source code of the program to compile, and fresh compiler components.
+     */
+    public abstract static class AbstractState {
+
+        Path path;
+        Language language;
+        Backend backend;
+        byte[] bytes;
+        CompilerFactory.Phases phases;
+
+        void load(final Backend backend, final String source) {
+            this.backend = backend;
+            this.path = Path.of(source);
+            this.language = Language.fromSource(path);
+            this.bytes = readSource(source, language);
+        }
+
+        void createPhases() {
+            phases = CompilerFactory.builder()
+                    .backend(backend)
+                    .errorListener(new CompilationErrorListener())
+                    .build()
+                    .createPhases(language);
+        }
+
+        AstProgram parse() {
+            return phases.syntaxParser().parse(new ByteArrayInputStream(bytes)).withSourcePath(path);
+        }
+
+        AstProgram optimize() {
+            return phases.astOptimizer().program(phases.semanticsParser().parse(parse()));
+        }
+    }
+
+    /**
+     * Holds a program that is ready for syntax analysis. The front end phases
+     * do not depend on the backend, so they always use the default backend.
+     */
+    @State(Scope.Thread)
+    public static class SourceState extends AbstractState {
+
+        @Param({
+                "assembunny/mul.asmb",
+                "basic/game_of_life.bas",
+                "basic/primes.bas",
+                "col/fib.col",
+                "tiny/sum.tiny",
+                "synthetic/1000.asmb",
+                "synthetic/1000.bas",
+                "synthetic/1000.col",
+                "synthetic/1000.tiny"
+        })
+        public String source;
+
+        @Setup(Level.Trial)
+        public void setUpTrial() {
+            load(Backend.FASM, source);
+        }
+
+        @Setup(Level.Invocation)
+        public void setUpInvocation() {
+            createPhases();
+        }
+    }
+
+    /**
+     * Holds a program that has passed syntax analysis.
+     */
+    @State(Scope.Thread)
+    public static class ParsedState extends SourceState {
+
+        AstProgram parsedProgram;
+
+        @Override
+        @Setup(Level.Invocation)
+        public void setUpInvocation() {
+            super.setUpInvocation();
+            parsedProgram = parse();
+        }
+    }
+
+    /**
+     * Holds a program that has passed semantic analysis.
+     */
+    @State(Scope.Thread)
+    public static class CheckedState extends SourceState {
+
+        AstProgram checkedProgram;
+
+        @Override
+        @Setup(Level.Invocation)
+        public void setUpInvocation() {
+            super.setUpInvocation();
+            checkedProgram = phases.semanticsParser().parse(parse());
+        }
+    }
+
+    /**
+     * Holds a program that has been optimized, and is ready for code generation. The parameter
+     * "target" specifies both backend and source, in the format "BACKEND:source", since not all
+     * languages, and language features, are supported by both backends.
+     */
+    @State(Scope.Thread)
+    public static class OptimizedState extends AbstractState {
+
+        @Param({
+                "FASM:assembunny/mul.asmb",
+                "FASM:basic/game_of_life.bas",
+                "FASM:basic/primes.bas",
+                "FASM:tiny/sum.tiny",
+                "FASM:synthetic/1000.asmb",
+                "FASM:synthetic/1000.bas",
+                "FASM:synthetic/1000.col",
+                "FASM:synthetic/1000.tiny",
+                "LLVM:assembunny/mul.asmb",
+                "LLVM:col/fib.col",
+                "LLVM:tiny/sum.tiny",
+                "LLVM:synthetic/1000.asmb",
+                "LLVM:synthetic/1000.col",
+                "LLVM:synthetic/1000.tiny"
+        })
+        public String target;
+
+        AstProgram optimizedProgram;
+
+        @Setup(Level.Trial)
+        public void setUpTrial() {
+            final var index = target.indexOf(':');
+            load(Backend.valueOf(target.substring(0, index)), target.substring(index + 1));
+        }
+
+        @Setup(Level.Invocation)
+        public void setUpInvocation() {
+            createPhases();
+            optimizedProgram = optimize();
+        }
+    }
+
+    /**
+     * Holds a generated target program. Rendering does not modify the target program,
+     * so it is generated only once per trial.
+     */
+    @State(Scope.Thread)
+    public static class GeneratedState extends OptimizedState {
+
+        TargetProgram targetProgram;
+
+        @Override
+        @Setup(Level.Trial)
+        public void setUpTrial() {
+            super.setUpTrial();
+            createPhases();
+            targetProgram = phases.codeGenerator().generate(optimize());
+        }
+
+        @Override
+        @Setup(Level.Invocation)
+        public void setUpInvocation() {
+            // Nothing to do
+        }
+    }
+
+    /**
+     * Reads the given source, which is either an example program, or a synthetic program.
+     */
+    private static byte[] readSource(final String source, final Language language) {
+        if (source.startsWith(SYNTHETIC)) {
+            final var name = source.substring(SYNTHETIC.length());
+            final var statements = Integer.parseInt(name.substring(0, name.indexOf('.')));
+            return SyntheticPrograms.generate(language, statements).getBytes(UTF_8);
+        }
+        try (InputStream inputStream = CompilerBenchmarks.class.getResourceAsStream("/examples/" + source)) {
+            if (inputStream == null) {
+                throw new IllegalArgumentException("example not found: " + source);
+            }
+            return inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
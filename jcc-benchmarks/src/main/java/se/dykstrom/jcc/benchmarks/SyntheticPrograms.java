@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.benchmarks;
+
+import se.dykstrom.jcc.main.Language;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates synthetic, but valid, programs of a given shape, used as input to benchmarks and scaling tests.
+ * The shape of a program is described by a {@link Shape}. Parameters that have no meaning for a language,
+ * for example GOSUB targets in COL, are ignored when generating programs in that language.
+ *
+ * @author Johan Dykstrom
+ */
+public final class SyntheticPrograms {
+
+    private static final String[] OPERATORS = {"+", "-", "*"};
+
+    private SyntheticPrograms() { }
+
+    /**
+     * Generates a program in the given language, with the given number of statements,
+     * and one function and one GOSUB target per 20 statements.
+     */
+    public static String generate(final Language language, final int statements) {
+        return generate(language, Shape.builder()
+                .statements(statements)
+                .functions(Math.max(1, statements / 20))
+                .gosubTargets(Math.max(1, statements / 20))
+                .arraySize(10)
+                .build());
+    }
+
+    /**
+     * Generates a program in the given language, with the given shape.
+     */
+    public static String generate(final Language language, final Shape shape) {
+        return switch (language) {
+            case ASSEMBUNNY -> assembunny(shape);
+            case BASIC -> basic(shape);
+            case COL -> col(shape);
+            case TINY -> tiny(shape);
+        };
+    }
+
+    private static String assembunny(final Shape shape) {
+        final var builder = new StringBuilder();
+        for (int i = 0; i < shape.statements(); i++) {
+            switch (i % 4) {
+                case 0 -> builder.append("cpy ").append(i % 10).append(" b\n");
+                case 1 -> builder.append("inc a\n");
+                case 2 -> builder.append("dec b\n");
+                default -> builder.append("jnz b -2\n");
+            }
+        }
+        return builder.append("outn a\n").toString();
+    }
+
+    private static String basic(final Shape shape) {
+        final var builder = new StringBuilder();
+        if (shape.arraySize() > 0) {
+            builder.append("DIM arr%(").append(shape.arraySize()).append(") AS INTEGER\n");
+        }
+        for (int i = 0; i < shape.functions(); i++) {
+            builder.append("DEF FNf").append(i).append("%(x%) = ")
+                   .append(basicExpression(shape, i, "x%", 0)).append("\n");
+        }
+        builder.append("a% = 0\n");
+        builder.append("b$ = \"\"\n");
+
+        final List<Integer> kinds = basicStatementKinds(shape);
+        for (int i = 0; i < shape.statements(); i++) {
+            switch (kinds.get(i % kinds.size())) {
+                case 0 -> builder.append("a% = ").append(basicExpression(shape, i, "a%", shape.functions())).append("\n");
+                case 1 -> builder.append("IF a% > 1000 THEN a% = a% MOD 17 ELSE a% = a% + 1\n");
+                case 2 -> {
+                    builder.append("b$ = \"s").append(i).append("\"");
+                    for (int j = 0; j < shape.stringChurn(); j++) {
+                        builder.append(" + str$(a% + ").append(j).append(")");
+                    }
+                    builder.append("\n");
+                }
+                case 3 -> builder.append("arr%(").append(i % shape.arraySize()).append(") = a%\n");
+                case 4 -> builder.append("GOSUB sub").append((i / kinds.size()) % shape.gosubTargets()).append("\n");
+                default -> builder.append("PRINT a%; \" \"; b$\n");
+            }
+        }
+        builder.append("END\n");
+
+        for (int i = 0; i < shape.gosubTargets(); i++) {
+            builder.append("sub").append(i).append(":\n");
+            builder.append("a% = a% + ").append(i).append("\n");
+            builder.append("RETURN\n");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the kinds of statements to generate, in order, considering the given shape.
+     */
+    private static List<Integer> basicStatementKinds(final Shape shape) {
+        final List<Integer> kinds = new ArrayList<>(List.of(0, 1));
+        if (shape.stringChurn() > 0) {
+            kinds.add(2);
+        }
+        if (shape.arraySize() > 0) {
+            kinds.add(3);
+        }
+        if (shape.gosubTargets() > 0) {
+            kinds.add(4);
+        }
+        kinds.add(5);
+        return kinds;
+    }
+
+    /**
+     * Returns an expression of the depth given by the shape, that may call any of the
+     * first {@code functions} user-defined functions, and reference the given variable.
+     */
+    private static String basicExpression(final Shape shape, final int seed, final String variable, final int functions) {
+        var expression = variable;
+        for (int depth = 0; depth < shape.expressionDepth(); depth++) {
+            final int n = seed + depth;
+            final String operand;
+            if (functions > 0 && n % 3 == 0) {
+                operand = "FNf" + (n % functions) + "%(" + variable + ")";
+            } else if (shape.arraySize() > 0 && n % 3 == 1) {
+                operand = "arr%(" + (n % shape.arraySize()) + ")";
+            } else {
+                operand = String.valueOf(n % 100 + 1);
+            }
+            expression = "(" + expression + " " + OPERATORS[n % OPERATORS.length] + " " + operand + ")";
+        }
+        return expression;
+    }
+
+    private static String col(final Shape shape) {
+        final var builder = new StringBuilder();
+        for (int i = 0; i < shape.functions(); i++) {
+            builder.append("fun func").append(i).append("(x as i64) -> i64 := ")
+                   .append(colExpression(shape, i, "x", i)).append("\n");
+        }
+        for (int i = 0; i < shape.statements(); i++) {
+            builder.append("call println(").append(colExpression(shape, i, String.valueOf(i), shape.functions())).append(")\n");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns an expression of the depth given by the shape, that may call any of the
+     * first {@code functions} functions, starting with the given operand.
+     */
+    private static String colExpression(final Shape shape, final int seed, final String first, final int functions) {
+        var expression = first;
+        for (int depth = 0; depth < shape.expressionDepth(); depth++) {
+            final int n = seed + depth;
+            final String operand = (functions > 0 && n % 2 == 0)
+                    ? "func" + (n % functions) + "(" + (n % 100) + ")"
+                    : String.valueOf(n % 100 + 1);
+            expression = "(" + expression + " " + OPERATORS[n % OPERATORS.length] + " " + operand + ")";
+        }
+        return expression;
+    }
+
+    private static String tiny(final Shape shape) {
+        final var builder = new StringBuilder("BEGIN\n  READ a, b\n");
+        for (int i = 0; i < shape.statements(); i++) {
+            if (i % 2 == 0) {
+                // Tiny has no parentheses, so expression depth is the length of the expression
+                builder.append("  a := a");
+                for (int depth = 0; depth < shape.expressionDepth(); depth++) {
+                    if ((i + depth) % 2 == 0) {
+                        builder.append(" + b");
+                    } else {
+                        builder.append(" - ").append(depth + 1);
+                    }
+                }
+                builder.append("\n");
+            } else {
+                builder.append("  WRITE a\n");
+            }
+        }
+        return builder.append("END\n").toString();
+    }
+
+    /**
+     * Describes the shape of a synthetic program.
+     *
+     * @param statements The number of statements in the main program.
+     * @param expressionDepth The nesting depth of expressions.
+     * @param functions The number of user-defined functions: DEF FN in BASIC, and fun in COL.
+     * @param gosubTargets The number of GOSUB subroutines in BASIC.
+     * @param stringChurn The number of temporary strings created by each string statement in BASIC.
+     * @param arraySize The size of the array used in BASIC, or 0 for no array.
+     */
+    public record Shape(int statements, int expressionDepth, int functions, int gosubTargets, int stringChurn, int arraySize) {
+
+        public Shape {
+            if (statements < 0 || expressionDepth < 0 || functions < 0 || gosubTargets < 0 || stringChurn < 0 || arraySize < 0) {
+                throw new IllegalArgumentException("negative shape parameter");
+            }
+        }
+
+        /**
+         * Returns a new shape, where the number of statements, functions, and GOSUB targets
+         * have been multiplied by the given factor. Expression depth, string churn, and array
+         * size describe the individual statements, and are not scaled.
+         */
+        public Shape scale(final int factor) {
+            return new Shape(statements * factor, expressionDepth, functions * factor, gosubTargets * factor, stringChurn, arraySize);
+        }
+
+        public static Builder builder() {
+            return new Builder();
+        }
+
+        public static class Builder {
+
+            private int statements = 100;
+            private int expressionDepth = 3;
+            private int functions = 0;
+            private int gosubTargets = 0;
+            private int stringChurn = 1;
+            private int arraySize = 0;
+
+            public Builder statements(final int statements) {
+                this.statements = statements;
+                return this;
+            }
+
+            public Builder expressionDepth(final int expressionDepth) {
+                this.expressionDepth = expressionDepth;
+                return this;
+            }
+
+            public Builder functions(final int functions) {
+                this.functions = functions;
+                return this;
+            }
+
+            public Builder gosubTargets(final int gosubTargets) {
+                this.gosubTargets = gosubTargets;
+                return this;
+            }
+
+            public Builder stringChurn(final int stringChurn) {
+                this.stringChurn = stringChurn;
+                return this;
+            }
+
+            public Builder arraySize(final int arraySize) {
+                this.arraySize = arraySize;
+                return this;
+            }
+
+            public Shape build() {
+                return new Shape(statements, expressionDepth, functions, gosubTargets, stringChurn, arraySize);
+            }
+        }
+    }
+}
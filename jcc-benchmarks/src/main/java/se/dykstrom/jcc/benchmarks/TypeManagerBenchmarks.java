@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import se.dykstrom.jcc.basic.compiler.BasicTypeManager;
+import se.dykstrom.jcc.common.ast.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for deriving the types of expressions. The benchmark derives the type of
+ * each subexpression in a long chain of additions, from the innermost to the outermost,
+ * like the semantics phase does. Since the types of subexpressions are cached, the time
+ * should grow linearly with the number of terms. Without the cache, it grows quadratically.
+ *
+ * @author Johan Dykstrom
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypeManagerBenchmarks {
+
+    @Benchmark
+    public void getType(final ExpressionState state, final Blackhole blackhole) {
+        for (Expression expression : state.subexpressions) {
+            blackhole.consume(state.typeManager.getType(expression));
+        }
+    }
+
+    /**
+     * Holds a chain of additions with the given number of terms, and a fresh type manager.
+     */
+    @State(Scope.Thread)
+    public static class ExpressionState {
+
+        @Param({"100", "1000", "10000"})
+        public int terms;
+
+        /** All subexpressions, from the innermost to the outermost. */
+        final List<Expression> subexpressions = new ArrayList<>();
+        BasicTypeManager typeManager;
+
+        @Setup(Level.Trial)
+        public void setUpTrial() {
+            Expression expression = new FloatLiteral(0, 0, "1.0");
+            for (int i = 1; i < terms; i++) {
+                expression = new AddExpression(0, 0, expression, new IntegerLiteral(0, 0, i));
+                subexpressions.add(expression);
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void setUpInvocation() {
+            typeManager = new BasicTypeManager();
+        }
+    }
+}
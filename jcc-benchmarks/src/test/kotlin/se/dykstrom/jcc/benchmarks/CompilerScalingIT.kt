@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.benchmarks
+
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import se.dykstrom.jcc.benchmarks.SyntheticPrograms.Shape
+import se.dykstrom.jcc.common.error.CompilationErrorListener
+import se.dykstrom.jcc.main.Backend
+import se.dykstrom.jcc.main.Backend.FASM
+import se.dykstrom.jcc.main.Backend.LLVM
+import se.dykstrom.jcc.main.CompilerFactory
+import se.dykstrom.jcc.main.Language
+import se.dykstrom.jcc.main.Language.*
+import kotlin.math.ln
+import kotlin.math.max
+
+/**
+ * Compiles synthetic programs at 1x, 10x, and 100x their base size, and verifies that
+ * no compiler phase grows worse than n log n. To reduce the effect of noise and JIT
+ * compilation, each size is compiled several times, and the fastest time is used.
+ * Garbage is collected before each compilation, so that garbage left by earlier
+ * compilations does not add to the time.
+ * Also, times are never considered to be smaller than [FLOOR_NANOS], and the growth
+ * may exceed n log n by [TOLERANCE].
+ */
+class CompilerScalingIT {
+
+    @Test
+    fun basicShouldScale() = assertScaling(BASIC, FASM)
+
+    @Test
+    fun colShouldScale() = assertScaling(COL, LLVM)
+
+    @Test
+    fun tinyShouldScale() = assertScaling(TINY, FASM)
+
+    @Test
+    fun assembunnyShouldScale() = assertScaling(ASSEMBUNNY, LLVM)
+
+    private fun assertScaling(language: Language, backend: Backend) {
+        // Given
+        compile(language, backend, SHAPE) // Warm up
+
+        // When
+        val times = FACTORS.map { factor -> measure(language, backend, SHAPE.scale(factor)) }
+
+        // Then
+        for (phase in PHASES) {
+            for (i in 1 until FACTORS.size) {
+                val smallSize = SHAPE.statements() * FACTORS[i - 1]
+                val largeSize = SHAPE.statements() * FACTORS[i]
+                val allowed = TOLERANCE * nLogN(largeSize) / nLogN(smallSize)
+                val actual = max(times[i].getValue(phase), FLOOR_NANOS).toDouble() / max(times[i - 1].getValue(phase), FLOOR_NANOS)
+                assertTrue(
+                    actual <= allowed,
+                    "$language $phase: time grew by a factor of %.1f from %d to %d statements, expected at most %.1f"
+                        .format(actual, smallSize, largeSize, allowed)
+                )
+            }
+        }
+    }
+
+    /**
+     * Compiles a program of the given shape [REPEATS] times, and returns the fastest time for each phase.
+     */
+    private fun measure(language: Language, backend: Backend, shape: Shape): Map<String, Long> =
+        (1..REPEATS).map { compile(language, backend, shape) }
+            .reduce { acc, times -> acc.mapValues { (phase, time) -> minOf(time, times.getValue(phase)) } }
+
+    /**
+     * Compiles a program of the given shape, and returns the time in nanoseconds used by each phase.
+     */
+    private fun compile(language: Language, backend: Backend, shape: Shape): Map<String, Long> {
+        val errorListener = CompilationErrorListener()
+        val phases = CompilerFactory.builder()
+            .backend(backend)
+            .errorListener(errorListener)
+            .build()
+            .createPhases(language)
+        val bytes = SyntheticPrograms.generate(language, shape).toByteArray()
+        val times = mutableMapOf<String, Long>()
+        System.gc()
+
+        val parsed = time(times, SYNTAX) { phases.syntaxParser().parse(bytes.inputStream()) }
+        val checked = time(times, SEMANTICS) { phases.semanticsParser().parse(parsed) }
+        val optimized = time(times, OPTIMIZATION) { phases.astOptimizer().program(checked) }
+        val targetProgram = time(times, CODE_GENERATION) { phases.codeGenerator().generate(optimized) }
+        time(times, RENDERING) { targetProgram.toText() }
+
+        assertTrue(!errorListener.hasErrors(), "$language: ${errorListener.errors}")
+        return times
+    }
+
+    private fun <T> time(times: MutableMap<String, Long>, phase: String, block: () -> T): T {
+        val start = System.nanoTime()
+        val result = block()
+        times[phase] = System.nanoTime() - start
+        return result
+    }
+
+    private fun nLogN(n: Int) = n * ln(n.toDouble())
+
+    companion object {
+        private const val SYNTAX = "syntax"
+        private const val SEMANTICS = "semantics"
+        private const val OPTIMIZATION = "optimization"
+        private const val CODE_GENERATION = "code generation"
+        private const val RENDERING = "rendering"
+        private val PHASES = listOf(SYNTAX, SEMANTICS, OPTIMIZATION, CODE_GENERATION, RENDERING)
+
+        private val FACTORS = listOf(1, 10, 100)
+        private const val REPEATS = 5
+        private const val TOLERANCE = 2.0
+        private const val FLOOR_NANOS = 5_000_000L
+
+        private val SHAPE = Shape.builder()
+            .statements(100)
+            .expressionDepth(3)
+            .functions(5)
+            .gosubTargets(5)
+            .stringChurn(2)
+            .arraySize(10)
+            .build()
+    }
+}
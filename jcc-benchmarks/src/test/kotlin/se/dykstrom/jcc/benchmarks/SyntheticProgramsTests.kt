@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.benchmarks
+
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import se.dykstrom.jcc.benchmarks.SyntheticPrograms.Shape
+import se.dykstrom.jcc.common.error.CompilationErrorListener
+import se.dykstrom.jcc.main.Backend
+import se.dykstrom.jcc.main.Backend.FASM
+import se.dykstrom.jcc.main.Backend.LLVM
+import se.dykstrom.jcc.main.CompilerFactory
+import se.dykstrom.jcc.main.Language
+import se.dykstrom.jcc.main.Language.*
+
+class SyntheticProgramsTests {
+
+    private val shape = Shape.builder()
+        .statements(60)
+        .expressionDepth(4)
+        .functions(3)
+        .gosubTargets(2)
+        .stringChurn(3)
+        .arraySize(5)
+        .build()
+
+    @Test
+    fun shouldGenerateValidAssembunnyProgram() {
+        assertCompiles(ASSEMBUNNY, FASM)
+        assertCompiles(ASSEMBUNNY, LLVM)
+    }
+
+    @Test
+    fun shouldGenerateValidBasicProgram() {
+        assertCompiles(BASIC, FASM)
+    }
+
+    @Test
+    fun shouldGenerateValidColProgram() {
+        assertCompiles(COL, FASM)
+        assertCompiles(COL, LLVM)
+    }
+
+    @Test
+    fun shouldGenerateValidTinyProgram() {
+        assertCompiles(TINY, FASM)
+        assertCompiles(TINY, LLVM)
+    }
+
+    @Test
+    fun shouldGenerateBasicProgramWithAllFeatures() {
+        // When
+        val text = SyntheticPrograms.generate(BASIC, shape)
+
+        // Then
+        assertTrue(text.contains("DIM arr%(5) AS INTEGER"))
+        assertTrue(text.contains("DEF FNf2%(x%)"))
+        assertTrue(text.contains("GOSUB sub1"))
+        assertTrue(text.contains("sub1:"))
+        assertTrue(text.contains("str$(a% + 2)"))
+    }
+
+    @Test
+    fun shouldScaleShape() {
+        // When
+        val scaled = shape.scale(10)
+
+        // Then
+        assertEquals(600, scaled.statements())
+        assertEquals(30, scaled.functions())
+        assertEquals(20, scaled.gosubTargets())
+        assertEquals(shape.expressionDepth(), scaled.expressionDepth())
+        assertEquals(shape.stringChurn(), scaled.stringChurn())
+        assertEquals(shape.arraySize(), scaled.arraySize())
+    }
+
+    @Test
+    fun shouldNotAcceptNegativeParameters() {
+        assertThrows(IllegalArgumentException::class.java) { Shape.builder().statements(-1).build() }
+    }
+
+    private fun assertCompiles(language: Language, backend: Backend) {
+        // Given
+        val errorListener = CompilationErrorListener()
+        val phases = CompilerFactory.builder()
+            .backend(backend)
+            .errorListener(errorListener)
+            .build()
+            .createPhases(language)
+        val text = SyntheticPrograms.generate(language, shape)
+
+        // When
+        val parsed = phases.syntaxParser().parse(text.byteInputStream())
+        val checked = phases.semanticsParser().parse(parsed)
+        val optimized = phases.astOptimizer().program(checked)
+        val targetProgram = phases.codeGenerator().generate(optimized)
+
+        // Then
+        assertFalse(errorListener.hasErrors(), "$language: ${errorListener.errors}")
+        assertTrue(targetProgram.lines().isNotEmpty())
+    }
+}
@@ -49,7 +49,7 @@ public class ColSyntaxParser implements SyntaxParser {
         ColParser parser = new ColParser(new CommonTokenStream(lexer));
         parser.addErrorListener(errorListener);
 
-        ColParser.ProgramContext ctx = parser.program();
+        ColParser.ProgramContext ctx = Antlr4Utils.parse(parser, ColParser::program);
         Antlr4Utils.checkParsingComplete(parser);
 
         // If we discovered syntax errors, we stop here
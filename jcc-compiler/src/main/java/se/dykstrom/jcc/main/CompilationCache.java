@@ -0,0 +1,406 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.main;
+
+import se.dykstrom.jcc.common.code.TargetProgram;
+import se.dykstrom.jcc.common.error.CompilationWarning;
+import se.dykstrom.jcc.common.error.Warning;
+import se.dykstrom.jcc.common.utils.Version;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static se.dykstrom.jcc.common.utils.FormatUtils.EOL;
+import static se.dykstrom.jcc.common.utils.VerboseLogger.log;
+
+/**
+ * An on-disk, content-addressed cache of compilation results. Each cache entry is a directory,
+ * named after a hash of all inputs to the compilation: the source code, the source file name,
+ * the compiler options, the compiler version, and the backend assembler and its include files. An entry contains the generated target program,
+ * any warnings reported while generating it, and, if the program was assembled, the executable.
+ * <p>
+ * The total size of the cache is bounded. When the cache grows too large, the least recently
+ * used entries are evicted. Files are written to a temporary file, and then moved into place,
+ * so that several compiler processes can share the same cache.
+ *
+ * @author Johan Dykstrom
+ */
+public class CompilationCache {
+
+    /** The default maximum size of the cache in bytes. */
+    public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+    private static final String PROGRAM_FILE = "program";
+    private static final String WARNINGS_FILE = "warnings";
+    private static final String EXECUTABLE_FILE = "executable";
+
+    /** Classes from all modules that take part in the compilation, used to fingerprint the compiler build. */
+    private static final List<String> FINGERPRINT_CLASSES = List.of(
+            "se.dykstrom.jcc.main.GenericCompiler",
+            "se.dykstrom.jcc.common.compiler.AbstractCodeGenerator",
+            "se.dykstrom.jcc.antlr4.Antlr4Utils",
+            "se.dykstrom.jcc.llvm.code.AbstractLlvmCodeGenerator",
+            "se.dykstrom.jcc.assembunny.compiler.AssembunnyCodeGenerator",
+            "se.dykstrom.jcc.basic.compiler.BasicCodeGenerator",
+            "se.dykstrom.jcc.col.compiler.ColCodeGenerator",
+            "se.dykstrom.jcc.tiny.compiler.TinyCodeGenerator"
+    );
+
+    private final Path directory;
+    private final long maxSize;
+
+    public CompilationCache(final Path directory, final long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the default cache directory. This is "jcc" in $XDG_CACHE_HOME if that environment
+     * variable is set, and otherwise ".cache/jcc" in the user's home directory.
+     */
+    public static Path defaultDirectory() {
+        final var cacheHome = System.getenv("XDG_CACHE_HOME");
+        if (cacheHome != null && !cacheHome.isBlank()) {
+            return Path.of(cacheHome, "jcc");
+        }
+        return Path.of(System.getProperty("user.home"), ".cache", "jcc");
+    }
+
+    /**
+     * Computes the cache key for a compilation of the given source code. The other inputs
+     * should include everything else that affects the output of the compilation, for example
+     * the source file name and the compiler options. The compiler version, and a fingerprint
+     * of the compiler build, are always included in the key.
+     */
+    public String key(final byte[] source, final String... otherInputs) {
+        final var digest = sha256();
+        digest.update(Version.instance().toString().getBytes(UTF_8));
+        digest.update((byte) 0);
+        digest.update(Holder.BUILD_FINGERPRINT.getBytes(UTF_8));
+        for (String input : otherInputs) {
+            digest.update((byte) 0);
+            digest.update(String.valueOf(input).getBytes(UTF_8));
+        }
+        digest.update((byte) 0);
+        digest.update(source);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Returns the cached target program with the given key, if it exists.
+     * The line break that ends the program file is not included.
+     */
+    public Optional<String> getProgram(final String key) {
+        final var path = entry(key).resolve(PROGRAM_FILE);
+        try {
+            final var program = Files.readString(path, UTF_8);
+            touch(key);
+            return Optional.of(program.endsWith(EOL) ? program.substring(0, program.length() - EOL.length()) : program);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            log("  Failed to read cache entry '" + path + "': " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns the warnings cached together with the target program with the given key.
+     */
+    public List<CompilationWarning> getWarnings(final String key) {
+        final var path = entry(key).resolve(WARNINGS_FILE);
+        try (Stream<String> lines = Files.lines(path, UTF_8)) {
+            return lines.map(CompilationCache::parseWarning).toList();
+        } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Copies the cached executable with the given key to {@code outputPath}.
+     *
+     * @return True if the executable was found in the cache and copied, false otherwise.
+     */
+    public boolean getExecutable(final String key, final Path outputPath) {
+        final var path = entry(key).resolve(EXECUTABLE_FILE);
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try {
+            Files.copy(path, outputPath, REPLACE_EXISTING);
+            outputPath.toFile().setExecutable(true);
+            touch(key);
+            return true;
+        } catch (IOException e) {
+            log("  Failed to copy executable from cache entry '" + path + "': " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Stores the given target program, and any warnings, in the cache under the given key.
+     * The program is streamed to the cache file, one line at a time.
+     */
+    public void putProgram(final String key, final TargetProgram program, final List<CompilationWarning> warnings) {
+        final var warningLines = warnings.stream().map(CompilationCache::formatWarning).toList();
+        put(key, PROGRAM_FILE, program::writeTo);
+        put(key, WARNINGS_FILE, tmp -> Files.write(tmp, warningLines, UTF_8));
+        evict();
+    }
+
+    /**
+     * Stores the executable found in {@code executablePath} in the cache under the given key.
+     */
+    public void putExecutable(final String key, final Path executablePath) {
+        if (Files.exists(executablePath)) {
+            put(key, EXECUTABLE_FILE, tmp -> Files.copy(executablePath, tmp, REPLACE_EXISTING));
+            evict();
+        }
+    }
+
+    private Path entry(final String key) {
+        return directory.resolve(key);
+    }
+
+    /**
+     * Writes a file to a cache entry atomically, by first writing it to a temporary file.
+     * Failures are logged, but otherwise ignored, since the cache is only an optimization.
+     */
+    private void put(final String key, final String filename, final OutputWriter writer) {
+        try {
+            final var entry = Files.createDirectories(entry(key));
+            final var tmp = Files.createTempFile(entry, filename, ".tmp");
+            try {
+                writer.write(tmp);
+                Files.move(tmp, entry.resolve(filename), ATOMIC_MOVE, REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            log("  Failed to write cache entry '" + entry(key) + "': " + e.getMessage());
+        }
+    }
+
+    /**
+     * Marks the entry with the given key as recently used.
+     */
+    private void touch(final String key) {
+        try {
+            Files.setLastModifiedTime(entry(key), FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // The entry may have been evicted by another process
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the total size of the cache is within its bound.
+     */
+    private synchronized void evict() {
+        final List<CacheEntry> entries = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : paths.toList()) {
+                if (Files.isDirectory(path)) {
+                    entries.add(new CacheEntry(path, Files.getLastModifiedTime(path).toMillis(), sizeOf(path)));
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log("  Failed to list cache directory '" + directory + "': " + e.getMessage());
+            return;
+        }
+
+        long totalSize = entries.stream().mapToLong(CacheEntry::size).sum();
+        entries.sort(Comparator.comparingLong(CacheEntry::lastUsed));
+        for (CacheEntry entry : entries) {
+            if (totalSize <= maxSize) {
+                break;
+            }
+            log("  Evicting cache entry '" + entry.path() + "'");
+            delete(entry.path());
+            totalSize -= entry.size();
+        }
+    }
+
+    private static long sizeOf(final Path entry) throws IOException {
+        try (Stream<Path> paths = Files.list(entry)) {
+            long size = 0;
+            for (Path path : paths.toList()) {
+                size += Files.size(path);
+            }
+            return size;
+        }
+    }
+
+    private static void delete(final Path entry) {
+        try (Stream<Path> paths = Files.list(entry)) {
+            for (Path path : paths.toList()) {
+                Files.deleteIfExists(path);
+            }
+            Files.deleteIfExists(entry);
+        } catch (IOException | UncheckedIOException e) {
+            // The entry may be in use, or deleted by another process
+        }
+    }
+
+    private static String formatWarning(final CompilationWarning warning) {
+        return warning.line() + "\t" + warning.column() + "\t" + warning.warning() + "\t" + warning.msg();
+    }
+
+    private static CompilationWarning parseWarning(final String line) {
+        final var parts = line.split("\t", 4);
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("invalid warning: " + line);
+        }
+        return new CompilationWarning(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), parts[3], Warning.valueOf(parts[2]));
+    }
+
+    /**
+     * Computes a fingerprint of the given assembler executable from its real path, size, and
+     * modification time. If the executable is not a path, it is looked up in the directories
+     * listed in {@code searchPath}, like the PATH environment variable. If the executable cannot be found,
+     * the fingerprint is just its name, and the compilation will fail when it runs the assembler.
+     */
+    public static String fingerprintExecutable(final String executable, final Path workingDirectory, final String searchPath) {
+        if (executable == null) {
+            return "null";
+        }
+        try {
+            final var path = findExecutable(executable, workingDirectory, searchPath);
+            if (path.isPresent()) {
+                final var realPath = path.get().toRealPath();
+                return realPath + ":" + Files.size(realPath) + ":" + Files.getLastModifiedTime(realPath).toMillis();
+            }
+        } catch (IOException | InvalidPathException e) {
+            // Fall through and use the executable name
+        }
+        return executable;
+    }
+
+    /**
+     * Computes a fingerprint of the contents of the given directory, from the relative paths
+     * and contents of all regular files in it, including files in subdirectories.
+     */
+    public static String fingerprintDirectory(final String directory, final Path workingDirectory) {
+        if (directory == null) {
+            return "null";
+        }
+        try {
+            final var root = resolve(workingDirectory, Path.of(directory));
+            if (!Files.isDirectory(root)) {
+                return directory;
+            }
+            final var digest = sha256();
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : paths.filter(Files::isRegularFile).sorted().toList()) {
+                    digest.update(root.relativize(path).toString().getBytes(UTF_8));
+                    digest.update((byte) 0);
+                    digest.update(Files.readAllBytes(path));
+                    digest.update((byte) 0);
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | UncheckedIOException | InvalidPathException e) {
+            return directory;
+        }
+    }
+
+    private static Optional<Path> findExecutable(final String executable, final Path workingDirectory, final String searchPath) {
+        final var path = Path.of(executable);
+        if (path.getNameCount() > 1 || path.isAbsolute()) {
+            final var resolved = resolve(workingDirectory, path);
+            return Files.isRegularFile(resolved) ? Optional.of(resolved) : Optional.empty();
+        }
+        if (searchPath == null) {
+            return Optional.empty();
+        }
+        for (String directory : searchPath.split(File.pathSeparator)) {
+            if (!directory.isEmpty()) {
+                final var candidate = resolve(workingDirectory, Path.of(directory, executable));
+                if (Files.isRegularFile(candidate) && Files.isExecutable(candidate)) {
+                    return Optional.of(candidate);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Path resolve(final Path workingDirectory, final Path path) {
+        return (workingDirectory != null) ? workingDirectory.resolve(path) : path;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Computes a fingerprint of the compiler build from the size and modification time of the
+     * jar files, or class directories, that contain the compiler classes. This makes sure that
+     * a rebuilt compiler does not use cache entries created by an earlier build with the same
+     * version number.
+     */
+    private static String fingerprint() {
+        final var fingerprint = new StringBuilder();
+        for (String className : FINGERPRINT_CLASSES) {
+            try {
+                final var codeSource = Class.forName(className).getProtectionDomain().getCodeSource();
+                if (codeSource != null && codeSource.getLocation() != null) {
+                    final var location = Path.of(codeSource.getLocation().toURI());
+                    fingerprint.append(location).append(':').append(lastModified(location)).append(';');
+                }
+            } catch (ClassNotFoundException | URISyntaxException | IOException | UncheckedIOException e) {
+                fingerprint.append(className).append(";");
+            }
+        }
+        return fingerprint.toString();
+    }
+
+    private static long lastModified(final Path location) throws IOException {
+        if (Files.isDirectory(location)) {
+            try (Stream<Path> paths = Files.walk(location)) {
+                return paths.mapToLong(path -> path.toFile().lastModified()).max().orElse(0);
+            }
+        } else {
+            return Files.getLastModifiedTime(location).toMillis() ^ Files.size(location);
+        }
+    }
+
+    private static final class Holder {
+        private static final String BUILD_FINGERPRINT = fingerprint();
+    }
+
+    @FunctionalInterface
+    private interface OutputWriter {
+        void write(Path path) throws IOException;
+    }
+
+    private record CacheEntry(Path path, long lastUsed, long size) { }
+}
@@ -29,6 +29,8 @@ import se.dykstrom.jcc.common.optimization.AstExpressionOptimizer;
 import se.dykstrom.jcc.common.optimization.AstOptimizer;
 import se.dykstrom.jcc.common.optimization.DefaultAstOptimizer;
 import se.dykstrom.jcc.common.symbols.SymbolTable;
+import se.dykstrom.jcc.common.utils.GcOptions;
+import se.dykstrom.jcc.common.utils.OptimizationOptions;
 import se.dykstrom.jcc.tiny.compiler.*;
 
 import java.io.ByteArrayInputStream;
@@ -36,6 +38,9 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static se.dykstrom.jcc.common.utils.FileUtils.withExtension;
@@ -52,7 +57,13 @@ public record CompilerFactory(Backend backend,
                               boolean saveTemps,
                               String assemblerExecutable,
                               String assemblerInclude,
-                              CompilationErrorListener errorListener) {
+                              Path workingDirectory,
+                              Map<String, String> environment,
+                              Duration assemblerTimeout,
+                              boolean pipe,
+                              CompilationCache cache,
+                              CompilationErrorListener errorListener,
+                              TimeReport timeReport) {
 
     public static Builder builder() {
         return new Builder();
@@ -108,27 +119,89 @@ public record CompilerFactory(Backend backend,
         final var language = Language.fromSource(sourcePath);
         log("  Source file of type " + language);
 
-        final TypeManager typeManager = createTypeManager(language);
-        final SymbolTable symbolTable = createSymbolTable(language);
-        final SyntaxParser syntaxParser = createSyntaxParser(language, typeManager);
-        // Create a child symbol table so no changes (except added functions) affect the root symbol table
-        final AstOptimizer astOptimizer = createAstOptimizer(language, typeManager, new SymbolTable(symbolTable));
-        final SemanticsParser<?> semanticsParser = createSemanticsParser(language, typeManager, new SymbolTable(symbolTable), astOptimizer.expressionOptimizer());
-        final CodeGenerator codeGenerator = createCodeGenerator(language, typeManager, astOptimizer, new SymbolTable(symbolTable));
+        final Phases phases = createPhases(language);
         final Assembler assembler = createAssembler();
 
         return GenericCompiler.builder()
                 .inputStream(inputStream)
                 .sourcePath(sourcePath)
                 .outputPath(actualOutputPath)
-                .syntaxParser(syntaxParser)
-                .semanticsParser(semanticsParser)
-                .astOptimizer(astOptimizer)
-                .codeGenerator(codeGenerator)
+                .syntaxParser(phases.syntaxParser())
+                .semanticsParser(phases.semanticsParser())
+                .astOptimizer(phases.astOptimizer())
+                .codeGenerator(phases.codeGenerator())
                 .assembler(assembler)
+                .errorListener(errorListener)
+                .cache(cache)
+                .cacheInputs(createCacheInputs(sourcePath, language))
+                // When saving temporary files, the assembler must run, even if the executable is cached
+                .cacheExecutable(!compileOnly && !saveTemps && actualOutputPath != null)
+                .timeReport(timeReport)
                 .build();
     }
 
+    /**
+     * Creates the components that implement the compilation phases for the given language.
+     * The components share a symbol table and a type manager, and must therefore be used
+     * to compile a single program only.
+     */
+    public Phases createPhases(final Language language) {
+        final TypeManager typeManager = createTypeManager(language);
+        final SymbolTable symbolTable = createSymbolTable(language);
+        final SyntaxParser syntaxParser = createSyntaxParser(language, typeManager);
+        // Create a child symbol table so no changes (except added functions) affect the root symbol table
+        final AstOptimizer astOptimizer = createAstOptimizer(language, typeManager, new SymbolTable(symbolTable));
+        final SemanticsParser<?> semanticsParser = createSemanticsParser(language, typeManager, new SymbolTable(symbolTable), astOptimizer.expressionOptimizer());
+        final CodeGenerator codeGenerator = createCodeGenerator(language, typeManager, astOptimizer, new SymbolTable(symbolTable));
+        return new Phases(syntaxParser, semanticsParser, astOptimizer, codeGenerator);
+    }
+
+    /**
+     * Returns all inputs, except for the source code itself, that affect the result of
+     * compiling the source file denoted by sourcePath.
+     */
+    private List<String> createCacheInputs(final Path sourcePath, final Language language) {
+        return List.of(
+                sourcePath.toString(),
+                language.name(),
+                String.valueOf(backend),
+                String.valueOf(compileOnly),
+                "assembler=" + CompilationCache.fingerprintExecutable(actualAssemblerExecutable(), workingDirectory, environmentVariable("PATH")),
+                "assembler-include=" + CompilationCache.fingerprintDirectory(actualAssemblerInclude(), workingDirectory),
+                "O" + OptimizationOptions.INSTANCE.getLevel(),
+                "peephole-rules=" + OptimizationOptions.INSTANCE.getPeepholeRules(),
+                "print-gc=" + GcOptions.INSTANCE.isPrintGc(),
+                "gc-stats=" + GcOptions.INSTANCE.isStats(),
+                "initial-gc-threshold=" + GcOptions.INSTANCE.getInitialGcThreshold(),
+                "gc-growth-factor=" + GcOptions.INSTANCE.getGrowthFactor(),
+                "gc-min-threshold=" + GcOptions.INSTANCE.getMinThreshold(),
+                "gc-max-heap=" + GcOptions.INSTANCE.getMaxHeap(),
+                "gc-adaptive=" + GcOptions.INSTANCE.isAdaptive()
+        );
+    }
+
+    private String actualAssemblerExecutable() {
+        return (assemblerExecutable == null && backend != null) ? backend.executable() : assemblerExecutable;
+    }
+
+    /**
+     * Returns the include directory used by the FASM assembler, if it will run. The LLVM
+     * backend does not use an include directory.
+     */
+    private String actualAssemblerInclude() {
+        if (backend == LLVM || compileOnly) {
+            return null;
+        }
+        return (assemblerInclude != null) ? assemblerInclude : environmentVariable(FasmAssembler.FASM_INCLUDE_DIR);
+    }
+
+    /**
+     * Returns the value of the given environment variable, as seen by the assembler process.
+     */
+    private String environmentVariable(final String name) {
+        return environment.containsKey(name) ? environment.get(name) : System.getenv(name);
+    }
+
     /**
      * Creates the actual output path based on the specified output path,
      * the source path, and the backend. The output path may be null in
@@ -216,13 +289,20 @@ public record CompilerFactory(Backend backend,
 
     private Assembler createAssembler() {
         if (backend == LLVM) {
-            final var executable = (assemblerExecutable != null) ? assemblerExecutable : backend.executable();
-            return new LlvmAssembler(executable, compileOnly, saveTemps);
+            return new LlvmAssembler(actualAssemblerExecutable(), workingDirectory, environment, assemblerTimeout, compileOnly, saveTemps, pipe, timeReport);
         } else {
-            return new FasmAssembler(assemblerExecutable, assemblerInclude, compileOnly, saveTemps);
+            return new FasmAssembler(assemblerExecutable, assemblerInclude, workingDirectory, environment, assemblerTimeout, compileOnly, saveTemps, timeReport);
         }
     }
 
+    /**
+     * The components that implement the compilation phases, from parsing to code generation.
+     */
+    public record Phases(SyntaxParser syntaxParser,
+                         SemanticsParser<?> semanticsParser,
+                         AstOptimizer astOptimizer,
+                         CodeGenerator codeGenerator) { }
+
     public static class Builder {
 
         private Backend backend;
@@ -230,7 +310,13 @@ public record CompilerFactory(Backend backend,
         private boolean saveTemps;
         private String assemblerExecutable;
         private String assemblerInclude;
+        private Path workingDirectory;
+        private Map<String, String> environment = Map.of();
+        private Duration assemblerTimeout;
+        private boolean pipe;
+        private CompilationCache cache;
         private CompilationErrorListener errorListener;
+        private TimeReport timeReport = TimeReport.DISABLED;
 
         public Builder backend(final Backend backend) {
             this.backend = backend;
@@ -257,11 +343,44 @@ public record CompilerFactory(Backend backend,
             return this;
         }
 
+        public Builder workingDirectory(final Path workingDirectory) {
+            this.workingDirectory = workingDirectory;
+            return this;
+        }
+
+        public Builder environment(final Map<String, String> environment) {
+            this.environment = environment;
+            return this;
+        }
+
+        /**
+         * Sets the maximum time to wait for the backend assembler, or {@code null} to wait forever.
+         */
+        public Builder assemblerTimeout(final Duration assemblerTimeout) {
+            this.assemblerTimeout = assemblerTimeout;
+            return this;
+        }
+
+        public Builder pipe(final boolean pipe) {
+            this.pipe = pipe;
+            return this;
+        }
+
+        public Builder cache(final CompilationCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
         public Builder errorListener(CompilationErrorListener errorListener) {
             this.errorListener = errorListener;
             return this;
         }
 
+        public Builder timeReport(final TimeReport timeReport) {
+            this.timeReport = timeReport;
+            return this;
+        }
+
         public CompilerFactory build() {
             return new CompilerFactory(
                     backend,
@@ -269,7 +388,13 @@ public record CompilerFactory(Backend backend,
                     saveTemps,
                     assemblerExecutable,
                     assemblerInclude,
-                    errorListener
+                    workingDirectory,
+                    environment,
+                    assemblerTimeout,
+                    pipe,
+                    cache,
+                    errorListener,
+                    timeReport
             );
         }
     }
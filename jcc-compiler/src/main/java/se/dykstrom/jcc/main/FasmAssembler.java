@@ -22,14 +22,13 @@ import se.dykstrom.jcc.common.code.TargetProgram;
 import se.dykstrom.jcc.common.utils.ProcessUtils;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Collections;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static se.dykstrom.jcc.common.utils.FileUtils.withExtension;
 import static se.dykstrom.jcc.common.utils.FormatUtils.indentText;
 import static se.dykstrom.jcc.common.utils.VerboseLogger.log;
@@ -39,21 +38,33 @@ import static se.dykstrom.jcc.common.utils.VerboseLogger.log;
  */
 public class FasmAssembler implements Assembler {
 
-    private static final String FASM_INCLUDE_DIR = "INCLUDE";
+    static final String FASM_INCLUDE_DIR = "INCLUDE";
 
     private final String assemblerExecutable;
     private final String assemblerInclude;
+    private final Path workingDirectory;
+    private final Map<String, String> environment;
+    private final Duration timeout;
     private final boolean compileOnly;
     private final boolean saveTemps;
+    private final TimeReport timeReport;
 
     public FasmAssembler(final String assemblerExecutable,
                          final String assemblerInclude,
+                         final Path workingDirectory,
+                         final Map<String, String> environment,
+                         final Duration timeout,
                          final boolean compileOnly,
-                         final boolean saveTemps) {
+                         final boolean saveTemps,
+                         final TimeReport timeReport) {
         this.assemblerExecutable = assemblerExecutable;
         this.assemblerInclude = assemblerInclude;
+        this.workingDirectory = workingDirectory;
+        this.environment = environment;
+        this.timeout = timeout;
         this.compileOnly = compileOnly;
         this.saveTemps = saveTemps;
+        this.timeReport = timeReport;
     }
 
     @Override
@@ -69,12 +80,13 @@ public class FasmAssembler implements Assembler {
 
         // Create assembly language file
         log("  Writing assembly file '" + asmPath + "'");
-        final List<String> asmText = Collections.singletonList(program.toText());
-        try {
-            Files.write(asmPath, asmText, UTF_8);
-        } catch (IOException e) {
-            throw new JccException("Failed to write assembly file: " + e.getMessage());
-        }
+        timeReport.measure("file write", () -> {
+            try {
+                program.writeTo(asmPath);
+            } catch (IOException e) {
+                throw new JccException("Failed to write assembly file: " + e.getMessage());
+            }
+        });
 
         // If user requested compilation only, we are done now
         if (compileOnly) {
@@ -87,33 +99,33 @@ public class FasmAssembler implements Assembler {
         log("  Assembling executable '" + outputPath + "'");
         log("  Assembler environment '" + fasmEnvironment + "'");
         log("  Assembler command line '" + String.join(" ", fasmCommandLine) + "'");
-        Process process;
+        timeReport.measure("assembler", () -> runAssembler(fasmCommandLine, fasmEnvironment));
+    }
+
+    private void runAssembler(final List<String> commandLine, final Map<String, String> processEnvironment) {
+        final ProcessUtils.ProcessResult result;
         try {
-            process = ProcessUtils.setUpProcess(fasmCommandLine, fasmEnvironment);
+            result = ProcessUtils.runProcess(commandLine, processEnvironment, workingDirectory, timeout, null);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new JccException("Failed to run assembler: " + e.getMessage());
-        } catch (IOException e) {
+        } catch (IOException | TimeoutException e) {
             throw new JccException("Failed to run assembler: " + e.getMessage());
         }
 
-        try {
-            final var output = ProcessUtils.readOutput(process);
-            log(indentText(output, 2));
-            if (process.exitValue() != 0) {
-                throw new JccException("Compilation failed, see assembler output: " + output);
-            }
-        } finally {
-            ProcessUtils.tearDownProcess(process);
+        final var output = result.output();
+        log(indentText(output, 2));
+        if (result.exitValue() != 0) {
+            throw new JccException("Compilation failed, see assembler output: " + output);
         }
     }
 
     private Map<String, String> buildEnvironment() {
-        final Map<String, String> environment = new HashMap<>();
+        final Map<String, String> fasmEnvironment = new HashMap<>(environment);
         if (assemblerInclude != null) {
-            environment.put(FASM_INCLUDE_DIR, assemblerInclude);
+            fasmEnvironment.put(FASM_INCLUDE_DIR, assemblerInclude);
         }
-        return environment;
+        return fasmEnvironment;
     }
 
     private List<String> buildCommandLine(final Path asmPath, final Path outputPath) {
@@ -18,13 +18,20 @@
 package se.dykstrom.jcc.main;
 
 import se.dykstrom.jcc.common.code.TargetProgram;
+import se.dykstrom.jcc.common.code.Text;
+import se.dykstrom.jcc.common.compiler.AbstractCodeGenerator;
 import se.dykstrom.jcc.common.compiler.CodeGenerator;
 import se.dykstrom.jcc.common.compiler.SemanticsParser;
 import se.dykstrom.jcc.common.compiler.SyntaxParser;
+import se.dykstrom.jcc.common.error.CompilationErrorListener;
+import se.dykstrom.jcc.common.error.JccException;
 import se.dykstrom.jcc.common.optimization.AstOptimizer;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.List;
 
 import static java.util.Objects.requireNonNull;
 import static se.dykstrom.jcc.common.utils.VerboseLogger.log;
@@ -43,6 +50,11 @@ public class GenericCompiler implements Compiler {
     private final CodeGenerator codeGenerator;
     private final AstOptimizer astOptimizer;
     private final Assembler assembler;
+    private final CompilationErrorListener errorListener;
+    private final CompilationCache cache;
+    private final List<String> cacheInputs;
+    private final boolean cacheExecutable;
+    private final TimeReport timeReport;
 
     private GenericCompiler(final Builder builder) {
         this.inputStream = requireNonNull(builder.inputStream);
@@ -53,6 +65,14 @@ public class GenericCompiler implements Compiler {
         this.astOptimizer = requireNonNull(builder.astOptimizer);
         this.codeGenerator = requireNonNull(builder.codeGenerator);
         this.assembler = requireNonNull(builder.assembler);
+        this.errorListener = builder.errorListener;
+        this.cache = builder.cache;
+        if (cache != null) {
+            requireNonNull(errorListener);
+        }
+        this.cacheInputs = builder.cacheInputs;
+        this.cacheExecutable = builder.cacheExecutable;
+        this.timeReport = requireNonNull(builder.timeReport);
     }
 
     public static Builder builder() {
@@ -71,24 +91,84 @@ public class GenericCompiler implements Compiler {
 
     @Override
     public TargetProgram compile() {
+        if (cache == null) {
+            return compile(inputStream);
+        }
+
+        final byte[] sourceBytes;
+        try {
+            sourceBytes = inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new JccException("Failed to read source file: " + e.getMessage());
+        }
+        final var key = cache.key(sourceBytes, cacheInputs.toArray(String[]::new));
+
+        final var cachedText = timeReport.measure("cache lookup", () -> cache.getProgram(key));
+        if (cachedText.isPresent()) {
+            log("  Found target code in cache");
+            cache.getWarnings(key).forEach(w -> errorListener.warning(w.line(), w.column(), w.msg(), w.warning()));
+            final var cachedProgram = new TargetProgram(List.of(new Text(cachedText.get())));
+
+            if (cacheExecutable && cache.getExecutable(key, outputPath)) {
+                log("  Found executable '" + outputPath + "' in cache");
+                return cachedProgram;
+            }
+
+            assemble(cachedProgram);
+            if (cacheExecutable) {
+                cache.putExecutable(key, outputPath);
+            }
+            return cachedProgram;
+        }
+
+        final var warningsBefore = errorListener.getWarnings().size();
+        final var generatedProgram = generate(new ByteArrayInputStream(sourceBytes));
+        final var warnings = List.copyOf(errorListener.getWarnings().subList(warningsBefore, errorListener.getWarnings().size()));
+        cache.putProgram(key, generatedProgram, warnings);
+
+        assemble(generatedProgram);
+        if (cacheExecutable) {
+            cache.putExecutable(key, outputPath);
+        }
+        return generatedProgram;
+    }
+
+    private TargetProgram compile(final InputStream inputStream) {
+        final var generatedProgram = generate(inputStream);
+        assemble(generatedProgram);
+        return generatedProgram;
+    }
+
+    private TargetProgram generate(final InputStream inputStream) {
         log("  Parsing syntax");
-        final var parsedProgram = syntaxParser.parse(inputStream).withSourcePath(sourcePath);
+        final var parsedProgram = timeReport.measure("syntax", () -> syntaxParser.parse(inputStream).withSourcePath(sourcePath));
 
         log("  Checking semantics");
-        final var checkedProgram = semanticsParser.parse(parsedProgram);
+        final var checkedProgram = timeReport.measure("semantics", () -> semanticsParser.parse(parsedProgram));
 
         log("  Optimizing");
-        final var optimizedProgram = astOptimizer.program(checkedProgram);
+        final var optimizedProgram = timeReport.measure("optimization", () -> astOptimizer.program(checkedProgram));
 
         log("  Generating target code");
-        final var generatedProgram = codeGenerator.generate(optimizedProgram);
-        //generatedProgram.lines().forEach(line -> System.out.println(line.toText()));
+        final var generatedProgram = timeReport.measure("code generation", () -> codeGenerator.generate(optimizedProgram));
 
+        if (timeReport.isEnabled()) {
+            timeReport.count("AST nodes", TimeReport.countNodes(optimizedProgram));
+            timeReport.count("emitted lines", generatedProgram.lines().size());
+        }
+        if (codeGenerator instanceof AbstractCodeGenerator asmCodeGenerator) {
+            asmCodeGenerator.peepholeOptimizer().hits().forEach((rule, hits) -> {
+                log("  Peephole rule " + rule + " applied " + hits + " time(s)");
+                timeReport.count("peephole " + rule, hits);
+            });
+        }
+        return generatedProgram;
+    }
+
+    private void assemble(final TargetProgram generatedProgram) {
         log("Assembling output");
         log("  Using backend " + assembler.getClass().getSimpleName());
         assembler.assemble(generatedProgram, sourcePath, outputPath);
-
-        return generatedProgram;
     }
 
     public static class Builder {
@@ -101,6 +181,11 @@ public class GenericCompiler implements Compiler {
         private CodeGenerator codeGenerator;
         private Assembler assembler;
         private AstOptimizer astOptimizer;
+        private CompilationErrorListener errorListener;
+        private CompilationCache cache;
+        private List<String> cacheInputs = List.of();
+        private boolean cacheExecutable;
+        private TimeReport timeReport = TimeReport.DISABLED;
 
         public Builder inputStream(final InputStream inputStream) {
             this.inputStream = inputStream;
@@ -142,6 +227,44 @@ public class GenericCompiler implements Compiler {
             return this;
         }
 
+        public Builder errorListener(final CompilationErrorListener errorListener) {
+            this.errorListener = errorListener;
+            return this;
+        }
+
+        /**
+         * Sets the compilation cache to use, or {@code null} to not use any cache.
+         */
+        public Builder cache(final CompilationCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        /**
+         * Sets the inputs, apart from the source code, that affect the compilation result,
+         * and that should be part of the cache key.
+         */
+        public Builder cacheInputs(final List<String> cacheInputs) {
+            this.cacheInputs = cacheInputs;
+            return this;
+        }
+
+        /**
+         * Sets whether the executable should be cached as well as the target program.
+         */
+        public Builder cacheExecutable(final boolean cacheExecutable) {
+            this.cacheExecutable = cacheExecutable;
+            return this;
+        }
+
+        /**
+         * Sets the time report to record the resources used by each compilation phase in.
+         */
+        public Builder timeReport(final TimeReport timeReport) {
+            this.timeReport = timeReport;
+            return this;
+        }
+
         public GenericCompiler build() {
             return new GenericCompiler(this);
         }
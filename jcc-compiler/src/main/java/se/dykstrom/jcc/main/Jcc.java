@@ -22,17 +22,25 @@ import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
 import se.dykstrom.jcc.common.error.*;
+import se.dykstrom.jcc.common.optimization.PeepholeRule;
 import se.dykstrom.jcc.common.utils.GcOptions;
 import se.dykstrom.jcc.common.utils.OptimizationOptions;
 import se.dykstrom.jcc.common.utils.VerboseLogger;
 import se.dykstrom.jcc.common.utils.Version;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static se.dykstrom.jcc.common.utils.VerboseLogger.log;
 import static se.dykstrom.jcc.main.Backend.FASM;
 
@@ -50,6 +58,13 @@ public class Jcc {
     private static final String PROGRAM = "jcc";
 
     private final String[] args;
+    private final Path workingDirectory;
+    private final Map<String, String> environment;
+    private final PrintStream out;
+    private final PrintStream err;
+
+    /** The compilation cache, or null if caching is disabled. */
+    private CompilationCache cache;
 
     @Parameter(names = "--backend", description = "Generate code for <backend>")
     private Backend backend = FASM;
@@ -60,6 +75,47 @@ public class Jcc {
     @Parameter(names = "-assembler-include", description = "Set the assembler's include directory to <directory>")
     private String assemblerInclude;
 
+    @SuppressWarnings({"FieldCanBeLocal", "CanBeFinal"})
+    @Parameter(names = "-assembler-timeout", description = "Stop the backend assembler if it has not finished after <seconds> seconds, 0 means never")
+    private int assemblerTimeout = 300;
+
+    @Parameter(names = "--cache-dir", description = "Cache compilation results in <directory>", converter = ToPathConverter.class)
+    private Path cacheDirectory = CompilationCache.defaultDirectory();
+
+    @SuppressWarnings({"FieldCanBeLocal", "CanBeFinal"})
+    @Parameter(names = "--cache-size", description = "Set the maximum size of the compilation cache in megabytes")
+    private long cacheSize = CompilationCache.DEFAULT_MAX_SIZE / (1024 * 1024);
+
+    @Parameter(names = "--daemon", description = "Run as a compile server, listening for requests on a local socket")
+    private boolean daemon;
+
+    @Parameter(names = "-fno-peephole-rules", description = "Do not apply the peephole rules in the comma-separated list <rules>, or any peephole rules if <rules> is 'all'")
+    private List<String> disabledPeepholeRules = new ArrayList<>();
+
+    @Parameter(names = "-ftime-report", description = "Print the time and memory used by each compilation phase")
+    private boolean timeReport;
+
+    @Parameter(names = "-ftime-report-json", description = "Write the time and memory used by each compilation phase to <file> in JSON format", converter = ToPathConverter.class)
+    private Path timeReportPath;
+
+    @Parameter(names = "-gc-adaptive", description = "Size the next garbage collection threshold from the survival rate of the previous collection")
+    private boolean gcAdaptive;
+
+    @SuppressWarnings({"FieldCanBeLocal", "CanBeFinal"})
+    @Parameter(names = "-gc-growth-factor", description = "Set the factor to multiply the live data with to get the next garbage collection threshold")
+    private double gcGrowthFactor = GcOptions.DEFAULT_GROWTH_FACTOR;
+
+    @SuppressWarnings({"FieldCanBeLocal", "CanBeFinal"})
+    @Parameter(names = "-gc-max-heap", description = "Stop the program if the live data exceeds <bytes> bytes after garbage collection, 0 means unlimited")
+    private long gcMaxHeap = 0;
+
+    @SuppressWarnings({"FieldCanBeLocal", "CanBeFinal"})
+    @Parameter(names = "-gc-min-threshold", description = "Set the minimum number of allocated bytes before garbage collection")
+    private long gcMinThreshold = GcOptions.DEFAULT_MIN_THRESHOLD;
+
+    @Parameter(names = "-gc-stats", description = "Print garbage collection statistics at program exit")
+    private boolean gcStats;
+
     @Parameter(names = "--help", description = "Show this help text", help = true)
     private boolean showHelp;
 
@@ -67,15 +123,25 @@ public class Jcc {
     @Parameter(names = "-initial-gc-threshold", description = "Set the number of allocations before first garbage collection")
     private int initialGcThreshold = 100;
 
+    @SuppressWarnings({"FieldCanBeLocal", "CanBeFinal"})
+    @Parameter(names = "-j", description = "Compile up to <jobs> source files in parallel")
+    private int jobs = Runtime.getRuntime().availableProcessors();
+
     @Parameter(names = {"-O", "-O1"}, description = "Optimization level 1")
     private boolean o1;
 
     @Parameter(names = "-O2", description = "Optimization level 2")
     private boolean o2;
 
+    @Parameter(names = "--no-cache", description = "Do not use the compilation cache")
+    private boolean noCache;
+
     @Parameter(names = "-o", description = "Place output in <file>", converter = ToPathConverter.class)
     private Path outputPath;
 
+    @Parameter(names = "-pipe", description = "Pipe LLVM IR to the backend compiler instead of using a temporary file")
+    private boolean pipe;
+
     @Parameter(names = "-print-gc", description = "Print messages at garbage collection")
     private boolean printGc;
 
@@ -85,6 +151,9 @@ public class Jcc {
     @Parameter(names = "-save-temps", description = "Save temporary intermediate files permanently")
     private boolean saveTemps;
 
+    @Parameter(names = "--socket", description = "Use <socket> as the compile server socket", converter = ToPathConverter.class)
+    private Path socketPath = JccDaemon.defaultSocketPath();
+
     @Parameter(names = "--version", description = "Show compiler version", help = true)
     private boolean showVersion;
 
@@ -100,34 +169,102 @@ public class Jcc {
     @Parameter(names = {"-v", "--verbose"}, description = "Verbose mode")
     private boolean verbose;
 
-    @Parameter(description = "<source file>", converter = ToPathConverter.class)
-    private Path sourcePath;
+    @Parameter(description = "<source files>", converter = ToPathConverter.class)
+    private List<Path> sourcePaths = new ArrayList<>();
 
     public Jcc(String[] args) {
+        this(args, null, Map.of(), System.out, System.err);
+    }
+
+    /**
+     * Creates a new instance that compiles the files given in {@code args}. Relative paths are
+     * resolved against {@code workingDirectory}, and any assembler process is started in that
+     * directory, with its environment extended with {@code environment}. All output is written to
+     * {@code out} and {@code err}. This is used when the compiler runs as a compile server, serving
+     * requests from clients in other directories.
+     */
+    public Jcc(final String[] args,
+               final Path workingDirectory,
+               final Map<String, String> environment,
+               final PrintStream out,
+               final PrintStream err) {
         this.args = args;
+        this.workingDirectory = workingDirectory;
+        this.environment = environment;
+        this.out = out;
+        this.err = err;
     }
 
     int run() {
         // Parse and validate command line arguments
         try {
             JCommander jCommander = new JCommander(this);
-            jCommander.parse(args);
+            jCommander.parse(resolveFileLists(args));
 
             if (showVersion) {
                 showVersion();
                 return 0;
-            } else if (showHelp || sourcePath == null) {
+            } else if (daemon) {
+                return new JccDaemon(socketPath).run();
+            } else if (showHelp || sourcePaths.isEmpty()) {
                 showUsage(jCommander);
                 return 1;
             }
         } catch (ParameterException pe) {
-            System.err.println(PROGRAM + ": " + pe.getMessage());
+            err.println(PROGRAM + ": " + pe.getMessage());
             return 1;
         }
 
+        if (outputPath != null && sourcePaths.size() > 1) {
+            err.println(PROGRAM + ": error: cannot specify -o with multiple files");
+            return 1;
+        }
+        if (jobs < 1) {
+            err.println(PROGRAM + ": error: invalid number of jobs: " + jobs);
+            return 1;
+        }
+        if (assemblerTimeout < 0) {
+            err.println(PROGRAM + ": error: invalid assembler timeout: " + assemblerTimeout);
+            return 1;
+        }
+        if (cacheSize < 0) {
+            err.println(PROGRAM + ": error: invalid cache size: " + cacheSize);
+            return 1;
+        }
+        if (gcGrowthFactor <= 1.0) {
+            err.println(PROGRAM + ": error: invalid GC growth factor: " + gcGrowthFactor);
+            return 1;
+        }
+        if (gcMinThreshold < 1) {
+            err.println(PROGRAM + ": error: invalid GC min threshold: " + gcMinThreshold);
+            return 1;
+        }
+        if (gcMaxHeap < 0 || (gcMaxHeap > 0 && gcMaxHeap < gcMinThreshold)) {
+            err.println(PROGRAM + ": error: invalid GC max heap: " + gcMaxHeap);
+            return 1;
+        }
+        final Set<PeepholeRule> peepholeRules = EnumSet.allOf(PeepholeRule.class);
+        for (String name : disabledPeepholeRules) {
+            if (name.equalsIgnoreCase("all")) {
+                peepholeRules.clear();
+            } else {
+                final var rule = Arrays.stream(PeepholeRule.values()).filter(r -> r.name().equalsIgnoreCase(name)).findFirst();
+                if (rule.isEmpty()) {
+                    err.println(PROGRAM + ": error: invalid peephole rule: " + name);
+                    return 1;
+                }
+                peepholeRules.remove(rule.get());
+            }
+        }
+
         // Set up GC options
         GcOptions.INSTANCE.setPrintGc(printGc);
+        GcOptions.INSTANCE.setStats(gcStats);
         GcOptions.INSTANCE.setInitialGcThreshold(initialGcThreshold);
+        GcOptions.INSTANCE.setGrowthFactor(gcGrowthFactor);
+        GcOptions.INSTANCE.setMinThreshold(gcMinThreshold);
+        GcOptions.INSTANCE.setMaxHeap(gcMaxHeap);
+        GcOptions.INSTANCE.setAdaptive(gcAdaptive);
 
         // Set up optimization options
         if (o2) {
@@ -137,6 +274,7 @@ public class Jcc {
         } else {
             OptimizationOptions.INSTANCE.setLevel(0);
         }
+        OptimizationOptions.INSTANCE.setPeepholeRules(peepholeRules);
 
         // Set up warning options
         if (wAll) {
@@ -147,15 +285,94 @@ public class Jcc {
         // Set up assembler executable
         if (assemblerExecutable == null) {
             assemblerExecutable = backend.executable();
+        } else if (Path.of(assemblerExecutable).getNameCount() > 1) {
+            // Only resolve paths, and not executables that will be looked up in the PATH
+            assemblerExecutable = resolve(Path.of(assemblerExecutable)).toString();
+        }
+        if (assemblerInclude != null) {
+            assemblerInclude = resolve(Path.of(assemblerInclude)).toString();
         }
 
         // Turn on verbose mode if required
         VerboseLogger.setVerbose(verbose);
+        VerboseLogger.setOut(out);
 
         log("Running " + PROGRAM + " " + Version.instance());
+
+        // Set up compilation cache
+        if (!noCache) {
+            cache = new CompilationCache(resolve(cacheDirectory), cacheSize * 1024 * 1024);
+        }
+
+        final List<CompilationResult> results;
+        if (sourcePaths.size() == 1) {
+            results = List.of(compile(sourcePaths.getFirst()));
+        } else {
+            results = compileInParallel();
+        }
+
+        // Print the results in source file order to make the output deterministic
+        int status = 0;
+        for (CompilationResult result : results) {
+            result.messages().forEach(err::println);
+            status = Math.max(status, result.status());
+        }
+
+        if (timeReportPath != null) {
+            status = Math.max(status, writeTimeReports(results));
+        }
+        return status;
+    }
+
+    private List<CompilationResult> compileInParallel() {
+        final var threads = Math.min(jobs, sourcePaths.size());
+        log("Compiling " + sourcePaths.size() + " source files using " + threads + " threads");
+
+        // Each source file is compiled by its own compiler instance, so the only thing the
+        // threads share is the immutable compiler configuration. We use platform threads,
+        // because the JVM does not measure CPU time and allocations for virtual threads.
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            final List<Future<CompilationResult>> futures = sourcePaths.stream()
+                    .map(path -> executor.submit(() -> compile(path)))
+                    .toList();
+            return futures.stream().map(Jcc::getResult).toList();
+        }
+    }
+
+    /**
+     * Writes the time reports of all compiled files to the time report file as a JSON array.
+     *
+     * @return The exit status, 0 if successful, and 1 if writing failed.
+     */
+    private int writeTimeReports(final List<CompilationResult> results) {
+        final var json = new StringBuilder("[");
+        for (int i = 0; i < results.size(); i++) {
+            if (i > 0) {
+                json.append(",");
+            }
+            json.append("\n  ").append(results.get(i).timeReport().toJson(sourcePaths.get(i).toString()));
+        }
+        json.append("\n]\n");
+
+        try {
+            Files.writeString(resolve(timeReportPath), json, UTF_8);
+            return 0;
+        } catch (IOException e) {
+            err.println(PROGRAM + ": error: failed to write time report: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Compiles the single source file {@code sourcePath}, and returns the compilation result.
+     * Any messages are collected in the result instead of being printed, so that the caller
+     * can present them in a deterministic order when compiling several files in parallel.
+     */
+    private CompilationResult compile(final Path sourcePath) {
         log("Creating compiler");
 
         final CompilationErrorListener errorListener = new CompilationErrorListener();
+        final TimeReport report = (timeReport || timeReportPath != null) ? new TimeReport() : TimeReport.DISABLED;
 
         final CompilerFactory factory = CompilerFactory.builder()
                 .backend(backend)
@@ -163,42 +380,84 @@ public class Jcc {
                 .saveTemps(saveTemps)
                 .assemblerExecutable(assemblerExecutable)
                 .assemblerInclude(assemblerInclude)
+                .workingDirectory(workingDirectory)
+                .environment(environment)
+                .assemblerTimeout((assemblerTimeout > 0) ? Duration.ofSeconds(assemblerTimeout) : null)
+                .pipe(pipe)
+                .cache(cache)
                 .errorListener(errorListener)
+                .timeReport(report)
                 .build();
 
         final Compiler compiler;
         try {
-            compiler = factory.create(sourcePath, outputPath);
+            compiler = factory.create(resolve(sourcePath), (outputPath != null) ? resolve(outputPath) : null);
         } catch (IllegalArgumentException e) {
-            System.err.println(PROGRAM + ": error: " + e.getMessage());
-            return 1;
+            return CompilationResult.failure(PROGRAM + ": error: " + e.getMessage());
         } catch (FileNotFoundException e) {
-            System.err.println(PROGRAM + ": error: " + sourcePath + ": No such file or directory");
-            return 1;
+            return CompilationResult.failure(PROGRAM + ": error: " + sourcePath + ": No such file or directory");
         }
 
         try {
             compiler.compile();
         } catch (SyntaxException | SemanticsException e) {
-            showMessages(sourcePath, errorListener.getWarnings(), errorListener.getErrors());
-            return 1;
+            return new CompilationResult(1, formatMessages(sourcePath, errorListener.getWarnings(), errorListener.getErrors()), report);
         } catch (JccException e) {
-            System.err.println(PROGRAM + ": error: " + e.getMessage());
-            return 1;
+            return CompilationResult.failure(PROGRAM + ": error: " + e.getMessage());
         }
 
         // Here there will be no errors, but maybe some warnings
-        showMessages(sourcePath, errorListener.getWarnings(), errorListener.getErrors());
-        return 0;
+        final var messages = formatMessages(sourcePath, errorListener.getWarnings(), errorListener.getErrors());
+        if (timeReport) {
+            messages.add(report.toTable(sourcePath.toString()).stripTrailing());
+        }
+        return new CompilationResult(0, messages, report);
     }
 
-    private void showMessages(final Path sourcePath,
-                              final List<CompilationWarning> warnings,
-                              final List<CompilationError> errors) {
+    /**
+     * Resolves the paths of any file lists (arguments starting with '@') against the working directory.
+     * The file names in the file lists are resolved later, together with the other source file names.
+     */
+    private String[] resolveFileLists(final String[] args) {
+        final var resolvedArgs = new String[args.length];
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("@") && args[i].length() > 1) {
+                resolvedArgs[i] = "@" + resolve(Path.of(args[i].substring(1)));
+            } else {
+                resolvedArgs[i] = args[i];
+            }
+        }
+        return resolvedArgs;
+    }
+
+    /**
+     * Resolves the given path against the working directory, if any.
+     */
+    private Path resolve(final Path path) {
+        return (workingDirectory != null) ? workingDirectory.resolve(path) : path;
+    }
+
+    private static CompilationResult getResult(final Future<CompilationResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompilationResult.failure(PROGRAM + ": error: interrupted");
+        } catch (ExecutionException e) {
+            // Keep the exception type, since some exceptions, such as NullPointerException, have no message
+            return CompilationResult.failure(PROGRAM + ": error: " + e.getCause());
+        }
+    }
+
+    private List<String> formatMessages(final Path sourcePath,
+                                        final List<CompilationWarning> warnings,
+                                        final List<CompilationError> errors) {
         final List<CompilationMessage> messages = new ArrayList<>(warnings);
         messages.addAll(errors);
         Collections.sort(messages);
 
+        final List<String> lines = new ArrayList<>();
+
         for (CompilationMessage message : messages) {
             final var text = new StringBuilder();
             text.append(sourcePath).append(":");
@@ -216,8 +475,9 @@ public class Jcc {
             }
 
             text.append(message.msg());
-            System.err.println(text);
+            lines.add(text.toString());
         }
+        return lines;
     }
 
     private boolean shouldShowWarning(Warning warning) {
@@ -229,11 +489,13 @@ public class Jcc {
 
     private void showUsage(JCommander jCommander) {
         jCommander.setProgramName(PROGRAM);
-        jCommander.usage();
+        final var usage = new StringBuilder();
+        jCommander.getUsageFormatter().usage(usage);
+        out.print(usage);
     }
 
     private void showVersion() {
-        System.out.println(PROGRAM + " " + Version.instance());
+        out.println(PROGRAM + " " + Version.instance());
     }
 
     public static void main(String[] args) {
@@ -242,6 +504,16 @@ public class Jcc {
         System.exit(status);
     }
 
+    /**
+     * The result of compiling a single source file: the exit status,
+     * the messages to print to stderr, and the time report.
+     */
+    private record CompilationResult(int status, List<String> messages, TimeReport timeReport) {
+        static CompilationResult failure(final String message) {
+            return new CompilationResult(1, List.of(message), TimeReport.DISABLED);
+        }
+    }
+
     /**
      * A class that converts a String to a Path for some JCommander parameters.
      */
@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.main;
+
+import jdk.net.ExtendedSocketOptions;
+import jdk.net.UnixDomainPrincipal;
+import se.dykstrom.jcc.common.utils.VerboseLogger;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.attribute.PosixFilePermission.*;
+
+/**
+ * A compile server that keeps a warmed-up compiler alive between compilations. The server
+ * listens for compile requests on a local Unix domain socket. Each request contains the
+ * command line arguments, working directory, and environment of a client, typically the
+ * jcc start script. The server compiles the requested files, and sends the exit status
+ * and all output back to the client.
+ * <p>
+ * Since a request can run any assembler, with any environment, the server only accepts
+ * requests from processes that run as the same user as the server itself. The socket is
+ * created in a directory that only the user can access, and the user of each client is
+ * verified using the peer credentials of the socket.
+ * <p>
+ * Requests are served one at a time, since some compiler options are stored globally.
+ * A single request can, however, compile several files in parallel.
+ * <p>
+ * All strings in requests and responses are encoded as a 4-byte length in big-endian
+ * order, followed by that many bytes of UTF-8 text. A request consists of the working
+ * directory, the number of arguments, the arguments, the number of environment variables,
+ * and the name and value of each variable. A response consists of a 4-byte exit status,
+ * the text written to stdout, and the text written to stderr.
+ *
+ * @author Johan Dykstrom
+ */
+@SuppressWarnings("java:S106")
+public class JccDaemon {
+
+    private static final String PROGRAM = "jcc";
+
+    /** The environment variable that specifies the socket path. */
+    private static final String SOCKET_VARIABLE = "JCC_SOCKET";
+
+    /** The number of times each warm-up program is compiled when the server starts. */
+    private static final int WARM_UP_ITERATIONS = 20;
+
+    /** Small programs in all supported languages, used to warm up the compiler. */
+    private static final Map<String, String> WARM_UP_PROGRAMS = Map.of(
+            "warm.asmb", "cpy 7 a\ninc a\njnz a 2\noutn a\n",
+            "warm.bas", "DEF FNtwice$(s$ AS STRING) = s$ + s$\ni% = 1\nWHILE i% < 10\n  s$ = s$ + FNtwice$(str$(i% * 2.5))\n  i% = i% + 1\nWEND\nIF len(s$) > 3 THEN PRINT s$ ELSE GOSUB 10\nEND\n10 PRINT \"Hi\"\nRETURN\n",
+            "warm.col", "fun f(x as i64) -> i64 := x * 2 + 1\ncall println(f(17))\n",
+            "warm.tiny", "BEGIN READ a, b c := a + b WRITE c END\n"
+    );
+
+    private final Path socketPath;
+
+    public JccDaemon(final Path socketPath) {
+        this.socketPath = socketPath;
+    }
+
+    /** The permissions of the socket directory, if the server creates it. */
+    private static final Set<PosixFilePermission> DIRECTORY_PERMISSIONS = EnumSet.of(OWNER_READ, OWNER_WRITE, OWNER_EXECUTE);
+
+    /** The permissions of the socket. */
+    private static final Set<PosixFilePermission> SOCKET_PERMISSIONS = EnumSet.of(OWNER_READ, OWNER_WRITE);
+
+    /**
+     * Returns the default socket path. This is the value of the environment variable JCC_SOCKET
+     * if it is set, and otherwise "jcc.sock" in $XDG_RUNTIME_DIR. If neither variable is set,
+     * the socket is placed in a private directory, named after the current user, in the
+     * temporary directory.
+     */
+    public static Path defaultSocketPath() {
+        final var socket = System.getenv(SOCKET_VARIABLE);
+        if (socket != null && !socket.isBlank()) {
+            return Path.of(socket);
+        }
+        final var runtimeDir = System.getenv("XDG_RUNTIME_DIR");
+        if (runtimeDir != null && !runtimeDir.isBlank()) {
+            return Path.of(runtimeDir, "jcc.sock");
+        }
+        return Path.of(System.getProperty("java.io.tmpdir"), "jcc-" + System.getProperty("user.name"), "jcc.sock");
+    }
+
+    /**
+     * Warms up the compiler, and then serves compile requests until the process is terminated.
+     *
+     * @return The exit status of the server.
+     */
+    public int run() {
+        warmUp();
+
+        try {
+            checkSocketDirectory(socketPath.toAbsolutePath().getParent());
+            Files.deleteIfExists(socketPath);
+        } catch (IOException e) {
+            System.err.println(PROGRAM + ": error: " + socketPath + ": " + e.getMessage());
+            return 1;
+        }
+
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            socketPath.toFile().deleteOnExit();
+            if (isPosix(socketPath)) {
+                Files.setPosixFilePermissions(socketPath, SOCKET_PERMISSIONS);
+            }
+            final var user = Files.getOwner(socketPath).getName();
+            System.out.println(PROGRAM + ": listening on " + socketPath);
+
+            //noinspection InfiniteLoopStatement
+            while (true) {
+                try (SocketChannel channel = server.accept()) {
+                    if (isSameUser(channel, user)) {
+                        serve(channel);
+                    } else {
+                        System.err.println(PROGRAM + ": error: rejected request from another user");
+                    }
+                } catch (IOException e) {
+                    System.err.println(PROGRAM + ": error: failed to serve request: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println(PROGRAM + ": error: " + socketPath + ": " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Makes sure that the socket directory exists, and that no other user can access it, or
+     * replace the socket in it. If the directory does not exist, it is created with permissions
+     * that only allow the current user to access it.
+     */
+    private static void checkSocketDirectory(final Path directory) throws IOException {
+        if (!isPosix(directory)) {
+            Files.createDirectories(directory);
+            return;
+        }
+        if (Files.notExists(directory)) {
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(DIRECTORY_PERMISSIONS));
+        }
+        final var owner = Files.getOwner(directory).getName();
+        if (!owner.equals(System.getProperty("user.name"))) {
+            throw new IOException("socket directory " + directory + " is owned by " + owner);
+        }
+        final var permissions = Files.getPosixFilePermissions(directory);
+        if (permissions.contains(GROUP_WRITE) || permissions.contains(OTHERS_WRITE)) {
+            throw new IOException("socket directory " + directory + " is writable by other users");
+        }
+    }
+
+    private static boolean isPosix(final Path path) {
+        return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+
+    /**
+     * Returns true if the client connected to the given channel runs as the given user.
+     * If the peer credentials of the client cannot be read, the client is rejected.
+     */
+    private static boolean isSameUser(final SocketChannel channel, final String user) {
+        try {
+            final UnixDomainPrincipal principal = channel.getOption(ExtendedSocketOptions.SO_PEERCRED);
+            return principal.user().getName().equals(user);
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads a single request from the given channel, executes it, and writes the response.
+     */
+    private void serve(final SocketChannel channel) throws IOException {
+        final var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        final var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        final Response response = execute(Request.readFrom(in));
+        response.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Executes the given request, capturing everything the compiler writes to stdout and stderr.
+     */
+    static Response execute(final Request request) {
+        if (request.args().contains("--daemon")) {
+            return new Response(1, "", PROGRAM + ": error: compile server is already running\n");
+        }
+
+        final var stdout = new ByteArrayOutputStream();
+        final var stderr = new ByteArrayOutputStream();
+
+        int status;
+        try (var out = new PrintStream(stdout, true, UTF_8); var err = new PrintStream(stderr, true, UTF_8)) {
+            final var args = request.args().toArray(String[]::new);
+            status = new Jcc(args, request.workingDirectory(), request.environment(), out, err).run();
+        } catch (Throwable e) {
+            // Errors such as StackOverflowError fail this request only, the server keeps running
+            stderr.writeBytes((PROGRAM + ": error: " + e + "\n").getBytes(UTF_8));
+            status = 1;
+        } finally {
+            VerboseLogger.setOut(System.out);
+        }
+
+        return new Response(status, stdout.toString(UTF_8), stderr.toString(UTF_8));
+    }
+
+    /**
+     * Warms up the compiler by compiling small programs in all supported languages a number
+     * of times. This loads all classes, deserializes the ANTLR parsers, and lets the JIT compiler
+     * compile the most important code paths before the first real request arrives.
+     */
+    private void warmUp() {
+        try {
+            final Path directory = Files.createTempDirectory("jcc-warm-up-");
+            final List<String> args = new ArrayList<>(List.of("-S", "-O2", "--no-cache"));
+            for (var entry : WARM_UP_PROGRAMS.entrySet()) {
+                Files.writeString(directory.resolve(entry.getKey()), entry.getValue(), UTF_8);
+                args.add(entry.getKey());
+            }
+            final var request = new Request(directory, args, Map.of());
+            for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+                execute(request);
+            }
+            try (var paths = Files.list(directory)) {
+                for (Path path : paths.toList()) {
+                    Files.delete(path);
+                }
+            }
+            Files.delete(directory);
+        } catch (IOException e) {
+            // Warming up is only an optimization, so we just continue without it
+            System.err.println(PROGRAM + ": warning: failed to warm up compiler: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A compile request, sent from the client to the server.
+     */
+    public record Request(Path workingDirectory, List<String> args, Map<String, String> environment) {
+
+        public void writeTo(final DataOutputStream out) throws IOException {
+            writeString(workingDirectory.toString(), out);
+            out.writeInt(args.size());
+            for (String arg : args) {
+                writeString(arg, out);
+            }
+            out.writeInt(environment.size());
+            for (var entry : environment.entrySet()) {
+                writeString(entry.getKey(), out);
+                writeString(entry.getValue(), out);
+            }
+        }
+
+        public static Request readFrom(final DataInputStream in) throws IOException {
+            final var workingDirectory = Path.of(readString(in));
+            final var numberOfArgs = in.readInt();
+            final List<String> args = new ArrayList<>();
+            for (int i = 0; i < numberOfArgs; i++) {
+                args.add(readString(in));
+            }
+            final var numberOfVariables = in.readInt();
+            final Map<String, String> environment = new HashMap<>();
+            for (int i = 0; i < numberOfVariables; i++) {
+                environment.put(readString(in), readString(in));
+            }
+            return new Request(workingDirectory, args, environment);
+        }
+    }
+
+    /**
+     * A compile response, sent from the server to the client.
+     */
+    public record Response(int status, String stdout, String stderr) {
+
+        public void writeTo(final DataOutputStream out) throws IOException {
+            out.writeInt(status);
+            writeString(stdout, out);
+            writeString(stderr, out);
+        }
+
+        public static Response readFrom(final DataInputStream in) throws IOException {
+            return new Response(in.readInt(), readString(in), readString(in));
+        }
+    }
+
+    // Strings are written with a 4-byte length, since compiler output may be longer than the 64 KB
+    // supported by writeUTF, and since a length in bytes is easy to read in a shell script client
+    private static void writeString(final String s, final DataOutputStream out) throws IOException {
+        final var bytes = s.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final var length = in.readInt();
+        final var bytes = in.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException("expected " + length + " bytes, but got " + bytes.length);
+        }
+        return new String(bytes, UTF_8);
+    }
+}
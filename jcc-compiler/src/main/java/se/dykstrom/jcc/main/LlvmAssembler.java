@@ -23,13 +23,13 @@ import se.dykstrom.jcc.common.utils.OptimizationOptions;
 import se.dykstrom.jcc.common.utils.ProcessUtils;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static se.dykstrom.jcc.common.utils.FileUtils.withExtension;
 import static se.dykstrom.jcc.common.utils.FormatUtils.indentText;
 import static se.dykstrom.jcc.common.utils.VerboseLogger.log;
@@ -40,17 +40,45 @@ import static se.dykstrom.jcc.common.utils.VerboseLogger.log;
 public class LlvmAssembler implements Assembler {
 
     private final String clangExecutable;
+    private final Path workingDirectory;
+    private final Map<String, String> environment;
+    private final Duration timeout;
     private final boolean compileOnly;
     private final boolean saveTemps;
+    private final boolean pipe;
+    private final TimeReport timeReport;
 
-    public LlvmAssembler(final String clangExecutable, final boolean compileOnly, final boolean saveTemps) {
+    public LlvmAssembler(final String clangExecutable,
+                         final Path workingDirectory,
+                         final Map<String, String> environment,
+                         final Duration timeout,
+                         final boolean compileOnly,
+                         final boolean saveTemps,
+                         final boolean pipe,
+                         final TimeReport timeReport) {
         this.clangExecutable = clangExecutable;
+        this.workingDirectory = workingDirectory;
+        this.environment = environment;
+        this.timeout = timeout;
         this.compileOnly = compileOnly;
         this.saveTemps = saveTemps;
+        this.pipe = pipe;
+        this.timeReport = timeReport;
     }
 
     @Override
     public void assemble(final TargetProgram program, final Path sourcePath, final Path outputPath) {
+        // Saving temporary files requires an LLVM IR file, so we cannot use a pipe then
+        if (pipe && !saveTemps) {
+            // When reading from stdin, clang cannot derive the assembly file name from the input file name
+            final var actualOutputPath = (compileOnly && outputPath == null) ? withExtension(sourcePath, "s") : outputPath;
+            final List<String> clangCommandLine = buildCommandLine(List.of("-x", "ir", "-"), actualOutputPath);
+            logCommandLine(clangCommandLine, actualOutputPath);
+            log("  Piping LLVM IR to clang");
+            timeReport.measure("assembler", () -> runAssembler(clangCommandLine, program::writeTo));
+            return;
+        }
+
         final Path llvmPath = withExtension(sourcePath, "ll");
 
         // If user has not requested to save temporary files, delete them on exit
@@ -60,43 +88,47 @@ public class LlvmAssembler implements Assembler {
 
         // Create LLVM IR file
         log("  Writing LLVM IR file '" + llvmPath + "'");
-        final List<String> llvmText = List.of(program.toText());
-        try {
-            Files.write(llvmPath, llvmText, UTF_8);
-        } catch (IOException e) {
-            throw new JccException("Failed to write LLVM IR file: " + e.getMessage());
-        }
+        timeReport.measure("file write", () -> {
+            try {
+                program.writeTo(llvmPath);
+            } catch (IOException e) {
+                throw new JccException("Failed to write LLVM IR file: " + e.getMessage());
+            }
+        });
 
-        final List<String> clangCommandLine = buildCommandLine(llvmPath, outputPath);
+        final List<String> clangCommandLine = buildCommandLine(List.of(llvmPath.toString()), outputPath);
+        logCommandLine(clangCommandLine, outputPath);
+        timeReport.measure("assembler", () -> runAssembler(clangCommandLine, null));
+    }
 
+    private void logCommandLine(final List<String> clangCommandLine, final Path outputPath) {
         if (outputPath == null) {
             log("  Creating default executable: a.exe or a.out");
         } else {
             log("  Creating executable '" + outputPath + "'");
         }
         log("  Clang command line '" + String.join(" ", clangCommandLine) + "'");
-        Process process;
+    }
+
+    private void runAssembler(final List<String> commandLine, final ProcessUtils.InputWriter inputWriter) {
+        final ProcessUtils.ProcessResult result;
         try {
-            process = ProcessUtils.setUpProcess(clangCommandLine, Map.of());
+            result = ProcessUtils.runProcess(commandLine, environment, workingDirectory, timeout, inputWriter);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new JccException("Failed to run clang: " + e.getMessage());
-        } catch (IOException e) {
+        } catch (IOException | TimeoutException e) {
             throw new JccException("Failed to run clang: " + e.getMessage());
         }
 
-        try {
-            final var output = ProcessUtils.readOutput(process);
-            log(indentText(output, 2));
-            if (process.exitValue() != 0) {
-                throw new JccException("Compilation failed, see clang output: " + output);
-            }
-        } finally {
-            ProcessUtils.tearDownProcess(process);
+        final var output = result.output();
+        log(indentText(output, 2));
+        if (result.exitValue() != 0) {
+            throw new JccException("Compilation failed, see clang output: " + output);
         }
     }
 
-    private List<String> buildCommandLine(final Path llvmPath, final Path outputPath) {
+    private List<String> buildCommandLine(final List<String> inputArgs, final Path outputPath) {
         final var args = new ArrayList<String>();
         args.add(clangExecutable);
         if (compileOnly) {
@@ -109,7 +141,7 @@ public class LlvmAssembler implements Assembler {
         if (isLinux()) {
             args.add("-lm"); // Math library - required on Linux
         }
-        args.add(llvmPath.toString());
+        args.addAll(inputArgs);
         if (outputPath != null) {
             args.add("-o");
             args.add(outputPath.toString());
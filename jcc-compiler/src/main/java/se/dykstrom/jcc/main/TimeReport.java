@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.main;
+
+import se.dykstrom.jcc.common.ast.Node;
+import se.dykstrom.jcc.common.utils.NodeUtils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Records the resources used by each phase of a single compilation: wall-clock time,
+ * thread CPU time, and the number of bytes allocated by the compiling thread. A report
+ * can also hold counters, such as the number of AST nodes. The report can be formatted
+ * as a table, or as JSON.
+ * <p>
+ * CPU time and allocated bytes are measured for the current thread only, so they do not
+ * include the resources used by external processes, such as the backend assembler.
+ * If the JVM does not support measuring them, they are reported as -1.
+ *
+ * @author Johan Dykstrom
+ */
+public class TimeReport {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    /** A time report that does not record anything, used when no time report has been requested. */
+    public static final TimeReport DISABLED = new TimeReport(false);
+
+    private final List<Phase> phases = new ArrayList<>();
+    private final Map<String, Long> counters = new LinkedHashMap<>();
+    private final boolean enabled;
+
+    public TimeReport() {
+        this(true);
+    }
+
+    private TimeReport(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns {@code true} if this time report records anything.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs the given phase, and records the resources it uses.
+     */
+    public void measure(final String name, final Runnable phase) {
+        measure(name, () -> {
+            phase.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs the given phase, records the resources it uses, and returns its result.
+     */
+    public <T> T measure(final String name, final Supplier<T> phase) {
+        if (!enabled) {
+            return phase.get();
+        }
+        final long startAllocated = allocatedBytes();
+        final long startCpu = cpuTime();
+        final long startWall = System.nanoTime();
+        try {
+            return phase.get();
+        } finally {
+            final long wall = System.nanoTime() - startWall;
+            final long cpu = (startCpu == -1) ? -1 : cpuTime() - startCpu;
+            final long allocated = (startAllocated == -1) ? -1 : allocatedBytes() - startAllocated;
+            phases.add(new Phase(name, wall, cpu, allocated));
+        }
+    }
+
+    /**
+     * Records the value of the named counter.
+     */
+    public void count(final String name, final long value) {
+        if (enabled) {
+            counters.put(name, value);
+        }
+    }
+
+    /**
+     * Returns all phases recorded so far, in the order they were run.
+     */
+    public List<Phase> phases() {
+        return phases;
+    }
+
+    /**
+     * Returns all counters recorded so far.
+     */
+    public Map<String, Long> counters() {
+        return counters;
+    }
+
+    /**
+     * Formats this report as a table, with one row per phase, followed by the counters.
+     */
+    public String toTable(final String title) {
+        final var builder = new StringBuilder();
+        builder.append("Time report for ").append(title).append("\n");
+        builder.append(String.format("  %-20s %12s %12s %16s%n", "Phase", "Wall (ms)", "CPU (ms)", "Allocated (KB)"));
+        for (Phase phase : phases) {
+            builder.append(formatRow(phase.name(), phase.wallNanos(), phase.cpuNanos(), phase.allocatedBytes()));
+        }
+        builder.append(formatRow("total",
+                phases.stream().mapToLong(Phase::wallNanos).sum(),
+                sum(phases.stream().map(Phase::cpuNanos).toList()),
+                sum(phases.stream().map(Phase::allocatedBytes).toList())));
+        counters.forEach((name, value) -> builder.append(String.format("  %-20s %12d%n", name, value)));
+        return builder.toString();
+    }
+
+    /**
+     * Formats this report as a JSON object. Times are given in nanoseconds, and sizes in bytes.
+     */
+    public String toJson(final String title) {
+        final var phasesJson = phases.stream()
+                .map(p -> "{\"name\":" + quote(p.name()) +
+                          ",\"wallNanos\":" + p.wallNanos() +
+                          ",\"cpuNanos\":" + p.cpuNanos() +
+                          ",\"allocatedBytes\":" + p.allocatedBytes() + "}")
+                .collect(joining(",", "[", "]"));
+        final var countersJson = counters.entrySet().stream()
+                .map(e -> quote(e.getKey()) + ":" + e.getValue())
+                .collect(joining(",", "{", "}"));
+        return "{\"file\":" + quote(title) + ",\"phases\":" + phasesJson + ",\"counters\":" + countersJson + "}";
+    }
+
+    /**
+     * Counts the nodes in the AST rooted at {@code root}. Since the AST classes do not share
+     * a common way to access their children, the children are found by looking at all fields
+     * that contain nodes, or collections of nodes.
+     */
+    public static long countNodes(final Node root) {
+        final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Deque<Object> queue = new ArrayDeque<>();
+        queue.push(root);
+        long count = 0;
+        while (!queue.isEmpty()) {
+            final var object = queue.pop();
+            if (object instanceof Node node && visited.add(node)) {
+                count++;
+                NodeUtils.fieldValues(node).stream().filter(Node.class::isInstance).forEach(queue::push);
+            }
+        }
+        return count;
+    }
+
+    private static String formatRow(final String name, final long wallNanos, final long cpuNanos, final long allocatedBytes) {
+        return String.format("  %-20s %12.3f %12s %16s%n",
+                name,
+                wallNanos / 1_000_000.0,
+                (cpuNanos == -1) ? "-" : String.format("%.3f", cpuNanos / 1_000_000.0),
+                (allocatedBytes == -1) ? "-" : String.valueOf(allocatedBytes / 1024));
+    }
+
+    private static long sum(final List<Long> values) {
+        return values.contains(-1L) ? -1 : values.stream().mapToLong(Long::longValue).sum();
+    }
+
+    private static String quote(final String s) {
+        final var builder = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private static long cpuTime() {
+        return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long allocatedBytes() {
+        if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemorySupported()) {
+            return bean.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * The resources used by a single compilation phase.
+     */
+    public record Phase(String name, long wallNanos, long cpuNanos, long allocatedBytes) { }
+}
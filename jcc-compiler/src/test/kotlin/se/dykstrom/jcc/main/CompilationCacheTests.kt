@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.main
+
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import se.dykstrom.jcc.common.code.TargetProgram
+import se.dykstrom.jcc.common.code.Text
+import se.dykstrom.jcc.common.error.CompilationWarning
+import se.dykstrom.jcc.common.error.Warning.FLOAT_CONVERSION
+import se.dykstrom.jcc.common.error.Warning.UNDEFINED_VARIABLE
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+
+class CompilationCacheTests {
+
+    @TempDir
+    lateinit var directory: Path
+
+    private val cache by lazy { CompilationCache(directory.resolve("cache"), 1024 * 1024) }
+
+    @Test
+    fun shouldComputeSameKeyForSameInputs() {
+        assertEquals(cache.key(SOURCE, "foo.bas", "-O1"), cache.key(SOURCE, "foo.bas", "-O1"))
+    }
+
+    @Test
+    fun shouldComputeDifferentKeysForDifferentInputs() {
+        val key = cache.key(SOURCE, "foo.bas", "-O1")
+        assertNotEquals(key, cache.key("PRINT 2".toByteArray(), "foo.bas", "-O1"))
+        assertNotEquals(key, cache.key(SOURCE, "bar.bas", "-O1"))
+        assertNotEquals(key, cache.key(SOURCE, "foo.bas", "-O2"))
+        assertNotEquals(cache.key(SOURCE, "ab", "c"), cache.key(SOURCE, "a", "bc"))
+    }
+
+    @Test
+    fun shouldNotFindMissingEntry() {
+        val key = cache.key(SOURCE)
+        assertTrue(cache.getProgram(key).isEmpty)
+        assertTrue(cache.getWarnings(key).isEmpty())
+        assertFalse(cache.getExecutable(key, directory.resolve("foo.exe")))
+    }
+
+    @Test
+    fun shouldPutAndGetProgram() {
+        // Given
+        val key = cache.key(SOURCE)
+        val warnings = listOf(
+            CompilationWarning(1, 7, "undefined variable: foo", UNDEFINED_VARIABLE),
+            CompilationWarning(2, 0, "implicit\tconversion", FLOAT_CONVERSION)
+        )
+
+        // When
+        cache.putProgram(key, program(PROGRAM), warnings)
+
+        // Then
+        assertEquals(PROGRAM, cache.getProgram(key).orElseThrow())
+        assertEquals(warnings, cache.getWarnings(key))
+    }
+
+    @Test
+    fun shouldPutAndGetExecutable() {
+        // Given
+        val key = cache.key(SOURCE)
+        val executablePath = directory.resolve("foo.exe")
+        Files.writeString(executablePath, "executable", UTF_8)
+        val outputPath = directory.resolve("bar.exe")
+
+        // When
+        cache.putProgram(key, program(PROGRAM), listOf())
+        cache.putExecutable(key, executablePath)
+
+        // Then
+        assertTrue(cache.getExecutable(key, outputPath))
+        assertEquals("executable", Files.readString(outputPath, UTF_8))
+    }
+
+    @Test
+    fun shouldEvictLeastRecentlyUsedEntry() {
+        // Given
+        val smallCache = CompilationCache(directory.resolve("small"), 2500)
+        val key1 = smallCache.key("1".toByteArray())
+        val key2 = smallCache.key("2".toByteArray())
+        val key3 = smallCache.key("3".toByteArray())
+        val program = program("x".repeat(1000))
+
+        smallCache.putProgram(key1, program, listOf())
+        smallCache.putProgram(key2, program, listOf())
+        setLastUsed(directory.resolve("small").resolve(key1), 1000)
+        setLastUsed(directory.resolve("small").resolve(key2), 2000)
+
+        // Using entry 1 makes entry 2 the least recently used
+        assertTrue(smallCache.getProgram(key1).isPresent)
+
+        // When
+        smallCache.putProgram(key3, program, listOf())
+
+        // Then
+        assertTrue(smallCache.getProgram(key1).isPresent)
+        assertTrue(smallCache.getProgram(key2).isEmpty)
+        assertTrue(smallCache.getProgram(key3).isPresent)
+    }
+
+    @Test
+    fun shouldFingerprintExecutableInSearchPath() {
+        // Given
+        val bin = Files.createDirectories(directory.resolve("bin"))
+        val executable = Files.writeString(bin.resolve("fasm"), "1")
+        executable.toFile().setExecutable(true)
+
+        // When
+        val fingerprint1 = CompilationCache.fingerprintExecutable("fasm", null, bin.toString())
+        Files.writeString(executable, "12")
+        val fingerprint2 = CompilationCache.fingerprintExecutable("fasm", null, bin.toString())
+
+        // Then
+        assertTrue(fingerprint1.startsWith(executable.toRealPath().toString()))
+        assertNotEquals(fingerprint1, fingerprint2)
+        assertEquals(fingerprint2, CompilationCache.fingerprintExecutable("fasm", directory, "bin"))
+        assertEquals("fasm", CompilationCache.fingerprintExecutable("fasm", null, directory.toString()))
+    }
+
+    @Test
+    fun shouldFingerprintDirectoryContents() {
+        // Given
+        val include = Files.createDirectories(directory.resolve("include").resolve("macro"))
+        val file = Files.writeString(include.resolve("proc64.inc"), "macro proc")
+
+        // When
+        val fingerprint1 = CompilationCache.fingerprintDirectory("include", directory)
+        Files.writeString(file, "macro endp")
+        val fingerprint2 = CompilationCache.fingerprintDirectory("include", directory)
+
+        // Then
+        assertNotEquals(fingerprint1, fingerprint2)
+        assertEquals(fingerprint2, CompilationCache.fingerprintDirectory(directory.resolve("include").toString(), null))
+        assertEquals("null", CompilationCache.fingerprintDirectory(null, directory))
+    }
+
+    private fun program(text: String) = TargetProgram(listOf(Text(text)))
+
+    private fun setLastUsed(path: Path, millis: Long) {
+        Files.setLastModifiedTime(path, FileTime.fromMillis(millis))
+    }
+
+    companion object {
+        private val SOURCE = "PRINT 1".toByteArray()
+        private const val PROGRAM = "format PE64 console\nentry __main\n"
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.main
+
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import se.dykstrom.jcc.main.JccDaemon.Request
+import se.dykstrom.jcc.main.JccDaemon.Response
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.Files
+import java.nio.file.Path
+
+class JccDaemonTests {
+
+    @Test
+    fun shouldCompileRelativeToWorkingDirectory() {
+        // Given
+        val directory = createWorkingDirectory()
+        Files.write(directory.resolve("foo.bas"), listOf("PRINT 1"), UTF_8)
+        val request = Request(directory, listOf("-S", "foo.bas"), mapOf())
+
+        // When
+        val response = JccDaemon.execute(request)
+
+        // Then
+        assertEquals(0, response.status)
+        assertEquals("", response.stderr)
+        assertTrue(Files.exists(directory.resolve("foo.asm")))
+    }
+
+    @Test
+    fun shouldReturnErrorMessages() {
+        // Given
+        val directory = createWorkingDirectory()
+        Files.write(directory.resolve("foo.bas"), listOf("PRINT foo(1)"), UTF_8)
+        val request = Request(directory, listOf("-S", "foo.bas"), mapOf())
+
+        // When
+        val response = JccDaemon.execute(request)
+
+        // Then
+        assertEquals(1, response.status)
+        assertTrue(response.stderr.startsWith("foo.bas:1:7 error: undefined function: foo"))
+    }
+
+    @Test
+    fun shouldReturnUsage() {
+        // Given
+        val request = Request(createWorkingDirectory(), listOf("--help"), mapOf())
+
+        // When
+        val response = JccDaemon.execute(request)
+
+        // Then
+        assertEquals(1, response.status)
+        assertTrue(response.stdout.startsWith("Usage: jcc"))
+    }
+
+    @Test
+    fun shouldReturnVerboseOutputWithoutChangingSystemOut() {
+        // Given
+        val directory = createWorkingDirectory()
+        Files.write(directory.resolve("foo.bas"), listOf("PRINT 1"), UTF_8)
+        val request = Request(directory, listOf("-v", "-S", "--no-cache", "foo.bas"), mapOf())
+        val systemOut = System.out
+
+        // When
+        val response = JccDaemon.execute(request)
+
+        // Then
+        assertEquals(0, response.status)
+        assertTrue(response.stdout.contains("Reading source file"))
+        assertSame(systemOut, System.out)
+    }
+
+    @Test
+    fun shouldNotStartNestedDaemon() {
+        // Given
+        val request = Request(createWorkingDirectory(), listOf("--daemon"), mapOf())
+
+        // When
+        val response = JccDaemon.execute(request)
+
+        // Then
+        assertEquals(1, response.status)
+        assertTrue(response.stderr.contains("compile server is already running"))
+    }
+
+    @Test
+    fun shouldWriteAndReadRequest() {
+        // Given
+        val request = Request(Path.of("/foo/bar"), listOf("-S", "-O2", "file.bas"), mapOf("PATH" to "/bin", "HOME" to "/foo"))
+        val bytes = ByteArrayOutputStream()
+
+        // When
+        request.writeTo(DataOutputStream(bytes))
+        val actual = Request.readFrom(DataInputStream(ByteArrayInputStream(bytes.toByteArray())))
+
+        // Then
+        assertEquals(request, actual)
+    }
+
+    @Test
+    fun shouldWriteRequestStringsWithLength() {
+        // Given
+        val request = Request(Path.of("/foo"), listOf("x".repeat(100_000), "åäö"), mapOf())
+        val bytes = ByteArrayOutputStream()
+
+        // When
+        request.writeTo(DataOutputStream(bytes))
+        val input = DataInputStream(ByteArrayInputStream(bytes.toByteArray()))
+
+        // Then
+        assertEquals("/foo", String(input.readNBytes(input.readInt()), UTF_8))
+        assertEquals(2, input.readInt())
+        assertEquals(100_000, input.readNBytes(input.readInt()).size)
+        assertEquals("åäö", String(input.readNBytes(input.readInt()), UTF_8))
+        assertEquals(0, input.readInt())
+    }
+
+    @Test
+    fun shouldNotReadTruncatedResponse() {
+        // Given
+        val bytes = ByteArrayOutputStream()
+        Response(0, "foo", "bar").writeTo(DataOutputStream(bytes))
+        val truncated = bytes.toByteArray().copyOf(bytes.size() - 1)
+
+        // When & Then
+        assertThrows<EOFException> { Response.readFrom(DataInputStream(ByteArrayInputStream(truncated))) }
+    }
+
+    @Test
+    fun shouldWriteAndReadLargeResponse() {
+        // Given
+        val response = Response(1, "x".repeat(100_000), "åäö")
+        val bytes = ByteArrayOutputStream()
+
+        // When
+        response.writeTo(DataOutputStream(bytes))
+        val actual = Response.readFrom(DataInputStream(ByteArrayInputStream(bytes.toByteArray())))
+
+        // Then
+        assertEquals(response, actual)
+    }
+
+    private fun createWorkingDirectory(): Path {
+        val directory = Files.createTempDirectory("ut_")
+        directory.toFile().deleteOnExit()
+        return directory
+    }
+}
@@ -202,6 +202,228 @@ class JccTests {
         assertTrue(Files.exists(asmPath), "asm file not found: $asmPath")
     }
 
+    @Test
+    fun shouldCompileMultipleFiles() {
+        // Given
+        val (sourcePath1, asmPath1) = createSourceFile("PRINT 1")
+        val (sourcePath2, asmPath2) = createSourceFile("PRINT 2")
+        val (sourcePath3, asmPath3) = createSourceFile("PRINT 3")
+        val args = arrayOf("-S", "-j", "2", sourcePath1.toString(), sourcePath2.toString(), sourcePath3.toString())
+
+        // When
+        val returnCode = Jcc(args).run()
+
+        // Then
+        assertEquals(0, returnCode)
+        assertTrue(Files.exists(asmPath1), "asm file not found: $asmPath1")
+        assertTrue(Files.exists(asmPath2), "asm file not found: $asmPath2")
+        assertTrue(Files.exists(asmPath3), "asm file not found: $asmPath3")
+    }
+
+    @Test
+    fun shouldCompileFilesInFileList() {
+        // Given
+        val (sourcePath1, asmPath1) = createSourceFile("PRINT 1")
+        val (sourcePath2, asmPath2) = createSourceFile("PRINT 2")
+        val fileListPath = Files.createTempFile("ut_", ".txt")
+        fileListPath.toFile().deleteOnExit()
+        Files.write(fileListPath, listOf(sourcePath1.toString(), sourcePath2.toString()), UTF_8)
+        val args = arrayOf("-S", "@$fileListPath")
+
+        // When
+        val returnCode = Jcc(args).run()
+
+        // Then
+        assertEquals(0, returnCode)
+        assertTrue(Files.exists(asmPath1), "asm file not found: $asmPath1")
+        assertTrue(Files.exists(asmPath2), "asm file not found: $asmPath2")
+    }
+
+    @Test
+    fun shouldReportErrorsInSourceFileOrder() {
+        // Given
+        val (sourcePath1, _) = createSourceFile("PRINT foo(1)")
+        val (sourcePath2, asmPath2) = createSourceFile("PRINT 2")
+        val (sourcePath3, _) = createSourceFile("PRINT bar(3)")
+        val args = arrayOf("-S", sourcePath1.toString(), sourcePath2.toString(), sourcePath3.toString())
+
+        // When
+        val output = tapSystemErr {
+            assertEquals(1, Jcc(args).run())
+        }
+
+        // Then
+        val lines = output.lines().filter { it.isNotBlank() }
+        assertEquals(2, lines.size)
+        assertTrue(lines[0].startsWith("$sourcePath1:") && lines[0].contains("error: undefined function: foo"))
+        assertTrue(lines[1].startsWith("$sourcePath3:") && lines[1].contains("error: undefined function: bar"))
+        assertTrue(Files.exists(asmPath2), "asm file not found: $asmPath2")
+    }
+
+    @Test
+    fun shouldReportOutputFileWithMultipleFiles() {
+        // Given
+        val (sourcePath1, _) = createSourceFile("PRINT 1")
+        val (sourcePath2, _) = createSourceFile("PRINT 2")
+        val args = arrayOf("-o", "foo.exe", sourcePath1.toString(), sourcePath2.toString())
+
+        // When
+        val output = tapSystemErr {
+            assertEquals(1, Jcc(args).run())
+        }
+
+        // Then
+        assertTrue(output.contains("cannot specify -o with multiple files"))
+    }
+
+    @Test
+    fun shouldReportInvalidNumberOfJobs() {
+        // Given
+        val (sourcePath, _) = createSourceFile("PRINT")
+        val args = arrayOf("-j", "0", sourcePath.toString())
+
+        // When
+        val output = tapSystemErr {
+            assertEquals(1, Jcc(args).run())
+        }
+
+        // Then
+        assertTrue(output.contains("invalid number of jobs: 0"))
+    }
+
+    @Test
+    fun shouldReportInvalidAssemblerTimeout() {
+        // Given
+        val (sourcePath, _) = createSourceFile("PRINT")
+        val args = arrayOf("-assembler-timeout", "-1", sourcePath.toString())
+
+        // When
+        val output = tapSystemErr {
+            assertEquals(1, Jcc(args).run())
+        }
+
+        // Then
+        assertTrue(output.contains("invalid assembler timeout: -1"))
+    }
+
+    @Test
+    fun shouldReportInvalidGcGrowthFactor() {
+        // Given
+        val (sourcePath, _) = createSourceFile("PRINT")
+        val args = arrayOf("-gc-growth-factor", "0.5", sourcePath.toString())
+
+        // When
+        val output = tapSystemErr {
+            assertEquals(1, Jcc(args).run())
+        }
+
+        // Then
+        assertTrue(output.contains("invalid GC growth factor: 0.5"))
+    }
+
+    @Test
+    fun shouldReportInvalidGcMaxHeap() {
+        // Given
+        val (sourcePath, _) = createSourceFile("PRINT")
+        val args = arrayOf("-gc-min-threshold", "1000", "-gc-max-heap", "999", sourcePath.toString())
+
+        // When
+        val output = tapSystemErr {
+            assertEquals(1, Jcc(args).run())
+        }
+
+        // Then
+        assertTrue(output.contains("invalid GC max heap: 999"))
+    }
+
+    @Test
+    fun shouldReportInvalidPeepholeRule() {
+        // Given
+        val (sourcePath, _) = createSourceFile("PRINT")
+        val args = arrayOf("-fno-peephole-rules", "foo", sourcePath.toString())
+
+        // When
+        val output = tapSystemErr {
+            assertEquals(1, Jcc(args).run())
+        }
+
+        // Then
+        assertTrue(output.contains("invalid peephole rule: foo"))
+    }
+
+    @Test
+    fun shouldReportWarningsFromCache() {
+        // Given
+        val cacheDir = Files.createTempDirectory("ut_")
+        val (sourcePath, asmPath) = createSourceFile("PRINT foo")
+        val args = arrayOf("-S", "-Wundefined-variable", "--cache-dir", cacheDir.toString(), sourcePath.toString())
+
+        // When
+        val output1 = tapSystemErr { assertEquals(0, Jcc(args).run()) }
+        Files.delete(asmPath)
+        val output2 = tapSystemErr { assertEquals(0, Jcc(args).run()) }
+
+        // Then
+        assertTrue(output1.contains("warning: undefined variable: foo"))
+        assertEquals(output1, output2)
+        assertTrue(Files.exists(asmPath), "asm file not found: $asmPath")
+        assertEquals(1, Files.list(cacheDir).count())
+    }
+
+    @Test
+    fun shouldNotUseCache() {
+        // Given
+        val cacheDir = Files.createTempDirectory("ut_")
+        val (sourcePath, asmPath) = createSourceFile("PRINT")
+        val args = arrayOf("-S", "--no-cache", "--cache-dir", cacheDir.toString(), sourcePath.toString())
+
+        // When
+        val returnCode = Jcc(args).run()
+
+        // Then
+        assertEquals(0, returnCode)
+        assertTrue(Files.exists(asmPath), "asm file not found: $asmPath")
+        assertEquals(0, Files.list(cacheDir).count())
+    }
+
+    @Test
+    fun shouldPrintTimeReport() {
+        // Given
+        val (sourcePath, _) = createSourceFile("PRINT 1 + 2")
+        val args = arrayOf("-S", "--no-cache", "-ftime-report", sourcePath.toString())
+
+        // When
+        val output = tapSystemErr {
+            assertEquals(0, Jcc(args).run())
+        }
+
+        // Then
+        assertTrue(output.contains("Time report for $sourcePath"))
+        listOf("syntax", "semantics", "optimization", "code generation", "file write", "total", "AST nodes", "emitted lines")
+            .forEach { assertTrue(output.contains(it), "phase not found: $it") }
+    }
+
+    @Test
+    fun shouldWriteTimeReportJson() {
+        // Given
+        val (sourcePath1, _) = createSourceFile("PRINT 1")
+        val (sourcePath2, _) = createSourceFile("PRINT 2")
+        val reportPath = Files.createTempFile("ut_", ".json")
+        reportPath.toFile().deleteOnExit()
+        val args = arrayOf("-S", "--no-cache", "-ftime-report-json", reportPath.toString(), sourcePath1.toString(), sourcePath2.toString())
+
+        // When
+        val returnCode = Jcc(args).run()
+
+        // Then
+        assertEquals(0, returnCode)
+        val json = Files.readString(reportPath)
+        assertTrue(json.trim().startsWith("[") && json.trim().endsWith("]"))
+        assertTrue(json.indexOf("\"file\":\"$sourcePath1\"") < json.indexOf("\"file\":\"$sourcePath2\""))
+        assertTrue(json.contains("\"name\":\"code generation\""))
+        assertTrue(json.contains("\"emitted lines\":"))
+    }
+
     private fun createSourceFile(text: String, sourceExt: String = "bas", outputExt: String = "asm"): Pair<Path, Path> {
         val sourcePath = Files.createTempFile("ut_", ".$sourceExt")
         sourcePath.toFile().deleteOnExit()
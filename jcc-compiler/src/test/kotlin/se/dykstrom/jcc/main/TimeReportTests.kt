@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2026 Johan Dykstrom
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package se.dykstrom.jcc.main
+
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import se.dykstrom.jcc.common.ast.*
+import java.util.function.Supplier
+
+class TimeReportTests {
+
+    @Test
+    fun shouldMeasurePhases() {
+        // Given
+        val report = TimeReport()
+
+        // When
+        val result = report.measure("first", Supplier { (1..1000).map { it.toString() }.size })
+        report.measure("second") { Thread.sleep(10) }
+
+        // Then
+        assertEquals(1000, result)
+        assertEquals(listOf("first", "second"), report.phases().map { it.name })
+        assertTrue(report.phases()[1].wallNanos >= 10_000_000)
+        assertTrue(report.phases()[0].allocatedBytes != 0L)
+    }
+
+    @Test
+    fun shouldNotRecordAnythingWhenDisabled() {
+        // When
+        val result = TimeReport.DISABLED.measure("phase", Supplier { 17 })
+        TimeReport.DISABLED.count("counter", 1)
+
+        // Then
+        assertEquals(17, result)
+        assertTrue(TimeReport.DISABLED.phases().isEmpty())
+        assertTrue(TimeReport.DISABLED.counters().isEmpty())
+    }
+
+    @Test
+    fun shouldFormatTable() {
+        // Given
+        val report = TimeReport()
+        report.measure("syntax") { }
+        report.count("AST nodes", 17)
+
+        // When
+        val table = report.toTable("foo.bas")
+
+        // Then
+        assertTrue(table.startsWith("Time report for foo.bas"))
+        assertTrue(table.contains("syntax"))
+        assertTrue(table.contains("total"))
+        assertTrue(table.lines().any { it.contains("AST nodes") && it.endsWith("17") })
+    }
+
+    @Test
+    fun shouldFormatJson() {
+        // Given
+        val report = TimeReport()
+        report.count("emitted lines", 5)
+
+        // When
+        val json = report.toJson("dir\\\"foo\".bas")
+
+        // Then
+        assertEquals("{\"file\":\"dir\\\\\\\"foo\\\".bas\",\"phases\":[],\"counters\":{\"emitted lines\":5}}", json)
+    }
+
+    @Test
+    fun shouldCountNodes() {
+        // Given
+        val expression = AddExpression(0, 0, IntegerLiteral.ONE, MulExpression(0, 0, IntegerLiteral.M_ONE, IntegerLiteral.ZERO))
+        val statement = WhileStatement(0, 0, BooleanLiteral.TRUE, listOf(CommentStatement(0, 0, "comment")))
+        val program = AstProgram(0, 0, listOf(statement, ExitStatement(0, 0, expression)))
+
+        // When
+        val count = TimeReport.countNodes(program)
+
+        // Then
+        // program, while, true, comment, exit, add, 1, mul, -1, 0
+        assertEquals(10, count)
+    }
+}
@@ -21,6 +21,8 @@ import se.dykstrom.jcc.llvm.LlvmOperator;
 import se.dykstrom.jcc.llvm.operand.LlvmOperand;
 import se.dykstrom.jcc.llvm.operand.TempOperand;
 
+import java.io.IOException;
+
 import static java.util.Objects.requireNonNull;
 
 public record BinaryOperation(TempOperand result,
@@ -54,6 +56,17 @@ public record BinaryOperation(TempOperand result,
                 right.toText();
     }
 
+    @Override
+    public void appendTo(final Appendable out) throws IOException {
+        out.append(result.toText()).append(" = ").append(operator.toText()).append(' ');
+        for (String flag : flags) {
+            out.append(flag).append(' ');
+        }
+        out.append(left.type().llvmName()).append(' ')
+           .append(left.toText()).append(", ")
+           .append(right.toText());
+    }
+
     @Override
     public String toString() {
         return toText();
@@ -20,6 +20,8 @@ package se.dykstrom.jcc.llvm.operation;
 import se.dykstrom.jcc.common.types.Type;
 import se.dykstrom.jcc.llvm.operand.LlvmOperand;
 
+import java.io.IOException;
+
 import static se.dykstrom.jcc.llvm.LlvmOperator.LOAD;
 
 public record LoadOperation(LlvmOperand destination, LlvmOperand source) implements LlvmOperation {
@@ -33,6 +35,14 @@ public record LoadOperation(LlvmOperand destination, LlvmOperand source) impleme
                 "ptr " + source.toText();
     }
 
+    @Override
+    public void appendTo(final Appendable out) throws IOException {
+        out.append(destination.toText()).append(" = ")
+           .append(LOAD.toText()).append(' ')
+           .append(source.type().llvmName()).append(", ")
+           .append("ptr ").append(source.toText());
+    }
+
     @Override
     public String toString() {
         return toText();
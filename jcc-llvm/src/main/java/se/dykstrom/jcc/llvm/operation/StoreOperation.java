@@ -20,6 +20,8 @@ package se.dykstrom.jcc.llvm.operation;
 import se.dykstrom.jcc.common.types.Type;
 import se.dykstrom.jcc.llvm.operand.LlvmOperand;
 
+import java.io.IOException;
+
 import static se.dykstrom.jcc.llvm.LlvmOperator.STORE;
 
 public record StoreOperation(LlvmOperand source, LlvmOperand destination) implements LlvmOperation {
@@ -33,6 +35,14 @@ public record StoreOperation(LlvmOperand source, LlvmOperand destination) implem
                 "ptr " + destination.toText();
     }
 
+    @Override
+    public void appendTo(final Appendable out) throws IOException {
+        out.append(STORE.toText()).append(' ')
+           .append(source.type().llvmName()).append(' ')
+           .append(source.toText()).append(", ")
+           .append("ptr ").append(destination.toText());
+    }
+
     @Override
     public String toString() {
         return toText();
@@ -49,7 +49,7 @@ public class TinySyntaxParser implements SyntaxParser {
         TinyParser parser = new TinyParser(new CommonTokenStream(lexer));
         parser.addErrorListener(errorListener);
 
-        TinyParser.ProgramContext ctx = parser.program();
+        TinyParser.ProgramContext ctx = Antlr4Utils.parse(parser, TinyParser::program);
         Antlr4Utils.checkParsingComplete(parser);
 
         // If we discovered syntax errors, we stop here